@@ -84,7 +84,7 @@ public interface MiscObjectIdentifiers
     ASN1ObjectIdentifier cryptlib_algorithm_blowfish_OFB = cryptlib_algorithm.branch("1.4");
 
     //
-    // Blake2b
+    // Blake2b and Blake2s
     //
     ASN1ObjectIdentifier blake2 = new ASN1ObjectIdentifier("1.3.6.1.4.1.1722.12.2");
 
@@ -93,6 +93,11 @@ public interface MiscObjectIdentifiers
     ASN1ObjectIdentifier id_blake2b384 = blake2.branch("1.12");
     ASN1ObjectIdentifier id_blake2b512 = blake2.branch("1.16");
 
+    ASN1ObjectIdentifier id_blake2s128 = blake2.branch("2.4");
+    ASN1ObjectIdentifier id_blake2s160 = blake2.branch("2.5");
+    ASN1ObjectIdentifier id_blake2s224 = blake2.branch("2.7");
+    ASN1ObjectIdentifier id_blake2s256 = blake2.branch("2.8");
+
     //
     // Scrypt
     ASN1ObjectIdentifier id_scrypt = new ASN1ObjectIdentifier("1.3.6.1.4.1.11591.4.11");
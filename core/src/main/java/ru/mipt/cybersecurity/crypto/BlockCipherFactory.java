@@ -0,0 +1,15 @@
+package ru.mipt.cybersecurity.crypto;
+
+/**
+ * Source of fresh block cipher instances, used where work is spread over several threads and each
+ * thread needs an engine of its own.
+ */
+public interface BlockCipherFactory
+{
+    /**
+     * Return a new, uninitialised, block cipher instance.
+     *
+     * @return a new block cipher.
+     */
+    BlockCipher createBlockCipher();
+}
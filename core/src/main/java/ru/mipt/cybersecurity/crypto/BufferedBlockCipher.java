@@ -1,5 +1,8 @@
 package ru.mipt.cybersecurity.crypto;
 
+import java.nio.ByteBuffer;
+
+import ru.mipt.cybersecurity.crypto.util.ByteBuffers;
 
 /**
  * A wrapper class that allows block ciphers to be used to process data in
@@ -225,6 +228,16 @@ public class BufferedBlockCipher
             len -= gapLen;
             inOff += gapLen;
 
+            if (cipher instanceof MultiBlockCipher && len > buf.length)
+            {
+                int blockCount = (len - buf.length + blockSize - 1) / blockSize;
+                int processed = ((MultiBlockCipher)cipher).processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+
+                resultLen += processed;
+                len -= processed;
+                inOff += processed;
+            }
+
             while (len > buf.length)
             {
                 resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
@@ -247,6 +260,27 @@ public class BufferedBlockCipher
         return resultLen;
     }
 
+    /**
+     * process the remaining bytes in a buffer, producing output if necessary. Buffers
+     * with an accessible backing array are processed without copying. in and out may
+     * share memory provided out trails in by at least the bytes held back from earlier
+     * calls, as it does when a single buffer is processed in place.
+     *
+     * @param in the buffer containing the input data, its position is advanced to its limit.
+     * @param out the buffer for any output that might be produced, its position is advanced
+     * past the output.
+     * @return the number of output bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     */
+    public int processBytes(
+        ByteBuffer  in,
+        ByteBuffer  out)
+        throws DataLengthException, IllegalStateException
+    {
+        return ByteBuffers.processBytes(this, in, out);
+    }
+
     /**
      * Process the last block in the buffer.
      *
@@ -296,6 +330,24 @@ public class BufferedBlockCipher
         }
     }
 
+    /**
+     * Process the last block in the buffer, writing the output to a buffer.
+     *
+     * @param out the buffer the output is written to, its position is advanced past the output.
+     * @return the number of output bytes written to out.
+     * @exception DataLengthException if there is insufficient space in out for
+     * the output, or the input is not block size aligned and should be.
+     * @exception IllegalStateException if the underlying cipher is not
+     * initialised.
+     * @exception InvalidCipherTextException if padding is expected and not found.
+     */
+    public int doFinal(
+        ByteBuffer  out)
+        throws DataLengthException, IllegalStateException, InvalidCipherTextException
+    {
+        return ByteBuffers.doFinal(this, out);
+    }
+
     /**
      * Reset the buffer and cipher. After resetting the object is in the same
      * state as it was after the last init (if there was one).
@@ -0,0 +1,24 @@
+package ru.mipt.cybersecurity.crypto;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A stream cipher that can read and write {@link ByteBuffer} objects directly, including direct buffers,
+ * without staging the data through a heap array.
+ */
+public interface ByteBufferStreamCipher
+    extends StreamCipher
+{
+    /**
+     * Process the bytes from in's position to its limit, writing the result to out from its position.
+     * Both positions are advanced past the bytes used. in and out may share memory provided the output
+     * starts at, or before, the input.
+     *
+     * @param in the buffer containing the input data.
+     * @param out the buffer the output data is written to.
+     * @return the number of bytes produced - this will be the number of bytes consumed.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException;
+}
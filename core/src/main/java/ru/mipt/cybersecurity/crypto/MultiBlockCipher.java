@@ -0,0 +1,33 @@
+package ru.mipt.cybersecurity.crypto;
+
+/**
+ * Block cipher engines and modes that can process several consecutive blocks in a single call
+ * implement this.
+ */
+public interface MultiBlockCipher
+    extends BlockCipher
+{
+    /**
+     * Return the preferred number of bytes to pass to a single call of processBlocks - this will
+     * always be a multiple of the block size.
+     *
+     * @return the preferred multi-block size in bytes.
+     */
+    public int getMultiBlockSize();
+
+    /**
+     * Process blockCount blocks of input from the array in and write them to the out array.
+     *
+     * @param in the array containing the input data.
+     * @param inOff offset into the in array the data starts at.
+     * @param blockCount the number of blocks to be processed.
+     * @param out the array the output data will be copied into.
+     * @param outOff the offset into the out array the output will start at.
+     * @exception DataLengthException if there isn't enough data in in, or
+     * space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     * @return the number of bytes processed and produced.
+     */
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException;
+}
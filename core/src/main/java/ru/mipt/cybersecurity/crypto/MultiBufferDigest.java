@@ -0,0 +1,84 @@
+package ru.mipt.cybersecurity.crypto;
+
+/**
+ * Digests which hash several independent messages of the same, fixed, length together, one message
+ * per lane, implement this.
+ * <p>
+ * Messages can either be queued one at a time with submit() and their digests collected with harvest(),
+ * or passed in bulk as consecutive messages in a single array to digest().
+ * </p>
+ */
+public interface MultiBufferDigest
+{
+    /**
+     * Return the algorithm name
+     *
+     * @return the algorithm name
+     */
+    public String getAlgorithmName();
+
+    /**
+     * Return the size, in bytes, of the digest produced for each message.
+     *
+     * @return the size, in bytes, of each digest.
+     */
+    public int getDigestSize();
+
+    /**
+     * Return the length, in bytes, every message must have.
+     *
+     * @return the message length in bytes.
+     */
+    public int getMessageLength();
+
+    /**
+     * Return the number of messages hashed together, and so the number that can be submitted
+     * before harvest() must be called.
+     *
+     * @return the number of lanes.
+     */
+    public int getLaneCount();
+
+    /**
+     * Queue a message of getMessageLength() bytes for hashing.
+     *
+     * @param in the array containing the message.
+     * @param inOff offset into the in array the message starts at.
+     * @return true if all the lanes are now in use, and harvest() must be called before the next submit().
+     * @exception DataLengthException if there isn't a whole message in in.
+     * @exception IllegalStateException if all the lanes are already in use.
+     */
+    public boolean submit(byte[] in, int inOff)
+        throws DataLengthException, IllegalStateException;
+
+    /**
+     * Hash the queued messages, writing their digests to out, one after another, in the order the
+     * messages were submitted.
+     *
+     * @param out the array the digests are to be copied into.
+     * @param outOff the offset into the out array the digests start at.
+     * @return the number of digests written.
+     * @exception OutputLengthException if there isn't room in out for all the digests.
+     */
+    public int harvest(byte[] out, int outOff)
+        throws OutputLengthException;
+
+    /**
+     * Hash count consecutive messages from in, writing their digests to out one after another.
+     *
+     * @param in the array containing the messages.
+     * @param inOff offset into the in array the first message starts at.
+     * @param count the number of messages.
+     * @param out the array the digests are to be copied into.
+     * @param outOff the offset into the out array the digests start at.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough data in in, or space in out.
+     */
+    public int digest(byte[] in, int inOff, int count, byte[] out, int outOff)
+        throws DataLengthException;
+
+    /**
+     * Discard any queued messages.
+     */
+    public void reset();
+}
@@ -0,0 +1,23 @@
+package ru.mipt.cybersecurity.crypto;
+
+/**
+ * The interface for agreements whose result is a fixed length byte string rather than a number,
+ * such as X25519.
+ */
+public interface RawAgreement
+{
+    /**
+     * initialise the agreement engine.
+     */
+    void init(CipherParameters param);
+
+    /**
+     * return the size of the agreement value in bytes.
+     */
+    int getAgreementSize();
+
+    /**
+     * given a public key from a given party calculate the agreement value into buf.
+     */
+    void calculateAgreement(CipherParameters publicKey, byte[] buf, int off);
+}
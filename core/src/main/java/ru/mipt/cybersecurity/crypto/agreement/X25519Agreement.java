@@ -0,0 +1,30 @@
+package ru.mipt.cybersecurity.crypto.agreement;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.RawAgreement;
+import ru.mipt.cybersecurity.crypto.params.X25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.X25519PublicKeyParameters;
+
+/**
+ * The X25519 key agreement of RFC 7748.
+ */
+public final class X25519Agreement
+    implements RawAgreement
+{
+    private X25519PrivateKeyParameters privateKey;
+
+    public void init(CipherParameters parameters)
+    {
+        this.privateKey = (X25519PrivateKeyParameters)parameters;
+    }
+
+    public int getAgreementSize()
+    {
+        return X25519PrivateKeyParameters.SECRET_SIZE;
+    }
+
+    public void calculateAgreement(CipherParameters publicKey, byte[] buf, int off)
+    {
+        privateKey.generateSecret((X25519PublicKeyParameters)publicKey, buf, off);
+    }
+}
@@ -8,7 +8,7 @@ package ru.mipt.cybersecurity.crypto.digests;
  Reference Implementation and Description can be found at: https://blake2.net/      
  Internet Draft: https://tools.ietf.org/html/draft-saarinen-blake2-02
 
- This implementation does not support the Tree Hashing Mode. 
+ Tree Hashing Mode is supported through the node parameters, see Blake2bpDigest.
  
    For unkeyed hashing, developers adapting BLAKE2 to ASN.1 - based
    message formats SHOULD use the OID tree at x = 1.3.6.1.4.1.1722.12.2.
@@ -81,14 +81,14 @@ public class Blake2bDigest
     // the key
     private byte[] key = null;
 
-    // Tree hashing parameters:
-    // Because this class does not implement the Tree Hashing Mode,
-    // these parameters can be treated as constants (see init() function)
-	/*
-	 * private int fanout = 1; // 0-255 private int depth = 1; // 1 - 255
-	 * private int leafLength= 0; private long nodeOffset = 0L; private int
-	 * nodeDepth = 0; private int innerHashLength = 0;
-	 */
+    // Tree hashing parameters, sequential mode unless set by a tree digest:
+    private int fanout = 1; // 0-255
+    private int depth = 1; // 1 - 255
+    private int leafLength = 0;
+    private long nodeOffset = 0L;
+    private int nodeDepth = 0;
+    private int innerHashLength = 0;
+    private boolean isLastNode = false;
 
     // whenever this buffer overflows, it will be processed
     // in the compress() function.
@@ -105,9 +105,7 @@ public class Blake2bDigest
     private long t0 = 0L; // holds last significant bits, counter (counts bytes)
     private long t1 = 0L; // counter: Length up to 2^128 are supported
     private long f0 = 0L; // finalization flag, for last block: ~0L
-
-    // For Tree Hashing Mode, not used here:
-    // private long f1 = 0L; // finalization flag, for last node: ~0L
+    private long f1 = 0L; // finalization flag, for last node: ~0L
 
     public Blake2bDigest()
     {
@@ -127,6 +125,13 @@ public class Blake2bDigest
         this.t0 = digest.t0;
         this.t1 = digest.t1;
         this.f0 = digest.f0;
+        this.fanout = digest.fanout;
+        this.depth = digest.depth;
+        this.leafLength = digest.leafLength;
+        this.nodeOffset = digest.nodeOffset;
+        this.nodeDepth = digest.nodeDepth;
+        this.innerHashLength = digest.innerHashLength;
+        this.isLastNode = digest.isLastNode;
     }
 
     /**
@@ -237,6 +242,34 @@ public class Blake2bDigest
         init();
     }
 
+    /**
+     * Tree hashing node - any key is passed through update() by the tree digest, so only
+     * its length is recorded here.
+     *
+     * @param digestLength    from 1 up to 64 bytes
+     * @param keyLength       the length of the key used by the tree
+     * @param fanout          the fanout of the tree, 0 for unlimited
+     * @param depth           the maximal depth of the tree
+     * @param nodeOffset      the offset of the node within its level
+     * @param nodeDepth       the level of the node, 0 for the leaves
+     * @param innerHashLength the size of the digests passed between levels
+     * @param isLastNode      true if this node is the last one on its level
+     */
+    Blake2bDigest(int digestLength, int keyLength, int fanout, int depth, long nodeOffset, int nodeDepth,
+        int innerHashLength, boolean isLastNode)
+    {
+        buffer = new byte[BLOCK_LENGTH_BYTES];
+        this.digestLength = digestLength;
+        this.keyLength = keyLength;
+        this.fanout = fanout;
+        this.depth = depth;
+        this.nodeOffset = nodeOffset;
+        this.nodeDepth = nodeDepth;
+        this.innerHashLength = innerHashLength;
+        this.isLastNode = isLastNode;
+        init();
+    }
+
     // initialize chainValue
     private void init()
     {
@@ -245,14 +278,10 @@ public class Blake2bDigest
             chainValue = new long[8];
 
             chainValue[0] = blake2b_IV[0]
-                ^ (digestLength | (keyLength << 8) | 0x1010000);
-            // 0x1010000 = ((fanout << 16) | (depth << 24) | (leafLength <<
-            // 32));
-            // with fanout = 1; depth = 0; leafLength = 0;
-            chainValue[1] = blake2b_IV[1];// ^ nodeOffset; with nodeOffset = 0;
-            chainValue[2] = blake2b_IV[2];// ^ ( nodeDepth | (innerHashLength <<
-            // 8) );
-            // with nodeDepth = 0; innerHashLength = 0;
+                ^ (digestLength | (keyLength << 8) | (fanout << 16) | ((long)depth << 24)
+                    | ((long)leafLength << 32));
+            chainValue[1] = blake2b_IV[1] ^ nodeOffset;
+            chainValue[2] = blake2b_IV[2] ^ (nodeDepth | (innerHashLength << 8));
 
             chainValue[3] = blake2b_IV[3];
 
@@ -282,7 +311,7 @@ public class Blake2bDigest
         internalState[12] = t0 ^ blake2b_IV[4];
         internalState[13] = t1 ^ blake2b_IV[5];
         internalState[14] = f0 ^ blake2b_IV[6];
-        internalState[15] = blake2b_IV[7];// ^ f1 with f1 = 0
+        internalState[15] = f1 ^ blake2b_IV[7];
     }
 
     /**
@@ -391,6 +420,10 @@ public class Blake2bDigest
     {
 
         f0 = 0xFFFFFFFFFFFFFFFFL;
+        if (isLastNode)
+        {
+            f1 = 0xFFFFFFFFFFFFFFFFL;
+        }
         t0 += bufferPos;
         if (bufferPos > 0 && t0 == 0)
         {
@@ -430,6 +463,7 @@ public class Blake2bDigest
     {
         bufferPos = 0;
         f0 = 0L;
+        f1 = 0L;
         t0 = 0L;
         t1 = 0L;
         chainValue = null;
@@ -0,0 +1,104 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.ExtendedDigest;
+
+/**
+ * Implementation of BLAKE2bp, the 4-way parallel tree mode of BLAKE2b.
+ * <p>
+ * The input is dealt out 128 bytes at a time to 4 BLAKE2b leaves, which can be hashed on separate
+ * threads. The result is a 512 bit digest, which differs from the BLAKE2b one for the same input.
+ * </p>
+ */
+public class Blake2bpDigest
+    extends ParallelBlake2Digest
+{
+    private static final int PARALLELISM_DEGREE = 4;
+    private static final int OUT_BYTES = 64;
+
+    /**
+     * Sequential, unkeyed, BLAKE2bp.
+     */
+    public Blake2bpDigest()
+    {
+        this(null, null);
+    }
+
+    /**
+     * Keyed BLAKE2bp hashing the leaves in parallel on the passed in executor (a ForkJoinPool works
+     * well) once an update covers the default threshold of 64 KiB.
+     *
+     * @param key a key up to 64 bytes, or null.
+     * @param executor the executor the leaves are hashed on, null for sequential processing.
+     */
+    public Blake2bpDigest(byte[] key, ExecutorService executor)
+    {
+        this(key, executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Keyed BLAKE2bp with the minimum update size for parallel processing specified.
+     *
+     * @param key a key up to 64 bytes, or null.
+     * @param executor the executor the leaves are hashed on, null for sequential processing.
+     * @param parallelThreshold the smallest update, in bytes, to hash the leaves in parallel for.
+     */
+    public Blake2bpDigest(byte[] key, ExecutorService executor, int parallelThreshold)
+    {
+        super(createLeaves(keyLength(key)), createRoot(keyLength(key)), key, executor, parallelThreshold);
+    }
+
+    public Blake2bpDigest(Blake2bpDigest digest)
+    {
+        super(digest, copyLeaves(digest.getLeaves()), new Blake2bDigest((Blake2bDigest)digest.getRoot()));
+    }
+
+    public String getAlgorithmName()
+    {
+        return "BLAKE2bp";
+    }
+
+    private static int keyLength(byte[] key)
+    {
+        if (key == null)
+        {
+            return 0;
+        }
+        if (key.length > OUT_BYTES)
+        {
+            throw new IllegalArgumentException("Keys > " + OUT_BYTES + " are not supported");
+        }
+        return key.length;
+    }
+
+    private static ExtendedDigest[] createLeaves(int keyLength)
+    {
+        ExtendedDigest[] leaves = new ExtendedDigest[PARALLELISM_DEGREE];
+
+        for (int i = 0; i != leaves.length; i++)
+        {
+            leaves[i] = new Blake2bDigest(OUT_BYTES, keyLength, PARALLELISM_DEGREE, 2, i, 0, OUT_BYTES,
+                i == PARALLELISM_DEGREE - 1);
+        }
+
+        return leaves;
+    }
+
+    private static ExtendedDigest createRoot(int keyLength)
+    {
+        return new Blake2bDigest(OUT_BYTES, keyLength, PARALLELISM_DEGREE, 2, 0, 1, OUT_BYTES, true);
+    }
+
+    private static ExtendedDigest[] copyLeaves(ExtendedDigest[] leaves)
+    {
+        ExtendedDigest[] copies = new ExtendedDigest[leaves.length];
+
+        for (int i = 0; i != leaves.length; i++)
+        {
+            copies[i] = new Blake2bDigest((Blake2bDigest)leaves[i]);
+        }
+
+        return copies;
+    }
+}
@@ -0,0 +1,536 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+
+/*  The BLAKE2 cryptographic hash function was designed by Jean-
+ Philippe Aumasson, Samuel Neves, Zooko Wilcox-O'Hearn, and Christian
+ Winnerlein.
+
+ Reference Implementation and Description can be found at: https://blake2.net/
+ RFC: https://tools.ietf.org/html/rfc7693
+
+ Tree Hashing Mode is supported through the node parameters, see Blake2spDigest.
+
+   For unkeyed hashing, developers adapting BLAKE2 to ASN.1 - based
+   message formats SHOULD use the OID tree at x = 1.3.6.1.4.1.1722.12.2.
+
+         Algorithm     | Target | Collision | Hash | Hash ASN.1 |
+            Identifier |  Arch  |  Security |  nn  | OID Suffix |
+        ---------------+--------+-----------+------+------------+
+         id-blake2s128 | 32-bit |   2**64   |  16  |   x.2.4    |
+         id-blake2s160 | 32-bit |   2**80   |  20  |   x.2.5    |
+         id-blake2s224 | 32-bit |   2**112  |  28  |   x.2.7    |
+         id-blake2s256 | 32-bit |   2**128  |  32  |   x.2.8    |
+        ---------------+--------+-----------+------+------------+
+ */
+
+import ru.mipt.cybersecurity.crypto.ExtendedDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+
+/**
+ * Implementation of the cryptographic hash function BLAKE2s.
+ * <p>
+ * BLAKE2s offers a built-in keying mechanism to be used directly
+ * for authentication ("Prefix-MAC") rather than a HMAC construction.
+ * <p>
+ * BLAKE2s offers a built-in support for a salt for randomized hashing
+ * and a personal string for defining a unique hash function for each application.
+ * <p>
+ * BLAKE2s is optimized for 32-bit platforms and produces digests of any size
+ * between 1 and 32 bytes.
+ */
+public class Blake2sDigest
+    implements ExtendedDigest
+{
+    // BLAKE2s Initialization Vector:
+    private final static int blake2s_IV[] =
+        // Produced from the square root of primes 2, 3, 5, 7, 11, 13, 17, 19.
+        // The same as SHA-256 IV.
+        {
+            0x6a09e667, 0xbb67ae85, 0x3c6ef372,
+            0xa54ff53a, 0x510e527f, 0x9b05688c,
+            0x1f83d9ab, 0x5be0cd19
+        };
+
+    // Message word permutations:
+    private final static byte[][] blake2s_sigma =
+        {
+            {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15},
+            {14, 10, 4, 8, 9, 15, 13, 6, 1, 12, 0, 2, 11, 7, 5, 3},
+            {11, 8, 12, 0, 5, 2, 15, 13, 10, 14, 3, 6, 7, 1, 9, 4},
+            {7, 9, 3, 1, 13, 12, 11, 14, 2, 6, 5, 10, 4, 0, 15, 8},
+            {9, 0, 5, 7, 2, 4, 10, 15, 14, 1, 11, 12, 6, 8, 3, 13},
+            {2, 12, 6, 10, 0, 11, 8, 3, 4, 13, 7, 5, 15, 14, 1, 9},
+            {12, 5, 1, 15, 14, 13, 4, 10, 0, 7, 6, 3, 9, 2, 8, 11},
+            {13, 11, 7, 14, 12, 1, 3, 9, 5, 0, 15, 4, 8, 6, 2, 10},
+            {6, 15, 14, 9, 11, 3, 0, 8, 12, 2, 13, 7, 1, 4, 10, 5},
+            {10, 2, 8, 4, 7, 6, 1, 5, 15, 11, 9, 14, 3, 12, 13, 0}
+        };
+
+    private final static int ROUNDS = 10;
+    private final static int BLOCK_LENGTH_BYTES = 64;// bytes
+
+    // General parameters:
+    private int digestLength = 32; // 1- 32 bytes
+    private int keyLength = 0; // 0 - 32 bytes for keyed hashing for MAC
+    private byte[] salt = null;
+    private byte[] personalization = null;
+
+    // the key
+    private byte[] key = null;
+
+    // Tree hashing parameters, sequential mode unless set by a tree digest:
+    private int fanout = 1; // 0-255
+    private int depth = 1; // 1 - 255
+    private int leafLength = 0;
+    private long nodeOffset = 0L; // 48 bits
+    private int nodeDepth = 0;
+    private int innerHashLength = 0;
+    private boolean isLastNode = false;
+
+    // whenever this buffer overflows, it will be processed
+    // in the compress() function.
+    // For performance issues, long messages will not use this buffer.
+    private byte[] buffer;
+    // Position of last inserted byte:
+    private int bufferPos = 0;// a value from 0 up to 64
+
+    private int[] internalState = new int[16]; // In the BLAKE2s paper it is
+    // called: v
+    private int[] m = new int[16]; // the message block words
+    private int[] chainValue = null; // state vector, in the BLAKE2s paper it
+    // is called: h
+
+    private int t0 = 0; // holds last significant bits, counter (counts bytes)
+    private int t1 = 0; // counter: Length up to 2^64 are supported
+    private int f0 = 0; // finalization flag, for last block: ~0
+    private int f1 = 0; // finalization flag, for last node: ~0
+
+    public Blake2sDigest()
+    {
+        this(256);
+    }
+
+    public Blake2sDigest(Blake2sDigest digest)
+    {
+        this.bufferPos = digest.bufferPos;
+        this.buffer = Arrays.clone(digest.buffer);
+        this.keyLength = digest.keyLength;
+        this.key = Arrays.clone(digest.key);
+        this.digestLength = digest.digestLength;
+        this.chainValue = Arrays.clone(digest.chainValue);
+        this.personalization = Arrays.clone(digest.personalization);
+        this.salt = Arrays.clone(digest.salt);
+        this.t0 = digest.t0;
+        this.t1 = digest.t1;
+        this.f0 = digest.f0;
+        this.fanout = digest.fanout;
+        this.depth = digest.depth;
+        this.leafLength = digest.leafLength;
+        this.nodeOffset = digest.nodeOffset;
+        this.nodeDepth = digest.nodeDepth;
+        this.innerHashLength = digest.innerHashLength;
+        this.isLastNode = digest.isLastNode;
+    }
+
+    /**
+     * Basic sized constructor - size in bits.
+     *
+     * @param digestSize size of the digest in bits
+     */
+    public Blake2sDigest(int digestSize)
+    {
+        if (digestSize != 128 && digestSize != 160 && digestSize != 224 && digestSize != 256)
+        {
+            throw new IllegalArgumentException("BLAKE2s digest restricted to one of [128, 160, 224, 256]");
+        }
+
+        buffer = new byte[BLOCK_LENGTH_BYTES];
+        keyLength = 0;
+        this.digestLength = digestSize / 8;
+        init();
+    }
+
+    /**
+     * BLAKE2s for authentication ("Prefix-MAC mode").
+     * After calling the doFinal() method, the key will
+     * remain to be used for further computations of
+     * this instance.
+     * The key can be overwritten using the clearKey() method.
+     *
+     * @param key A key up to 32 bytes or null
+     */
+    public Blake2sDigest(byte[] key)
+    {
+        this(key, 32, null, null);
+    }
+
+    /**
+     * BLAKE2s with key, required digest length (in bytes), salt and personalization.
+     * After calling the doFinal() method, the key, the salt and the personal string
+     * will remain and might be used for further computations with this instance.
+     * The key can be overwritten using the clearKey() method, the salt (pepper)
+     * can be overwritten using the clearSalt() method.
+     *
+     * @param key             A key up to 32 bytes or null
+     * @param digestLength    from 1 up to 32 bytes
+     * @param salt            8 bytes or null
+     * @param personalization 8 bytes or null
+     */
+    public Blake2sDigest(byte[] key, int digestLength, byte[] salt, byte[] personalization)
+    {
+        buffer = new byte[BLOCK_LENGTH_BYTES];
+        if (digestLength < 1 || digestLength > 32)
+        {
+            throw new IllegalArgumentException(
+                "Invalid digest length (required: 1 - 32)");
+        }
+        this.digestLength = digestLength;
+        if (salt != null)
+        {
+            if (salt.length != 8)
+            {
+                throw new IllegalArgumentException(
+                    "salt length must be exactly 8 bytes");
+            }
+            this.salt = Arrays.clone(salt);
+        }
+        if (personalization != null)
+        {
+            if (personalization.length != 8)
+            {
+                throw new IllegalArgumentException(
+                    "personalization length must be exactly 8 bytes");
+            }
+            this.personalization = Arrays.clone(personalization);
+        }
+        if (key != null)
+        {
+            if (key.length > 32)
+            {
+                throw new IllegalArgumentException(
+                    "Keys > 32 are not supported");
+            }
+            this.key = Arrays.clone(key);
+
+            keyLength = key.length;
+            System.arraycopy(key, 0, buffer, 0, key.length);
+            bufferPos = BLOCK_LENGTH_BYTES; // zero padding
+        }
+        init();
+    }
+
+    /**
+     * Tree hashing node - any key is passed through update() by the tree digest, so only
+     * its length is recorded here.
+     *
+     * @param digestLength    from 1 up to 32 bytes
+     * @param keyLength       the length of the key used by the tree
+     * @param fanout          the fanout of the tree, 0 for unlimited
+     * @param depth           the maximal depth of the tree
+     * @param nodeOffset      the offset of the node within its level
+     * @param nodeDepth       the level of the node, 0 for the leaves
+     * @param innerHashLength the size of the digests passed between levels
+     * @param isLastNode      true if this node is the last one on its level
+     */
+    Blake2sDigest(int digestLength, int keyLength, int fanout, int depth, long nodeOffset, int nodeDepth,
+        int innerHashLength, boolean isLastNode)
+    {
+        buffer = new byte[BLOCK_LENGTH_BYTES];
+        this.digestLength = digestLength;
+        this.keyLength = keyLength;
+        this.fanout = fanout;
+        this.depth = depth;
+        this.nodeOffset = nodeOffset;
+        this.nodeDepth = nodeDepth;
+        this.innerHashLength = innerHashLength;
+        this.isLastNode = isLastNode;
+        init();
+    }
+
+    // initialize chainValue
+    private void init()
+    {
+        if (chainValue == null)
+        {
+            chainValue = new int[8];
+
+            chainValue[0] = blake2s_IV[0]
+                ^ (digestLength | (keyLength << 8) | (fanout << 16) | (depth << 24));
+            chainValue[1] = blake2s_IV[1] ^ leafLength;
+            chainValue[2] = blake2s_IV[2] ^ (int)nodeOffset;
+            chainValue[3] = blake2s_IV[3]
+                ^ ((int)(nodeOffset >>> 32) | (nodeDepth << 16) | (innerHashLength << 24));
+
+            chainValue[4] = blake2s_IV[4];
+            chainValue[5] = blake2s_IV[5];
+            if (salt != null)
+            {
+                chainValue[4] ^= Pack.littleEndianToInt(salt, 0);
+                chainValue[5] ^= Pack.littleEndianToInt(salt, 4);
+            }
+
+            chainValue[6] = blake2s_IV[6];
+            chainValue[7] = blake2s_IV[7];
+            if (personalization != null)
+            {
+                chainValue[6] ^= Pack.littleEndianToInt(personalization, 0);
+                chainValue[7] ^= Pack.littleEndianToInt(personalization, 4);
+            }
+        }
+    }
+
+    private void initializeInternalState()
+    {
+        // initialize v:
+        System.arraycopy(chainValue, 0, internalState, 0, chainValue.length);
+        System.arraycopy(blake2s_IV, 0, internalState, chainValue.length, 4);
+        internalState[12] = t0 ^ blake2s_IV[4];
+        internalState[13] = t1 ^ blake2s_IV[5];
+        internalState[14] = f0 ^ blake2s_IV[6];
+        internalState[15] = f1 ^ blake2s_IV[7];
+    }
+
+    /**
+     * update the message digest with a single byte.
+     *
+     * @param b the input byte to be entered.
+     */
+    public void update(byte b)
+    {
+        if (bufferPos == BLOCK_LENGTH_BYTES)
+        { // full buffer
+            incrementCounter(BLOCK_LENGTH_BYTES);
+            compress(buffer, 0);
+            Arrays.fill(buffer, (byte)0);// clear buffer
+            bufferPos = 0;
+        }
+
+        buffer[bufferPos++] = b;
+    }
+
+    /**
+     * update the message digest with a block of bytes.
+     *
+     * @param message the byte array containing the data.
+     * @param offset  the offset into the byte array where the data starts.
+     * @param len     the length of the data.
+     */
+    public void update(byte[] message, int offset, int len)
+    {
+        if (message == null || len == 0)
+        {
+            return;
+        }
+
+        int remainingLength = 0; // left bytes of buffer
+
+        if (bufferPos != 0)
+        { // commenced, incomplete buffer
+
+            // complete the buffer:
+            remainingLength = BLOCK_LENGTH_BYTES - bufferPos;
+            if (remainingLength < len)
+            { // full buffer + at least 1 byte
+                System.arraycopy(message, offset, buffer, bufferPos,
+                    remainingLength);
+                incrementCounter(BLOCK_LENGTH_BYTES);
+                compress(buffer, 0);
+                bufferPos = 0;
+                Arrays.fill(buffer, (byte)0);// clear buffer
+            }
+            else
+            {
+                System.arraycopy(message, offset, buffer, bufferPos, len);
+                bufferPos += len;
+                return;
+            }
+        }
+
+        // process blocks except last block (also if last block is full)
+        int messagePos;
+        int blockWiseLastPos = offset + len - BLOCK_LENGTH_BYTES;
+        for (messagePos = offset + remainingLength; messagePos < blockWiseLastPos; messagePos += BLOCK_LENGTH_BYTES)
+        { // block wise 64 bytes
+            // without buffer:
+            incrementCounter(BLOCK_LENGTH_BYTES);
+            compress(message, messagePos);
+        }
+
+        // fill the buffer with left bytes, this might be a full block
+        System.arraycopy(message, messagePos, buffer, 0, offset + len
+            - messagePos);
+        bufferPos += offset + len - messagePos;
+    }
+
+    /**
+     * close the digest, producing the final digest value. The doFinal
+     * call leaves the digest reset.
+     * Key, salt and personal string remain.
+     *
+     * @param out       the array the digest is to be copied into.
+     * @param outOffset the offset into the out array the digest is to start at.
+     */
+    public int doFinal(byte[] out, int outOffset)
+    {
+        f0 = 0xFFFFFFFF;
+        if (isLastNode)
+        {
+            f1 = 0xFFFFFFFF;
+        }
+        incrementCounter(bufferPos);
+        compress(buffer, 0);
+        Arrays.fill(buffer, (byte)0);// Holds eventually the key if input is null
+        Arrays.fill(internalState, 0);
+        Arrays.fill(m, 0);
+
+        byte[] bytes = new byte[4];
+        for (int i = 0; i < chainValue.length && (i * 4 < digestLength); i++)
+        {
+            Pack.intToLittleEndian(chainValue[i], bytes, 0);
+
+            System.arraycopy(bytes, 0, out, outOffset + i * 4, Math.min(4, digestLength - (i * 4)));
+        }
+
+        Arrays.fill(chainValue, 0);
+
+        reset();
+
+        return digestLength;
+    }
+
+    /**
+     * Reset the digest back to it's initial state.
+     * The key, the salt and the personal string will
+     * remain for further computations.
+     */
+    public void reset()
+    {
+        bufferPos = 0;
+        f0 = 0;
+        f1 = 0;
+        t0 = 0;
+        t1 = 0;
+        chainValue = null;
+        Arrays.fill(buffer, (byte)0);
+        if (key != null)
+        {
+            System.arraycopy(key, 0, buffer, 0, key.length);
+            bufferPos = BLOCK_LENGTH_BYTES; // zero padding
+        }
+        init();
+    }
+
+    private void incrementCounter(int length)
+    {
+        t0 += length;
+        if (t0 >= 0 && t0 < length)
+        { // if message > 2^32, length is at most a block so the counter wrapped
+            t1++;
+        }
+    }
+
+    private void compress(byte[] message, int messagePos)
+    {
+        initializeInternalState();
+
+        Pack.littleEndianToInt(message, messagePos, m);
+
+        for (int round = 0; round < ROUNDS; round++)
+        {
+            byte[] s = blake2s_sigma[round];
+
+            // G apply to columns of internalState
+            G(m[s[0]], m[s[1]], 0, 4, 8, 12);
+            G(m[s[2]], m[s[3]], 1, 5, 9, 13);
+            G(m[s[4]], m[s[5]], 2, 6, 10, 14);
+            G(m[s[6]], m[s[7]], 3, 7, 11, 15);
+            // G apply to diagonals of internalState:
+            G(m[s[8]], m[s[9]], 0, 5, 10, 15);
+            G(m[s[10]], m[s[11]], 1, 6, 11, 12);
+            G(m[s[12]], m[s[13]], 2, 7, 8, 13);
+            G(m[s[14]], m[s[15]], 3, 4, 9, 14);
+        }
+
+        // update chain values:
+        for (int offset = 0; offset < chainValue.length; offset++)
+        {
+            chainValue[offset] = chainValue[offset] ^ internalState[offset]
+                ^ internalState[offset + 8];
+        }
+    }
+
+    private void G(int m1, int m2, int posA, int posB, int posC, int posD)
+    {
+        internalState[posA] = internalState[posA] + internalState[posB] + m1;
+        internalState[posD] = rotr32(internalState[posD] ^ internalState[posA], 16);
+        internalState[posC] = internalState[posC] + internalState[posD];
+        internalState[posB] = rotr32(internalState[posB] ^ internalState[posC], 12);
+        internalState[posA] = internalState[posA] + internalState[posB] + m2;
+        internalState[posD] = rotr32(internalState[posD] ^ internalState[posA], 8);
+        internalState[posC] = internalState[posC] + internalState[posD];
+        internalState[posB] = rotr32(internalState[posB] ^ internalState[posC], 7);
+    }
+
+    private static int rotr32(int x, int rot)
+    {
+        return x >>> rot | (x << (32 - rot));
+    }
+
+    /**
+     * return the algorithm name
+     *
+     * @return the algorithm name
+     */
+    public String getAlgorithmName()
+    {
+        return "BLAKE2s";
+    }
+
+    /**
+     * return the size, in bytes, of the digest produced by this message digest.
+     *
+     * @return the size, in bytes, of the digest produced by this message digest.
+     */
+    public int getDigestSize()
+    {
+        return digestLength;
+    }
+
+    /**
+     * Return the size in bytes of the internal buffer the digest applies it's compression
+     * function to.
+     *
+     * @return byte length of the digests internal buffer.
+     */
+    public int getByteLength()
+    {
+        return BLOCK_LENGTH_BYTES;
+    }
+
+    /**
+     * Overwrite the key
+     * if it is no longer used (zeroization)
+     */
+    public void clearKey()
+    {
+        if (key != null)
+        {
+            Arrays.fill(key, (byte)0);
+            Arrays.fill(buffer, (byte)0);
+        }
+    }
+
+    /**
+     * Overwrite the salt (pepper) if it
+     * is secret and no longer used (zeroization)
+     */
+    public void clearSalt()
+    {
+        if (salt != null)
+        {
+            Arrays.fill(salt, (byte)0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.ExtendedDigest;
+
+/**
+ * Implementation of BLAKE2sp, the 8-way parallel tree mode of BLAKE2s.
+ * <p>
+ * The input is dealt out 64 bytes at a time to 8 BLAKE2s leaves, which can be hashed on separate
+ * threads. The result is a 256 bit digest, which differs from the BLAKE2s one for the same input.
+ * </p>
+ */
+public class Blake2spDigest
+    extends ParallelBlake2Digest
+{
+    private static final int PARALLELISM_DEGREE = 8;
+    private static final int OUT_BYTES = 32;
+
+    /**
+     * Sequential, unkeyed, BLAKE2sp.
+     */
+    public Blake2spDigest()
+    {
+        this(null, null);
+    }
+
+    /**
+     * Keyed BLAKE2sp hashing the leaves in parallel on the passed in executor (a ForkJoinPool works
+     * well) once an update covers the default threshold of 64 KiB.
+     *
+     * @param key a key up to 32 bytes, or null.
+     * @param executor the executor the leaves are hashed on, null for sequential processing.
+     */
+    public Blake2spDigest(byte[] key, ExecutorService executor)
+    {
+        this(key, executor, DEFAULT_PARALLEL_THRESHOLD);
+    }
+
+    /**
+     * Keyed BLAKE2sp with the minimum update size for parallel processing specified.
+     *
+     * @param key a key up to 32 bytes, or null.
+     * @param executor the executor the leaves are hashed on, null for sequential processing.
+     * @param parallelThreshold the smallest update, in bytes, to hash the leaves in parallel for.
+     */
+    public Blake2spDigest(byte[] key, ExecutorService executor, int parallelThreshold)
+    {
+        super(createLeaves(keyLength(key)), createRoot(keyLength(key)), key, executor, parallelThreshold);
+    }
+
+    public Blake2spDigest(Blake2spDigest digest)
+    {
+        super(digest, copyLeaves(digest.getLeaves()), new Blake2sDigest((Blake2sDigest)digest.getRoot()));
+    }
+
+    public String getAlgorithmName()
+    {
+        return "BLAKE2sp";
+    }
+
+    private static int keyLength(byte[] key)
+    {
+        if (key == null)
+        {
+            return 0;
+        }
+        if (key.length > OUT_BYTES)
+        {
+            throw new IllegalArgumentException("Keys > " + OUT_BYTES + " are not supported");
+        }
+        return key.length;
+    }
+
+    private static ExtendedDigest[] createLeaves(int keyLength)
+    {
+        ExtendedDigest[] leaves = new ExtendedDigest[PARALLELISM_DEGREE];
+
+        for (int i = 0; i != leaves.length; i++)
+        {
+            leaves[i] = new Blake2sDigest(OUT_BYTES, keyLength, PARALLELISM_DEGREE, 2, i, 0, OUT_BYTES,
+                i == PARALLELISM_DEGREE - 1);
+        }
+
+        return leaves;
+    }
+
+    private static ExtendedDigest createRoot(int keyLength)
+    {
+        return new Blake2sDigest(OUT_BYTES, keyLength, PARALLELISM_DEGREE, 2, 0, 1, OUT_BYTES, true);
+    }
+
+    private static ExtendedDigest[] copyLeaves(ExtendedDigest[] leaves)
+    {
+        ExtendedDigest[] copies = new ExtendedDigest[leaves.length];
+
+        for (int i = 0; i != leaves.length; i++)
+        {
+            copies[i] = new Blake2sDigest((Blake2sDigest)leaves[i]);
+        }
+
+        return copies;
+    }
+}
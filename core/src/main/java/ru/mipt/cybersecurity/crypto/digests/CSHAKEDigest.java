@@ -0,0 +1,113 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Customizable SHAKE function (cSHAKE) as described in NIST SP 800-185.
+ * <p>
+ * With an empty function name and customization string cSHAKE is the same as SHAKE.
+ * </p>
+ */
+public class CSHAKEDigest
+    extends SHAKEDigest
+{
+    private static final byte[] padding = new byte[100];
+
+    private final byte[] diff;
+
+    /**
+     * Base constructor.
+     *
+     * @param bitLength the security strength of the function, 128 or 256.
+     * @param N the function name string, null or empty for none - intended for NIST defined functions.
+     * @param S the customization string, null or empty for none.
+     */
+    public CSHAKEDigest(int bitLength, byte[] N, byte[] S)
+    {
+        super(bitLength);
+
+        if ((N == null || N.length == 0) && (S == null || S.length == 0))
+        {
+            diff = null;
+        }
+        else
+        {
+            diff = Arrays.concatenate(XofUtils.leftEncode(rate / 8), encodeString(N), encodeString(S));
+            diffPadAndAbsorb();
+        }
+    }
+
+    public CSHAKEDigest(CSHAKEDigest source)
+    {
+        super(source);
+
+        this.diff = Arrays.clone(source.diff);
+    }
+
+    // bytepad in SP 800-185
+    private void diffPadAndAbsorb()
+    {
+        int blockSize = rate / 8;
+        absorb(diff, 0, diff.length);
+
+        int delta = diff.length % blockSize;
+
+        // only add padding if needed
+        if (delta != 0)
+        {
+            int required = blockSize - delta;
+
+            while (required > padding.length)
+            {
+                absorb(padding, 0, padding.length);
+                required -= padding.length;
+            }
+
+            absorb(padding, 0, required);
+        }
+    }
+
+    private static byte[] encodeString(byte[] str)
+    {
+        if (str == null || str.length == 0)
+        {
+            return XofUtils.leftEncode(0);
+        }
+
+        return XofUtils.encode(str, 0, str.length);
+    }
+
+    public String getAlgorithmName()
+    {
+        return "CSHAKE" + fixedOutputLength;
+    }
+
+    public int doOutput(byte[] out, int outOff, int outLen)
+    {
+        if (diff != null)
+        {
+            if (!squeezing)
+            {
+                absorbBits(0x00, 2);
+            }
+
+            squeeze(out, outOff, ((long)outLen) * 8);
+
+            return outLen;
+        }
+        else
+        {
+            return super.doOutput(out, outOff, outLen);
+        }
+    }
+
+    public void reset()
+    {
+        super.reset();
+
+        if (diff != null)
+        {
+            diffPadAndAbsorb();
+        }
+    }
+}
@@ -0,0 +1,274 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.ExtendedDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * The inner loop of PBKDF2 - U2 = HMAC(P, U1), U3 = HMAC(P, U2) ... - for HMAC with SHA-1, SHA-256,
+ * SHA-384 or SHA-512.
+ * <p>
+ * Every HMAC in the chain is over a message shorter than a block, so each one comes down to
+ * two compressions of a single padded block, starting from the chaining values left by the inner
+ * and outer key pads. Those chaining values are calculated once, and the loop then calls the
+ * compression function directly on words, without the buffering, padding, encoding and state
+ * copying of a general purpose HMac.
+ * </p>
+ * <p>
+ * An instance holds its own working state, so it should only be used by one thread at a time.
+ * </p>
+ */
+public abstract class HMacIterator
+{
+    /**
+     * Return true if there is an iterator for HMAC with the passed in digest.
+     *
+     * @param digest the digest of interest.
+     * @return true if createInstance() will accept digest, false otherwise.
+     */
+    public static boolean isSupported(Digest digest)
+    {
+        Class clazz = digest.getClass();
+
+        return clazz == SHA1Digest.class || clazz == SHA256Digest.class
+            || clazz == SHA384Digest.class || clazz == SHA512Digest.class;
+    }
+
+    /**
+     * Create an iterator for HMAC with a digest of the same type as the one passed in.
+     *
+     * @param digest a digest of the type to use, it is not modified.
+     * @param key the HMAC key.
+     * @return an HMacIterator.
+     * @throws IllegalArgumentException if the digest type is not supported.
+     */
+    public static HMacIterator createInstance(Digest digest, byte[] key)
+    {
+        Class clazz = digest.getClass();
+
+        if (clazz == SHA1Digest.class)
+        {
+            return new SHA1Iterator(key);
+        }
+        if (clazz == SHA256Digest.class)
+        {
+            return new SHA256Iterator(key);
+        }
+        if (clazz == SHA384Digest.class)
+        {
+            return new LongIterator(new SHA384Digest(), key);
+        }
+        if (clazz == SHA512Digest.class)
+        {
+            return new LongIterator(new SHA512Digest(), key);
+        }
+
+        throw new IllegalArgumentException("no HMAC iterator for " + digest.getAlgorithmName());
+    }
+
+    /**
+     * Return the size of the HMAC output.
+     *
+     * @return the MAC size in bytes.
+     */
+    public abstract int getMacSize();
+
+    /**
+     * Run the chain on from U1 to Uc, writing U1 ^ U2 ^ ... ^ Uc to out.
+     *
+     * @param u1 the first HMAC output in the chain, getMacSize() bytes long.
+     * @param iterations the total length of the chain, c, including U1.
+     * @param out the array the result is written to.
+     * @param outOff the offset into out the result starts at.
+     */
+    public abstract void iterate(byte[] u1, int iterations, byte[] out, int outOff);
+
+    /**
+     * Absorb the key, padded and XORed with the given pad byte, into a freshly reset digest,
+     * leaving the chaining value for the pad in the digest.
+     */
+    private static void absorbPad(ExtendedDigest engine, byte[] key, byte pad)
+    {
+        byte[] block = new byte[engine.getByteLength()];
+
+        engine.reset();
+
+        if (key.length > block.length)
+        {
+            byte[] hashedKey = new byte[engine.getDigestSize()];
+
+            engine.update(key, 0, key.length);
+            engine.doFinal(hashedKey, 0);
+
+            System.arraycopy(hashedKey, 0, block, 0, hashedKey.length);
+            Arrays.fill(hashedKey, (byte)0);
+        }
+        else
+        {
+            System.arraycopy(key, 0, block, 0, key.length);
+        }
+
+        for (int i = 0; i != block.length; i++)
+        {
+            block[i] ^= pad;
+        }
+
+        engine.update(block, 0, block.length);
+
+        Arrays.fill(block, (byte)0);
+    }
+
+    private static abstract class IntIterator
+        extends HMacIterator
+    {
+        protected final ExtendedDigest engine;
+
+        private final int[] ipad;
+        private final int[] opad;
+        private final int[] u;
+        private final int[] acc;
+        private final int messageBits;
+
+        IntIterator(ExtendedDigest engine, int chainingWords, byte[] key)
+        {
+            this.engine = engine;
+            this.ipad = new int[chainingWords];
+            this.opad = new int[chainingWords];
+            this.u = new int[engine.getDigestSize() / 4];
+            this.acc = new int[u.length];
+            this.messageBits = (engine.getByteLength() + engine.getDigestSize()) * 8;
+
+            absorbPad(engine, key, (byte)0x36);
+            getChainingValue(ipad);
+
+            absorbPad(engine, key, (byte)0x5c);
+            getChainingValue(opad);
+
+            engine.reset();
+        }
+
+        abstract void getChainingValue(int[] h);
+
+        abstract void compressFinalBlock(int[] h, int[] u, int messageBits);
+
+        public int getMacSize()
+        {
+            return u.length * 4;
+        }
+
+        public void iterate(byte[] u1, int iterations, byte[] out, int outOff)
+        {
+            Pack.bigEndianToInt(u1, 0, u);
+            System.arraycopy(u, 0, acc, 0, u.length);
+
+            for (int count = 1; count < iterations; count++)
+            {
+                compressFinalBlock(ipad, u, messageBits);
+                compressFinalBlock(opad, u, messageBits);
+
+                for (int j = 0; j != u.length; j++)
+                {
+                    acc[j] ^= u[j];
+                }
+            }
+
+            Pack.intToBigEndian(acc, out, outOff);
+
+            Arrays.fill(u, 0);
+            Arrays.fill(acc, 0);
+        }
+    }
+
+    private static class SHA1Iterator
+        extends IntIterator
+    {
+        SHA1Iterator(byte[] key)
+        {
+            super(new SHA1Digest(), 5, key);
+        }
+
+        void getChainingValue(int[] h)
+        {
+            ((SHA1Digest)engine).getChainingValue(h);
+        }
+
+        void compressFinalBlock(int[] h, int[] u, int messageBits)
+        {
+            ((SHA1Digest)engine).compressFinalBlock(h, u, messageBits);
+        }
+    }
+
+    private static class SHA256Iterator
+        extends IntIterator
+    {
+        SHA256Iterator(byte[] key)
+        {
+            super(new SHA256Digest(), 8, key);
+        }
+
+        void getChainingValue(int[] h)
+        {
+            ((SHA256Digest)engine).getChainingValue(h);
+        }
+
+        void compressFinalBlock(int[] h, int[] u, int messageBits)
+        {
+            ((SHA256Digest)engine).compressFinalBlock(h, u, messageBits);
+        }
+    }
+
+    private static class LongIterator
+        extends HMacIterator
+    {
+        private final LongDigest engine;
+        private final long[] ipad = new long[8];
+        private final long[] opad = new long[8];
+        private final long[] u;
+        private final long[] acc;
+        private final int messageBits;
+
+        LongIterator(LongDigest engine, byte[] key)
+        {
+            this.engine = engine;
+            this.u = new long[engine.getDigestSize() / 8];
+            this.acc = new long[u.length];
+            this.messageBits = (engine.getByteLength() + engine.getDigestSize()) * 8;
+
+            absorbPad(engine, key, (byte)0x36);
+            engine.getChainingValue(ipad);
+
+            absorbPad(engine, key, (byte)0x5c);
+            engine.getChainingValue(opad);
+
+            engine.reset();
+        }
+
+        public int getMacSize()
+        {
+            return u.length * 8;
+        }
+
+        public void iterate(byte[] u1, int iterations, byte[] out, int outOff)
+        {
+            Pack.bigEndianToLong(u1, 0, u);
+            System.arraycopy(u, 0, acc, 0, u.length);
+
+            for (int count = 1; count < iterations; count++)
+            {
+                engine.compressFinalBlock(ipad, u, messageBits);
+                engine.compressFinalBlock(opad, u, messageBits);
+
+                for (int j = 0; j != u.length; j++)
+                {
+                    acc[j] ^= u[j];
+                }
+            }
+
+            Pack.longToBigEndian(acc, out, outOff);
+
+            Arrays.fill(u, 0L);
+            Arrays.fill(acc, 0L);
+        }
+    }
+}
@@ -338,6 +338,36 @@ public abstract class LongDigest
         }
     }
 
+    /**
+     * Used by HMacIterator - copy out the current chaining value.
+     */
+    void getChainingValue(long[] h)
+    {
+        h[0] = H1; h[1] = H2; h[2] = H3; h[3] = H4; h[4] = H5; h[5] = H6; h[6] = H7; h[7] = H8;
+    }
+
+    /**
+     * Used by HMacIterator - compress a final block made up of the words in u and the padding
+     * for a message of messageBits bits, starting from the chaining value h. The first u.length
+     * words of the result are written back to u.
+     */
+    void compressFinalBlock(long[] h, long[] u, int messageBits)
+    {
+        H1 = h[0]; H2 = h[1]; H3 = h[2]; H4 = h[3]; H5 = h[4]; H6 = h[5]; H7 = h[6]; H8 = h[7];
+
+        System.arraycopy(u, 0, W, 0, u.length);
+        W[u.length] = 0x8000000000000000L;
+        W[15] = messageBits;
+
+        processBlock();
+
+        u[0] = H1; u[1] = H2; u[2] = H3; u[3] = H4; u[4] = H5; u[5] = H6;
+        if (u.length > 6)
+        {
+            u[6] = H7; u[7] = H8;
+        }
+    }
+
     /* SHA-384 and SHA-512 functions (as for SHA-256 but for longs) */
     private long Ch(
         long    x,
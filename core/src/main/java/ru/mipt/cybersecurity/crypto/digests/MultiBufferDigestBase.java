@@ -0,0 +1,198 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBufferDigest;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * Base implementation of MD4 family style multi-buffer digests - the lanes all see the same
+ * padding, as every message has the same length, so the subclasses only have to provide the
+ * compression function.
+ */
+abstract class MultiBufferDigestBase
+    implements MultiBufferDigest
+{
+    static final int LANES = 8;
+
+    private final int messageLength;
+    private final int blockSize;
+    private final int blockCount;
+    private final byte[] queue;
+    private final byte[] padBlock;
+
+    private int queued;
+
+    MultiBufferDigestBase(int messageLength, int blockSize, int lengthSize)
+    {
+        if (messageLength < 0)
+        {
+            throw new IllegalArgumentException("message length cannot be negative");
+        }
+
+        this.messageLength = messageLength;
+        this.blockSize = blockSize;
+        this.blockCount = (messageLength + 1 + lengthSize + blockSize - 1) / blockSize;
+        this.queue = new byte[LANES * messageLength];
+        this.padBlock = new byte[blockSize];
+    }
+
+    public int getMessageLength()
+    {
+        return messageLength;
+    }
+
+    public int getLaneCount()
+    {
+        return LANES;
+    }
+
+    public boolean submit(byte[] in, int inOff)
+    {
+        if (queued == LANES)
+        {
+            throw new IllegalStateException("all lanes in use, harvest() required");
+        }
+        if (inOff + messageLength > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        System.arraycopy(in, inOff, queue, queued * messageLength, messageLength);
+
+        return ++queued == LANES;
+    }
+
+    public int harvest(byte[] out, int outOff)
+    {
+        int count = queued;
+
+        if (outOff + count * getDigestSize() > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (count > 0)
+        {
+            processLanes(queue, 0, count, out, outOff);
+        }
+
+        reset();
+
+        return count;
+    }
+
+    public int digest(byte[] in, int inOff, int count, byte[] out, int outOff)
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("count cannot be negative");
+        }
+
+        int digestSize = getDigestSize();
+
+        if (inOff + count * messageLength > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (outOff + count * digestSize > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        for (int i = 0; i < count; i += LANES)
+        {
+            int lanes = Math.min(LANES, count - i);
+
+            processLanes(in, inOff + i * messageLength, lanes, out, outOff + i * digestSize);
+        }
+
+        return count * digestSize;
+    }
+
+    public void reset()
+    {
+        Arrays.fill(queue, (byte)0);
+        queued = 0;
+    }
+
+    private void processLanes(byte[] in, int inOff, int lanes, byte[] out, int outOff)
+    {
+        initState();
+
+        for (int b = 0; b < blockCount; ++b)
+        {
+            int blockOff = b * blockSize;
+
+            for (int lane = 0; lane < lanes; ++lane)
+            {
+                int msgOff = inOff + lane * messageLength;
+
+                if (blockOff + blockSize <= messageLength)
+                {
+                    loadBlock(lane, in, msgOff + blockOff);
+                }
+                else
+                {
+                    padBlock(in, msgOff, blockOff, b == blockCount - 1);
+                    loadBlock(lane, padBlock, 0);
+                }
+            }
+
+            // lanes past the last message just compress whatever they last held
+            compress();
+        }
+
+        int digestSize = getDigestSize();
+        for (int lane = 0; lane < lanes; ++lane)
+        {
+            finish(lane, out, outOff + lane * digestSize);
+        }
+    }
+
+    private void padBlock(byte[] in, int msgOff, int blockOff, boolean last)
+    {
+        int remaining = messageLength - blockOff;
+        int dataLen = Math.max(0, Math.min(blockSize, remaining));
+
+        if (dataLen > 0)
+        {
+            System.arraycopy(in, msgOff + blockOff, padBlock, 0, dataLen);
+        }
+        for (int i = dataLen; i < blockSize; ++i)
+        {
+            padBlock[i] = 0;
+        }
+
+        if (remaining >= 0 && remaining < blockSize)
+        {
+            padBlock[remaining] = (byte)0x80;
+        }
+
+        if (last)
+        {
+            Pack.longToBigEndian((long)messageLength << 3, padBlock, blockSize - 8);
+        }
+    }
+
+    /**
+     * Set every lane to the initial hash value.
+     */
+    abstract void initState();
+
+    /**
+     * Load the message block at off in buf into the given lane.
+     */
+    abstract void loadBlock(int lane, byte[] buf, int off);
+
+    /**
+     * Run the compression function over the loaded block in every lane.
+     */
+    abstract void compress();
+
+    /**
+     * Write the hash value of the given lane to out.
+     */
+    abstract void finish(int lane, byte[] out, int outOff);
+}
@@ -0,0 +1,231 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.ExtendedDigest;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Common code for the BLAKE2bp and BLAKE2sp tree digests - the input is dealt out a block at a
+ * time to a fixed number of leaves, and the root hashes the concatenated leaf digests.
+ * <p>
+ * The leaves are independent, so given an ExecutorService each update() large enough to cover
+ * the parallel threshold has its leaves hashed on the executor's threads. Smaller updates, or an
+ * instance with no executor, hash the leaves one after another on the calling thread.
+ * </p>
+ */
+abstract class ParallelBlake2Digest
+    implements ExtendedDigest
+{
+    static final int DEFAULT_PARALLEL_THRESHOLD = 64 * 1024;
+
+    private final ExtendedDigest[] leaves;
+    private final ExtendedDigest root;
+    private final int blockLength;
+    private final int stripeLength;
+    private final byte[] keyBlock;
+    private final ExecutorService executor;
+    private final int parallelThreshold;
+
+    private final byte[] buffer;
+    private int bufferPos;
+
+    ParallelBlake2Digest(ExtendedDigest[] leaves, ExtendedDigest root, byte[] key, ExecutorService executor,
+        int parallelThreshold)
+    {
+        this.leaves = leaves;
+        this.root = root;
+        this.blockLength = root.getByteLength();
+        this.stripeLength = leaves.length * blockLength;
+        this.executor = executor;
+        this.parallelThreshold = Math.max(stripeLength, parallelThreshold);
+        this.buffer = new byte[stripeLength];
+
+        if (key != null && key.length > 0)
+        {
+            this.keyBlock = new byte[blockLength];
+            System.arraycopy(key, 0, keyBlock, 0, key.length);
+        }
+        else
+        {
+            this.keyBlock = null;
+        }
+
+        addKey();
+    }
+
+    ParallelBlake2Digest(ParallelBlake2Digest digest, ExtendedDigest[] leaves, ExtendedDigest root)
+    {
+        this.leaves = leaves;
+        this.root = root;
+        this.blockLength = digest.blockLength;
+        this.stripeLength = digest.stripeLength;
+        this.keyBlock = Arrays.clone(digest.keyBlock);
+        this.executor = digest.executor;
+        this.parallelThreshold = digest.parallelThreshold;
+        this.buffer = Arrays.clone(digest.buffer);
+        this.bufferPos = digest.bufferPos;
+    }
+
+    ExtendedDigest[] getLeaves()
+    {
+        return leaves;
+    }
+
+    ExtendedDigest getRoot()
+    {
+        return root;
+    }
+
+    public int getDigestSize()
+    {
+        return root.getDigestSize();
+    }
+
+    public int getByteLength()
+    {
+        return blockLength;
+    }
+
+    public void update(byte in)
+    {
+        if (bufferPos == stripeLength)
+        {
+            processStripes(buffer, 0, 1);
+            bufferPos = 0;
+        }
+
+        buffer[bufferPos++] = in;
+    }
+
+    public void update(byte[] in, int inOff, int len)
+    {
+        if (bufferPos != 0)
+        {
+            int fill = stripeLength - bufferPos;
+            if (len < fill)
+            {
+                System.arraycopy(in, inOff, buffer, bufferPos, len);
+                bufferPos += len;
+                return;
+            }
+
+            System.arraycopy(in, inOff, buffer, bufferPos, fill);
+            processStripes(buffer, 0, 1);
+            bufferPos = 0;
+
+            inOff += fill;
+            len -= fill;
+        }
+
+        // each leaf holds back its last block until it knows whether it is the final one, so
+        // whole stripes can be passed on straight away - only the trailing partial stripe is kept
+        int stripes = len / stripeLength;
+        if (stripes > 0)
+        {
+            processStripes(in, inOff, stripes);
+
+            inOff += stripes * stripeLength;
+            len -= stripes * stripeLength;
+        }
+
+        System.arraycopy(in, inOff, buffer, 0, len);
+        bufferPos = len;
+    }
+
+    public int doFinal(byte[] out, int outOff)
+    {
+        for (int i = 0; i != leaves.length; i++)
+        {
+            int left = bufferPos - i * blockLength;
+            if (left > 0)
+            {
+                leaves[i].update(buffer, i * blockLength, Math.min(left, blockLength));
+            }
+        }
+
+        byte[] leafDigest = new byte[leaves[0].getDigestSize()];
+        for (int i = 0; i != leaves.length; i++)
+        {
+            leaves[i].doFinal(leafDigest, 0);
+            root.update(leafDigest, 0, leafDigest.length);
+        }
+        Arrays.fill(leafDigest, (byte)0);
+
+        int len = root.doFinal(out, outOff);
+
+        reset();
+
+        return len;
+    }
+
+    public void reset()
+    {
+        Arrays.fill(buffer, (byte)0);
+        bufferPos = 0;
+
+        for (int i = 0; i != leaves.length; i++)
+        {
+            leaves[i].reset();
+        }
+        root.reset();
+
+        addKey();
+    }
+
+    private void addKey()
+    {
+        if (keyBlock != null)
+        {
+            for (int i = 0; i != leaves.length; i++)
+            {
+                leaves[i].update(keyBlock, 0, keyBlock.length);
+            }
+        }
+    }
+
+    private void processStripes(final byte[] in, final int inOff, final int stripes)
+    {
+        if (executor == null || stripes * stripeLength < parallelThreshold)
+        {
+            for (int i = 0; i != leaves.length; i++)
+            {
+                processLeaf(i, in, inOff, stripes);
+            }
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(leaves.length);
+        for (int i = 0; i != leaves.length; i++)
+        {
+            final int leaf = i;
+
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    processLeaf(leaf, in, inOff, stripes);
+                    return null;
+                }
+            });
+        }
+
+        ParallelTasks.invokeAll(executor, tasks);
+    }
+
+    private void processLeaf(int leaf, byte[] in, int inOff, int stripes)
+    {
+        ExtendedDigest digest = leaves[leaf];
+        int off = inOff + leaf * blockLength;
+
+        for (int s = 0; s != stripes; s++)
+        {
+            digest.update(in, off, blockLength);
+            off += stripeLength;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.Xof;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+
+/**
+ * ParallelHash - a hash designed to support the efficient hashing of very long strings, by taking advantage
+ * of the parallelism available in modern processors with an optional XOF mode.
+ * <p>
+ * From NIST Special Publication 800-185 - SHA-3 Derived Functions:cSHAKE, KMAC, TupleHash and ParallelHash
+ * </p>
+ * <p>
+ * The input is split into blocks of B bytes, each of which is hashed independently and the chaining values
+ * then absorbed in order. Given an ExecutorService, an update() covering more than one 64 KiB segment of
+ * whole blocks has the chaining values calculated on the executor's threads, each task taking a segment
+ * of consecutive blocks with its own SHAKE instance.
+ * </p>
+ */
+public class ParallelHash
+    implements Xof, Digest
+{
+    private static final byte[] N_PARALLEL_HASH = Strings.toByteArray("ParallelHash");
+    private static final int DEFAULT_SEGMENT_SIZE = 64 * 1024;
+
+    private final CSHAKEDigest cshake;
+    private final SHAKEDigest compressor;
+    private final int bitLength;
+    private final int outputLength;
+    private final int B;
+    private final byte[] buffer;
+    private final byte[] compressorBuffer;
+    private final ExecutorService executor;
+    private final int segmentBlocks;
+
+    private boolean firstOutput;
+    private long nCount;
+    private int bufOff;
+
+    /**
+     * Base constructor, hashing sequentially.
+     *
+     * @param bitLength bit length of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     * @param B the blocksize (in bytes) for hashing.
+     */
+    public ParallelHash(int bitLength, byte[] S, int B)
+    {
+        this(bitLength, S, B, bitLength * 2);
+    }
+
+    /**
+     * Constructor with the default output size specified, hashing sequentially.
+     *
+     * @param bitLength bit length of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     * @param B the blocksize (in bytes) for hashing.
+     * @param outputSize the output size in bits produced by doFinal(byte[], int).
+     */
+    public ParallelHash(int bitLength, byte[] S, int B, int outputSize)
+    {
+        this(bitLength, S, B, outputSize, null);
+    }
+
+    /**
+     * Constructor allowing the blocks to be hashed in parallel.
+     *
+     * @param bitLength bit length of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     * @param B the blocksize (in bytes) for hashing.
+     * @param outputSize the output size in bits produced by doFinal(byte[], int).
+     * @param executor the executor the blocks are hashed on (a ForkJoinPool works well), null for sequential processing.
+     */
+    public ParallelHash(int bitLength, byte[] S, int B, int outputSize, ExecutorService executor)
+    {
+        if (B <= 0)
+        {
+            throw new IllegalArgumentException("block size must be greater than zero");
+        }
+
+        this.cshake = new CSHAKEDigest(bitLength, N_PARALLEL_HASH, S);
+        this.compressor = new SHAKEDigest(bitLength);
+        this.bitLength = bitLength;
+        this.B = B;
+        this.outputLength = (outputSize + 7) / 8;
+        this.buffer = new byte[B];
+        this.compressorBuffer = new byte[bitLength * 2 / 8];
+        this.executor = executor;
+        this.segmentBlocks = Math.max(1, DEFAULT_SEGMENT_SIZE / B);
+
+        reset();
+    }
+
+    public ParallelHash(ParallelHash source)
+    {
+        this.cshake = new CSHAKEDigest(source.cshake);
+        this.compressor = new SHAKEDigest(source.compressor);
+        this.bitLength = source.bitLength;
+        this.B = source.B;
+        this.outputLength = source.outputLength;
+        this.buffer = Arrays.clone(source.buffer);
+        this.compressorBuffer = new byte[source.compressorBuffer.length];
+        this.executor = source.executor;
+        this.segmentBlocks = source.segmentBlocks;
+        this.firstOutput = source.firstOutput;
+        this.nCount = source.nCount;
+        this.bufOff = source.bufOff;
+    }
+
+    public String getAlgorithmName()
+    {
+        return "ParallelHash" + bitLength;
+    }
+
+    public int getByteLength()
+    {
+        return cshake.getByteLength();
+    }
+
+    public int getDigestSize()
+    {
+        return outputLength;
+    }
+
+    public void update(byte in)
+        throws IllegalStateException
+    {
+        buffer[bufOff++] = in;
+        if (bufOff == buffer.length)
+        {
+            compress(buffer, 0, bufOff);
+            bufOff = 0;
+        }
+    }
+
+    public void update(byte[] in, int inOff, int len)
+        throws DataLengthException, IllegalStateException
+    {
+        len = Math.max(0, len);
+
+        //
+        // fill the current block
+        //
+        int i = 0;
+        if (bufOff != 0)
+        {
+            while (i < len && bufOff != buffer.length)
+            {
+                buffer[bufOff++] = in[inOff + i++];
+            }
+
+            if (bufOff == buffer.length)
+            {
+                compress(buffer, 0, bufOff);
+                bufOff = 0;
+            }
+        }
+
+        if (i < len)
+        {
+            int blocks = (len - i) / B;
+
+            if (executor != null && blocks > segmentBlocks)
+            {
+                compressParallel(in, inOff + i, blocks);
+                i += blocks * B;
+            }
+            else
+            {
+                while (len - i >= B)
+                {
+                    compress(in, inOff + i, B);
+                    i += B;
+                }
+            }
+        }
+
+        while (i < len)
+        {
+            update(in[inOff + i++]);
+        }
+    }
+
+    private void compress(byte[] buf, int offSet, int len)
+    {
+        compressor.update(buf, offSet, len);
+        compressor.doFinal(compressorBuffer, 0, compressorBuffer.length);
+
+        cshake.update(compressorBuffer, 0, compressorBuffer.length);
+
+        nCount++;
+    }
+
+    private void compressParallel(final byte[] in, final int inOff, final int blocks)
+    {
+        final int cvLength = compressorBuffer.length;
+        final byte[] chainingValues = new byte[blocks * cvLength];
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int start = 0; start < blocks; start += segmentBlocks)
+        {
+            final int first = start;
+            final int last = Math.min(blocks, start + segmentBlocks);
+
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    SHAKEDigest shake = new SHAKEDigest(bitLength);
+
+                    for (int j = first; j != last; j++)
+                    {
+                        shake.update(in, inOff + j * B, B);
+                        shake.doFinal(chainingValues, j * cvLength, cvLength);
+                    }
+                    return null;
+                }
+            });
+        }
+
+        ParallelTasks.invokeAll(executor, tasks);
+
+        cshake.update(chainingValues, 0, chainingValues.length);
+
+        nCount += blocks;
+    }
+
+    private void wrapUp(int outputSize)
+    {
+        if (bufOff != 0)
+        {
+            compress(buffer, 0, bufOff);
+            bufOff = 0;
+        }
+        byte[] nOut = XofUtils.rightEncode(nCount);
+        byte[] encOut = XofUtils.rightEncode(outputSize * 8L);
+
+        cshake.update(nOut, 0, nOut.length);
+        cshake.update(encOut, 0, encOut.length);
+
+        firstOutput = false;
+    }
+
+    public int doFinal(byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        return doFinal(out, outOff, getDigestSize());
+    }
+
+    public int doFinal(byte[] out, int outOff, int outLen)
+    {
+        if (firstOutput)
+        {
+            wrapUp(outLen);
+        }
+
+        int rv = cshake.doFinal(out, outOff, outLen);
+
+        reset();
+
+        return rv;
+    }
+
+    public int doOutput(byte[] out, int outOff, int outLen)
+    {
+        if (firstOutput)
+        {
+            wrapUp(0);
+        }
+
+        return cshake.doOutput(out, outOff, outLen);
+    }
+
+    public void reset()
+    {
+        cshake.reset();
+        Arrays.fill(buffer, (byte)0);
+
+        byte[] hdr = XofUtils.leftEncode(B);
+        cshake.update(hdr, 0, hdr.length);
+
+        nCount = 0;
+        bufOff = 0;
+        firstOutput = true;
+    }
+}
@@ -313,6 +313,32 @@ public class SHA1Digest
         }
     }
 
+    /**
+     * Used by HMacIterator - copy out the current chaining value.
+     */
+    void getChainingValue(int[] h)
+    {
+        h[0] = H1; h[1] = H2; h[2] = H3; h[3] = H4; h[4] = H5;
+    }
+
+    /**
+     * Used by HMacIterator - compress a final block made up of the words in u and the padding
+     * for a message of messageBits bits, starting from the chaining value h. The result is
+     * written back to u.
+     */
+    void compressFinalBlock(int[] h, int[] u, int messageBits)
+    {
+        H1 = h[0]; H2 = h[1]; H3 = h[2]; H4 = h[3]; H5 = h[4];
+
+        System.arraycopy(u, 0, X, 0, u.length);
+        X[u.length] = 0x80000000;
+        X[15] = messageBits;
+
+        processBlock();
+
+        u[0] = H1; u[1] = H2; u[2] = H3; u[3] = H4; u[4] = H5;
+    }
+
     public Memoable copy()
     {
         return new SHA1Digest(this);
@@ -0,0 +1,155 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * SHA-256 over several fixed length messages at once, as defined in FIPS PUB 180-4.
+ * <p>
+ * The messages are hashed in lockstep with one message per int lane, every step of the message
+ * schedule and the rounds being a loop across the lanes. This removes the per message object overhead
+ * when hashing many short inputs, such as the nodes of a hash tree, and gives the JIT simple loops
+ * over independent data to vectorise.
+ * </p>
+ */
+public class SHA256MultiBufferDigest
+    extends MultiBufferDigestBase
+{
+    private static final int DIGEST_LENGTH = 32;
+
+    private static final int[] IV = {
+        0x6a09e667, 0xbb67ae85, 0x3c6ef372, 0xa54ff53a, 0x510e527f, 0x9b05688c, 0x1f83d9ab, 0x5be0cd19
+    };
+
+    // W[t * LANES + lane]
+    private final int[] W = new int[64 * LANES];
+    // H[i * LANES + lane]
+    private final int[] H = new int[8 * LANES];
+
+    private final int[] va = new int[LANES], vb = new int[LANES], vc = new int[LANES], vd = new int[LANES];
+    private final int[] ve = new int[LANES], vf = new int[LANES], vg = new int[LANES], vh = new int[LANES];
+
+    /**
+     * Base constructor.
+     *
+     * @param messageLength the length, in bytes, of every message to be hashed.
+     */
+    public SHA256MultiBufferDigest(int messageLength)
+    {
+        super(messageLength, 64, 8);
+    }
+
+    public String getAlgorithmName()
+    {
+        return "SHA-256";
+    }
+
+    public int getDigestSize()
+    {
+        return DIGEST_LENGTH;
+    }
+
+    void initState()
+    {
+        for (int i = 0; i < 8; ++i)
+        {
+            for (int l = 0; l < LANES; ++l)
+            {
+                H[i * LANES + l] = IV[i];
+            }
+        }
+    }
+
+    void loadBlock(int lane, byte[] buf, int off)
+    {
+        for (int t = 0; t < 16; ++t)
+        {
+            W[t * LANES + lane] = Pack.bigEndianToInt(buf, off + (t << 2));
+        }
+    }
+
+    void compress()
+    {
+        int[] W = this.W;
+
+        //
+        // expand 16 word block into 64 word blocks.
+        //
+        for (int t = 16; t < 64; ++t)
+        {
+            int o = t * LANES;
+
+            for (int l = 0; l < LANES; ++l)
+            {
+                int x = W[o - 2 * LANES + l], y = W[o - 15 * LANES + l];
+
+                W[o + l] = (((x >>> 17) | (x << 15)) ^ ((x >>> 19) | (x << 13)) ^ (x >>> 10))
+                    + W[o - 7 * LANES + l]
+                    + (((y >>> 7) | (y << 25)) ^ ((y >>> 18) | (y << 14)) ^ (y >>> 3))
+                    + W[o - 16 * LANES + l];
+            }
+        }
+
+        int[] a = va, b = vb, c = vc, d = vd, e = ve, f = vf, g = vg, h = vh;
+
+        System.arraycopy(H, 0 * LANES, a, 0, LANES);
+        System.arraycopy(H, 1 * LANES, b, 0, LANES);
+        System.arraycopy(H, 2 * LANES, c, 0, LANES);
+        System.arraycopy(H, 3 * LANES, d, 0, LANES);
+        System.arraycopy(H, 4 * LANES, e, 0, LANES);
+        System.arraycopy(H, 5 * LANES, f, 0, LANES);
+        System.arraycopy(H, 6 * LANES, g, 0, LANES);
+        System.arraycopy(H, 7 * LANES, h, 0, LANES);
+
+        for (int t = 0; t < 64; ++t)
+        {
+            int k = SHA256Digest.K[t], o = t * LANES;
+
+            for (int l = 0; l < LANES; ++l)
+            {
+                int al = a[l], el = e[l];
+
+                int t1 = h[l]
+                    + (((el >>> 6) | (el << 26)) ^ ((el >>> 11) | (el << 21)) ^ ((el >>> 25) | (el << 7)))
+                    + ((el & f[l]) ^ (~el & g[l]))
+                    + k + W[o + l];
+                int t2 = (((al >>> 2) | (al << 30)) ^ ((al >>> 13) | (al << 19)) ^ ((al >>> 22) | (al << 10)))
+                    + ((al & b[l]) ^ (al & c[l]) ^ (b[l] & c[l]));
+
+                // h becomes the new a, d the new e
+                h[l] = t1 + t2;
+                d[l] += t1;
+            }
+
+            int[] tmp = h;
+            h = g;
+            g = f;
+            f = e;
+            e = d;
+            d = c;
+            c = b;
+            b = a;
+            a = tmp;
+        }
+
+        // 64 rounds, so the working arrays are back where they started
+        for (int l = 0; l < LANES; ++l)
+        {
+            H[0 * LANES + l] += a[l];
+            H[1 * LANES + l] += b[l];
+            H[2 * LANES + l] += c[l];
+            H[3 * LANES + l] += d[l];
+            H[4 * LANES + l] += e[l];
+            H[5 * LANES + l] += f[l];
+            H[6 * LANES + l] += g[l];
+            H[7 * LANES + l] += h[l];
+        }
+    }
+
+    void finish(int lane, byte[] out, int outOff)
+    {
+        for (int i = 0; i < 8; ++i)
+        {
+            Pack.intToBigEndian(H[i * LANES + lane], out, outOff + (i << 2));
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * SHA-512 over several fixed length messages at once, as defined in FIPS PUB 180-4.
+ * <p>
+ * The messages are hashed in lockstep with one message per long lane, every step of the message
+ * schedule and the rounds being a loop across the lanes, see {@link SHA256MultiBufferDigest}.
+ * </p>
+ */
+public class SHA512MultiBufferDigest
+    extends MultiBufferDigestBase
+{
+    private static final int DIGEST_LENGTH = 64;
+
+    private static final long[] IV = {
+        0x6a09e667f3bcc908L, 0xbb67ae8584caa73bL, 0x3c6ef372fe94f82bL, 0xa54ff53a5f1d36f1L,
+        0x510e527fade682d1L, 0x9b05688c2b3e6c1fL, 0x1f83d9abfb41bd6bL, 0x5be0cd19137e2179L
+    };
+
+    // W[t * LANES + lane]
+    private final long[] W = new long[80 * LANES];
+    // H[i * LANES + lane]
+    private final long[] H = new long[8 * LANES];
+
+    private final long[] va = new long[LANES], vb = new long[LANES], vc = new long[LANES], vd = new long[LANES];
+    private final long[] ve = new long[LANES], vf = new long[LANES], vg = new long[LANES], vh = new long[LANES];
+
+    /**
+     * Base constructor.
+     *
+     * @param messageLength the length, in bytes, of every message to be hashed.
+     */
+    public SHA512MultiBufferDigest(int messageLength)
+    {
+        super(messageLength, 128, 16);
+    }
+
+    public String getAlgorithmName()
+    {
+        return "SHA-512";
+    }
+
+    public int getDigestSize()
+    {
+        return DIGEST_LENGTH;
+    }
+
+    void initState()
+    {
+        for (int i = 0; i < 8; ++i)
+        {
+            for (int l = 0; l < LANES; ++l)
+            {
+                H[i * LANES + l] = IV[i];
+            }
+        }
+    }
+
+    void loadBlock(int lane, byte[] buf, int off)
+    {
+        for (int t = 0; t < 16; ++t)
+        {
+            W[t * LANES + lane] = Pack.bigEndianToLong(buf, off + (t << 3));
+        }
+    }
+
+    void compress()
+    {
+        long[] W = this.W;
+
+        //
+        // expand 16 word block into 80 word blocks.
+        //
+        for (int t = 16; t < 80; ++t)
+        {
+            int o = t * LANES;
+
+            for (int l = 0; l < LANES; ++l)
+            {
+                long x = W[o - 2 * LANES + l], y = W[o - 15 * LANES + l];
+
+                W[o + l] = (((x << 45) | (x >>> 19)) ^ ((x << 3) | (x >>> 61)) ^ (x >>> 6))
+                    + W[o - 7 * LANES + l]
+                    + (((y << 63) | (y >>> 1)) ^ ((y << 56) | (y >>> 8)) ^ (y >>> 7))
+                    + W[o - 16 * LANES + l];
+            }
+        }
+
+        long[] a = va, b = vb, c = vc, d = vd, e = ve, f = vf, g = vg, h = vh;
+
+        System.arraycopy(H, 0 * LANES, a, 0, LANES);
+        System.arraycopy(H, 1 * LANES, b, 0, LANES);
+        System.arraycopy(H, 2 * LANES, c, 0, LANES);
+        System.arraycopy(H, 3 * LANES, d, 0, LANES);
+        System.arraycopy(H, 4 * LANES, e, 0, LANES);
+        System.arraycopy(H, 5 * LANES, f, 0, LANES);
+        System.arraycopy(H, 6 * LANES, g, 0, LANES);
+        System.arraycopy(H, 7 * LANES, h, 0, LANES);
+
+        for (int t = 0; t < 80; ++t)
+        {
+            long k = LongDigest.K[t];
+            int o = t * LANES;
+
+            for (int l = 0; l < LANES; ++l)
+            {
+                long al = a[l], el = e[l];
+
+                long t1 = h[l]
+                    + (((el << 50) | (el >>> 14)) ^ ((el << 46) | (el >>> 18)) ^ ((el << 23) | (el >>> 41)))
+                    + ((el & f[l]) ^ (~el & g[l]))
+                    + k + W[o + l];
+                long t2 = (((al << 36) | (al >>> 28)) ^ ((al << 30) | (al >>> 34)) ^ ((al << 25) | (al >>> 39)))
+                    + ((al & b[l]) ^ (al & c[l]) ^ (b[l] & c[l]));
+
+                // h becomes the new a, d the new e
+                h[l] = t1 + t2;
+                d[l] += t1;
+            }
+
+            long[] tmp = h;
+            h = g;
+            g = f;
+            f = e;
+            e = d;
+            d = c;
+            c = b;
+            b = a;
+            a = tmp;
+        }
+
+        // 80 rounds, so the working arrays are back where they started
+        for (int l = 0; l < LANES; ++l)
+        {
+            H[0 * LANES + l] += a[l];
+            H[1 * LANES + l] += b[l];
+            H[2 * LANES + l] += c[l];
+            H[3 * LANES + l] += d[l];
+            H[4 * LANES + l] += e[l];
+            H[5 * LANES + l] += f[l];
+            H[6 * LANES + l] += g[l];
+            H[7 * LANES + l] += h[l];
+        }
+    }
+
+    void finish(int lane, byte[] out, int outOff)
+    {
+        for (int i = 0; i < 8; ++i)
+        {
+            Pack.longToBigEndian(H[i * LANES + lane], out, outOff + (i << 3));
+        }
+    }
+}
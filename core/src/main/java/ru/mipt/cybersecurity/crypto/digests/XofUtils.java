@@ -0,0 +1,88 @@
+package ru.mipt.cybersecurity.crypto.digests;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * The integer and string encodings of NIST SP 800-185, shared by cSHAKE and the functions built on it.
+ */
+public class XofUtils
+{
+    private XofUtils()
+    {
+
+    }
+
+    /**
+     * Return left_encode(strLen) - the big-endian bytes of strLen preceded by their count.
+     *
+     * @param strLen the value to encode, at least 0.
+     * @return the encoding.
+     */
+    public static byte[] leftEncode(long strLen)
+    {
+        byte n = 1;
+
+        long v = strLen;
+        while ((v >>>= 8) != 0)
+        {
+            n++;
+        }
+
+        byte[] b = new byte[n + 1];
+
+        b[0] = n;
+
+        for (int i = 1; i <= n; i++)
+        {
+            b[i] = (byte)(strLen >> (8 * (n - i)));
+        }
+
+        return b;
+    }
+
+    /**
+     * Return right_encode(strLen) - the big-endian bytes of strLen followed by their count.
+     *
+     * @param strLen the value to encode, at least 0.
+     * @return the encoding.
+     */
+    public static byte[] rightEncode(long strLen)
+    {
+        byte n = 1;
+
+        long v = strLen;
+        while ((v >>>= 8) != 0)
+        {
+            n++;
+        }
+
+        byte[] b = new byte[n + 1];
+
+        b[n] = n;
+
+        for (int i = 0; i < n; i++)
+        {
+            b[i] = (byte)(strLen >> (8 * (n - i - 1)));
+        }
+
+        return b;
+    }
+
+    /**
+     * Return encode_string(X) for the given bytes.
+     *
+     * @param in the array holding the string.
+     * @param inOff the offset of the string in the array.
+     * @param len the length of the string in bytes.
+     * @return the length in bits, left encoded, followed by the string.
+     */
+    public static byte[] encode(byte[] in, int inOff, int len)
+    {
+        return Arrays.concatenate(leftEncode(len * 8L), Arrays.copyOfRange(in, inOff, inOff + len));
+    }
+
+    static byte[] encode(byte X)
+    {
+        return Arrays.concatenate(leftEncode(8), new byte[]{ X });
+    }
+}
@@ -0,0 +1,671 @@
+package ru.mipt.cybersecurity.crypto.engines;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * A constant time, bitsliced, implementation of the AES (Rijndael), from FIPS-197.
+ * <p>
+ * Four blocks are processed at a time with their state spread over eight longs, one per bit of
+ * each byte, so no table lookups or data dependent branches are used in either the cipher or the
+ * key schedule. The S-box is the circuit of Boyar and Peralta ("A new combinational logic
+ * minimization technique with applications to cryptology", <a href="https://eprint.iacr.org/2009/191">
+ * https://eprint.iacr.org/2009/191</a>), and the data layout follows Thomas Pornin's aes_ct64
+ * code in BearSSL.
+ * </p>
+ * <p>
+ * A single block costs as much as four, so this engine is at its best in the bulk paths of the
+ * modes that use {@link MultiBlockCipher#processBlocks(byte[], int, int, byte[], int)}, such as CTR,
+ * GCM and CBC decryption.
+ * </p>
+ */
+public class AESBitslicedEngine
+    implements MultiBlockCipher
+{
+    private static final int BLOCK_SIZE = 16;
+    private static final int BATCH_BLOCKS = 4;
+    private static final int MULTI_BLOCK_COUNT = 8;
+
+    private static final int[] RCON = { 0x01, 0x02, 0x04, 0x08, 0x10, 0x20, 0x40, 0x80, 0x1b, 0x36 };
+
+    private int         rounds;
+    private long[]      roundKeys = null;
+    private boolean     forEncryption;
+
+    private final long[] q = new long[8];
+    private final int[] w = new int[BATCH_BLOCKS * 4];
+
+    /**
+     * default constructor - 128 bit block size.
+     */
+    public AESBitslicedEngine()
+    {
+    }
+
+    /**
+     * initialise an AES cipher.
+     *
+     * @param forEncryption whether or not we are for encryption.
+     * @param params the parameters required to set up the cipher.
+     * @exception IllegalArgumentException if the params argument is
+     * inappropriate.
+     */
+    public void init(
+        boolean           forEncryption,
+        CipherParameters  params)
+    {
+        if (params instanceof KeyParameter)
+        {
+            if (params instanceof AESPreparedKey)
+            {
+                // the round keys are shared with other engines, they are only ever read
+                roundKeys = ((AESPreparedKey)params).getBitslicedKey();
+            }
+            else
+            {
+                roundKeys = generateRoundKeys(((KeyParameter)params).getKey());
+            }
+            rounds = roundKeys.length / 8 - 1;
+            this.forEncryption = forEncryption;
+            return;
+        }
+
+        throw new IllegalArgumentException("invalid parameter passed to AES init - " + params.getClass().getName());
+    }
+
+    public String getAlgorithmName()
+    {
+        return "AES";
+    }
+
+    public int getBlockSize()
+    {
+        return BLOCK_SIZE;
+    }
+
+    public int processBlock(
+        byte[] in,
+        int inOff,
+        byte[] out,
+        int outOff)
+    {
+        if (roundKeys == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if ((inOff + BLOCK_SIZE) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if ((outOff + BLOCK_SIZE) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        processBatch(in, inOff, 1, out, outOff);
+
+        return BLOCK_SIZE;
+    }
+
+    public int getMultiBlockSize()
+    {
+        return MULTI_BLOCK_COUNT * BLOCK_SIZE;
+    }
+
+    /**
+     * Process blockCount consecutive blocks, four at a time.
+     */
+    public int processBlocks(
+        byte[] in,
+        int inOff,
+        int blockCount,
+        byte[] out,
+        int outOff)
+    {
+        if (roundKeys == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+
+        int len = blockCount * BLOCK_SIZE;
+
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        while (blockCount > 0)
+        {
+            int count = Math.min(blockCount, BATCH_BLOCKS);
+
+            processBatch(in, inOff, count, out, outOff);
+
+            inOff += count * BLOCK_SIZE;
+            outOff += count * BLOCK_SIZE;
+            blockCount -= count;
+        }
+
+        return len;
+    }
+
+    public void reset()
+    {
+    }
+
+    private void processBatch(byte[] in, int inOff, int count, byte[] out, int outOff)
+    {
+        int words = count * 4;
+
+        Pack.littleEndianToInt(in, inOff, w, 0, words);
+        for (int i = words; i < w.length; i++)
+        {
+            w[i] = 0;
+        }
+
+        for (int i = 0; i < BATCH_BLOCKS; i++)
+        {
+            interleaveIn(w, i << 2, q, i);
+        }
+
+        ortho(q);
+
+        if (forEncryption)
+        {
+            encrypt(rounds, roundKeys, q);
+        }
+        else
+        {
+            decrypt(rounds, roundKeys, q);
+        }
+
+        ortho(q);
+
+        for (int i = 0; i < BATCH_BLOCKS; i++)
+        {
+            interleaveOut(w, i << 2, q[i], q[i + 4]);
+        }
+
+        for (int i = 0; i < words; i++)
+        {
+            Pack.intToLittleEndian(w[i], out, outOff + (i << 2));
+        }
+    }
+
+    static long[] generateRoundKeys(byte[] key)
+    {
+        int nk = key.length / 4;
+
+        if ((nk != 4 && nk != 6 && nk != 8) || nk * 4 != key.length)
+        {
+            throw new IllegalArgumentException("Key length not 128/192/256 bits.");
+        }
+
+        int rounds = nk + 6;
+        int nkf = (rounds + 1) * 4;
+        int[] skey = new int[nkf];
+
+        Pack.littleEndianToInt(key, 0, skey, 0, nk);
+
+        int tmp = skey[nk - 1];
+        for (int i = nk, j = 0, k = 0; i < nkf; i++)
+        {
+            if (j == 0)
+            {
+                tmp = (tmp << 24) | (tmp >>> 8);
+                tmp = subWord(tmp) ^ RCON[k];
+            }
+            else if (nk > 6 && j == 4)
+            {
+                tmp = subWord(tmp);
+            }
+
+            tmp ^= skey[i - nk];
+            skey[i] = tmp;
+
+            if (++j == nk)
+            {
+                j = 0;
+                k++;
+            }
+        }
+
+        // each round key is spread across all four block positions of the bitsliced state
+        long[] rk = new long[(rounds + 1) * 8];
+        long[] t = new long[8];
+
+        for (int r = 0; r <= rounds; r++)
+        {
+            interleaveIn(skey, r << 2, t, 0);
+            t[1] = t[2] = t[3] = t[0];
+            t[5] = t[6] = t[7] = t[4];
+
+            ortho(t);
+
+            System.arraycopy(t, 0, rk, r << 3, 8);
+        }
+
+        Arrays.fill(skey, 0);
+        Arrays.fill(t, 0L);
+
+        return rk;
+    }
+
+    private static int subWord(int x)
+    {
+        long[] t = new long[8];
+
+        t[0] = x & 0xffffffffL;
+
+        ortho(t);
+        sbox(t);
+        ortho(t);
+
+        return (int)t[0];
+    }
+
+    private static void encrypt(int rounds, long[] rk, long[] q)
+    {
+        addRoundKey(q, rk, 0);
+
+        for (int r = 1; r < rounds; r++)
+        {
+            sbox(q);
+            shiftRows(q);
+            mixColumns(q);
+            addRoundKey(q, rk, r << 3);
+        }
+
+        sbox(q);
+        shiftRows(q);
+        addRoundKey(q, rk, rounds << 3);
+    }
+
+    private static void decrypt(int rounds, long[] rk, long[] q)
+    {
+        addRoundKey(q, rk, rounds << 3);
+
+        for (int r = rounds - 1; r > 0; r--)
+        {
+            invShiftRows(q);
+            invSbox(q);
+            addRoundKey(q, rk, r << 3);
+            invMixColumns(q);
+        }
+
+        invShiftRows(q);
+        invSbox(q);
+        addRoundKey(q, rk, 0);
+    }
+
+    private static void addRoundKey(long[] q, long[] rk, int off)
+    {
+        q[0] ^= rk[off + 0];
+        q[1] ^= rk[off + 1];
+        q[2] ^= rk[off + 2];
+        q[3] ^= rk[off + 3];
+        q[4] ^= rk[off + 4];
+        q[5] ^= rk[off + 5];
+        q[6] ^= rk[off + 6];
+        q[7] ^= rk[off + 7];
+    }
+
+    private static void shiftRows(long[] q)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            long x = q[i];
+
+            q[i] = (x & 0x000000000000FFFFL)
+                | ((x & 0x00000000FFF00000L) >>> 4)
+                | ((x & 0x00000000000F0000L) << 12)
+                | ((x & 0x0000FF0000000000L) >>> 8)
+                | ((x & 0x000000FF00000000L) << 8)
+                | ((x & 0xF000000000000000L) >>> 12)
+                | ((x & 0x0FFF000000000000L) << 4);
+        }
+    }
+
+    private static void invShiftRows(long[] q)
+    {
+        for (int i = 0; i < 8; i++)
+        {
+            long x = q[i];
+
+            q[i] = (x & 0x000000000000FFFFL)
+                | ((x & 0x000000000FFF0000L) << 4)
+                | ((x & 0x00000000F0000000L) >>> 12)
+                | ((x & 0x000000FF00000000L) << 8)
+                | ((x & 0x0000FF0000000000L) >>> 8)
+                | ((x & 0x000F000000000000L) << 12)
+                | ((x & 0xFFF0000000000000L) >>> 4);
+        }
+    }
+
+    private static long rotr32(long x)
+    {
+        return (x << 32) | (x >>> 32);
+    }
+
+    private static void mixColumns(long[] q)
+    {
+        long q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3];
+        long q4 = q[4], q5 = q[5], q6 = q[6], q7 = q[7];
+        long r0 = (q0 >>> 16) | (q0 << 48);
+        long r1 = (q1 >>> 16) | (q1 << 48);
+        long r2 = (q2 >>> 16) | (q2 << 48);
+        long r3 = (q3 >>> 16) | (q3 << 48);
+        long r4 = (q4 >>> 16) | (q4 << 48);
+        long r5 = (q5 >>> 16) | (q5 << 48);
+        long r6 = (q6 >>> 16) | (q6 << 48);
+        long r7 = (q7 >>> 16) | (q7 << 48);
+
+        q[0] = q7 ^ r7 ^ r0 ^ rotr32(q0 ^ r0);
+        q[1] = q0 ^ r0 ^ q7 ^ r7 ^ r1 ^ rotr32(q1 ^ r1);
+        q[2] = q1 ^ r1 ^ r2 ^ rotr32(q2 ^ r2);
+        q[3] = q2 ^ r2 ^ q7 ^ r7 ^ r3 ^ rotr32(q3 ^ r3);
+        q[4] = q3 ^ r3 ^ q7 ^ r7 ^ r4 ^ rotr32(q4 ^ r4);
+        q[5] = q4 ^ r4 ^ r5 ^ rotr32(q5 ^ r5);
+        q[6] = q5 ^ r5 ^ r6 ^ rotr32(q6 ^ r6);
+        q[7] = q6 ^ r6 ^ r7 ^ rotr32(q7 ^ r7);
+    }
+
+    private static void invMixColumns(long[] q)
+    {
+        long q0 = q[0], q1 = q[1], q2 = q[2], q3 = q[3];
+        long q4 = q[4], q5 = q[5], q6 = q[6], q7 = q[7];
+        long r0 = (q0 >>> 16) | (q0 << 48);
+        long r1 = (q1 >>> 16) | (q1 << 48);
+        long r2 = (q2 >>> 16) | (q2 << 48);
+        long r3 = (q3 >>> 16) | (q3 << 48);
+        long r4 = (q4 >>> 16) | (q4 << 48);
+        long r5 = (q5 >>> 16) | (q5 << 48);
+        long r6 = (q6 >>> 16) | (q6 << 48);
+        long r7 = (q7 >>> 16) | (q7 << 48);
+
+        q[0] = q5 ^ q6 ^ q7 ^ r0 ^ r5 ^ r7 ^ rotr32(q0 ^ q5 ^ q6 ^ r0 ^ r5);
+        q[1] = q0 ^ q5 ^ r0 ^ r1 ^ r5 ^ r6 ^ r7 ^ rotr32(q1 ^ q5 ^ q7 ^ r1 ^ r5 ^ r6);
+        q[2] = q0 ^ q1 ^ q6 ^ r1 ^ r2 ^ r6 ^ r7 ^ rotr32(q0 ^ q2 ^ q6 ^ r2 ^ r6 ^ r7);
+        q[3] = q0 ^ q1 ^ q2 ^ q5 ^ q6 ^ r0 ^ r2 ^ r3 ^ r5 ^ rotr32(q0 ^ q1 ^ q3 ^ q5 ^ q6 ^ q7 ^ r0 ^ r3 ^ r5 ^ r7);
+        q[4] = q1 ^ q2 ^ q3 ^ q5 ^ r1 ^ r3 ^ r4 ^ r5 ^ r6 ^ r7 ^ rotr32(q1 ^ q2 ^ q4 ^ q5 ^ q7 ^ r1 ^ r4 ^ r5 ^ r6);
+        q[5] = q2 ^ q3 ^ q4 ^ q6 ^ r2 ^ r4 ^ r5 ^ r6 ^ r7 ^ rotr32(q2 ^ q3 ^ q5 ^ q6 ^ r2 ^ r5 ^ r6 ^ r7);
+        q[6] = q3 ^ q4 ^ q5 ^ q7 ^ r3 ^ r5 ^ r6 ^ r7 ^ rotr32(q3 ^ q4 ^ q6 ^ q7 ^ r3 ^ r6 ^ r7);
+        q[7] = q4 ^ q5 ^ q6 ^ r4 ^ r6 ^ r7 ^ rotr32(q4 ^ q5 ^ q7 ^ r4 ^ r7);
+    }
+
+    /*
+     * The Boyar-Peralta S-box circuit, x0 is the high bit and x7 the low bit of each byte.
+     */
+    private static void sbox(long[] q)
+    {
+        long x0 = q[7];
+        long x1 = q[6];
+        long x2 = q[5];
+        long x3 = q[4];
+        long x4 = q[3];
+        long x5 = q[2];
+        long x6 = q[1];
+        long x7 = q[0];
+
+        // top linear transformation
+        long y14 = x3 ^ x5;
+        long y13 = x0 ^ x6;
+        long y9 = x0 ^ x3;
+        long y8 = x0 ^ x5;
+        long t0 = x1 ^ x2;
+        long y1 = t0 ^ x7;
+        long y4 = y1 ^ x3;
+        long y12 = y13 ^ y14;
+        long y2 = y1 ^ x0;
+        long y5 = y1 ^ x6;
+        long y3 = y5 ^ y8;
+        long t1 = x4 ^ y12;
+        long y15 = t1 ^ x5;
+        long y20 = t1 ^ x1;
+        long y6 = y15 ^ x7;
+        long y10 = y15 ^ t0;
+        long y11 = y20 ^ y9;
+        long y7 = x7 ^ y11;
+        long y17 = y10 ^ y11;
+        long y19 = y10 ^ y8;
+        long y16 = t0 ^ y11;
+        long y21 = y13 ^ y16;
+        long y18 = x0 ^ y16;
+
+        // non-linear section
+        long t2 = y12 & y15;
+        long t3 = y3 & y6;
+        long t4 = t3 ^ t2;
+        long t5 = y4 & x7;
+        long t6 = t5 ^ t2;
+        long t7 = y13 & y16;
+        long t8 = y5 & y1;
+        long t9 = t8 ^ t7;
+        long t10 = y2 & y7;
+        long t11 = t10 ^ t7;
+        long t12 = y9 & y11;
+        long t13 = y14 & y17;
+        long t14 = t13 ^ t12;
+        long t15 = y8 & y10;
+        long t16 = t15 ^ t12;
+        long t17 = t4 ^ t14;
+        long t18 = t6 ^ t16;
+        long t19 = t9 ^ t14;
+        long t20 = t11 ^ t16;
+        long t21 = t17 ^ y20;
+        long t22 = t18 ^ y19;
+        long t23 = t19 ^ y21;
+        long t24 = t20 ^ y18;
+
+        long t25 = t21 ^ t22;
+        long t26 = t21 & t23;
+        long t27 = t24 ^ t26;
+        long t28 = t25 & t27;
+        long t29 = t28 ^ t22;
+        long t30 = t23 ^ t24;
+        long t31 = t22 ^ t26;
+        long t32 = t31 & t30;
+        long t33 = t32 ^ t24;
+        long t34 = t23 ^ t33;
+        long t35 = t27 ^ t33;
+        long t36 = t24 & t35;
+        long t37 = t36 ^ t34;
+        long t38 = t27 ^ t36;
+        long t39 = t29 & t38;
+        long t40 = t25 ^ t39;
+
+        long t41 = t40 ^ t37;
+        long t42 = t29 ^ t33;
+        long t43 = t29 ^ t40;
+        long t44 = t33 ^ t37;
+        long t45 = t42 ^ t41;
+        long z0 = t44 & y15;
+        long z1 = t37 & y6;
+        long z2 = t33 & x7;
+        long z3 = t43 & y16;
+        long z4 = t40 & y1;
+        long z5 = t29 & y7;
+        long z6 = t42 & y11;
+        long z7 = t45 & y17;
+        long z8 = t41 & y10;
+        long z9 = t44 & y12;
+        long z10 = t37 & y3;
+        long z11 = t33 & y4;
+        long z12 = t43 & y13;
+        long z13 = t40 & y5;
+        long z14 = t29 & y2;
+        long z15 = t42 & y9;
+        long z16 = t45 & y14;
+        long z17 = t41 & y8;
+
+        // bottom linear transformation
+        long t46 = z15 ^ z16;
+        long t47 = z10 ^ z11;
+        long t48 = z5 ^ z13;
+        long t49 = z9 ^ z10;
+        long t50 = z2 ^ z12;
+        long t51 = z2 ^ z5;
+        long t52 = z7 ^ z8;
+        long t53 = z0 ^ z3;
+        long t54 = z6 ^ z7;
+        long t55 = z16 ^ z17;
+        long t56 = z12 ^ t48;
+        long t57 = t50 ^ t53;
+        long t58 = z4 ^ t46;
+        long t59 = z3 ^ t54;
+        long t60 = t46 ^ t57;
+        long t61 = z14 ^ t57;
+        long t62 = t52 ^ t58;
+        long t63 = t49 ^ t58;
+        long t64 = z4 ^ t59;
+        long t65 = t61 ^ t62;
+        long t66 = z1 ^ t63;
+        long s0 = t59 ^ t63;
+        long s6 = t56 ^ ~t62;
+        long s7 = t48 ^ ~t60;
+        long t67 = t64 ^ t65;
+        long s3 = t53 ^ t66;
+        long s4 = t51 ^ t66;
+        long s5 = t47 ^ t65;
+        long s1 = t64 ^ ~s3;
+        long s2 = t55 ^ ~t67;
+
+        q[7] = s0;
+        q[6] = s1;
+        q[5] = s2;
+        q[4] = s3;
+        q[3] = s4;
+        q[2] = s5;
+        q[1] = s6;
+        q[0] = s7;
+    }
+
+    /*
+     * The inverse S-box, as the inverse affine transform around the forward S-box.
+     */
+    private static void invSbox(long[] q)
+    {
+        invAffine(q);
+        sbox(q);
+        invAffine(q);
+    }
+
+    private static void invAffine(long[] q)
+    {
+        long q0 = ~q[0];
+        long q1 = ~q[1];
+        long q2 = q[2];
+        long q3 = q[3];
+        long q4 = q[4];
+        long q5 = ~q[5];
+        long q6 = ~q[6];
+        long q7 = q[7];
+
+        q[7] = q1 ^ q4 ^ q6;
+        q[6] = q0 ^ q3 ^ q5;
+        q[5] = q7 ^ q2 ^ q4;
+        q[4] = q6 ^ q1 ^ q3;
+        q[3] = q5 ^ q0 ^ q2;
+        q[2] = q4 ^ q7 ^ q1;
+        q[1] = q3 ^ q6 ^ q0;
+        q[0] = q2 ^ q5 ^ q7;
+    }
+
+    /*
+     * Convert between the interleaved block layout and the bitsliced one, this is its own inverse.
+     */
+    private static void ortho(long[] q)
+    {
+        swap(q, 0, 1, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL, 1);
+        swap(q, 2, 3, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL, 1);
+        swap(q, 4, 5, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL, 1);
+        swap(q, 6, 7, 0x5555555555555555L, 0xAAAAAAAAAAAAAAAAL, 1);
+
+        swap(q, 0, 2, 0x3333333333333333L, 0xCCCCCCCCCCCCCCCCL, 2);
+        swap(q, 1, 3, 0x3333333333333333L, 0xCCCCCCCCCCCCCCCCL, 2);
+        swap(q, 4, 6, 0x3333333333333333L, 0xCCCCCCCCCCCCCCCCL, 2);
+        swap(q, 5, 7, 0x3333333333333333L, 0xCCCCCCCCCCCCCCCCL, 2);
+
+        swap(q, 0, 4, 0x0F0F0F0F0F0F0F0FL, 0xF0F0F0F0F0F0F0F0L, 4);
+        swap(q, 1, 5, 0x0F0F0F0F0F0F0F0FL, 0xF0F0F0F0F0F0F0F0L, 4);
+        swap(q, 2, 6, 0x0F0F0F0F0F0F0F0FL, 0xF0F0F0F0F0F0F0F0L, 4);
+        swap(q, 3, 7, 0x0F0F0F0F0F0F0F0FL, 0xF0F0F0F0F0F0F0F0L, 4);
+    }
+
+    private static void swap(long[] q, int i, int j, long cl, long ch, int s)
+    {
+        long a = q[i], b = q[j];
+
+        q[i] = (a & cl) | ((b & cl) << s);
+        q[j] = ((a & ch) >>> s) | (b & ch);
+    }
+
+    /*
+     * Spread the four little endian words of a block over two longs, a byte in every 16 bits.
+     */
+    private static void interleaveIn(int[] w, int wOff, long[] q, int qOff)
+    {
+        long x0 = w[wOff + 0] & 0xffffffffL;
+        long x1 = w[wOff + 1] & 0xffffffffL;
+        long x2 = w[wOff + 2] & 0xffffffffL;
+        long x3 = w[wOff + 3] & 0xffffffffL;
+
+        x0 |= (x0 << 16);
+        x1 |= (x1 << 16);
+        x2 |= (x2 << 16);
+        x3 |= (x3 << 16);
+        x0 &= 0x0000FFFF0000FFFFL;
+        x1 &= 0x0000FFFF0000FFFFL;
+        x2 &= 0x0000FFFF0000FFFFL;
+        x3 &= 0x0000FFFF0000FFFFL;
+        x0 |= (x0 << 8);
+        x1 |= (x1 << 8);
+        x2 |= (x2 << 8);
+        x3 |= (x3 << 8);
+        x0 &= 0x00FF00FF00FF00FFL;
+        x1 &= 0x00FF00FF00FF00FFL;
+        x2 &= 0x00FF00FF00FF00FFL;
+        x3 &= 0x00FF00FF00FF00FFL;
+
+        q[qOff] = x0 | (x2 << 8);
+        q[qOff + 4] = x1 | (x3 << 8);
+    }
+
+    private static void interleaveOut(int[] w, int wOff, long q0, long q1)
+    {
+        long x0 = q0 & 0x00FF00FF00FF00FFL;
+        long x1 = q1 & 0x00FF00FF00FF00FFL;
+        long x2 = (q0 >>> 8) & 0x00FF00FF00FF00FFL;
+        long x3 = (q1 >>> 8) & 0x00FF00FF00FF00FFL;
+
+        x0 |= (x0 >>> 8);
+        x1 |= (x1 >>> 8);
+        x2 |= (x2 >>> 8);
+        x3 |= (x3 >>> 8);
+        x0 &= 0x0000FFFF0000FFFFL;
+        x1 &= 0x0000FFFF0000FFFFL;
+        x2 &= 0x0000FFFF0000FFFFL;
+        x3 &= 0x0000FFFF0000FFFFL;
+
+        w[wOff + 0] = (int)x0 | (int)(x0 >>> 16);
+        w[wOff + 1] = (int)x1 | (int)(x1 >>> 16);
+        w[wOff + 2] = (int)x2 | (int)(x2 >>> 16);
+        w[wOff + 3] = (int)x3 | (int)(x3 >>> 16);
+    }
+}
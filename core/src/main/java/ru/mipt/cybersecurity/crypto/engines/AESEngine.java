@@ -1,8 +1,8 @@
 package ru.mipt.cybersecurity.crypto.engines;
 
-import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.util.Arrays;
@@ -32,7 +32,7 @@ import ru.mipt.cybersecurity.util.Pack;
  *
  */
 public class AESEngine
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     // The S box
     private static final byte[] S = {
@@ -280,7 +280,7 @@ private static final int[] Tinv0 =
      * AES specified a fixed block size of 128 bits and key sizes 128/192/256 bits
      * This code is written assuming those are the only possible values
      */
-    private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
+    int[][] generateWorkingKey(byte[] key, boolean forEncryption)
     {
         int keyLen = key.length;
         if (keyLen < 16 || keyLen > 32 || (keyLen & 7) != 0)
@@ -419,6 +419,7 @@ private static final int[] Tinv0 =
     private byte[]      s;
 
     private static final int BLOCK_SIZE = 16;
+    private static final int MULTI_BLOCK_COUNT = 8;
 
     /**
      * default constructor - 128 bit block size.
@@ -441,16 +442,22 @@ private static final int[] Tinv0 =
     {
         if (params instanceof KeyParameter)
         {
-            WorkingKey = generateWorkingKey(((KeyParameter)params).getKey(), forEncryption);
-            this.forEncryption = forEncryption;
-            if (forEncryption)
+            if (params instanceof AESPreparedKey)
             {
-                s = Arrays.clone(S);
+                // the expanded key is shared with other engines, it is only ever read
+                WorkingKey = ((AESPreparedKey)params).getWorkingKey(forEncryption);
+                ROUNDS = WorkingKey.length - 1;
             }
             else
             {
-                s = Arrays.clone(Si);
+                WorkingKey = generateWorkingKey(((KeyParameter)params).getKey(), forEncryption);
+            }
+            // the private copy of the S-box only needs replacing if the direction changes
+            if (s == null || this.forEncryption != forEncryption)
+            {
+                s = Arrays.clone(forEncryption ? S : Si);
             }
+            this.forEncryption = forEncryption;
             return;
         }
 
@@ -504,6 +511,72 @@ private static final int[] Tinv0 =
         return BLOCK_SIZE;
     }
 
+    public int getMultiBlockSize()
+    {
+        return MULTI_BLOCK_COUNT * BLOCK_SIZE;
+    }
+
+    /**
+     * Process blockCount consecutive blocks, checking the key and buffer bounds once for the
+     * whole run rather than once per block.
+     */
+    public int processBlocks(
+        byte[] in,
+        int inOff,
+        int blockCount,
+        byte[] out,
+        int outOff)
+    {
+        if (WorkingKey == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+
+        int len = blockCount * BLOCK_SIZE;
+
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (forEncryption)
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                unpackBlock(in, inOff);
+                encryptBlock(WorkingKey);
+                packBlock(out, outOff);
+
+                inOff += BLOCK_SIZE;
+                outOff += BLOCK_SIZE;
+            }
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                unpackBlock(in, inOff);
+                decryptBlock(WorkingKey);
+                packBlock(out, outOff);
+
+                inOff += BLOCK_SIZE;
+                outOff += BLOCK_SIZE;
+            }
+        }
+
+        return len;
+    }
+
     public void reset()
     {
     }
@@ -1,8 +1,8 @@
 package ru.mipt.cybersecurity.crypto.engines;
 
-import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.util.Pack;
@@ -33,7 +33,7 @@ import ru.mipt.cybersecurity.util.Pack;
  * @deprecated unfortunately this class is has a few side channel issues. In an environment where encryption/decryption may be closely observed it should not be used.
  */
 public class AESFastEngine
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     // The S box
     private static final byte[] S = {
@@ -609,7 +609,7 @@ public class AESFastEngine
      * AES specified a fixed block size of 128 bits and key sizes 128/192/256 bits
      * This code is written assuming those are the only possible values
      */
-    private int[][] generateWorkingKey(byte[] key, boolean forEncryption)
+    int[][] generateWorkingKey(byte[] key, boolean forEncryption)
     {
         int keyLen = key.length;
         if (keyLen < 16 || keyLen > 32 || (keyLen & 7) != 0)
@@ -746,6 +746,7 @@ public class AESFastEngine
     private boolean     forEncryption;
 
     private static final int BLOCK_SIZE = 16;
+    private static final int MULTI_BLOCK_COUNT = 8;
 
     /**
      * default constructor - 128 bit block size.
@@ -768,7 +769,16 @@ public class AESFastEngine
     {
         if (params instanceof KeyParameter)
         {
-            WorkingKey = generateWorkingKey(((KeyParameter)params).getKey(), forEncryption);
+            if (params instanceof AESPreparedKey)
+            {
+                // the expanded key is shared with other engines, it is only ever read
+                WorkingKey = ((AESPreparedKey)params).getWorkingKey(forEncryption);
+                ROUNDS = WorkingKey.length - 1;
+            }
+            else
+            {
+                WorkingKey = generateWorkingKey(((KeyParameter)params).getKey(), forEncryption);
+            }
             this.forEncryption = forEncryption;
             return;
         }
@@ -823,6 +833,72 @@ public class AESFastEngine
         return BLOCK_SIZE;
     }
 
+    public int getMultiBlockSize()
+    {
+        return MULTI_BLOCK_COUNT * BLOCK_SIZE;
+    }
+
+    /**
+     * Process blockCount consecutive blocks, checking the key and buffer bounds once for the
+     * whole run rather than once per block.
+     */
+    public int processBlocks(
+        byte[] in,
+        int inOff,
+        int blockCount,
+        byte[] out,
+        int outOff)
+    {
+        if (WorkingKey == null)
+        {
+            throw new IllegalStateException("AES engine not initialised");
+        }
+
+        if (blockCount < 0)
+        {
+            throw new IllegalArgumentException("blockCount cannot be negative");
+        }
+
+        int len = blockCount * BLOCK_SIZE;
+
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (forEncryption)
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                unpackBlock(in, inOff);
+                encryptBlock(WorkingKey);
+                packBlock(out, outOff);
+
+                inOff += BLOCK_SIZE;
+                outOff += BLOCK_SIZE;
+            }
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                unpackBlock(in, inOff);
+                decryptBlock(WorkingKey);
+                packBlock(out, outOff);
+
+                inOff += BLOCK_SIZE;
+                outOff += BLOCK_SIZE;
+            }
+        }
+
+        return len;
+    }
+
     public void reset()
     {
     }
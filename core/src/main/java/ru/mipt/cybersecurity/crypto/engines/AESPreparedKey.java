@@ -0,0 +1,59 @@
+package ru.mipt.cybersecurity.crypto.engines;
+
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+
+/**
+ * An AES key with its key schedule already expanded.
+ * <p>
+ * The expanded key is immutable, so a single instance can be passed to the init() methods of any
+ * number of AESEngine, AESFastEngine and AESBitslicedEngine instances, in any number of threads, and
+ * each engine then skips the key expansion. Anything else given one of these simply uses the key bytes,
+ * as with a plain KeyParameter.
+ * </p>
+ */
+public class AESPreparedKey
+    extends KeyParameter
+{
+    private final int[][] encryptionKey;
+    private final int[][] decryptionKey;
+
+    private volatile long[] bitslicedKey;
+
+    public AESPreparedKey(
+        byte[]  key)
+    {
+        this(key, 0, key.length);
+    }
+
+    public AESPreparedKey(
+        byte[]  key,
+        int     keyOff,
+        int     keyLen)
+    {
+        super(key, keyOff, keyLen);
+
+        AESEngine engine = new AESEngine();
+
+        this.encryptionKey = engine.generateWorkingKey(getKey(), true);
+        this.decryptionKey = engine.generateWorkingKey(getKey(), false);
+    }
+
+    int[][] getWorkingKey(boolean forEncryption)
+    {
+        return forEncryption ? encryptionKey : decryptionKey;
+    }
+
+    long[] getBitslicedKey()
+    {
+        long[] rk = bitslicedKey;
+
+        // only built if a bitsliced engine asks for it, a race just builds it twice
+        if (rk == null)
+        {
+            rk = AESBitslicedEngine.generateRoundKeys(getKey());
+            bitslicedKey = rk;
+        }
+
+        return rk;
+    }
+}
@@ -1,5 +1,9 @@
 package ru.mipt.cybersecurity.crypto.engines;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import ru.mipt.cybersecurity.crypto.ByteBufferStreamCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.MaxBytesExceededException;
@@ -14,7 +18,7 @@ import ru.mipt.cybersecurity.util.Strings;
  * Implementation of Daniel J. Bernstein's Salsa20 stream cipher, Snuffle 2005
  */
 public class Salsa20Engine
-    implements SkippingStreamCipher
+    implements SkippingStreamCipher, ByteBufferStreamCipher
 {
     public final static int DEFAULT_ROUNDS = 20;
 
@@ -284,6 +288,69 @@ public class Salsa20Engine
         return len;
     }
 
+    public int processBytes(
+        ByteBuffer in,
+        ByteBuffer out)
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException(getAlgorithmName() + " not initialised");
+        }
+
+        int len = in.remaining();
+        int inPos = in.position(), outPos = out.position();
+
+        if (in.hasArray() && out.hasArray())
+        {
+            processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + len);
+            return len;
+        }
+
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        if (limitExceeded(len))
+        {
+            throw new MaxBytesExceededException("2^70 byte limit per IV would be exceeded; Change IV");
+        }
+
+        // direct or read-only buffers, the key stream is applied in place with no staging copy
+        ByteBuffer src = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dst = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        int i = 0;
+        while (i < len)
+        {
+            if ((index & 7) == 0 && (len - i) >= 8)
+            {
+                dst.putLong(outPos + i, src.getLong(inPos + i) ^ Pack.littleEndianToLong(keyStream, index));
+                index = (index + 8) & 63;
+                i += 8;
+            }
+            else
+            {
+                dst.put(outPos + i, (byte)(keyStream[index] ^ src.get(inPos + i)));
+                index = (index + 1) & 63;
+                i++;
+            }
+
+            if (index == 0)
+            {
+                advanceCounter();
+                generateKeyStream(keyStream);
+            }
+        }
+
+        in.position(inPos + len);
+        out.position(outPos + len);
+
+        return len;
+    }
+
     public long skip(long numberOfBytes)
     {
         if (numberOfBytes >= 0)
@@ -0,0 +1,560 @@
+package ru.mipt.cybersecurity.crypto.generators;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.Blake2bDigest;
+import ru.mipt.cybersecurity.crypto.params.Argon2Parameters;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * Argon2 PBKDF - Based on the results of https://password-hashing.net/ and
+ * <a href="https://www.rfc-editor.org/rfc/rfc9106.html">RFC 9106</a>.
+ * <p>
+ * The memory is held as a single long[] arena, 128 words to a block, which is kept by the generator
+ * and reused by later calls needing the same amount of memory or less. It is wiped once each hash
+ * is complete.
+ * </p>
+ * <p>
+ * Within each of the four slices of a pass the lanes are independent, so given an ExecutorService
+ * the lanes of a slice are filled on the executor's threads, with the caller waiting for all of them
+ * at the end of the slice as the algorithm requires. The latency of a hash with p lanes then falls
+ * with the number of threads available, up to p.
+ * </p>
+ */
+public class Argon2BytesGenerator
+{
+    private static final int ARGON2_BLOCK_SIZE = 1024;
+    private static final int ARGON2_QWORDS_IN_BLOCK = ARGON2_BLOCK_SIZE / 8;
+
+    private static final int ARGON2_ADDRESSES_IN_BLOCK = 128;
+
+    private static final int ARGON2_PREHASH_DIGEST_LENGTH = 64;
+
+    private static final int ARGON2_SYNC_POINTS = 4;
+
+    private static final int MIN_OUTLEN = 4;
+
+    private static final long M32L = 0xFFFFFFFFL;
+
+    private final ExecutorService executor;
+
+    private Argon2Parameters parameters;
+    private long[] memory;
+    private int segmentLength;
+    private int laneLength;
+    private int blockCount;
+
+    /**
+     * Create a generator which fills the lanes on the calling thread.
+     */
+    public Argon2BytesGenerator()
+    {
+        this(null);
+    }
+
+    /**
+     * Create a generator which fills the lanes of each slice in parallel.
+     *
+     * @param executor the executor the lanes are filled on, null for sequential processing.
+     */
+    public Argon2BytesGenerator(ExecutorService executor)
+    {
+        this.executor = executor;
+    }
+
+    /**
+     * Initialise the Argon2BytesGenerator from the parameters.
+     *
+     * @param parameters Argon2 configuration.
+     */
+    public void init(Argon2Parameters parameters)
+    {
+        this.parameters = parameters;
+
+        // m' = 4 * p * floor(m / (4 * p))
+        this.segmentLength = parameters.getMemory() / (parameters.getLanes() * ARGON2_SYNC_POINTS);
+        this.laneLength = segmentLength * ARGON2_SYNC_POINTS;
+        this.blockCount = laneLength * parameters.getLanes();
+
+        if (blockCount > Integer.MAX_VALUE / ARGON2_QWORDS_IN_BLOCK)
+        {
+            throw new IllegalArgumentException("memory size too large for a single array");
+        }
+    }
+
+    public int generateBytes(char[] password, byte[] out)
+    {
+        return generateBytes(parameters.getCharToByteConverter().convert(password), out);
+    }
+
+    public int generateBytes(char[] password, byte[] out, int outOff, int outLen)
+    {
+        return generateBytes(parameters.getCharToByteConverter().convert(password), out, outOff, outLen);
+    }
+
+    public int generateBytes(byte[] password, byte[] out)
+    {
+        return generateBytes(password, out, 0, out.length);
+    }
+
+    public int generateBytes(byte[] password, byte[] out, int outOff, int outLen)
+    {
+        if (parameters == null)
+        {
+            throw new IllegalStateException("Argon2BytesGenerator not initialised");
+        }
+        if (outLen < MIN_OUTLEN)
+        {
+            throw new IllegalArgumentException("output length less than " + MIN_OUTLEN);
+        }
+
+        int arenaSize = blockCount * ARGON2_QWORDS_IN_BLOCK;
+        if (memory == null || memory.length < arenaSize)
+        {
+            memory = new long[arenaSize];
+        }
+
+        try
+        {
+            initialize(password, outLen);
+            fillMemoryBlocks();
+            digest(out, outOff, outLen);
+        }
+        finally
+        {
+            for (int i = 0; i != arenaSize; i++)
+            {
+                memory[i] = 0;
+            }
+        }
+
+        return outLen;
+    }
+
+    private void fillMemoryBlocks()
+    {
+        final int lanes = parameters.getLanes();
+        final FillBlock[] fillers = new FillBlock[(executor == null) ? 1 : lanes];
+
+        for (int i = 0; i != fillers.length; i++)
+        {
+            fillers[i] = new FillBlock();
+        }
+
+        for (int pass = 0; pass < parameters.getIterations(); pass++)
+        {
+            for (int slice = 0; slice < ARGON2_SYNC_POINTS; slice++)
+            {
+                if (executor == null || lanes == 1)
+                {
+                    for (int lane = 0; lane < lanes; lane++)
+                    {
+                        fillSegment(fillers[0], pass, lane, slice);
+                    }
+                }
+                else
+                {
+                    final int p = pass;
+                    final int s = slice;
+
+                    List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(lanes);
+                    for (int lane = 0; lane < lanes; lane++)
+                    {
+                        final int l = lane;
+
+                        tasks.add(new Callable<Object>()
+                        {
+                            public Object call()
+                            {
+                                fillSegment(fillers[l], p, l, s);
+                                return null;
+                            }
+                        });
+                    }
+
+                    // the slice is a synchronisation point - every lane must be done before the next starts
+                    ParallelTasks.invokeAll(executor, tasks);
+                }
+            }
+        }
+    }
+
+    private void fillSegment(FillBlock filler, int pass, int lane, int slice)
+    {
+        boolean dataIndependentAddressing = isDataIndependentAddressing(pass, slice);
+        int startingIndex = (pass == 0 && slice == 0) ? 2 : 0;
+        boolean withXor = pass != 0 && parameters.getVersion() != Argon2Parameters.ARGON2_VERSION_10;
+
+        if (dataIndependentAddressing)
+        {
+            filler.initAddressBlocks(pass, lane, slice, blockCount, parameters.getIterations(), parameters.getType());
+
+            // the first two blocks of each lane are already there, but the addresses still count from 0
+            if (startingIndex != 0)
+            {
+                filler.nextAddresses();
+            }
+        }
+
+        int currentOffset = lane * laneLength + slice * segmentLength + startingIndex;
+        int prevOffset = (currentOffset % laneLength == 0) ? currentOffset + laneLength - 1 : currentOffset - 1;
+
+        for (int index = startingIndex; index < segmentLength; index++, currentOffset++, prevOffset++)
+        {
+            if (currentOffset % laneLength == 1)
+            {
+                prevOffset = currentOffset - 1;
+            }
+
+            long pseudoRandom;
+            if (dataIndependentAddressing)
+            {
+                if (index % ARGON2_ADDRESSES_IN_BLOCK == 0)
+                {
+                    filler.nextAddresses();
+                }
+                pseudoRandom = filler.addressBlock[index % ARGON2_ADDRESSES_IN_BLOCK];
+            }
+            else
+            {
+                pseudoRandom = memory[prevOffset * ARGON2_QWORDS_IN_BLOCK];
+            }
+
+            int refLane = (int)((pseudoRandom >>> 32) % parameters.getLanes());
+            if (pass == 0 && slice == 0)
+            {
+                refLane = lane;
+            }
+
+            int refColumn = getRefColumn(pass, slice, index, pseudoRandom, refLane == lane);
+            int refOffset = laneLength * refLane + refColumn;
+
+            filler.fillBlock(memory, prevOffset * ARGON2_QWORDS_IN_BLOCK, memory, refOffset * ARGON2_QWORDS_IN_BLOCK,
+                memory, currentOffset * ARGON2_QWORDS_IN_BLOCK, withXor);
+        }
+    }
+
+    private boolean isDataIndependentAddressing(int pass, int slice)
+    {
+        return parameters.getType() == Argon2Parameters.ARGON2_i
+            || (parameters.getType() == Argon2Parameters.ARGON2_id && pass == 0 && slice < ARGON2_SYNC_POINTS / 2);
+    }
+
+    private int getRefColumn(int pass, int slice, int index, long pseudoRandom, boolean sameLane)
+    {
+        long startPosition;
+        long referenceAreaSize;
+
+        if (pass == 0)
+        {
+            startPosition = 0;
+
+            if (sameLane)
+            {
+                // the same lane - everything filled so far bar the previous block
+                referenceAreaSize = slice * segmentLength + index - 1;
+            }
+            else
+            {
+                // another lane - the finished segments, less the last block if this is the first of a segment
+                referenceAreaSize = slice * segmentLength + ((index == 0) ? -1 : 0);
+            }
+        }
+        else
+        {
+            startPosition = ((slice + 1) * segmentLength) % laneLength;
+
+            if (sameLane)
+            {
+                referenceAreaSize = laneLength - segmentLength + index - 1;
+            }
+            else
+            {
+                referenceAreaSize = laneLength - segmentLength + ((index == 0) ? -1 : 0);
+            }
+        }
+
+        long relativePosition = pseudoRandom & M32L;
+        relativePosition = (relativePosition * relativePosition) >>> 32;
+        relativePosition = referenceAreaSize - 1 - ((referenceAreaSize * relativePosition) >>> 32);
+
+        return (int)((startPosition + relativePosition) % laneLength);
+    }
+
+    private void digest(byte[] out, int outOff, int outLen)
+    {
+        // C = B[0][q - 1] ^ B[1][q - 1] ^ ... ^ B[p - 1][q - 1]
+        long[] finalBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+        int lastBlockInLane = (laneLength - 1) * ARGON2_QWORDS_IN_BLOCK;
+
+        System.arraycopy(memory, lastBlockInLane, finalBlock, 0, ARGON2_QWORDS_IN_BLOCK);
+        for (int lane = 1; lane < parameters.getLanes(); lane++)
+        {
+            int off = lastBlockInLane + lane * laneLength * ARGON2_QWORDS_IN_BLOCK;
+
+            for (int i = 0; i != ARGON2_QWORDS_IN_BLOCK; i++)
+            {
+                finalBlock[i] ^= memory[off + i];
+            }
+        }
+
+        byte[] finalBlockBytes = Pack.longToLittleEndian(finalBlock);
+
+        hash(finalBlockBytes, out, outOff, outLen);
+
+        Arrays.fill(finalBlock, 0L);
+        Arrays.fill(finalBlockBytes, (byte)0);
+    }
+
+    /**
+     * H' - the variable length hash function of RFC 9106, section 3.3.
+     */
+    private static void hash(byte[] input, byte[] out, int outOff, int outLen)
+    {
+        byte[] outLenBytes = Pack.intToLittleEndian(outLen);
+
+        if (outLen <= ARGON2_PREHASH_DIGEST_LENGTH)
+        {
+            Digest digest = new Blake2bDigest(null, outLen, null, null);
+
+            digest.update(outLenBytes, 0, outLenBytes.length);
+            digest.update(input, 0, input.length);
+            digest.doFinal(out, outOff);
+            return;
+        }
+
+        int halfLen = ARGON2_PREHASH_DIGEST_LENGTH / 2;
+        Digest digest = new Blake2bDigest(null, ARGON2_PREHASH_DIGEST_LENGTH, null, null);
+        byte[] v = new byte[ARGON2_PREHASH_DIGEST_LENGTH];
+
+        // V1
+        digest.update(outLenBytes, 0, outLenBytes.length);
+        digest.update(input, 0, input.length);
+        digest.doFinal(v, 0);
+
+        System.arraycopy(v, 0, out, outOff, halfLen);
+        outOff += halfLen;
+
+        int remaining = outLen - halfLen;
+        while (remaining > ARGON2_PREHASH_DIGEST_LENGTH)
+        {
+            digest.update(v, 0, v.length);
+            digest.doFinal(v, 0);
+
+            System.arraycopy(v, 0, out, outOff, halfLen);
+            outOff += halfLen;
+            remaining -= halfLen;
+        }
+
+        digest = new Blake2bDigest(null, remaining, null, null);
+        digest.update(v, 0, v.length);
+        digest.doFinal(out, outOff);
+
+        Arrays.fill(v, (byte)0);
+    }
+
+    private void initialize(byte[] password, int outputLength)
+    {
+        byte[] initialHash = initialHash(parameters, outputLength, password);
+        byte[] seed = new byte[ARGON2_PREHASH_DIGEST_LENGTH + 8];
+        byte[] block = new byte[ARGON2_BLOCK_SIZE];
+
+        System.arraycopy(initialHash, 0, seed, 0, initialHash.length);
+
+        // B[i][0] = H'(H0 || LE32(0) || LE32(i)), B[i][1] = H'(H0 || LE32(1) || LE32(i))
+        for (int lane = 0; lane < parameters.getLanes(); lane++)
+        {
+            Pack.intToLittleEndian(lane, seed, ARGON2_PREHASH_DIGEST_LENGTH + 4);
+
+            for (int column = 0; column != 2; column++)
+            {
+                Pack.intToLittleEndian(column, seed, ARGON2_PREHASH_DIGEST_LENGTH);
+
+                hash(seed, block, 0, ARGON2_BLOCK_SIZE);
+
+                Pack.littleEndianToLong(block, 0, memory, (lane * laneLength + column) * ARGON2_QWORDS_IN_BLOCK,
+                    ARGON2_QWORDS_IN_BLOCK);
+            }
+        }
+
+        Arrays.fill(initialHash, (byte)0);
+        Arrays.fill(seed, (byte)0);
+        Arrays.fill(block, (byte)0);
+    }
+
+    private static byte[] initialHash(Argon2Parameters parameters, int outputLength, byte[] password)
+    {
+        Digest blake = new Blake2bDigest(ARGON2_PREHASH_DIGEST_LENGTH * 8);
+
+        addIntToLittleEndian(blake, parameters.getLanes());
+        addIntToLittleEndian(blake, outputLength);
+        addIntToLittleEndian(blake, parameters.getMemory());
+        addIntToLittleEndian(blake, parameters.getIterations());
+        addIntToLittleEndian(blake, parameters.getVersion());
+        addIntToLittleEndian(blake, parameters.getType());
+
+        addByteString(blake, password);
+        addByteString(blake, parameters.getSalt());
+        addByteString(blake, parameters.getSecret());
+        addByteString(blake, parameters.getAdditional());
+
+        byte[] blake2hash = new byte[blake.getDigestSize()];
+        blake.doFinal(blake2hash, 0);
+
+        return blake2hash;
+    }
+
+    private static void addIntToLittleEndian(Digest digest, int n)
+    {
+        digest.update((byte)n);
+        digest.update((byte)(n >>> 8));
+        digest.update((byte)(n >>> 16));
+        digest.update((byte)(n >>> 24));
+    }
+
+    private static void addByteString(Digest digest, byte[] octets)
+    {
+        if (octets == null)
+        {
+            addIntToLittleEndian(digest, 0);
+            return;
+        }
+
+        addIntToLittleEndian(digest, octets.length);
+        digest.update(octets, 0, octets.length);
+    }
+
+    /**
+     * The compression function G, with the working blocks for one thread.
+     */
+    private static class FillBlock
+    {
+        private final long[] R = new long[ARGON2_QWORDS_IN_BLOCK];
+        private final long[] Z = new long[ARGON2_QWORDS_IN_BLOCK];
+
+        private final long[] addressBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+        private final long[] zeroBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+        private final long[] inputBlock = new long[ARGON2_QWORDS_IN_BLOCK];
+
+        void initAddressBlocks(int pass, int lane, int slice, int blockCount, int iterations, int type)
+        {
+            Arrays.fill(inputBlock, 0L);
+
+            inputBlock[0] = pass;
+            inputBlock[1] = lane;
+            inputBlock[2] = slice;
+            inputBlock[3] = blockCount;
+            inputBlock[4] = iterations;
+            inputBlock[5] = type;
+        }
+
+        void nextAddresses()
+        {
+            inputBlock[6]++;
+
+            fillBlock(zeroBlock, 0, inputBlock, 0, addressBlock, 0, false);
+            fillBlock(zeroBlock, 0, addressBlock, 0, addressBlock, 0, false);
+        }
+
+        /**
+         * dst = G(x, y), or dst ^= G(x, y) if withXor is set.
+         */
+        void fillBlock(long[] x, int xOff, long[] y, int yOff, long[] dst, int dstOff, boolean withXor)
+        {
+            for (int i = 0; i != ARGON2_QWORDS_IN_BLOCK; i++)
+            {
+                R[i] = x[xOff + i] ^ y[yOff + i];
+            }
+
+            if (withXor)
+            {
+                for (int i = 0; i != ARGON2_QWORDS_IN_BLOCK; i++)
+                {
+                    Z[i] = R[i] ^ dst[dstOff + i];
+                }
+            }
+            else
+            {
+                System.arraycopy(R, 0, Z, 0, ARGON2_QWORDS_IN_BLOCK);
+            }
+
+            // apply the Blake2b based permutation P to the rows, then the columns, of the 8x8 matrix of 16 byte registers
+            for (int i = 0; i < 8; i++)
+            {
+                int i16 = 16 * i;
+                roundFunction(R,
+                    i16, i16 + 1, i16 + 2, i16 + 3,
+                    i16 + 4, i16 + 5, i16 + 6, i16 + 7,
+                    i16 + 8, i16 + 9, i16 + 10, i16 + 11,
+                    i16 + 12, i16 + 13, i16 + 14, i16 + 15);
+            }
+
+            for (int i = 0; i < 8; i++)
+            {
+                int i2 = 2 * i;
+                roundFunction(R,
+                    i2, i2 + 1, i2 + 16, i2 + 17,
+                    i2 + 32, i2 + 33, i2 + 48, i2 + 49,
+                    i2 + 64, i2 + 65, i2 + 80, i2 + 81,
+                    i2 + 96, i2 + 97, i2 + 112, i2 + 113);
+            }
+
+            for (int i = 0; i != ARGON2_QWORDS_IN_BLOCK; i++)
+            {
+                dst[dstOff + i] = R[i] ^ Z[i];
+            }
+        }
+
+        private static void roundFunction(long[] block,
+            int v0, int v1, int v2, int v3,
+            int v4, int v5, int v6, int v7,
+            int v8, int v9, int v10, int v11,
+            int v12, int v13, int v14, int v15)
+        {
+            F(block, v0, v4, v8, v12);
+            F(block, v1, v5, v9, v13);
+            F(block, v2, v6, v10, v14);
+            F(block, v3, v7, v11, v15);
+
+            F(block, v0, v5, v10, v15);
+            F(block, v1, v6, v11, v12);
+            F(block, v2, v7, v8, v13);
+            F(block, v3, v4, v9, v14);
+        }
+
+        /**
+         * The Blake2b G function with the additions replaced by the multiplication hardened BlaMka
+         * function a + b + 2 * lo32(a) * lo32(b).
+         */
+        private static void F(long[] block, int ai, int bi, int ci, int di)
+        {
+            long a = block[ai], b = block[bi], c = block[ci], d = block[di];
+
+            a += b + 2 * (a & M32L) * (b & M32L);
+            d = rotr64(d ^ a, 32);
+            c += d + 2 * (c & M32L) * (d & M32L);
+            b = rotr64(b ^ c, 24);
+
+            a += b + 2 * (a & M32L) * (b & M32L);
+            d = rotr64(d ^ a, 16);
+            c += d + 2 * (c & M32L) * (d & M32L);
+            b = rotr64(b ^ c, 63);
+
+            block[ai] = a;
+            block[bi] = b;
+            block[ci] = c;
+            block[di] = d;
+        }
+
+        private static long rotr64(long x, int n)
+        {
+            return (x >>> n) | (x << (64 - n));
+        }
+    }
+}
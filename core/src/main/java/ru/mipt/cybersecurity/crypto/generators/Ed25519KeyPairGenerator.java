@@ -0,0 +1,32 @@
+package ru.mipt.cybersecurity.crypto.generators;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPair;
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.KeyGenerationParameters;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PublicKeyParameters;
+
+public class Ed25519KeyPairGenerator
+    implements AsymmetricCipherKeyPairGenerator
+{
+    private SecureRandom random;
+
+    public void init(KeyGenerationParameters parameters)
+    {
+        this.random = parameters.getRandom();
+
+        if (this.random == null)
+        {
+            this.random = new SecureRandom();
+        }
+    }
+
+    public AsymmetricCipherKeyPair generateKeyPair()
+    {
+        Ed25519PrivateKeyParameters privateKey = new Ed25519PrivateKeyParameters(random);
+        Ed25519PublicKeyParameters publicKey = privateKey.generatePublicKey();
+        return new AsymmetricCipherKeyPair(publicKey, privateKey);
+    }
+}
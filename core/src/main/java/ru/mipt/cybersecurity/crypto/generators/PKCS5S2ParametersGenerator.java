@@ -1,14 +1,24 @@
 package ru.mipt.cybersecurity.crypto.generators;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.Digest;
 import ru.mipt.cybersecurity.crypto.Mac;
 import ru.mipt.cybersecurity.crypto.PBEParametersGenerator;
+import ru.mipt.cybersecurity.crypto.digests.HMacIterator;
 import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.macs.HMacPreparedKey;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
 import ru.mipt.cybersecurity.crypto.util.DigestFactory;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
 import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Memoable;
+import ru.mipt.cybersecurity.util.Pack;
 
 /**
  * Generator for PBE derived keys and ivs as defined by PKCS 5 V2.0 Scheme 2.
@@ -23,6 +33,7 @@ public class PKCS5S2ParametersGenerator
 {
     private Mac hMac;
     private byte[] state;
+    private ExecutorService executor;
 
     /**
      * construct a PKCS5 Scheme 2 Parameters generator.
@@ -33,17 +44,33 @@ public class PKCS5S2ParametersGenerator
     }
 
     public PKCS5S2ParametersGenerator(Digest digest)
+    {
+        this(digest, null);
+    }
+
+    /**
+     * construct a PKCS5 Scheme 2 Parameters generator which calculates the blocks of
+     * a derived key longer than the HMAC output in parallel.
+     *
+     * @param digest the digest to base the HMAC on, blocks are only calculated in parallel if it is Memoable.
+     * @param executor the executor the blocks are calculated on, null for sequential processing.
+     */
+    public PKCS5S2ParametersGenerator(Digest digest, ExecutorService executor)
     {
         hMac = new HMac(digest);
         state = new byte[hMac.getMacSize()];
+        this.executor = executor;
     }
 
-    private void F(
-        byte[]  S,
-        int     c,
-        byte[]  iBuf,
-        byte[]  out,
-        int     outOff)
+    private static void F(
+        Mac          hMac,
+        HMacIterator iterator,
+        byte[]       state,
+        byte[]       S,
+        int          c,
+        byte[]       iBuf,
+        byte[]       out,
+        int          outOff)
     {
         if (c == 0)
         {
@@ -58,6 +85,12 @@ public class PKCS5S2ParametersGenerator
         hMac.update(iBuf, 0, iBuf.length);
         hMac.doFinal(state, 0);
 
+        if (iterator != null)
+        {
+            iterator.iterate(state, c, out, outOff);
+            return;
+        }
+
         System.arraycopy(state, 0, out, outOff, state.length);
 
         for (int count = 1; count < c; count++)
@@ -77,14 +110,26 @@ public class PKCS5S2ParametersGenerator
     {
         int     hLen = hMac.getMacSize();
         int     l = (dkLen + hLen - 1) / hLen;
-        byte[]  iBuf = new byte[4];
         byte[]  outBytes = new byte[l * hLen];
+        Digest  digest = ((HMac)hMac).getUnderlyingDigest();
+
+        if (executor != null && l > 1 && digest instanceof Memoable)
+        {
+            generateParallel(digest, l, outBytes);
+
+            return outBytes;
+        }
+
+        byte[]  iBuf = new byte[4];
         int     outPos = 0;
 
         CipherParameters param = new KeyParameter(password);
 
         hMac.init(param);
 
+        // the chain of HMACs runs on the compression function directly where the digest allows
+        HMacIterator iterator = HMacIterator.isSupported(digest) ? HMacIterator.createInstance(digest, password) : null;
+
         for (int i = 1; i <= l; i++)
         {
             // Increment the value in 'iBuf'
@@ -94,13 +139,45 @@ public class PKCS5S2ParametersGenerator
                 --pos;
             }
 
-            F(salt, iterationCount, iBuf, outBytes, outPos);
+            F(hMac, iterator, state, salt, iterationCount, iBuf, outBytes, outPos);
             outPos += hLen;
         }
 
         return outBytes;
     }
 
+    private void generateParallel(final Digest digest, int l, final byte[] outBytes)
+    {
+        final int hLen = hMac.getMacSize();
+        final CipherParameters param = new HMacPreparedKey(digest, password);
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+        for (int i = 1; i <= l; i++)
+        {
+            final int block = i;
+
+            tasks.add(new Callable<Object>()
+            {
+                public Object call()
+                {
+                    Mac blockMac = new HMac((Digest)((Memoable)digest).copy());
+                    HMacIterator iterator = HMacIterator.isSupported(digest) ? HMacIterator.createInstance(digest, password) : null;
+                    byte[] blockState = new byte[hLen];
+
+                    blockMac.init(param);
+
+                    F(blockMac, iterator, blockState, salt, iterationCount, Pack.intToBigEndian(block), outBytes, (block - 1) * hLen);
+
+                    Arrays.fill(blockState, (byte)0);
+
+                    return null;
+                }
+            });
+        }
+
+        ParallelTasks.invokeAll(executor, tasks);
+    }
+
     /**
      * Generate a key parameter derived from the password, salt, and iteration
      * count we are currently initialised with.
@@ -1,9 +1,16 @@
 package ru.mipt.cybersecurity.crypto.generators;
 
+import java.lang.ref.SoftReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
 import ru.mipt.cybersecurity.crypto.PBEParametersGenerator;
 import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
 import ru.mipt.cybersecurity.crypto.engines.Salsa20Engine;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
 import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.Pack;
 
@@ -12,9 +19,21 @@ import ru.mipt.cybersecurity.util.Pack;
  * <p>
  * Scrypt was created by Colin Percival and is specified in <a
  * href="http://tools.ietf.org/html/draft-josefsson-scrypt-kdf-01">draft-josefsson-scrypt-kd</a>
+ * <p>
+ * The p applications of SMix are independent of each other, so given an ExecutorService they are run
+ * on the executor's threads. The N block scratch table SMix needs is kept by each thread, and only
+ * reallocated when a larger table is needed, so repeated derivations do not create 128 * r * N bytes
+ * of garbage each time. Only tables of up to 16 MiB (N = 2^14, r = 8) are kept, larger ones are
+ * allocated for the call and dropped afterwards. The table is wiped after every use and only softly
+ * held, so the garbage collector can still reclaim it from an idle thread when memory is short.
+ * </p>
  */
 public class SCrypt
 {
+    private static final long MAX_RETAINED_SCRATCH = 16 * 1024 * 1024;
+
+    private static final ThreadLocal<SoftReference<Scratch>> scratch = new ThreadLocal<SoftReference<Scratch>>();
+
     /**
      * Generate a key using the scrypt key derivation function.
      *
@@ -29,6 +48,26 @@ public class SCrypt
      * @return the generated key.
      */
     public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    {
+        return generate(P, S, N, r, p, dkLen, null);
+    }
+
+    /**
+     * Generate a key using the scrypt key derivation function, running the p independent mixing
+     * steps in parallel.
+     *
+     * @param P     the bytes of the pass phrase.
+     * @param S     the salt to use for this invocation.
+     * @param N     CPU/Memory cost parameter. Must be larger than 1, a power of 2 and less than
+     *              <code>2^(128 * r / 8)</code>.
+     * @param r     the block size, must be &gt;= 1.
+     * @param p     Parallelization parameter. Must be a positive integer less than or equal to
+     *              <code>Integer.MAX_VALUE / (128 * r * 8)</code>.
+     * @param dkLen the length of the key to generate.
+     * @param executor the executor the mixing steps are run on, null for sequential processing.
+     * @return the generated key.
+     */
+    public static byte[] generate(byte[] P, byte[] S, int N, int r, int p, int dkLen, ExecutorService executor)
     {
         if (P == null)
         {
@@ -61,10 +100,10 @@ public class SCrypt
         {
             throw new IllegalArgumentException("Generated key length dkLen must be >= 1.");
         }
-        return MFcrypt(P, S, N, r, p, dkLen);
+        return MFcrypt(P, S, N, r, p, dkLen, executor);
     }
 
-    private static byte[] MFcrypt(byte[] P, byte[] S, int N, int r, int p, int dkLen)
+    private static byte[] MFcrypt(byte[] P, byte[] S, final int N, final int r, int p, int dkLen, ExecutorService executor)
     {
         int MFLenBytes = r * 128;
         byte[] bytes = SingleIterationPBKDF2(P, S, p * MFLenBytes);
@@ -79,10 +118,33 @@ public class SCrypt
             Pack.littleEndianToInt(bytes, 0, B);
 
             int MFLenWords = MFLenBytes >>> 2;
-            for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+            if (executor == null || p == 1)
+            {
+                for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                {
+                    SMix(B, BOff, N, r);
+                }
+            }
+            else
             {
-                // TODO These can be done in parallel threads
-                SMix(B, BOff, N, r);
+                final int[] blocks = B;
+
+                List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(p);
+                for (int BOff = 0; BOff < BLen; BOff += MFLenWords)
+                {
+                    final int off = BOff;
+
+                    tasks.add(new Callable<Object>()
+                    {
+                        public Object call()
+                        {
+                            SMix(blocks, off, N, r);
+                            return null;
+                        }
+                    });
+                }
+
+                ParallelTasks.invokeAll(executor, tasks);
             }
 
             Pack.intToLittleEndian(B, bytes, 0);
@@ -108,12 +170,14 @@ public class SCrypt
     {
         int BCount = r * 32;
 
-        int[] blockX1 = new int[16];
-        int[] blockX2 = new int[16];
-        int[] blockY = new int[BCount];
+        Scratch work = getScratch(N, BCount);
+
+        int[] blockX1 = work.blockX1;
+        int[] blockX2 = work.blockX2;
+        int[] blockY = work.blockY;
 
-        int[] X = new int[BCount];
-        int[][] V = new int[N][];
+        int[] X = work.X;
+        int[][] V = work.V;
 
         try
         {
@@ -121,7 +185,7 @@ public class SCrypt
 
             for (int i = 0; i < N; ++i)
             {
-                V[i] = Arrays.clone(X);
+                System.arraycopy(X, 0, V[i], 0, BCount);
                 BlockMix(X, blockX1, blockX2, blockY, r);
             }
 
@@ -137,11 +201,38 @@ public class SCrypt
         }
         finally
         {
-            ClearAll(V);
+            for (int i = 0; i < N; ++i)
+            {
+                Clear(V[i]);
+            }
             ClearAll(new int[][]{X, blockX1, blockX2, blockY});
         }
     }
 
+    /**
+     * Return this thread's scratch space, reallocating it if it is missing, has been reclaimed, or is
+     * too small for N blocks of BCount words. Scratch space over MAX_RETAINED_SCRATCH bytes is
+     * returned without being kept.
+     */
+    private static Scratch getScratch(int N, int BCount)
+    {
+        if ((long)N * BCount * 4 > MAX_RETAINED_SCRATCH)
+        {
+            return new Scratch(N, BCount);
+        }
+
+        SoftReference<Scratch> ref = scratch.get();
+        Scratch work = (ref == null) ? null : ref.get();
+
+        if (work == null || work.X.length != BCount || work.V.length < N)
+        {
+            work = new Scratch(N, BCount);
+            scratch.set(new SoftReference<Scratch>(work));
+        }
+
+        return work;
+    }
+
     private static void BlockMix(int[] B, int[] X1, int[] X2, int[] Y, int r)
     {
         System.arraycopy(B, B.length - 16, X1, 0, 16);
@@ -194,6 +285,22 @@ public class SCrypt
         }
     }
 
+    private static class Scratch
+    {
+        final int[] blockX1 = new int[16];
+        final int[] blockX2 = new int[16];
+        final int[] blockY;
+        final int[] X;
+        final int[][] V;
+
+        Scratch(int N, int BCount)
+        {
+            this.blockY = new int[BCount];
+            this.X = new int[BCount];
+            this.V = new int[N][BCount];
+        }
+    }
+
     // note: we know X is non-zero
     private static boolean isPowerOf2(int x)
     {
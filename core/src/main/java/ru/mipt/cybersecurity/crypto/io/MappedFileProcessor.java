@@ -0,0 +1,212 @@
+package ru.mipt.cybersecurity.crypto.io;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.Signer;
+
+/**
+ * Feed the contents of a file to any number of digests, MACs and signers in a single pass.
+ * <p>
+ * The file is mapped into memory a window at a time with {@link FileChannel#map}, rather than being pulled
+ * through an InputStream. Each window is copied out a small chunk at a time into one buffer which is then
+ * passed to every registered consumer in turn, so the data is read from the file once and is still in the
+ * processor cache when the second and subsequent consumers see it. Something like:
+ * <pre>
+ *     SHA256Digest sha256 = new SHA256Digest();
+ *     SHA3Digest sha3 = new SHA3Digest(256);
+ *
+ *     new MappedFileProcessor().addDigest(sha256).addDigest(sha3).addSigner(signer).process(file);
+ * </pre>
+ * leaves the two digests and the signer updated with the whole file, ready for doFinal() or generateSignature().
+ * </p>
+ * <p>
+ * Note: a mapping is only released when its buffer is garbage collected, so on some platforms the file
+ * cannot be deleted straight after processing.
+ * </p>
+ */
+public class MappedFileProcessor
+{
+    /**
+     * The default size of the region mapped at any one time - 64 MiB.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    private final List<Consumer> consumers = new ArrayList<Consumer>();
+    private final int windowSize;
+
+    /**
+     * Base constructor - map the file DEFAULT_WINDOW_SIZE bytes at a time.
+     */
+    public MappedFileProcessor()
+    {
+        this(DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Constructor specifying the largest region of the file to map at once.
+     *
+     * @param windowSize the size of the mapped window, in bytes.
+     */
+    public MappedFileProcessor(int windowSize)
+    {
+        if (windowSize < CHUNK_SIZE)
+        {
+            throw new IllegalArgumentException("window size must be at least " + CHUNK_SIZE + " bytes");
+        }
+
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * Add a digest to be updated with the file contents.
+     *
+     * @param digest the digest to update.
+     * @return the current processor.
+     */
+    public MappedFileProcessor addDigest(final Digest digest)
+    {
+        consumers.add(new Consumer()
+        {
+            public void update(byte[] in, int inOff, int len)
+            {
+                digest.update(in, inOff, len);
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Add an initialised MAC to be updated with the file contents.
+     *
+     * @param mac the MAC to update.
+     * @return the current processor.
+     */
+    public MappedFileProcessor addMac(final Mac mac)
+    {
+        consumers.add(new Consumer()
+        {
+            public void update(byte[] in, int inOff, int len)
+            {
+                mac.update(in, inOff, len);
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Add an initialised signer to be updated with the file contents.
+     *
+     * @param signer the signer to update.
+     * @return the current processor.
+     */
+    public MappedFileProcessor addSigner(final Signer signer)
+    {
+        consumers.add(new Consumer()
+        {
+            public void update(byte[] in, int inOff, int len)
+            {
+                signer.update(in, inOff, len);
+            }
+        });
+
+        return this;
+    }
+
+    /**
+     * Pass the whole of a file to every consumer added so far.
+     *
+     * @param file the file to process.
+     * @return the number of bytes processed.
+     * @throws IOException if the file cannot be opened or mapped.
+     */
+    public long process(File file)
+        throws IOException
+    {
+        FileInputStream fIn = new FileInputStream(file);
+
+        try
+        {
+            return process(fIn.getChannel());
+        }
+        finally
+        {
+            fIn.close();
+        }
+    }
+
+    /**
+     * Pass the contents of a channel, from its current position to the end, to every consumer
+     * added so far. The channel's position is left unchanged.
+     *
+     * @param channel a channel open for reading.
+     * @return the number of bytes processed.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public long process(FileChannel channel)
+        throws IOException
+    {
+        long start = channel.position();
+
+        return process(channel, start, channel.size() - start);
+    }
+
+    /**
+     * Pass a region of a channel to every consumer added so far.
+     *
+     * @param channel a channel open for reading.
+     * @param position the offset in the channel the region starts at.
+     * @param length the length of the region.
+     * @return the number of bytes processed.
+     * @throws IOException if the channel cannot be mapped.
+     */
+    public long process(FileChannel channel, long position, long length)
+        throws IOException
+    {
+        if (position < 0 || length < 0)
+        {
+            throw new IllegalArgumentException("position and length cannot be negative");
+        }
+
+        byte[] chunk = new byte[(int)Math.min(length, CHUNK_SIZE)];
+        long processed = 0;
+
+        while (processed < length)
+        {
+            int windowLen = (int)Math.min(windowSize, length - processed);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position + processed, windowLen);
+
+            while (window.hasRemaining())
+            {
+                int chunkLen = Math.min(window.remaining(), chunk.length);
+
+                window.get(chunk, 0, chunkLen);
+
+                for (int i = 0; i != consumers.size(); i++)
+                {
+                    consumers.get(i).update(chunk, 0, chunkLen);
+                }
+            }
+
+            processed += windowLen;
+        }
+
+        return processed;
+    }
+
+    private interface Consumer
+    {
+        void update(byte[] in, int inOff, int len);
+    }
+}
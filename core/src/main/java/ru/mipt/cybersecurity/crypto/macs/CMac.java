@@ -182,6 +182,20 @@ public class CMac implements Mac
     {
         validate(params);
 
+        if (params instanceof CMacPreparedKey && ((CMacPreparedKey)params).isFor(((CBCBlockCipher)cipher).getUnderlyingCipher()))
+        {
+            CMacPreparedKey preparedKey = (CMacPreparedKey)params;
+
+            cipher.init(true, preparedKey.getCipherKey());
+
+            // the subkeys are shared with other CMacs, they are only ever read
+            Lu = preparedKey.getLu();
+            Lu2 = preparedKey.getLu2();
+
+            reset();
+            return;
+        }
+
         cipher.init(true, params);
 
         //initializes the L, Lu, Lu2 numbers
@@ -193,6 +207,16 @@ public class CMac implements Mac
         reset();
     }
 
+    byte[] getLu()
+    {
+        return Lu;
+    }
+
+    byte[] getLu2()
+    {
+        return Lu2;
+    }
+
     void validate(CipherParameters params)
     {
         if (params != null)
@@ -0,0 +1,64 @@
+package ru.mipt.cybersecurity.crypto.macs;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * A CMAC key with its subkeys already calculated.
+ * <p>
+ * Instances are immutable and can be used to initialise any number of CMac instances, in any number
+ * of threads, over a block cipher of the same algorithm. Initialisation then only costs the block
+ * cipher's own init() - pass an AESPreparedKey as the cipher key to avoid the AES key expansion as well.
+ * </p>
+ */
+public class CMacPreparedKey
+    extends KeyParameter
+{
+    private final String algorithm;
+    private final KeyParameter cipherKey;
+    private final byte[] Lu, Lu2;
+
+    /**
+     * Base constructor.
+     *
+     * @param cipher a block cipher of the algorithm the key is for, used to calculate the subkeys.
+     * @param cipherKey the key for the block cipher.
+     */
+    public CMacPreparedKey(BlockCipher cipher, KeyParameter cipherKey)
+    {
+        super(cipherKey.getKey());
+
+        CMac cMac = new CMac(cipher);
+
+        cMac.init(cipherKey);
+
+        this.algorithm = cipher.getAlgorithmName();
+        this.cipherKey = cipherKey;
+        this.Lu = Arrays.clone(cMac.getLu());
+        this.Lu2 = Arrays.clone(cMac.getLu2());
+    }
+
+    /**
+     * Return the key passed to the underlying block cipher.
+     */
+    public KeyParameter getCipherKey()
+    {
+        return cipherKey;
+    }
+
+    boolean isFor(BlockCipher cipher)
+    {
+        return algorithm.equals(cipher.getAlgorithmName());
+    }
+
+    byte[] getLu()
+    {
+        return Lu;
+    }
+
+    byte[] getLu2()
+    {
+        return Lu2;
+    }
+}
@@ -109,6 +109,18 @@ public class HMac
     public void init(
         CipherParameters params)
     {
+        if (params instanceof HMacPreparedKey && ((HMacPreparedKey)params).isFor(digest))
+        {
+            HMacPreparedKey preparedKey = (HMacPreparedKey)params;
+
+            // the pad states are shared with other HMacs, they are only ever read
+            ipadState = preparedKey.getIPadState();
+            opadState = preparedKey.getOPadState();
+
+            ((Memoable)digest).reset(ipadState);
+            return;
+        }
+
         digest.reset();
 
         byte[] key = ((KeyParameter)params).getKey();
@@ -218,7 +230,24 @@ public class HMac
         /*
          * reinitialize the digest.
          */
-        digest.update(inputPad, 0, inputPad.length);
+        if (ipadState != null)
+        {
+            ((Memoable)digest).reset(ipadState);
+        }
+        else
+        {
+            digest.update(inputPad, 0, inputPad.length);
+        }
+    }
+
+    Memoable getIPadState()
+    {
+        return ipadState;
+    }
+
+    Memoable getOPadState()
+    {
+        return opadState;
     }
 
     private static void xorPad(byte[] pad, int len, byte n)
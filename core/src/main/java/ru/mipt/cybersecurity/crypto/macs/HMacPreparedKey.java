@@ -0,0 +1,62 @@
+package ru.mipt.cybersecurity.crypto.macs;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Memoable;
+
+/**
+ * An HMAC key with the digest states after the inner and outer pads already calculated.
+ * <p>
+ * Instances are immutable and can be used to initialise any number of HMac instances, in any number
+ * of threads, over the same digest. Initialisation is then just a reset of the digest to the inner pad
+ * state. The digest must implement Memoable.
+ * </p>
+ */
+public class HMacPreparedKey
+    extends KeyParameter
+{
+    private final Class digestClass;
+    private final String algorithm;
+    private final Memoable ipadState;
+    private final Memoable opadState;
+
+    /**
+     * Base constructor.
+     *
+     * @param digest a digest of the type the key is for, used to calculate the pad states.
+     * @param key the HMAC key.
+     */
+    public HMacPreparedKey(Digest digest, byte[] key)
+    {
+        super(key);
+
+        if (!(digest instanceof Memoable))
+        {
+            throw new IllegalArgumentException("digest must implement Memoable");
+        }
+
+        HMac hMac = new HMac(digest);
+
+        hMac.init(new KeyParameter(key));
+
+        this.digestClass = digest.getClass();
+        this.algorithm = digest.getAlgorithmName();
+        this.ipadState = hMac.getIPadState();
+        this.opadState = hMac.getOPadState();
+    }
+
+    boolean isFor(Digest digest)
+    {
+        return digest.getClass() == digestClass && algorithm.equals(digest.getAlgorithmName());
+    }
+
+    Memoable getIPadState()
+    {
+        return ipadState;
+    }
+
+    Memoable getOPadState()
+    {
+        return opadState;
+    }
+}
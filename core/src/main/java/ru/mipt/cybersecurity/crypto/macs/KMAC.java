@@ -0,0 +1,182 @@
+package ru.mipt.cybersecurity.crypto.macs;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.Xof;
+import ru.mipt.cybersecurity.crypto.digests.CSHAKEDigest;
+import ru.mipt.cybersecurity.crypto.digests.XofUtils;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+
+/**
+ * KMAC - MAC with optional XOF mode.
+ * <p>
+ * From NIST Special Publication 800-185 - SHA-3 Derived Functions:cSHAKE, KMAC, TupleHash and ParallelHash
+ * </p>
+ */
+public class KMAC
+    implements Mac, Xof
+{
+    private static final byte[] padding = new byte[100];
+
+    private final CSHAKEDigest cshake;
+    private final int bitLength;
+    private final int outputLength;
+
+    private byte[] key;
+    private boolean initialised;
+    private boolean firstOutput;
+
+    /**
+     * Base constructor.
+     *
+     * @param bitLength bit length of the underlying SHAKE function, 128 or 256.
+     * @param S the customization string - available for local use.
+     */
+    public KMAC(int bitLength, byte[] S)
+    {
+        this.cshake = new CSHAKEDigest(bitLength, Strings.toByteArray("KMAC"), S);
+        this.bitLength = bitLength;
+        this.outputLength = bitLength * 2 / 8;
+    }
+
+    public void init(CipherParameters params)
+        throws IllegalArgumentException
+    {
+        if (!(params instanceof KeyParameter))
+        {
+            throw new IllegalArgumentException("KMAC requires a KeyParameter");
+        }
+
+        KeyParameter kParam = (KeyParameter)params;
+
+        this.key = Arrays.clone(kParam.getKey());
+        this.initialised = true;
+
+        reset();
+    }
+
+    public String getAlgorithmName()
+    {
+        return "KMAC" + bitLength;
+    }
+
+    public int getByteLength()
+    {
+        return cshake.getByteLength();
+    }
+
+    public int getMacSize()
+    {
+        return outputLength;
+    }
+
+    public int getDigestSize()
+    {
+        return outputLength;
+    }
+
+    public void update(byte in)
+        throws IllegalStateException
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException("KMAC not initialized");
+        }
+
+        cshake.update(in);
+    }
+
+    public void update(byte[] in, int inOff, int len)
+        throws DataLengthException, IllegalStateException
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException("KMAC not initialized");
+        }
+
+        cshake.update(in, inOff, len);
+    }
+
+    public int doFinal(byte[] out, int outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        return doFinal(out, outOff, getMacSize());
+    }
+
+    public int doFinal(byte[] out, int outOff, int outLen)
+    {
+        if (firstOutput)
+        {
+            wrapUp(outLen);
+        }
+
+        int rv = cshake.doFinal(out, outOff, outLen);
+
+        reset();
+
+        return rv;
+    }
+
+    public int doOutput(byte[] out, int outOff, int outLen)
+    {
+        if (firstOutput)
+        {
+            wrapUp(0);
+        }
+
+        return cshake.doOutput(out, outOff, outLen);
+    }
+
+    public void reset()
+    {
+        cshake.reset();
+
+        if (key != null)
+        {
+            bytePad(key);
+        }
+
+        firstOutput = true;
+    }
+
+    private void wrapUp(int outputSize)
+    {
+        if (!initialised)
+        {
+            throw new IllegalStateException("KMAC not initialized");
+        }
+
+        byte[] encOut = XofUtils.rightEncode(outputSize * 8L);
+
+        cshake.update(encOut, 0, encOut.length);
+
+        firstOutput = false;
+    }
+
+    // bytepad(encode_string(K), rate) in SP 800-185
+    private void bytePad(byte[] K)
+    {
+        int w = cshake.getByteLength();
+        byte[] bytes = XofUtils.leftEncode(w);
+        cshake.update(bytes, 0, bytes.length);
+
+        byte[] encK = XofUtils.encode(K, 0, K.length);
+        cshake.update(encK, 0, encK.length);
+
+        int required = w - ((bytes.length + encK.length) % w);
+
+        if (required > 0 && required != w)
+        {
+            while (required > padding.length)
+            {
+                cshake.update(padding, 0, padding.length);
+                required -= padding.length;
+            }
+
+            cshake.update(padding, 0, required);
+        }
+    }
+}
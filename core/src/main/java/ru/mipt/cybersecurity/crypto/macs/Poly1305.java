@@ -20,6 +20,10 @@ import ru.mipt.cybersecurity.util.Pack;
  * The polynomial calculation in this implementation is adapted from the public domain <a
  * href="https://github.com/floodyberry/poly1305-donna">poly1305-donna-unrolled</a> C implementation
  * by Andrew M (@floodyberry).
+ * <p>
+ * Runs of whole blocks are processed four at a time by Horner's rule with a step of four - the
+ * accumulator absorbs (h + m1)r^4 + m2 r^3 + m3 r^2 + m4 r, so the four multiplications are
+ * independent of each other and the carries are only propagated once per group.
  * @see Poly1305KeyGenerator
  */
 public class Poly1305
@@ -39,6 +43,11 @@ public class Poly1305
     /** Precomputed 5 * r[1..4] */
     private int s1, s2, s3, s4;
 
+    /** Precomputed r^2, r^3 and r^4 for the four block path */
+    private final int[] powR2 = new int[5];
+    private final int[] powR3 = new int[5];
+    private final int[] powR4 = new int[5];
+
     /** Encrypted nonce */
     private int k0, k1, k2, k3;
 
@@ -140,6 +149,11 @@ public class Poly1305
         s3 = r3 * 5;
         s4 = r4 * 5;
 
+        int[] r = new int[]{ r0, r1, r2, r3, r4 };
+        mulReduce(r, r, powR2);
+        mulReduce(powR2, r, powR3);
+        mulReduce(powR2, powR2, powR4);
+
         final byte[] kBytes;
         final int kOff;
 
@@ -181,42 +195,52 @@ public class Poly1305
         update(singleByte, 0, 1);
     }
 
-    public void update(final byte[] in, final int inOff, final int len)
+    public void update(final byte[] in, int inOff, int len)
         throws DataLengthException,
         IllegalStateException
     {
-        int copied = 0;
-        while (len > copied)
+        if (currentBlockOffset > 0)
         {
-            if (currentBlockOffset == BLOCK_SIZE)
+            int toCopy = Math.min(len, BLOCK_SIZE - currentBlockOffset);
+            System.arraycopy(in, inOff, currentBlock, currentBlockOffset, toCopy);
+            currentBlockOffset += toCopy;
+            inOff += toCopy;
+            len -= toCopy;
+
+            if (currentBlockOffset < BLOCK_SIZE)
             {
-                processBlock();
-                currentBlockOffset = 0;
+                return;
             }
 
-            int toCopy = Math.min((len - copied), BLOCK_SIZE - currentBlockOffset);
-            System.arraycopy(in, copied + inOff, currentBlock, currentBlockOffset, toCopy);
-            copied += toCopy;
-            currentBlockOffset += toCopy;
+            processBlock(currentBlock, 0, true);
+            currentBlockOffset = 0;
         }
 
-    }
+        // whole blocks are taken straight from the input, four at a time while there are enough
+        if (len >= 4 * BLOCK_SIZE)
+        {
+            int done = processFourBlocks(in, inOff, len);
+            inOff += done;
+            len -= done;
+        }
 
-    private void processBlock()
-    {
-        if (currentBlockOffset < BLOCK_SIZE)
+        while (len >= BLOCK_SIZE)
         {
-            currentBlock[currentBlockOffset] = 1;
-            for (int i = currentBlockOffset + 1; i < BLOCK_SIZE; i++)
-            {
-                currentBlock[i] = 0;
-            }
+            processBlock(in, inOff, true);
+            inOff += BLOCK_SIZE;
+            len -= BLOCK_SIZE;
         }
 
-        final long t0 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 0);
-        final long t1 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 4);
-        final long t2 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 8);
-        final long t3 = 0xffffffffL & Pack.littleEndianToInt(currentBlock, 12);
+        System.arraycopy(in, inOff, currentBlock, 0, len);
+        currentBlockOffset = len;
+    }
+
+    private void processBlock(final byte[] block, final int off, final boolean fullBlock)
+    {
+        final long t0 = 0xffffffffL & Pack.littleEndianToInt(block, off + 0);
+        final long t1 = 0xffffffffL & Pack.littleEndianToInt(block, off + 4);
+        final long t2 = 0xffffffffL & Pack.littleEndianToInt(block, off + 8);
+        final long t3 = 0xffffffffL & Pack.littleEndianToInt(block, off + 12);
 
         h0 += t0 & 0x3ffffff;
         h1 += (((t1 << 32) | t0) >>> 26) & 0x3ffffff;
@@ -224,7 +248,7 @@ public class Poly1305
         h3 += (((t3 << 32) | t2) >>> 14) & 0x3ffffff;
         h4 += (t3 >>> 8);
 
-        if (currentBlockOffset == BLOCK_SIZE)
+        if (fullBlock)
         {
             h4 += (1 << 24);
         }
@@ -244,6 +268,117 @@ public class Poly1305
         h1 += (h0 >>> 26); h0 &= 0x3ffffff;
     }
 
+    private int processFourBlocks(final byte[] in, final int inOff, final int len)
+    {
+        final int r0 = this.r0, r1 = this.r1, r2 = this.r2, r3 = this.r3, r4 = this.r4;
+        final int s1 = this.s1, s2 = this.s2, s3 = this.s3, s4 = this.s4;
+        final int u0 = powR2[0], u1 = powR2[1], u2 = powR2[2], u3 = powR2[3], u4 = powR2[4];
+        final int su1 = u1 * 5, su2 = u2 * 5, su3 = u3 * 5, su4 = u4 * 5;
+        final int v0 = powR3[0], v1 = powR3[1], v2 = powR3[2], v3 = powR3[3], v4 = powR3[4];
+        final int sv1 = v1 * 5, sv2 = v2 * 5, sv3 = v3 * 5, sv4 = v4 * 5;
+        final int w0 = powR4[0], w1 = powR4[1], w2 = powR4[2], w3 = powR4[3], w4 = powR4[4];
+        final int sw1 = w1 * 5, sw2 = w2 * 5, sw3 = w3 * 5, sw4 = w4 * 5;
+
+        int h0 = this.h0, h1 = this.h1, h2 = this.h2, h3 = this.h3, h4 = this.h4;
+
+        int off = inOff;
+        int end = inOff + (len & ~(4 * BLOCK_SIZE - 1));
+
+        while (off < end)
+        {
+            int i0, i1, i2, i3;
+
+            i0 = Pack.littleEndianToInt(in, off + 0);
+            i1 = Pack.littleEndianToInt(in, off + 4);
+            i2 = Pack.littleEndianToInt(in, off + 8);
+            i3 = Pack.littleEndianToInt(in, off + 12);
+
+            int a0 = h0 + ( i0                         & 0x3ffffff);
+            int a1 = h1 + (((i0 >>> 26) | (i1 <<  6)) & 0x3ffffff);
+            int a2 = h2 + (((i1 >>> 20) | (i2 << 12)) & 0x3ffffff);
+            int a3 = h3 + (((i2 >>> 14) | (i3 << 18)) & 0x3ffffff);
+            int a4 = h4 + ((i3 >>> 8) | (1 << 24));
+
+            i0 = Pack.littleEndianToInt(in, off + 16);
+            i1 = Pack.littleEndianToInt(in, off + 20);
+            i2 = Pack.littleEndianToInt(in, off + 24);
+            i3 = Pack.littleEndianToInt(in, off + 28);
+
+            int b0 =   i0                         & 0x3ffffff;
+            int b1 = ((i0 >>> 26) | (i1 <<  6)) & 0x3ffffff;
+            int b2 = ((i1 >>> 20) | (i2 << 12)) & 0x3ffffff;
+            int b3 = ((i2 >>> 14) | (i3 << 18)) & 0x3ffffff;
+            int b4 =  (i3 >>> 8) | (1 << 24);
+
+            i0 = Pack.littleEndianToInt(in, off + 32);
+            i1 = Pack.littleEndianToInt(in, off + 36);
+            i2 = Pack.littleEndianToInt(in, off + 40);
+            i3 = Pack.littleEndianToInt(in, off + 44);
+
+            int c0 =   i0                         & 0x3ffffff;
+            int c1 = ((i0 >>> 26) | (i1 <<  6)) & 0x3ffffff;
+            int c2 = ((i1 >>> 20) | (i2 << 12)) & 0x3ffffff;
+            int c3 = ((i2 >>> 14) | (i3 << 18)) & 0x3ffffff;
+            int c4 =  (i3 >>> 8) | (1 << 24);
+
+            i0 = Pack.littleEndianToInt(in, off + 48);
+            i1 = Pack.littleEndianToInt(in, off + 52);
+            i2 = Pack.littleEndianToInt(in, off + 56);
+            i3 = Pack.littleEndianToInt(in, off + 60);
+
+            int d0 =   i0                         & 0x3ffffff;
+            int d1 = ((i0 >>> 26) | (i1 <<  6)) & 0x3ffffff;
+            int d2 = ((i1 >>> 20) | (i2 << 12)) & 0x3ffffff;
+            int d3 = ((i2 >>> 14) | (i3 << 18)) & 0x3ffffff;
+            int d4 =  (i3 >>> 8) | (1 << 24);
+
+            // limbs of a are below 2^27 and the multipliers below 5 * 2^26, so the
+            // twenty products summed into each t stay well inside 63 bits
+            long t0, t1, t2, t3, t4;
+
+            t0 = (long)a0 * w0 + (long)a1 * sw4 + (long)a2 * sw3 + (long)a3 * sw2 + (long)a4 * sw1;
+            t1 = (long)a0 * w1 + (long)a1 * w0 + (long)a2 * sw4 + (long)a3 * sw3 + (long)a4 * sw2;
+            t2 = (long)a0 * w2 + (long)a1 * w1 + (long)a2 * w0 + (long)a3 * sw4 + (long)a4 * sw3;
+            t3 = (long)a0 * w3 + (long)a1 * w2 + (long)a2 * w1 + (long)a3 * w0 + (long)a4 * sw4;
+            t4 = (long)a0 * w4 + (long)a1 * w3 + (long)a2 * w2 + (long)a3 * w1 + (long)a4 * w0;
+
+            t0 += (long)b0 * v0 + (long)b1 * sv4 + (long)b2 * sv3 + (long)b3 * sv2 + (long)b4 * sv1;
+            t1 += (long)b0 * v1 + (long)b1 * v0 + (long)b2 * sv4 + (long)b3 * sv3 + (long)b4 * sv2;
+            t2 += (long)b0 * v2 + (long)b1 * v1 + (long)b2 * v0 + (long)b3 * sv4 + (long)b4 * sv3;
+            t3 += (long)b0 * v3 + (long)b1 * v2 + (long)b2 * v1 + (long)b3 * v0 + (long)b4 * sv4;
+            t4 += (long)b0 * v4 + (long)b1 * v3 + (long)b2 * v2 + (long)b3 * v1 + (long)b4 * v0;
+
+            t0 += (long)c0 * u0 + (long)c1 * su4 + (long)c2 * su3 + (long)c3 * su2 + (long)c4 * su1;
+            t1 += (long)c0 * u1 + (long)c1 * u0 + (long)c2 * su4 + (long)c3 * su3 + (long)c4 * su2;
+            t2 += (long)c0 * u2 + (long)c1 * u1 + (long)c2 * u0 + (long)c3 * su4 + (long)c4 * su3;
+            t3 += (long)c0 * u3 + (long)c1 * u2 + (long)c2 * u1 + (long)c3 * u0 + (long)c4 * su4;
+            t4 += (long)c0 * u4 + (long)c1 * u3 + (long)c2 * u2 + (long)c3 * u1 + (long)c4 * u0;
+
+            t0 += (long)d0 * r0 + (long)d1 * s4 + (long)d2 * s3 + (long)d3 * s2 + (long)d4 * s1;
+            t1 += (long)d0 * r1 + (long)d1 * r0 + (long)d2 * s4 + (long)d3 * s3 + (long)d4 * s2;
+            t2 += (long)d0 * r2 + (long)d1 * r1 + (long)d2 * r0 + (long)d3 * s4 + (long)d4 * s3;
+            t3 += (long)d0 * r3 + (long)d1 * r2 + (long)d2 * r1 + (long)d3 * r0 + (long)d4 * s4;
+            t4 += (long)d0 * r4 + (long)d1 * r3 + (long)d2 * r2 + (long)d3 * r1 + (long)d4 * r0;
+
+            h0 = (int)t0 & 0x3ffffff; t1 += (t0 >>> 26);
+            h1 = (int)t1 & 0x3ffffff; t2 += (t1 >>> 26);
+            h2 = (int)t2 & 0x3ffffff; t3 += (t2 >>> 26);
+            h3 = (int)t3 & 0x3ffffff; t4 += (t3 >>> 26);
+            h4 = (int)t4 & 0x3ffffff;
+
+            // the carry out of t4 can exceed 32 bits once multiplied by 5
+            long c = (t4 >>> 26) * 5 + h0;
+            h0 = (int)c & 0x3ffffff;
+            h1 += (int)(c >>> 26);
+
+            off += 4 * BLOCK_SIZE;
+        }
+
+        this.h0 = h0; this.h1 = h1; this.h2 = h2; this.h3 = h3; this.h4 = h4;
+
+        return off - inOff;
+    }
+
     public int doFinal(final byte[] out, final int outOff)
         throws DataLengthException,
         IllegalStateException
@@ -256,7 +391,12 @@ public class Poly1305
         if (currentBlockOffset > 0)
         {
             // Process padded final block
-            processBlock();
+            currentBlock[currentBlockOffset] = 1;
+            for (int i = currentBlockOffset + 1; i < BLOCK_SIZE; i++)
+            {
+                currentBlock[i] = 0;
+            }
+            processBlock(currentBlock, 0, false);
         }
 
         h1 += (h0 >>> 26); h0 &= 0x3ffffff;
@@ -306,6 +446,31 @@ public class Poly1305
         h0 = h1 = h2 = h3 = h4 = 0;
     }
 
+    /**
+     * Multiply two values held as five 26 bit limbs, reducing the product mod 2^130 - 5.
+     */
+    private static void mulReduce(int[] a, int[] b, int[] z)
+    {
+        int b0 = b[0], b1 = b[1], b2 = b[2], b3 = b[3], b4 = b[4];
+        int sb1 = b1 * 5, sb2 = b2 * 5, sb3 = b3 * 5, sb4 = b4 * 5;
+
+        long t0 = mul32x32_64(a[0],b0) + mul32x32_64(a[1],sb4) + mul32x32_64(a[2],sb3) + mul32x32_64(a[3],sb2) + mul32x32_64(a[4],sb1);
+        long t1 = mul32x32_64(a[0],b1) + mul32x32_64(a[1],b0) + mul32x32_64(a[2],sb4) + mul32x32_64(a[3],sb3) + mul32x32_64(a[4],sb2);
+        long t2 = mul32x32_64(a[0],b2) + mul32x32_64(a[1],b1) + mul32x32_64(a[2],b0) + mul32x32_64(a[3],sb4) + mul32x32_64(a[4],sb3);
+        long t3 = mul32x32_64(a[0],b3) + mul32x32_64(a[1],b2) + mul32x32_64(a[2],b1) + mul32x32_64(a[3],b0) + mul32x32_64(a[4],sb4);
+        long t4 = mul32x32_64(a[0],b4) + mul32x32_64(a[1],b3) + mul32x32_64(a[2],b2) + mul32x32_64(a[3],b1) + mul32x32_64(a[4],b0);
+
+        z[0] = (int)t0 & 0x3ffffff; t1 += (t0 >>> 26);
+        z[1] = (int)t1 & 0x3ffffff; t2 += (t1 >>> 26);
+        z[2] = (int)t2 & 0x3ffffff; t3 += (t2 >>> 26);
+        z[3] = (int)t3 & 0x3ffffff; t4 += (t3 >>> 26);
+        z[4] = (int)t4 & 0x3ffffff;
+
+        long c = (t4 >>> 26) * 5 + z[0];
+        z[0] = (int)c & 0x3ffffff;
+        z[1] += (int)(c >>> 26);
+    }
+
     private static final long mul32x32_64(int i1, int i2)
     {
         return (i1 & 0xFFFFFFFFL) * i2;
@@ -0,0 +1,48 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import java.nio.ByteBuffer;
+
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+
+/**
+ * An AEAD cipher that can read and write {@link ByteBuffer} objects directly, including direct buffers,
+ * without staging the data through a heap array.
+ * <p>
+ * Input is consumed from a buffer's position to its limit and output is written from the output buffer's
+ * position, with both positions advanced past the bytes used. in and out may share memory provided the
+ * output starts at, or before, the input.
+ * </p>
+ */
+public interface ByteBufferAEADCipher
+    extends AEADCipher
+{
+    /**
+     * Add the remaining bytes in aad to the associated data check.
+     *
+     * @param aad the buffer containing the associated data.
+     */
+    public void processAADBytes(ByteBuffer aad);
+
+    /**
+     * Process the remaining bytes in in, writing any output produced to out.
+     *
+     * @param in the buffer containing the input data.
+     * @param out the buffer the output data is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if the output buffer is too small.
+     */
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException;
+
+    /**
+     * Finish the operation, writing the last of the output (and the MAC when encrypting) to out.
+     *
+     * @param out the buffer the output data is written to.
+     * @return the number of bytes written to out.
+     * @exception IllegalStateException if the cipher is in an inappropriate state.
+     * @exception InvalidCipherTextException if the MAC fails to match.
+     */
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException;
+}
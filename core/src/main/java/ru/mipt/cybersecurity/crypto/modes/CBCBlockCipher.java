@@ -3,6 +3,8 @@ package ru.mipt.cybersecurity.crypto.modes;
 import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
 import ru.mipt.cybersecurity.util.Arrays;
 
@@ -10,14 +12,16 @@ import ru.mipt.cybersecurity.util.Arrays;
  * implements Cipher-Block-Chaining (CBC) mode on top of a simple cipher.
  */
 public class CBCBlockCipher
-    implements BlockCipher
+    implements MultiBlockCipher
 {
     private byte[]          IV;
     private byte[]          cbcV;
     private byte[]          cbcNextV;
+    private byte[]          cbcBlocks;
 
     private int             blockSize;
     private BlockCipher     cipher = null;
+    private MultiBlockCipher multiCipher = null;
     private boolean         encrypting;
 
     /**
@@ -34,6 +38,12 @@ public class CBCBlockCipher
         this.IV = new byte[blockSize];
         this.cbcV = new byte[blockSize];
         this.cbcNextV = new byte[blockSize];
+
+        if (cipher instanceof MultiBlockCipher)
+        {
+            this.multiCipher = (MultiBlockCipher)cipher;
+            this.cbcBlocks = new byte[multiCipher.getMultiBlockSize()];
+        }
     }
 
     /**
@@ -148,6 +158,52 @@ public class CBCBlockCipher
         return (encrypting) ? encryptBlock(in, inOff, out, outOff) : decryptBlock(in, inOff, out, outOff);
     }
 
+    /**
+     * return the preferred number of bytes for a call to processBlocks.
+     *
+     * @return the multi-block size of the underlying cipher, or the block size if it has none.
+     */
+    public int getMultiBlockSize()
+    {
+        return (multiCipher != null) ? cbcBlocks.length : blockSize;
+    }
+
+    /**
+     * Process blockCount blocks of input from the array in and write them to
+     * the out array. Decryption hands batches of blocks to the underlying cipher
+     * in a single call if it supports it, encryption is inherently serial.
+     *
+     * @param in the array containing the input data.
+     * @param inOff offset into the in array the data starts at.
+     * @param blockCount the number of blocks to be processed.
+     * @param out the array the output data will be copied into.
+     * @param outOff the offset into the out array the output will start at.
+     * @exception DataLengthException if there isn't enough data in in, or
+     * space in out.
+     * @exception IllegalStateException if the cipher isn't initialised.
+     * @return the number of bytes processed and produced.
+     */
+    public int processBlocks(
+        byte[]      in,
+        int         inOff,
+        int         blockCount,
+        byte[]      out,
+        int         outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        if (encrypting || multiCipher == null)
+        {
+            int resultLen = 0;
+            for (int i = 0; i < blockCount; i++)
+            {
+                resultLen += processBlock(in, inOff + resultLen, out, outOff + resultLen);
+            }
+            return resultLen;
+        }
+
+        return decryptBlocks(in, inOff, blockCount, out, outOff);
+    }
+
     /**
      * reset the chaining vector back to the IV and reset the underlying
      * cipher.
@@ -250,4 +306,63 @@ public class CBCBlockCipher
 
         return length;
     }
+
+    /**
+     * CBC decryption of several blocks - as every plaintext block only depends on two
+     * ciphertext blocks the block decryptions are independent and can be batched.
+     */
+    private int decryptBlocks(
+        byte[]      in,
+        int         inOff,
+        int         blockCount,
+        byte[]      out,
+        int         outOff)
+        throws DataLengthException, IllegalStateException
+    {
+        int len = blockCount * blockSize;
+
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int batchBlocks = cbcBlocks.length / blockSize;
+        int resultLen = 0;
+
+        while (blockCount > 0)
+        {
+            int blocks = Math.min(blockCount, batchBlocks);
+            int batchLen = blocks * blockSize;
+
+            /*
+             * keep a copy of the ciphertext for chaining, this also makes in place decryption safe
+             */
+            System.arraycopy(in, inOff + resultLen, cbcBlocks, 0, batchLen);
+
+            multiCipher.processBlocks(cbcBlocks, 0, blocks, out, outOff + resultLen);
+
+            /*
+             * XOR the first block with cbcV and the rest with the preceding ciphertext block
+             */
+            for (int i = 0; i < blockSize; i++)
+            {
+                out[outOff + resultLen + i] ^= cbcV[i];
+            }
+            for (int i = blockSize; i < batchLen; i++)
+            {
+                out[outOff + resultLen + i] ^= cbcBlocks[i - blockSize];
+            }
+
+            System.arraycopy(cbcBlocks, batchLen - blockSize, cbcV, 0, blockSize);
+
+            resultLen += batchLen;
+            blockCount -= blocks;
+        }
+
+        return resultLen;
+    }
 }
@@ -9,6 +9,7 @@ import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
 import ru.mipt.cybersecurity.crypto.Mac;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.macs.CBCBlockCipherMac;
+import ru.mipt.cybersecurity.crypto.params.AEADLengthParameters;
 import ru.mipt.cybersecurity.crypto.params.AEADParameters;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
 import ru.mipt.cybersecurity.util.Arrays;
@@ -17,7 +18,12 @@ import ru.mipt.cybersecurity.util.Arrays;
  * Implements the Counter with Cipher Block Chaining mode (CCM) detailed in
  * NIST Special Publication 800-38C.
  * <p>
- * <b>Note</b>: this mode is a packet mode - it needs all the data up front.
+ * <b>Note</b>: this mode is a packet mode - it needs all the data up front, unless the
+ * lengths of the associated text and the message are declared at initialisation using
+ * {@link AEADLengthParameters}. In that case the data is processed as it arrives. Encryption
+ * output is released block by block with no internal buffering. When decrypting, the cipher text
+ * is decrypted and MACed as it arrives, but the plain text is held in a buffer of the declared
+ * length and only released by {@link #doFinal(byte[], int)} once the MAC has been verified.
  */
 public class CCMBlockCipher
     implements AEADBlockCipher
@@ -33,6 +39,20 @@ public class CCMBlockCipher
     private ExposedByteArrayOutputStream associatedText = new ExposedByteArrayOutputStream();
     private ExposedByteArrayOutputStream data = new ExposedByteArrayOutputStream();
 
+    // streaming state, only used if the lengths were declared up front
+    private boolean               streaming;
+    private int                   associatedTextLength;
+    private long                  dataLength;
+    private Mac                   streamMac;
+    private SICBlockCipher        streamCipher;
+    private byte[]                streamS0;
+    private int                   streamMacHeaderLength;
+    private long                  streamAADCount;
+    private long                  streamDataCount;
+    private byte[]                streamTag;
+    private int                   streamTagOff;
+    private byte[]                streamPlain;
+
     /**
      * Basic constructor.
      *
@@ -75,6 +95,19 @@ public class CCMBlockCipher
             initialAssociatedText = param.getAssociatedText();
             macSize = param.getMacSize() / 8;
             cipherParameters = param.getKey();
+
+            if (params instanceof AEADLengthParameters)
+            {
+                AEADLengthParameters lengths = (AEADLengthParameters)params;
+
+                streaming = true;
+                associatedTextLength = lengths.getAssociatedTextLength();
+                dataLength = lengths.getDataLength();
+            }
+            else
+            {
+                streaming = false;
+            }
         }
         else if (params instanceof ParametersWithIV)
         {
@@ -84,6 +117,7 @@ public class CCMBlockCipher
             initialAssociatedText = null;
             macSize = macBlock.length / 2;
             cipherParameters = param.getParameters();
+            streaming = false;
         }
         else
         {
@@ -111,18 +145,53 @@ public class CCMBlockCipher
 
     public void processAADByte(byte in)
     {
-        associatedText.write(in);
+        if (streaming)
+        {
+            processAADBytes(new byte[]{ in }, 0, 1);
+        }
+        else
+        {
+            associatedText.write(in);
+        }
     }
 
     public void processAADBytes(byte[] in, int inOff, int len)
     {
-        // TODO: Process AAD online
-        associatedText.write(in, inOff, len);
+        if (streaming)
+        {
+            if (streamAADCount + len > associatedTextLength)
+            {
+                throw new DataLengthException("CCM associated text exceeds declared length");
+            }
+
+            if (len == 0)
+            {
+                return;
+            }
+
+            streamMac.update(in, inOff, len);
+            streamAADCount += len;
+
+            // pad only once, on the call that completes the associated text
+            if (streamAADCount == associatedTextLength)
+            {
+                padAssociatedText(streamMac, streamMacHeaderLength + associatedTextLength);
+            }
+        }
+        else
+        {
+            associatedText.write(in, inOff, len);
+        }
     }
 
     public int processByte(byte in, byte[] out, int outOff)
         throws DataLengthException, IllegalStateException
     {
+        if (streaming)
+        {
+            return processBytes(new byte[]{ in }, 0, 1, out, outOff);
+        }
+
         data.write(in);
 
         return 0;
@@ -135,6 +204,12 @@ public class CCMBlockCipher
         {
             throw new DataLengthException("Input buffer too short");
         }
+
+        if (streaming)
+        {
+            return processStreamBytes(in, inOff, inLen, out, outOff);
+        }
+
         data.write(in, inOff, inLen);
 
         return 0;
@@ -143,7 +218,16 @@ public class CCMBlockCipher
     public int doFinal(byte[] out, int outOff)
         throws IllegalStateException, InvalidCipherTextException
     {
-        int len = processPacket(data.getBuffer(), 0, data.size(), out, outOff);
+        int len;
+
+        if (streaming)
+        {
+            len = finishStream(out, outOff);
+        }
+        else
+        {
+            len = processPacket(data.getBuffer(), 0, data.size(), out, outOff);
+        }
 
         reset();
 
@@ -155,6 +239,11 @@ public class CCMBlockCipher
         cipher.reset();
         associatedText.reset();
         data.reset();
+
+        if (streaming)
+        {
+            startStream();
+        }
     }
 
     /**
@@ -174,11 +263,22 @@ public class CCMBlockCipher
 
     public int getUpdateOutputSize(int len)
     {
+        if (streaming)
+        {
+            return getStreamOutputSize(len);
+        }
+
         return 0;
     }
 
     public int getOutputSize(int len)
     {
+        if (streaming)
+        {
+            // decryption releases the whole message from doFinal
+            return forEncryption ? len + macSize : (int)dataLength;
+        }
+
         int totalData = len + data.size();
 
         if (forEncryption)
@@ -244,6 +344,10 @@ public class CCMBlockCipher
         {
             throw new IllegalStateException("CCM cipher unitialized.");
         }
+        if (streaming)
+        {
+            throw new IllegalStateException("CCM packet processing not available when lengths declared up front.");
+        }
 
         int n = nonce.length;
         int q = 15 - n;
@@ -256,12 +360,8 @@ public class CCMBlockCipher
             }
         }
 
-        byte[] iv = new byte[blockSize];
-        iv[0] = (byte)((q - 1) & 0x7);
-        System.arraycopy(nonce, 0, iv, 1, nonce.length);
-
         BlockCipher ctrCipher = new SICBlockCipher(cipher);
-        ctrCipher.init(forEncryption, new ParametersWithIV(keyParam, iv));
+        ctrCipher.init(forEncryption, new ParametersWithIV(keyParam, createCounterIV()));
 
         int outputLen;
         int inIndex = inOff;
@@ -353,12 +453,45 @@ public class CCMBlockCipher
 
         cMac.init(keyParam);
 
+        int textLength = getAssociatedTextLength();
+        int headerLength = macHeader(cMac, textLength, dataLen);
+
+        //
+        // process associated text
+        //
+        if (textLength > 0)
+        {
+            if (initialAssociatedText != null)
+            {
+                cMac.update(initialAssociatedText, 0, initialAssociatedText.length);
+            }
+            if (associatedText.size() > 0)
+            {
+                cMac.update(associatedText.getBuffer(), 0, associatedText.size());
+            }
+
+            padAssociatedText(cMac, headerLength + textLength);
+        }
+
+        //
+        // add the text
+        //
+        cMac.update(data, dataOff, dataLen);
+
+        return cMac.doFinal(macBlock, 0);
+    }
+
+    /*
+     * Feed in b0 and the encoding of the associated text length, returning the length of the latter.
+     */
+    private int macHeader(Mac cMac, int textLength, long dataLen)
+    {
         //
         // build b0
         //
         byte[] b0 = new byte[16];
 
-        if (hasAssociatedText())
+        if (textLength > 0)
         {
             b0[0] |= 0x40;
         }
@@ -369,7 +502,7 @@ public class CCMBlockCipher
 
         System.arraycopy(nonce, 0, b0, 1, nonce.length);
 
-        int q = dataLen;
+        long q = dataLen;
         int count = 1;
         while (q > 0)
         {
@@ -380,58 +513,222 @@ public class CCMBlockCipher
 
         cMac.update(b0, 0, b0.length);
 
-        //
-        // process associated text
-        //
-        if (hasAssociatedText())
+        if (textLength <= 0)
         {
-            int extra;
+            return 0;
+        }
+
+        if (textLength < ((1 << 16) - (1 << 8)))
+        {
+            cMac.update((byte)(textLength >> 8));
+            cMac.update((byte)textLength);
 
-            int textLength = getAssociatedTextLength();
-            if (textLength < ((1 << 16) - (1 << 8)))
+            return 2;
+        }
+        else // can't go any higher than 2^32
+        {
+            cMac.update((byte)0xff);
+            cMac.update((byte)0xfe);
+            cMac.update((byte)(textLength >> 24));
+            cMac.update((byte)(textLength >> 16));
+            cMac.update((byte)(textLength >> 8));
+            cMac.update((byte)textLength);
+
+            return 6;
+        }
+    }
+
+    private void padAssociatedText(Mac cMac, int length)
+    {
+        int extra = length % 16;
+        if (extra != 0)
+        {
+            for (int i = extra; i != 16; i++)
             {
-                cMac.update((byte)(textLength >> 8));
-                cMac.update((byte)textLength);
+                cMac.update((byte)0x00);
+            }
+        }
+    }
+
+    private byte[] createCounterIV()
+    {
+        byte[] iv = new byte[blockSize];
+        iv[0] = (byte)((15 - nonce.length - 1) & 0x7);
+        System.arraycopy(nonce, 0, iv, 1, nonce.length);
+        return iv;
+    }
 
-                extra = 2;
+    /*
+     * Set up the MAC and the counter for a message whose lengths have been declared, so the data
+     * can be processed as it arrives.
+     */
+    private void startStream()
+    {
+        if (keyParam == null)
+        {
+            throw new IllegalStateException("CCM cipher unitialized.");
+        }
+
+        int q = 15 - nonce.length;
+        if (q < 8 && (dataLength >>> (8 * q)) != 0)
+        {
+            throw new IllegalArgumentException("CCM data length too large for choice of q.");
+        }
+
+        if (!forEncryption)
+        {
+            // decrypted data is only released once the MAC has been checked
+            if (dataLength > Integer.MAX_VALUE - macSize)
+            {
+                throw new IllegalArgumentException("CCM data length too large for streaming decryption.");
             }
-            else // can't go any higher than 2^32
+            if (streamPlain == null || streamPlain.length != dataLength)
             {
-                cMac.update((byte)0xff);
-                cMac.update((byte)0xfe);
-                cMac.update((byte)(textLength >> 24));
-                cMac.update((byte)(textLength >> 16));
-                cMac.update((byte)(textLength >> 8));
-                cMac.update((byte)textLength);
-
-                extra = 6;
+                streamPlain = new byte[(int)dataLength];
             }
+        }
+        else
+        {
+            streamPlain = null;
+        }
 
-            if (initialAssociatedText != null)
+        streamMac = new CBCBlockCipherMac(cipher, macSize * 8);
+        streamMac.init(keyParam);
+        streamMacHeaderLength = macHeader(streamMac, associatedTextLength, dataLength);
+
+        streamCipher = new SICBlockCipher(cipher);
+        streamCipher.init(true, new ParametersWithIV(keyParam, createCounterIV()));
+
+        // S0 is kept for the tag, the data starts at S1
+        streamS0 = new byte[blockSize];
+        streamCipher.processBlock(streamS0, 0, streamS0, 0);
+
+        streamTag = new byte[macSize];
+        streamTagOff = 0;
+        streamAADCount = 0;
+        streamDataCount = 0;
+
+        if (initialAssociatedText != null)
+        {
+            processAADBytes(initialAssociatedText, 0, initialAssociatedText.length);
+        }
+    }
+
+    private int getStreamOutputSize(int len)
+    {
+        if (forEncryption)
+        {
+            return len;
+        }
+
+        // nothing is released before doFinal
+        return 0;
+    }
+
+    private int processStreamBytes(byte[] in, int inOff, int inLen, byte[] out, int outOff)
+    {
+        if (streamAADCount != associatedTextLength)
+        {
+            throw new IllegalStateException("CCM associated text shorter than declared length");
+        }
+
+        if (forEncryption)
+        {
+            if (inLen > dataLength - streamDataCount)
             {
-                cMac.update(initialAssociatedText, 0, initialAssociatedText.length);
+                throw new DataLengthException("CCM data exceeds declared length");
             }
-            if (associatedText.size() > 0)
+            if (out.length < (outOff + inLen))
             {
-                cMac.update(associatedText.getBuffer(), 0, associatedText.size());
+                throw new OutputLengthException("Output buffer too short.");
             }
 
-            extra = (extra + textLength) % 16;
-            if (extra != 0)
+            // the MAC is over the plain text, so take it before an in place encryption
+            streamMac.update(in, inOff, inLen);
+            streamCipher.processBytes(in, inOff, inLen, out, outOff);
+
+            streamDataCount += inLen;
+
+            return inLen;
+        }
+        else
+        {
+            int dataLen = (int)Math.min(inLen, dataLength - streamDataCount);
+            int plainOff = (int)streamDataCount;
+
+            streamCipher.processBytes(in, inOff, dataLen, streamPlain, plainOff);
+            streamMac.update(streamPlain, plainOff, dataLen);
+
+            // anything past the declared data length is the encrypted MAC
+            int tagLen = inLen - dataLen;
+            if (tagLen > 0)
             {
-                for (int i = extra; i != 16; i++)
+                if (streamTagOff + tagLen > macSize)
                 {
-                    cMac.update((byte)0x00);
+                    throw new DataLengthException("CCM data exceeds declared length");
                 }
+
+                System.arraycopy(in, inOff + dataLen, streamTag, streamTagOff, tagLen);
+                streamTagOff += tagLen;
             }
+
+            streamDataCount += dataLen;
+
+            return 0;
         }
+    }
 
-        //
-        // add the text
-        //
-        cMac.update(data, dataOff, dataLen);
+    private int finishStream(byte[] out, int outOff)
+        throws InvalidCipherTextException
+    {
+        if (streamAADCount != associatedTextLength)
+        {
+            throw new IllegalStateException("CCM associated text shorter than declared length");
+        }
 
-        return cMac.doFinal(macBlock, 0);
+        if (streamDataCount != dataLength || (!forEncryption && streamTagOff != macSize))
+        {
+            if (forEncryption)
+            {
+                throw new IllegalStateException("CCM data shorter than declared length");
+            }
+            throw new InvalidCipherTextException("data too short");
+        }
+
+        if (out.length < (outOff + (forEncryption ? macSize : streamPlain.length)))
+        {
+            throw new OutputLengthException("Output buffer too short.");
+        }
+
+        byte[] calculatedMacBlock = new byte[blockSize];
+
+        streamMac.doFinal(calculatedMacBlock, 0);
+
+        System.arraycopy(calculatedMacBlock, 0, macBlock, 0, macSize);
+
+        // the MAC travels encrypted with S0
+        for (int i = 0; i != macSize; i++)
+        {
+            calculatedMacBlock[i] ^= streamS0[i];
+        }
+
+        if (forEncryption)
+        {
+            System.arraycopy(calculatedMacBlock, 0, out, outOff, macSize);
+
+            return macSize;
+        }
+
+        if (!Arrays.constantTimeAreEqual(streamTag, Arrays.copyOfRange(calculatedMacBlock, 0, macSize)))
+        {
+            Arrays.fill(streamPlain, (byte)0);
+            throw new InvalidCipherTextException("mac check in CCM failed");
+        }
+
+        System.arraycopy(streamPlain, 0, out, outOff, streamPlain.length);
+        Arrays.fill(streamPlain, (byte)0);
+
+        return streamPlain.length;
     }
 
     private int getAssociatedTextLength()
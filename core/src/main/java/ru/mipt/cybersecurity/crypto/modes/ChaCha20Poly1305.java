@@ -0,0 +1,695 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.engines.ChaChaEngine;
+import ru.mipt.cybersecurity.crypto.macs.Poly1305;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+import ru.mipt.cybersecurity.util.Strings;
+
+/**
+ * ChaCha20-Poly1305 authenticated encryption, as described in RFC 7539.
+ * <p>
+ * The key stream is generated into a reusable buffer several ChaCha20 blocks long, and the
+ * Poly1305 MAC is fed whole runs of cipher text rather than a block at a time. A 256 bit key, a 96
+ * bit nonce and a 128 bit tag are required.
+ * </p>
+ * <p>
+ * Direct buffers passed to the {@link ByteBuffer} methods are read and written in place: each byte
+ * is combined with the key stream as it is read and the MAC is taken over the key stream buffer the
+ * result is left in, so the message itself is never staged through a separate heap copy.
+ * </p>
+ */
+public class ChaCha20Poly1305
+    implements ByteBufferAEADCipher
+{
+    private static final int KEY_SIZE = 32;
+    private static final int NONCE_SIZE = 12;
+    private static final int MAC_SIZE = 16;
+    private static final int ROUNDS = 20;
+    private static final int STATE_SIZE = 16;
+    private static final int CHACHA_BLOCK_SIZE = 64;
+    private static final int KEY_STREAM_BLOCKS = 4;
+    private static final int KEY_STREAM_SIZE = CHACHA_BLOCK_SIZE * KEY_STREAM_BLOCKS;
+
+    // 32 bit block counter, block 0 is used for the Poly1305 key
+    private static final long MAX_DATA_LENGTH = ((1L << 32) - 1) * CHACHA_BLOCK_SIZE;
+
+    private static final int[] SIGMA = Pack.littleEndianToInt(Strings.toByteArray("expand 32-byte k"), 0, 4);
+    private static final byte[] ZEROES = new byte[MAC_SIZE - 1];
+
+    private final int[] engineState = new int[STATE_SIZE];
+    private final int[] x = new int[STATE_SIZE];
+    private final byte[] keyStream = new byte[KEY_STREAM_SIZE];
+    private final Poly1305 poly1305 = new Poly1305();
+
+    // These fields are set by init and not modified by processing
+    private boolean     forEncryption;
+    private boolean     initialised;
+    private byte[]      lastKey;
+    private byte[]      nonce;
+    private byte[]      initialAssociatedText;
+
+    // These fields are modified during processing
+    private final byte[] bufBlock = new byte[MAC_SIZE];
+    private byte[]      macBlock;
+    private int         bufOff;
+    private int         keyStreamOff;
+    private long        aadLength;
+    private long        dataLength;
+    private boolean     dataStarted;
+
+    public String getAlgorithmName()
+    {
+        return "ChaCha20Poly1305";
+    }
+
+    /**
+     * Parameters are either AEADParameters with a MAC size of 128 bits, or ParametersWithIV. The
+     * key, if present, must be 256 bits and the nonce 96 bits.
+     */
+    public void init(boolean forEncryption, CipherParameters params)
+        throws IllegalArgumentException
+    {
+        KeyParameter newKeyParam;
+        byte[] newNonce;
+
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+
+            if (param.getMacSize() != MAC_SIZE * 8)
+            {
+                throw new IllegalArgumentException("Invalid value for MAC size: " + param.getMacSize());
+            }
+
+            newNonce = param.getNonce();
+            initialAssociatedText = param.getAssociatedText();
+            newKeyParam = param.getKey();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+
+            newNonce = param.getIV();
+            initialAssociatedText = null;
+            newKeyParam = (KeyParameter)param.getParameters();
+        }
+        else
+        {
+            throw new IllegalArgumentException("invalid parameters passed to ChaCha20Poly1305");
+        }
+
+        if (newNonce == null || newNonce.length != NONCE_SIZE)
+        {
+            throw new IllegalArgumentException("ChaCha20Poly1305 requires a 96 bit nonce");
+        }
+
+        if (newKeyParam == null)
+        {
+            if (lastKey == null)
+            {
+                throw new IllegalArgumentException("Key must be specified in initial init");
+            }
+        }
+        else if (newKeyParam.getKey().length != KEY_SIZE)
+        {
+            throw new IllegalArgumentException("ChaCha20Poly1305 requires a 256 bit key");
+        }
+
+        if (forEncryption && nonce != null && Arrays.areEqual(nonce, newNonce))
+        {
+            if (newKeyParam == null || Arrays.areEqual(lastKey, newKeyParam.getKey()))
+            {
+                throw new IllegalArgumentException("cannot reuse nonce for ChaCha20Poly1305 encryption");
+            }
+        }
+
+        this.forEncryption = forEncryption;
+        this.macBlock = null;
+        this.initialised = true;
+        this.nonce = newNonce;
+
+        // if newKeyParam is null we're reusing the last key.
+        if (newKeyParam != null)
+        {
+            lastKey = newKeyParam.getKey();
+
+            System.arraycopy(SIGMA, 0, engineState, 0, 4);
+            Pack.littleEndianToInt(lastKey, 0, engineState, 4, 8);
+        }
+
+        Pack.littleEndianToInt(nonce, 0, engineState, 13, 3);
+
+        resetState();
+
+        if (initialAssociatedText != null)
+        {
+            processAADBytes(initialAssociatedText, 0, initialAssociatedText.length);
+        }
+    }
+
+    public byte[] getMac()
+    {
+        if (macBlock == null)
+        {
+            return new byte[MAC_SIZE];
+        }
+        return Arrays.clone(macBlock);
+    }
+
+    public int getOutputSize(int len)
+    {
+        if (forEncryption)
+        {
+            return len + MAC_SIZE;
+        }
+
+        int totalData = len + bufOff;
+
+        return totalData < MAC_SIZE ? 0 : totalData - MAC_SIZE;
+    }
+
+    public int getUpdateOutputSize(int len)
+    {
+        if (forEncryption)
+        {
+            return len;
+        }
+
+        int totalData = len + bufOff;
+
+        return totalData < MAC_SIZE ? 0 : totalData - MAC_SIZE;
+    }
+
+    public void processAADByte(byte in)
+    {
+        checkStatus();
+        checkAADStatus();
+
+        poly1305.update(in);
+        aadLength++;
+    }
+
+    public void processAADBytes(byte[] in, int inOff, int len)
+    {
+        checkStatus();
+        checkAADStatus();
+
+        if ((in.length - inOff) < len)
+        {
+            throw new DataLengthException("Input buffer too short");
+        }
+
+        poly1305.update(in, inOff, len);
+        aadLength += len;
+    }
+
+    public void processAADBytes(ByteBuffer aad)
+    {
+        int len = aad.remaining();
+
+        if (aad.hasArray())
+        {
+            processAADBytes(aad.array(), aad.arrayOffset() + aad.position(), len);
+            aad.position(aad.limit());
+            return;
+        }
+
+        checkStatus();
+        checkAADStatus();
+
+        while (aad.hasRemaining())
+        {
+            int count = Math.min(aad.remaining(), bufBlock.length);
+
+            aad.get(bufBlock, 0, count);
+            poly1305.update(bufBlock, 0, count);
+        }
+
+        Arrays.fill(bufBlock, (byte)0);
+        aadLength += len;
+    }
+
+    public int processByte(byte in, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        return processBytes(new byte[]{ in }, 0, 1, out, outOff);
+    }
+
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        checkStatus();
+
+        if ((in.length - inOff) < len)
+        {
+            throw new DataLengthException("Input buffer too short");
+        }
+
+        int resultLen = getUpdateOutputSize(len);
+        if (resultLen > 0 && (out.length - outOff) < resultLen)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        startData();
+
+        if (forEncryption)
+        {
+            processData(in, inOff, len, out, outOff);
+            poly1305.update(out, outOff, len);
+
+            return len;
+        }
+
+        if (in == out)
+        {
+            // held back bytes come out ahead of the input, so use the delay line to avoid overwriting unread input
+            decryptData(ByteBuffer.wrap(in).order(ByteOrder.LITTLE_ENDIAN), inOff, len,
+                ByteBuffer.wrap(out).order(ByteOrder.LITTLE_ENDIAN), outOff);
+
+            return resultLen;
+        }
+
+        // the last MAC_SIZE bytes seen may be the tag, so they are always held back.
+        if (resultLen > 0)
+        {
+            int fromBuf = Math.min(bufOff, resultLen);
+            if (fromBuf > 0)
+            {
+                poly1305.update(bufBlock, 0, fromBuf);
+                processData(bufBlock, 0, fromBuf, out, outOff);
+
+                bufOff -= fromBuf;
+                System.arraycopy(bufBlock, fromBuf, bufBlock, 0, bufOff);
+                outOff += fromBuf;
+            }
+
+            int fromIn = resultLen - fromBuf;
+            if (fromIn > 0)
+            {
+                // MAC first, the cipher text may be about to be overwritten
+                poly1305.update(in, inOff, fromIn);
+                processData(in, inOff, fromIn, out, outOff);
+
+                inOff += fromIn;
+                len -= fromIn;
+            }
+        }
+
+        System.arraycopy(in, inOff, bufBlock, bufOff, len);
+        bufOff += len;
+
+        return resultLen;
+    }
+
+    public int processBytes(ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        int len = in.remaining();
+        int inPos = in.position(), outPos = out.position();
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int resultLen = processBytes(in.array(), in.arrayOffset() + inPos, len, out.array(), out.arrayOffset() + outPos);
+            in.position(inPos + len);
+            out.position(outPos + resultLen);
+            return resultLen;
+        }
+
+        checkStatus();
+
+        int resultLen = getUpdateOutputSize(len);
+        if (out.remaining() < resultLen)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        startData();
+
+        ByteBuffer src = in.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer dst = out.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+
+        if (forEncryption)
+        {
+            encryptData(src, inPos, len, dst, outPos);
+        }
+        else
+        {
+            decryptData(src, inPos, len, dst, outPos);
+        }
+
+        in.position(in.limit());
+        out.position(out.position() + resultLen);
+
+        return resultLen;
+    }
+
+    public int doFinal(ByteBuffer out)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        if (out.hasArray())
+        {
+            int resultLen = doFinal(out.array(), out.arrayOffset() + out.position());
+            out.position(out.position() + resultLen);
+            return resultLen;
+        }
+
+        byte[] tail = new byte[getOutputSize(0)];
+        if (out.remaining() < tail.length)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        int resultLen = doFinal(tail, 0);
+        out.put(tail, 0, resultLen);
+
+        return resultLen;
+    }
+
+    public int doFinal(byte[] out, int outOff)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        checkStatus();
+
+        startData();
+
+        int resultLen;
+
+        if (forEncryption)
+        {
+            if ((out.length - outOff) < MAC_SIZE)
+            {
+                throw new OutputLengthException("Output buffer too short");
+            }
+
+            finishMac();
+
+            System.arraycopy(macBlock, 0, out, outOff, MAC_SIZE);
+            resultLen = MAC_SIZE;
+        }
+        else
+        {
+            if (bufOff < MAC_SIZE)
+            {
+                throw new InvalidCipherTextException("data too short");
+            }
+
+            finishMac();
+
+            if (!Arrays.constantTimeAreEqual(macBlock, bufBlock))
+            {
+                throw new InvalidCipherTextException("mac check in ChaCha20Poly1305 failed");
+            }
+            resultLen = 0;
+        }
+
+        reset(false);
+
+        return resultLen;
+    }
+
+    public void reset()
+    {
+        reset(true);
+    }
+
+    private void reset(
+        boolean clearMac)
+    {
+        // note: we do not reset the nonce.
+
+        resetState();
+
+        if (clearMac)
+        {
+            macBlock = null;
+        }
+
+        if (forEncryption)
+        {
+            initialised = false;
+        }
+        else
+        {
+            if (initialAssociatedText != null)
+            {
+                processAADBytes(initialAssociatedText, 0, initialAssociatedText.length);
+            }
+        }
+    }
+
+    private void resetState()
+    {
+        // block 0 of the key stream provides the one time Poly1305 key
+        engineState[12] = 0;
+        ChaChaEngine.chachaCore(ROUNDS, engineState, x);
+        Pack.intToLittleEndian(x, keyStream, 0);
+
+        poly1305.init(new KeyParameter(keyStream, 0, KEY_SIZE));
+
+        engineState[12] = 1;
+        Arrays.fill(keyStream, (byte)0);
+        Arrays.fill(x, 0);
+        keyStreamOff = KEY_STREAM_SIZE;
+
+        Arrays.fill(bufBlock, (byte)0);
+        bufOff = 0;
+        aadLength = 0;
+        dataLength = 0;
+        dataStarted = false;
+    }
+
+    private void startData()
+    {
+        if (!dataStarted)
+        {
+            dataStarted = true;
+            padMac(aadLength);
+        }
+    }
+
+    private void finishMac()
+    {
+        padMac(dataLength);
+
+        byte[] lengths = new byte[16];
+        Pack.longToLittleEndian(aadLength, lengths, 0);
+        Pack.longToLittleEndian(dataLength, lengths, 8);
+        poly1305.update(lengths, 0, lengths.length);
+
+        macBlock = new byte[MAC_SIZE];
+        poly1305.doFinal(macBlock, 0);
+    }
+
+    private void padMac(long length)
+    {
+        int partial = (int)(length % MAC_SIZE);
+        if (partial != 0)
+        {
+            poly1305.update(ZEROES, 0, MAC_SIZE - partial);
+        }
+    }
+
+    private void processData(byte[] in, int inOff, int len, byte[] out, int outOff)
+    {
+        checkDataLength(len);
+
+        while (len > 0)
+        {
+            if (keyStreamOff == KEY_STREAM_SIZE)
+            {
+                generateKeyStream();
+            }
+
+            int count = Math.min(len, KEY_STREAM_SIZE - keyStreamOff);
+            for (int i = 0; i < count; i++)
+            {
+                out[outOff + i] = (byte)(in[inOff + i] ^ keyStream[keyStreamOff + i]);
+            }
+
+            keyStreamOff += count;
+            inOff += count;
+            outOff += count;
+            len -= count;
+        }
+    }
+
+    /*
+     * ByteBuffer encryption, in and out are little endian views so whole words can be combined with
+     * the key stream. Each key stream byte is replaced by the cipher text byte it produced, so
+     * the MAC can be taken straight from the key stream buffer without a copy of the message.
+     */
+    private void encryptData(ByteBuffer in, int inPos, int len, ByteBuffer out, int outPos)
+    {
+        checkDataLength(len);
+
+        while (len > 0)
+        {
+            if (keyStreamOff == KEY_STREAM_SIZE)
+            {
+                generateKeyStream();
+            }
+
+            int count = Math.min(len, KEY_STREAM_SIZE - keyStreamOff);
+            int i = 0;
+            while (i < count)
+            {
+                int k = keyStreamOff + i;
+                if ((k & 7) == 0 && (count - i) >= 8)
+                {
+                    long c = in.getLong(inPos + i) ^ Pack.littleEndianToLong(keyStream, k);
+
+                    out.putLong(outPos + i, c);
+                    Pack.longToLittleEndian(c, keyStream, k);
+                    i += 8;
+                }
+                else
+                {
+                    byte c = (byte)(in.get(inPos + i) ^ keyStream[k]);
+
+                    out.put(outPos + i, c);
+                    keyStream[k] = c;
+                    i++;
+                }
+            }
+
+            poly1305.update(keyStream, keyStreamOff, count);
+
+            keyStreamOff += count;
+            inPos += count;
+            outPos += count;
+            len -= count;
+        }
+    }
+
+    /*
+     * ByteBuffer decryption. The last MAC_SIZE bytes seen may be the tag, so bufBlock is used as a
+     * delay line: every byte read pushes out the one MAC_SIZE places before it, which keeps the
+     * output behind the input when the two share memory.
+     */
+    private void decryptData(ByteBuffer in, int inPos, int len, ByteBuffer out, int outPos)
+    {
+        while (bufOff < MAC_SIZE && len > 0)
+        {
+            bufBlock[bufOff++] = in.get(inPos++);
+            len--;
+        }
+
+        if (len == 0)
+        {
+            return;
+        }
+
+        checkDataLength(len);
+
+        int head = 0;
+
+        while (len > 0)
+        {
+            if (keyStreamOff == KEY_STREAM_SIZE)
+            {
+                generateKeyStream();
+            }
+
+            int count = Math.min(len, KEY_STREAM_SIZE - keyStreamOff);
+            int i = 0;
+            while (i < count)
+            {
+                int k = keyStreamOff + i;
+                if (((k | head) & 7) == 0 && (count - i) >= 8)
+                {
+                    long c = Pack.littleEndianToLong(bufBlock, head);
+
+                    Pack.longToLittleEndian(in.getLong(inPos + i), bufBlock, head);
+                    head = (head + 8) & (MAC_SIZE - 1);
+
+                    out.putLong(outPos + i, c ^ Pack.littleEndianToLong(keyStream, k));
+                    Pack.longToLittleEndian(c, keyStream, k);
+                    i += 8;
+                }
+                else
+                {
+                    byte c = bufBlock[head];
+
+                    bufBlock[head] = in.get(inPos + i);
+                    head = (head + 1) & (MAC_SIZE - 1);
+
+                    out.put(outPos + i, (byte)(c ^ keyStream[k]));
+                    keyStream[k] = c;
+                    i++;
+                }
+            }
+
+            poly1305.update(keyStream, keyStreamOff, count);
+
+            keyStreamOff += count;
+            inPos += count;
+            outPos += count;
+            len -= count;
+        }
+
+        if (head != 0)
+        {
+            byte[] tmp = new byte[MAC_SIZE];
+            System.arraycopy(bufBlock, head, tmp, 0, MAC_SIZE - head);
+            System.arraycopy(bufBlock, 0, tmp, MAC_SIZE - head, head);
+            System.arraycopy(tmp, 0, bufBlock, 0, MAC_SIZE);
+        }
+    }
+
+    private void checkDataLength(int len)
+    {
+        if (len > MAX_DATA_LENGTH - dataLength)
+        {
+            throw new IllegalStateException("ChaCha20Poly1305 limit of 2^38 - 64 bytes of data exceeded");
+        }
+
+        dataLength += len;
+    }
+
+    /*
+     * Fill the whole key stream buffer, one block per counter value.
+     */
+    private void generateKeyStream()
+    {
+        for (int off = 0; off < KEY_STREAM_SIZE; off += CHACHA_BLOCK_SIZE)
+        {
+            ChaChaEngine.chachaCore(ROUNDS, engineState, x);
+            Pack.intToLittleEndian(x, keyStream, off);
+            engineState[12]++;
+        }
+
+        keyStreamOff = 0;
+    }
+
+    private void checkAADStatus()
+    {
+        if (dataStarted)
+        {
+            throw new IllegalStateException("AAD data cannot be added after encryption/decryption processing has begun.");
+        }
+    }
+
+    private void checkStatus()
+    {
+        if (!initialised)
+        {
+            if (forEncryption)
+            {
+                throw new IllegalStateException("ChaCha20Poly1305 cannot be reused for encryption");
+            }
+            throw new IllegalStateException("ChaCha20Poly1305 needs to be initialised");
+        }
+    }
+}
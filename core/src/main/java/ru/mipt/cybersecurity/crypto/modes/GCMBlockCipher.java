@@ -4,12 +4,17 @@ import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
 import ru.mipt.cybersecurity.crypto.modes.gcm.BasicGCMExponentiator;
+import ru.mipt.cybersecurity.crypto.modes.gcm.BasicGCMMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMAggregateMultiplier;
 import ru.mipt.cybersecurity.crypto.modes.gcm.GCMExponentiator;
 import ru.mipt.cybersecurity.crypto.modes.gcm.GCMMultiplier;
 import ru.mipt.cybersecurity.crypto.modes.gcm.GCMUtil;
 import ru.mipt.cybersecurity.crypto.modes.gcm.Tables4kGCMMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.Tables64kGCMMultiplier;
 import ru.mipt.cybersecurity.crypto.params.AEADParameters;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
@@ -24,10 +29,12 @@ public class GCMBlockCipher
     implements AEADBlockCipher
 {
     private static final int BLOCK_SIZE = 16;
+    private static final int BULK_BLOCKS = 8;
 
     // not final due to a compiler bug
     private BlockCipher   cipher;
     private GCMMultiplier multiplier;
+    private GCMMultiplier keyMultiplier;
     private GCMExponentiator exp;
 
     // These fields are set by init and not modified by processing
@@ -53,11 +60,23 @@ public class GCMBlockCipher
     private long        atLength;
     private long        atLengthPre;
 
+    // scratch space for processing several blocks at once
+    private byte[]      ctrBlocks;
+    private byte[]      bulkBlock;
+
     public GCMBlockCipher(BlockCipher c)
     {
         this(c, null);
     }
 
+    /**
+     * Base constructor. If no multiplier is given a table based one is used, unless the cipher is
+     * an {@link AESBitslicedEngine}, in which case the constant time {@link BasicGCMMultiplier}
+     * is used so the whole mode stays free of key dependent table lookups.
+     *
+     * @param c the block cipher to be used.
+     * @param m the GHASH multiplier to use, null for the default.
+     */
     public GCMBlockCipher(BlockCipher c, GCMMultiplier m)
     {
         if (c.getBlockSize() != BLOCK_SIZE)
@@ -68,11 +87,40 @@ public class GCMBlockCipher
 
         if (m == null)
         {
-            m = new Tables4kGCMMultiplier();
+            m = (c instanceof AESBitslicedEngine) ? (GCMMultiplier)new BasicGCMMultiplier() : new Tables4kGCMMultiplier();
         }
 
         this.cipher = c;
         this.multiplier = m;
+        this.keyMultiplier = m;
+
+        int bulkSize = getBulkSize(c, m);
+
+        this.ctrBlocks = new byte[bulkSize];
+        this.bulkBlock = new byte[bulkSize];
+    }
+
+    /**
+     * Return the size of the batches blocks are encrypted and hashed in: at least BULK_BLOCKS blocks
+     * and the cipher's multi-block size, rounded up to whole groups of the multiplier's aggregated
+     * step so no batch leaves blocks to be hashed one at a time.
+     */
+    static int getBulkSize(BlockCipher c, GCMMultiplier m)
+    {
+        int bulkSize = BULK_BLOCKS * BLOCK_SIZE;
+        if (c instanceof MultiBlockCipher)
+        {
+            bulkSize = Math.max(bulkSize, ((MultiBlockCipher)c).getMultiBlockSize());
+        }
+
+        if (m instanceof GCMAggregateMultiplier)
+        {
+            int stepSize = ((GCMAggregateMultiplier)m).getAggregateBlockCount() * BLOCK_SIZE;
+
+            bulkSize = ((bulkSize + stepSize - 1) / stepSize) * stepSize;
+        }
+
+        return bulkSize;
     }
 
     public BlockCipher getUnderlyingCipher()
@@ -162,7 +210,20 @@ public class GCMBlockCipher
 
         // Cipher always used in forward mode
         // if keyParam is null we're reusing the last key.
-        if (keyParam != null)
+        // prepared tables are not used if the constant time multiplier was asked for
+        if (keyParam instanceof GCMPreparedKey && ((GCMPreparedKey)keyParam).isFor(cipher)
+            && !(keyMultiplier instanceof BasicGCMMultiplier))
+        {
+            GCMPreparedKey preparedKey = (GCMPreparedKey)keyParam;
+
+            cipher.init(true, preparedKey.getCipherKey());
+
+            // H and its tables come with the key, shared with anything else using it
+            this.H = Arrays.clone(preparedKey.getH());
+            this.multiplier = new Tables64kGCMMultiplier(preparedKey.getTables());
+            exp = null;
+        }
+        else if (keyParam != null)
         {
             cipher.init(true, keyParam);
 
@@ -170,6 +231,7 @@ public class GCMBlockCipher
             cipher.processBlock(H, 0, H, 0);
 
             // GCMMultiplier tables don't change unless the key changes (and are expensive to init)
+            this.multiplier = keyMultiplier;
             multiplier.init(H);
             exp = null;
         }
@@ -266,6 +328,19 @@ public class GCMBlockCipher
 
         for (int i = 0; i < len; ++i)
         {
+            if (atBlockPos == 0 && (len - i) >= BLOCK_SIZE)
+            {
+                // Hash whole blocks straight from the input
+                int blockCount = (len - i) / BLOCK_SIZE;
+                gHASHBlocks(S_at, in, inOff + i, blockCount);
+                atLength += blockCount * BLOCK_SIZE;
+                i += blockCount * BLOCK_SIZE;
+                if (i == len)
+                {
+                    break;
+                }
+            }
+
             atBlock[atBlockPos] = in[inOff + i];
             if (++atBlockPos == BLOCK_SIZE)
             {
@@ -353,10 +428,13 @@ public class GCMBlockCipher
 
             while (len >= BLOCK_SIZE)
             {
-                processBlock(in, inOff, out, outOff + resultLen);
-                inOff += BLOCK_SIZE;
-                len -= BLOCK_SIZE;
-                resultLen += BLOCK_SIZE;
+                int blockCount = Math.min(len / BLOCK_SIZE, ctrBlocks.length / BLOCK_SIZE);
+                int batchLen = blockCount * BLOCK_SIZE;
+
+                processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+                inOff += batchLen;
+                len -= batchLen;
+                resultLen += batchLen;
             }
 
             if (len > 0)
@@ -367,6 +445,26 @@ public class GCMBlockCipher
         }
         else
         {
+            /*
+             * Decrypt whole blocks in batches, always holding back enough input for the tag. Any buffered
+             * bytes are the start of the next block.
+             */
+            int blockCount;
+            while ((blockCount = Math.min((bufOff + len - macSize) / BLOCK_SIZE, bulkBlock.length / BLOCK_SIZE)) > 1)
+            {
+                int batchLen = blockCount * BLOCK_SIZE;
+                int consumed = batchLen - bufOff;
+
+                System.arraycopy(bufBlock, 0, bulkBlock, 0, bufOff);
+                System.arraycopy(in, inOff, bulkBlock, bufOff, consumed);
+
+                processBlocks(bulkBlock, 0, blockCount, out, outOff + resultLen);
+                bufOff = 0;
+                inOff += consumed;
+                len -= consumed;
+                resultLen += batchLen;
+            }
+
             for (int i = 0; i < len; ++i)
             {
                 bufBlock[bufOff] = in[inOff + i];
@@ -579,6 +677,41 @@ public class GCMBlockCipher
         totalLength += BLOCK_SIZE;
     }
 
+    /*
+     * Process blockCount whole blocks - the key stream for all of them is generated in one go and the
+     * cipher text is then hashed using the aggregated multiplier where available.
+     */
+    private void processBlocks(byte[] buf, int bufOff, int blockCount, byte[] out, int outOff)
+    {
+        int len = blockCount * BLOCK_SIZE;
+
+        if ((out.length - outOff) < len)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+        if (totalLength == 0)
+        {
+            initCipher();
+        }
+
+        getNextCTRBlocks(ctrBlocks, blockCount);
+
+        if (forEncryption)
+        {
+            GCMUtil.xor(ctrBlocks, 0, buf, bufOff, len);
+            gHASHBlocks(S, ctrBlocks, 0, blockCount);
+        }
+        else
+        {
+            gHASHBlocks(S, buf, bufOff, blockCount);
+            GCMUtil.xor(ctrBlocks, 0, buf, bufOff, len);
+        }
+
+        System.arraycopy(ctrBlocks, 0, out, outOff, len);
+
+        totalLength += len;
+    }
+
     private void processPartial(byte[] buf, int off, int len, byte[] out, int outOff)
     {
         byte[] ctrBlock = new byte[BLOCK_SIZE];
@@ -620,6 +753,21 @@ public class GCMBlockCipher
         multiplier.multiplyH(Y);
     }
 
+    private void gHASHBlocks(byte[] Y, byte[] b, int off, int blockCount)
+    {
+        if (multiplier instanceof GCMAggregateMultiplier)
+        {
+            ((GCMAggregateMultiplier)multiplier).multiplyHBlocks(Y, b, off, blockCount);
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                gHASHBlock(Y, b, off + i * BLOCK_SIZE);
+            }
+        }
+    }
+
     private void gHASHPartial(byte[] Y, byte[] b, int off, int len)
     {
         GCMUtil.xor(Y, b, off, len);
@@ -643,6 +791,38 @@ public class GCMBlockCipher
         cipher.processBlock(counter, 0, block, 0);
     }
 
+    private void getNextCTRBlocks(byte[] blocks, int blockCount)
+    {
+        for (int i = 0; i < blockCount; ++i)
+        {
+            if (blocksRemaining == 0)
+            {
+                throw new IllegalStateException("Attempt to process too many blocks");
+            }
+            blocksRemaining--;
+
+            int c = 1;
+            c += counter[15] & 0xFF; counter[15] = (byte)c; c >>>= 8;
+            c += counter[14] & 0xFF; counter[14] = (byte)c; c >>>= 8;
+            c += counter[13] & 0xFF; counter[13] = (byte)c; c >>>= 8;
+            c += counter[12] & 0xFF; counter[12] = (byte)c;
+
+            System.arraycopy(counter, 0, blocks, i * BLOCK_SIZE, BLOCK_SIZE);
+        }
+
+        if (cipher instanceof MultiBlockCipher)
+        {
+            ((MultiBlockCipher)cipher).processBlocks(blocks, 0, blockCount, blocks, 0);
+        }
+        else
+        {
+            for (int i = 0; i < blockCount; ++i)
+            {
+                cipher.processBlock(blocks, i * BLOCK_SIZE, blocks, i * BLOCK_SIZE);
+            }
+        }
+    }
+
     private void checkStatus()
     {
         if (!initialised)
@@ -0,0 +1,71 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.gcm.Tables64kGCMPrecomputation;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+
+/**
+ * A GCM key with the hash subkey H and its 64k multiplication tables already calculated.
+ * <p>
+ * Instances are immutable and can be used to initialise any number of GCMBlockCipher instances, in
+ * any number of threads, over a block cipher of the same algorithm. Initialisation then only costs
+ * the block cipher's own init() - pass an AESPreparedKey as the cipher key to avoid the AES key
+ * expansion as well.
+ * </p>
+ */
+public class GCMPreparedKey
+    extends KeyParameter
+{
+    private final String algorithm;
+    private final KeyParameter cipherKey;
+    private final byte[] H;
+    private final Tables64kGCMPrecomputation tables;
+
+    /**
+     * Base constructor.
+     *
+     * @param cipher a block cipher of the algorithm the key is for, used to calculate H.
+     * @param cipherKey the key for the block cipher.
+     */
+    public GCMPreparedKey(BlockCipher cipher, KeyParameter cipherKey)
+    {
+        super(cipherKey.getKey());
+
+        if (cipher.getBlockSize() != 16)
+        {
+            throw new IllegalArgumentException("cipher required with a block size of 16.");
+        }
+
+        this.algorithm = cipher.getAlgorithmName();
+        this.cipherKey = cipherKey;
+        this.H = new byte[16];
+
+        cipher.init(true, cipherKey);
+        cipher.processBlock(H, 0, H, 0);
+
+        this.tables = new Tables64kGCMPrecomputation(H);
+    }
+
+    /**
+     * Return the key passed to the underlying block cipher.
+     */
+    public KeyParameter getCipherKey()
+    {
+        return cipherKey;
+    }
+
+    boolean isFor(BlockCipher cipher)
+    {
+        return algorithm.equals(cipher.getAlgorithmName());
+    }
+
+    byte[] getH()
+    {
+        return H;
+    }
+
+    Tables64kGCMPrecomputation getTables()
+    {
+        return tables;
+    }
+}
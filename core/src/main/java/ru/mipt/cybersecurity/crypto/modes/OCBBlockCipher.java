@@ -6,6 +6,7 @@ import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.params.AEADParameters;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
@@ -32,6 +33,7 @@ public class OCBBlockCipher
 
     private BlockCipher hashCipher;
     private BlockCipher mainCipher;
+    private MultiBlockCipher multiCipher;
 
     /*
      * CONFIGURATION
@@ -65,6 +67,12 @@ public class OCBBlockCipher
     private byte[] OffsetMAIN = new byte[16];
     private byte[] Checksum;
 
+    /*
+     * MULTI-BLOCK PROCESSING (only if mainCipher is a MultiBlockCipher)
+     */
+    private byte[] mainBlocks;
+    private byte[] mainOffsets;
+
     // NOTE: The MAC value is preserved after doFinal
     private byte[] macBlock;
 
@@ -97,6 +105,13 @@ public class OCBBlockCipher
 
         this.hashCipher = hashCipher;
         this.mainCipher = mainCipher;
+
+        if (mainCipher instanceof MultiBlockCipher)
+        {
+            this.multiCipher = (MultiBlockCipher)mainCipher;
+            this.mainBlocks = new byte[multiCipher.getMultiBlockSize()];
+            this.mainOffsets = new byte[mainBlocks.length];
+        }
     }
 
     public BlockCipher getUnderlyingCipher()
@@ -329,6 +344,22 @@ public class OCBBlockCipher
 
         for (int i = 0; i < len; ++i)
         {
+            if (multiCipher != null)
+            {
+                int consumed = processMainBlocks(input, inOff + i, len - i, output, outOff + resultLen);
+                if (consumed > 0)
+                {
+                    // everything buffered in mainBlock has been used as well
+                    resultLen += consumed + mainBlockPos;
+                    i += consumed;
+                    mainBlockPos = 0;
+                    if (i == len)
+                    {
+                        break;
+                    }
+                }
+            }
+
             mainBlock[mainBlockPos] = input[inOff + i];
             if (++mainBlockPos == mainBlock.length)
             {
@@ -503,6 +534,64 @@ public class OCBBlockCipher
         }
     }
 
+    /**
+     * Process as many whole blocks as possible, taken from any buffered bytes followed by the
+     * input, in a single call to the multi-block cipher. For decryption enough input is left
+     * over to make sure the tag is never processed as data.
+     *
+     * @return the number of bytes consumed from input, 0 if there was not enough data.
+     */
+    protected int processMainBlocks(byte[] input, int inOff, int len, byte[] output, int outOff)
+    {
+        int keep = forEncryption ? 0 : macSize;
+        int available = mainBlockPos + len - keep;
+        if (available < 2 * BLOCK_SIZE)
+        {
+            return 0;
+        }
+
+        int blocks = Math.min(available / BLOCK_SIZE, mainBlocks.length / BLOCK_SIZE);
+        int batchLen = blocks * BLOCK_SIZE;
+        int consumed = batchLen - mainBlockPos;
+
+        if (output.length < (outOff + batchLen))
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        System.arraycopy(mainBlock, 0, mainBlocks, 0, mainBlockPos);
+        System.arraycopy(input, inOff, mainBlocks, mainBlockPos, consumed);
+
+        for (int off = 0; off < batchLen; off += BLOCK_SIZE)
+        {
+            if (forEncryption)
+            {
+                xor(Checksum, mainBlocks, off);
+            }
+
+            xor(OffsetMAIN, getLSub(OCB_ntz(++mainBlockCount)));
+            System.arraycopy(OffsetMAIN, 0, mainOffsets, off, BLOCK_SIZE);
+            xor(mainBlocks, off, OffsetMAIN);
+        }
+
+        multiCipher.processBlocks(mainBlocks, 0, blocks, mainBlocks, 0);
+
+        for (int off = 0; off < batchLen; off += BLOCK_SIZE)
+        {
+            for (int i = 0; i < BLOCK_SIZE; ++i)
+            {
+                output[outOff + off + i] = (byte)(mainBlocks[off + i] ^ mainOffsets[off + i]);
+            }
+
+            if (!forEncryption)
+            {
+                xor(Checksum, output, outOff + off);
+            }
+        }
+
+        return consumed;
+    }
+
     protected void reset(boolean clearMac)
     {
         hashCipher.reset();
@@ -599,4 +688,20 @@ public class OCBBlockCipher
             block[i] ^= val[i];
         }
     }
+
+    protected static void xor(byte[] block, byte[] val, int valOff)
+    {
+        for (int i = 15; i >= 0; --i)
+        {
+            block[i] ^= val[valOff + i];
+        }
+    }
+
+    protected static void xor(byte[] block, int blockOff, byte[] val)
+    {
+        for (int i = 15; i >= 0; --i)
+        {
+            block[blockOff + i] ^= val[i];
+        }
+    }
 }
@@ -0,0 +1,762 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.modes.gcm.BasicGCMExponentiator;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMAggregateMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMExponentiator;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMUtil;
+import ru.mipt.cybersecurity.crypto.modes.gcm.Tables4kGCMMultiplier;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * Galois/Counter mode (GCM), as detailed in NIST Special Publication 800-38D, for large messages.
+ * <p>
+ * Runs of data longer than the segment size are split into segments which are processed on the
+ * threads of an ExecutorService (a ForkJoinPool works well). Each segment uses its own cipher
+ * instance with the counter started at the segment's first block and computes a partial GHASH from
+ * zero, the partial values are then folded into the running hash in order as Y = Y.H^n + P, where n
+ * is the number of blocks in the segment. The output is identical to that of GCMBlockCipher.
+ * </p>
+ * <p>
+ * Unlike GCMBlockCipher all associated data must be passed in before the message data.
+ * </p>
+ */
+public class ParallelGCMBlockCipher
+    implements AEADBlockCipher
+{
+    private static final int BLOCK_SIZE = 16;
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+
+    // page 8, len(P) <= 2^39 - 256, 1 block used by tag but done on J0
+    private static final long MAX_BLOCKS = 0xFFFFFFFEL;
+
+    private final BlockCipherFactory factory;
+    private final ExecutorService executor;
+    private final int segmentBlocks;
+    private final BlockCipher cipher;
+    private final Segment local;
+
+    // These fields are set by init and not modified by processing
+    private boolean             forEncryption;
+    private boolean             initialised;
+    private int                 macSize;
+    private KeyParameter        keyParam;
+    private byte[]              lastKey;
+    private byte[]              nonce;
+    private byte[]              initialAssociatedText;
+    private byte[]              H;
+    private byte[]              H_segment;
+    private byte[]              J0;
+    private GCMExponentiator    exp;
+
+    // These fields are modified during processing
+    private byte[]      bufBlock;
+    private byte[]      macBlock;
+    private byte[]      S;
+    private int         bufOff;
+    private long        blockCount;
+    private long        totalLength;
+    private boolean     dataStarted;
+    private byte[]      atBlock;
+    private int         atBlockPos;
+    private long        atLength;
+
+    /**
+     * Base constructor, using the default segment size of 256 KiB.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param executor the executor the segments are run on.
+     */
+    public ParallelGCMBlockCipher(BlockCipherFactory factory, ExecutorService executor)
+    {
+        this(factory, executor, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor allowing the segment size to be specified.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param executor the executor the segments are run on.
+     * @param segmentSize the number of bytes given to each task, a multiple of 16.
+     */
+    public ParallelGCMBlockCipher(BlockCipherFactory factory, ExecutorService executor, int segmentSize)
+    {
+        BlockCipher c = factory.createBlockCipher();
+
+        if (c.getBlockSize() != BLOCK_SIZE)
+        {
+            throw new IllegalArgumentException(
+                "cipher required with a block size of " + BLOCK_SIZE + ".");
+        }
+        if (segmentSize <= 0 || segmentSize % BLOCK_SIZE != 0)
+        {
+            throw new IllegalArgumentException("segment size must be a positive multiple of " + BLOCK_SIZE);
+        }
+
+        this.factory = factory;
+        this.executor = executor;
+        this.segmentBlocks = segmentSize / BLOCK_SIZE;
+        this.cipher = c;
+        this.local = new Segment(c, new Tables4kGCMMultiplier());
+    }
+
+    public BlockCipher getUnderlyingCipher()
+    {
+        return cipher;
+    }
+
+    public String getAlgorithmName()
+    {
+        return cipher.getAlgorithmName() + "/GCM";
+    }
+
+    /**
+     * NOTE: MAC sizes from 32 bits to 128 bits (must be a multiple of 8) are supported. The default is 128 bits.
+     */
+    public void init(boolean forEncryption, CipherParameters params)
+        throws IllegalArgumentException
+    {
+        this.forEncryption = forEncryption;
+        this.macBlock = null;
+        this.initialised = true;
+
+        KeyParameter newKeyParam;
+        byte[] newNonce;
+
+        if (params instanceof AEADParameters)
+        {
+            AEADParameters param = (AEADParameters)params;
+
+            newNonce = param.getNonce();
+            initialAssociatedText = param.getAssociatedText();
+
+            int macSizeBits = param.getMacSize();
+            if (macSizeBits < 32 || macSizeBits > 128 || macSizeBits % 8 != 0)
+            {
+                throw new IllegalArgumentException("Invalid value for MAC size: " + macSizeBits);
+            }
+
+            macSize = macSizeBits / 8;
+            newKeyParam = param.getKey();
+        }
+        else if (params instanceof ParametersWithIV)
+        {
+            ParametersWithIV param = (ParametersWithIV)params;
+
+            newNonce = param.getIV();
+            initialAssociatedText  = null;
+            macSize = 16;
+            newKeyParam = (KeyParameter)param.getParameters();
+        }
+        else
+        {
+            throw new IllegalArgumentException("invalid parameters passed to GCM");
+        }
+
+        this.bufBlock = new byte[forEncryption ? BLOCK_SIZE : (BLOCK_SIZE + macSize)];
+
+        if (newNonce == null || newNonce.length < 1)
+        {
+            throw new IllegalArgumentException("IV must be at least 1 byte");
+        }
+
+        if (forEncryption)
+        {
+            if (nonce != null && Arrays.areEqual(nonce, newNonce))
+            {
+                if (newKeyParam == null)
+                {
+                    throw new IllegalArgumentException("cannot reuse nonce for GCM encryption");
+                }
+                if (lastKey != null && Arrays.areEqual(lastKey, newKeyParam.getKey()))
+                {
+                    throw new IllegalArgumentException("cannot reuse nonce for GCM encryption");
+                }
+            }
+        }
+
+        nonce = newNonce;
+
+        // if newKeyParam is null we're reusing the last key.
+        if (newKeyParam != null)
+        {
+            keyParam = newKeyParam;
+            lastKey = newKeyParam.getKey();
+
+            cipher.init(true, newKeyParam);
+
+            this.H = new byte[BLOCK_SIZE];
+            cipher.processBlock(H, 0, H, 0);
+
+            local.multiplier.init(H);
+
+            // folding in a whole segment always needs the same power of H
+            exp = new BasicGCMExponentiator();
+            exp.init(H);
+            H_segment = new byte[BLOCK_SIZE];
+            exp.exponentiateX(segmentBlocks, H_segment);
+        }
+        else if (this.H == null)
+        {
+            throw new IllegalArgumentException("Key must be specified in initial init");
+        }
+
+        this.J0 = new byte[BLOCK_SIZE];
+
+        if (nonce.length == 12)
+        {
+            System.arraycopy(nonce, 0, J0, 0, nonce.length);
+            this.J0[BLOCK_SIZE - 1] = 0x01;
+        }
+        else
+        {
+            for (int pos = 0; pos < nonce.length; pos += BLOCK_SIZE)
+            {
+                local.gHASHPartial(J0, nonce, pos, Math.min(nonce.length - pos, BLOCK_SIZE));
+            }
+            byte[] X = new byte[BLOCK_SIZE];
+            Pack.longToBigEndian((long)nonce.length * 8, X, 8);
+            local.gHASHPartial(J0, X, 0, BLOCK_SIZE);
+        }
+
+        resetState();
+
+        if (initialAssociatedText != null)
+        {
+            processAADBytes(initialAssociatedText, 0, initialAssociatedText.length);
+        }
+    }
+
+    public byte[] getMac()
+    {
+        if (macBlock == null)
+        {
+            return new byte[macSize];
+        }
+        return Arrays.clone(macBlock);
+    }
+
+    public int getOutputSize(int len)
+    {
+        int totalData = len + bufOff;
+
+        if (forEncryption)
+        {
+            return totalData + macSize;
+        }
+
+        return totalData < macSize ? 0 : totalData - macSize;
+    }
+
+    public int getUpdateOutputSize(int len)
+    {
+        int totalData = len + bufOff;
+        if (!forEncryption)
+        {
+            if (totalData < macSize)
+            {
+                return 0;
+            }
+            totalData -= macSize;
+        }
+        return totalData - totalData % BLOCK_SIZE;
+    }
+
+    public void processAADByte(byte in)
+    {
+        checkStatus();
+        checkAADStatus();
+
+        atBlock[atBlockPos] = in;
+        if (++atBlockPos == BLOCK_SIZE)
+        {
+            local.gHASHBlocks(S, atBlock, 0, 1);
+            atBlockPos = 0;
+        }
+        atLength++;
+    }
+
+    public void processAADBytes(byte[] in, int inOff, int len)
+    {
+        checkStatus();
+        checkAADStatus();
+
+        atLength += len;
+
+        if (atBlockPos > 0)
+        {
+            int count = Math.min(len, BLOCK_SIZE - atBlockPos);
+
+            System.arraycopy(in, inOff, atBlock, atBlockPos, count);
+            atBlockPos += count;
+            inOff += count;
+            len -= count;
+
+            if (atBlockPos < BLOCK_SIZE)
+            {
+                return;
+            }
+
+            local.gHASHBlocks(S, atBlock, 0, 1);
+            atBlockPos = 0;
+        }
+
+        int blocks = len / BLOCK_SIZE;
+        if (blocks > 0)
+        {
+            local.gHASHBlocks(S, in, inOff, blocks);
+            inOff += blocks * BLOCK_SIZE;
+            len -= blocks * BLOCK_SIZE;
+        }
+
+        System.arraycopy(in, inOff, atBlock, 0, len);
+        atBlockPos = len;
+    }
+
+    public int processByte(byte in, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        return processBytes(new byte[]{ in }, 0, 1, out, outOff);
+    }
+
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        checkStatus();
+
+        if ((in.length - inOff) < len)
+        {
+            throw new DataLengthException("Input buffer too short");
+        }
+
+        int resultLen = getUpdateOutputSize(len);
+        if (resultLen > 0 && (out.length - outOff) < resultLen)
+        {
+            throw new OutputLengthException("Output buffer too short");
+        }
+
+        startData();
+
+        int blocks = resultLen / BLOCK_SIZE;
+
+        // blocks which start with buffered data
+        while (blocks > 0 && bufOff > 0)
+        {
+            if (bufOff < BLOCK_SIZE)
+            {
+                int need = BLOCK_SIZE - bufOff;
+
+                System.arraycopy(in, inOff, bufBlock, bufOff, need);
+                inOff += need;
+                len -= need;
+                bufOff = BLOCK_SIZE;
+            }
+
+            processBlocks(bufBlock, 0, 1, out, outOff);
+
+            bufOff -= BLOCK_SIZE;
+            System.arraycopy(bufBlock, BLOCK_SIZE, bufBlock, 0, bufOff);
+            outOff += BLOCK_SIZE;
+            --blocks;
+        }
+
+        if (blocks > 0)
+        {
+            processBlocks(in, inOff, blocks, out, outOff);
+
+            inOff += blocks * BLOCK_SIZE;
+            len -= blocks * BLOCK_SIZE;
+        }
+
+        System.arraycopy(in, inOff, bufBlock, bufOff, len);
+        bufOff += len;
+
+        return resultLen;
+    }
+
+    public int doFinal(byte[] out, int outOff)
+        throws IllegalStateException, InvalidCipherTextException
+    {
+        checkStatus();
+
+        startData();
+
+        int extra = bufOff;
+
+        if (forEncryption)
+        {
+            if ((out.length - outOff) < (extra + macSize))
+            {
+                throw new OutputLengthException("Output buffer too short");
+            }
+        }
+        else
+        {
+            if (extra < macSize)
+            {
+                throw new InvalidCipherTextException("data too short");
+            }
+            extra -= macSize;
+
+            if ((out.length - outOff) < extra)
+            {
+                throw new OutputLengthException("Output buffer too short");
+            }
+        }
+
+        if (extra > 0)
+        {
+            checkBlockCount(1);
+
+            local.processPartial(forEncryption, J0, blockCount, bufBlock, 0, extra, out, outOff, S);
+            blockCount++;
+            totalLength += extra;
+        }
+
+        // Final gHASH
+        byte[] X = new byte[BLOCK_SIZE];
+        Pack.longToBigEndian(atLength * 8, X, 0);
+        Pack.longToBigEndian(totalLength * 8, X, 8);
+
+        local.gHASHBlocks(S, X, 0, 1);
+
+        // T = MSBt(GCTRk(J0,S))
+        byte[] tag = new byte[BLOCK_SIZE];
+        cipher.processBlock(J0, 0, tag, 0);
+        GCMUtil.xor(tag, S);
+
+        int resultLen = extra;
+
+        // We place into macBlock our calculated value for T
+        this.macBlock = new byte[macSize];
+        System.arraycopy(tag, 0, macBlock, 0, macSize);
+
+        if (forEncryption)
+        {
+            // Append T to the message
+            System.arraycopy(macBlock, 0, out, outOff + bufOff, macSize);
+            resultLen += macSize;
+        }
+        else
+        {
+            // Retrieve the T value from the message and compare to calculated one
+            byte[] msgMac = new byte[macSize];
+            System.arraycopy(bufBlock, extra, msgMac, 0, macSize);
+            if (!Arrays.constantTimeAreEqual(this.macBlock, msgMac))
+            {
+                throw new InvalidCipherTextException("mac check in GCM failed");
+            }
+        }
+
+        reset(false);
+
+        return resultLen;
+    }
+
+    public void reset()
+    {
+        reset(true);
+    }
+
+    private void reset(
+        boolean clearMac)
+    {
+        cipher.reset();
+
+        // note: we do not reset the nonce.
+
+        resetState();
+
+        if (clearMac)
+        {
+            macBlock = null;
+        }
+
+        if (forEncryption)
+        {
+            initialised = false;
+        }
+        else
+        {
+            if (initialAssociatedText != null)
+            {
+                processAADBytes(initialAssociatedText, 0, initialAssociatedText.length);
+            }
+        }
+    }
+
+    private void resetState()
+    {
+        S = new byte[BLOCK_SIZE];
+        atBlock = new byte[BLOCK_SIZE];
+        atBlockPos = 0;
+        atLength = 0;
+        bufOff = 0;
+        blockCount = 0;
+        totalLength = 0;
+        dataStarted = false;
+
+        if (bufBlock != null)
+        {
+            Arrays.fill(bufBlock, (byte)0);
+        }
+    }
+
+    /*
+     * Process whole blocks, splitting them into segments for the executor if there are enough of them.
+     */
+    private void processBlocks(byte[] in, int inOff, int blocks, byte[] out, int outOff)
+    {
+        checkBlockCount(blocks);
+
+        // overlapping but offset buffers have to be processed in order
+        if (blocks <= segmentBlocks || (in == out && inOff != outOff))
+        {
+            local.process(forEncryption, J0, blockCount, in, inOff, blocks, out, outOff, S);
+        }
+        else
+        {
+            int segmentCount = (blocks + segmentBlocks - 1) / segmentBlocks;
+            byte[][] partialHashes = new byte[segmentCount][BLOCK_SIZE];
+            List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(segmentCount);
+
+            for (int i = 0; i != segmentCount; i++)
+            {
+                int first = i * segmentBlocks;
+                int off = first * BLOCK_SIZE;
+
+                tasks.add(new SegmentTask(blockCount + first, in, inOff + off, Math.min(segmentBlocks, blocks - first),
+                    out, outOff + off, partialHashes[i]));
+            }
+
+            ParallelTasks.invokeAll(executor, tasks);
+
+            byte[] H_n = new byte[BLOCK_SIZE];
+            for (int i = 0; i != segmentCount; i++)
+            {
+                int n = Math.min(segmentBlocks, blocks - i * segmentBlocks);
+
+                if (n == segmentBlocks)
+                {
+                    GCMUtil.multiply(S, H_segment);
+                }
+                else
+                {
+                    exp.exponentiateX(n, H_n);
+                    GCMUtil.multiply(S, H_n);
+                }
+
+                GCMUtil.xor(S, partialHashes[i]);
+            }
+        }
+
+        blockCount += blocks;
+        totalLength += (long)blocks * BLOCK_SIZE;
+    }
+
+    private void startData()
+    {
+        if (!dataStarted)
+        {
+            // Finish hash for partial AAD block
+            if (atBlockPos > 0)
+            {
+                local.gHASHPartial(S, atBlock, 0, atBlockPos);
+                atBlockPos = 0;
+            }
+            dataStarted = true;
+        }
+    }
+
+    private void checkBlockCount(int blocks)
+    {
+        if (blockCount + blocks > MAX_BLOCKS)
+        {
+            throw new IllegalStateException("Attempt to process too many blocks");
+        }
+    }
+
+    private void checkAADStatus()
+    {
+        if (dataStarted)
+        {
+            throw new IllegalStateException("AAD data cannot be added after encryption/decryption processing has begun.");
+        }
+    }
+
+    private void checkStatus()
+    {
+        if (!initialised)
+        {
+            if (forEncryption)
+            {
+                throw new IllegalStateException("GCM cipher cannot be reused for encryption");
+            }
+            throw new IllegalStateException("GCM cipher needs to be initialised");
+        }
+    }
+
+    private class SegmentTask
+        implements Callable<Object>
+    {
+        private final long firstBlock;
+        private final byte[] in;
+        private final int inOff;
+        private final int blocks;
+        private final byte[] out;
+        private final int outOff;
+        private final byte[] Y;
+
+        SegmentTask(long firstBlock, byte[] in, int inOff, int blocks, byte[] out, int outOff, byte[] Y)
+        {
+            this.firstBlock = firstBlock;
+            this.in = in;
+            this.inOff = inOff;
+            this.blocks = blocks;
+            this.out = out;
+            this.outOff = outOff;
+            this.Y = Y;
+        }
+
+        public Object call()
+        {
+            BlockCipher segmentCipher = factory.createBlockCipher();
+            GCMMultiplier segmentMultiplier = new Tables4kGCMMultiplier();
+
+            segmentCipher.init(true, keyParam);
+            segmentMultiplier.init(H);
+
+            new Segment(segmentCipher, segmentMultiplier).process(forEncryption, J0, firstBlock, in, inOff, blocks, out, outOff, Y);
+
+            return null;
+        }
+    }
+
+    /*
+     * The CTR and GHASH state for one thread - the counter for each block is derived from J0 and the
+     * block's index in the message, so a segment can start anywhere.
+     */
+    private static class Segment
+    {
+        private final BlockCipher cipher;
+        private final GCMMultiplier multiplier;
+        private final byte[] ctrBlocks;
+
+        Segment(BlockCipher cipher, GCMMultiplier multiplier)
+        {
+            int bulkSize = GCMBlockCipher.getBulkSize(cipher, multiplier);
+
+            this.cipher = cipher;
+            this.multiplier = multiplier;
+            this.ctrBlocks = new byte[bulkSize];
+        }
+
+        void process(boolean forEncryption, byte[] J0, long firstBlock, byte[] in, int inOff, int blocks, byte[] out, int outOff, byte[] Y)
+        {
+            int batchBlocks = ctrBlocks.length / BLOCK_SIZE;
+            int ctr = Pack.bigEndianToInt(J0, 12) + 1 + (int)firstBlock;
+
+            while (blocks > 0)
+            {
+                int count = Math.min(blocks, batchBlocks);
+                int len = count * BLOCK_SIZE;
+
+                for (int i = 0; i < count; ++i)
+                {
+                    System.arraycopy(J0, 0, ctrBlocks, i * BLOCK_SIZE, 12);
+                    Pack.intToBigEndian(ctr++, ctrBlocks, i * BLOCK_SIZE + 12);
+                }
+
+                if (cipher instanceof MultiBlockCipher)
+                {
+                    ((MultiBlockCipher)cipher).processBlocks(ctrBlocks, 0, count, ctrBlocks, 0);
+                }
+                else
+                {
+                    for (int i = 0; i < count; ++i)
+                    {
+                        cipher.processBlock(ctrBlocks, i * BLOCK_SIZE, ctrBlocks, i * BLOCK_SIZE);
+                    }
+                }
+
+                if (forEncryption)
+                {
+                    GCMUtil.xor(ctrBlocks, 0, in, inOff, len);
+                    gHASHBlocks(Y, ctrBlocks, 0, count);
+                }
+                else
+                {
+                    gHASHBlocks(Y, in, inOff, count);
+                    GCMUtil.xor(ctrBlocks, 0, in, inOff, len);
+                }
+
+                System.arraycopy(ctrBlocks, 0, out, outOff, len);
+
+                inOff += len;
+                outOff += len;
+                blocks -= count;
+            }
+        }
+
+        void processPartial(boolean forEncryption, byte[] J0, long block, byte[] buf, int off, int len, byte[] out, int outOff, byte[] Y)
+        {
+            byte[] ctrBlock = new byte[BLOCK_SIZE];
+
+            System.arraycopy(J0, 0, ctrBlock, 0, 12);
+            Pack.intToBigEndian(Pack.bigEndianToInt(J0, 12) + 1 + (int)block, ctrBlock, 12);
+            cipher.processBlock(ctrBlock, 0, ctrBlock, 0);
+
+            if (forEncryption)
+            {
+                GCMUtil.xor(buf, off, ctrBlock, 0, len);
+                gHASHPartial(Y, buf, off, len);
+            }
+            else
+            {
+                gHASHPartial(Y, buf, off, len);
+                GCMUtil.xor(buf, off, ctrBlock, 0, len);
+            }
+
+            System.arraycopy(buf, off, out, outOff, len);
+        }
+
+        void gHASHBlocks(byte[] Y, byte[] b, int off, int blockCount)
+        {
+            if (multiplier instanceof GCMAggregateMultiplier)
+            {
+                ((GCMAggregateMultiplier)multiplier).multiplyHBlocks(Y, b, off, blockCount);
+            }
+            else
+            {
+                for (int i = 0; i < blockCount; ++i)
+                {
+                    GCMUtil.xor(Y, b, off + i * BLOCK_SIZE);
+                    multiplier.multiplyH(Y);
+                }
+            }
+        }
+
+        void gHASHPartial(byte[] Y, byte[] b, int off, int len)
+        {
+            GCMUtil.xor(Y, b, off, len);
+            multiplier.multiplyH(Y);
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.SkippingStreamCipher;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+
+/**
+ * SIC (CTR) mode for large messages. Input longer than the segment size is split into segments which
+ * are processed on the threads of an ExecutorService (a ForkJoinPool works well), each segment using
+ * its own cipher instance that has been seeked to the segment's position in the key stream.
+ * <p>
+ * The output is identical to that of SICBlockCipher, shorter inputs are simply processed on the
+ * calling thread.
+ * </p>
+ */
+public class ParallelSICCipher
+    implements SkippingStreamCipher
+{
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+
+    private final BlockCipherFactory factory;
+    private final ExecutorService executor;
+    private final int segmentSize;
+    private final SICBlockCipher cipher;
+
+    private ParametersWithIV params;
+    private long position;
+
+    /**
+     * Base constructor, using the default segment size of 256 KiB.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param executor the executor the segments are run on.
+     */
+    public ParallelSICCipher(BlockCipherFactory factory, ExecutorService executor)
+    {
+        this(factory, executor, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor allowing the segment size to be specified.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param executor the executor the segments are run on.
+     * @param segmentSize the number of bytes given to each task, a multiple of the block size.
+     */
+    public ParallelSICCipher(BlockCipherFactory factory, ExecutorService executor, int segmentSize)
+    {
+        this.factory = factory;
+        this.executor = executor;
+        this.cipher = new SICBlockCipher(factory.createBlockCipher());
+
+        if (segmentSize <= 0 || segmentSize % cipher.getBlockSize() != 0)
+        {
+            throw new IllegalArgumentException("segment size must be a positive multiple of the block size");
+        }
+
+        this.segmentSize = segmentSize;
+    }
+
+    public void init(
+        boolean             forEncryption, //ignored by this CTR mode
+        CipherParameters    params)
+        throws IllegalArgumentException
+    {
+        if (!(params instanceof ParametersWithIV))
+        {
+            throw new IllegalArgumentException("CTR/SIC mode requires ParametersWithIV");
+        }
+
+        ParametersWithIV ivParam = (ParametersWithIV)params;
+
+        // the worker instances always need the key, so keep it if only the IV is changing.
+        if (ivParam.getParameters() == null)
+        {
+            if (this.params == null)
+            {
+                throw new IllegalArgumentException("key must be specified in initial init");
+            }
+            ivParam = new ParametersWithIV(this.params.getParameters(), ivParam.getIV());
+        }
+
+        cipher.init(true, ivParam);
+
+        this.params = ivParam;
+        this.position = 0;
+    }
+
+    public String getAlgorithmName()
+    {
+        return cipher.getAlgorithmName();
+    }
+
+    public byte returnByte(byte in)
+    {
+        position++;
+
+        return cipher.returnByte(in);
+    }
+
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        if (params == null)
+        {
+            throw new IllegalStateException(getAlgorithmName() + " not initialised");
+        }
+        if ((inOff + len) > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if ((outOff + len) > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        // overlapping but offset buffers have to be processed in order
+        if (len <= segmentSize || (in == out && inOff != outOff))
+        {
+            cipher.processBytes(in, inOff, len, out, outOff);
+            position += len;
+
+            return len;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+        for (int off = 0; off < len; off += segmentSize)
+        {
+            tasks.add(new SegmentTask(position + off, in, inOff + off, Math.min(segmentSize, len - off), out, outOff + off));
+        }
+
+        ParallelTasks.invokeAll(executor, tasks);
+
+        position += len;
+        cipher.seekTo(position);
+
+        return len;
+    }
+
+    public void reset()
+    {
+        cipher.reset();
+        position = 0;
+    }
+
+    public long skip(long numberOfBytes)
+    {
+        long skipped = cipher.skip(numberOfBytes);
+
+        position += skipped;
+
+        return skipped;
+    }
+
+    public long seekTo(long position)
+    {
+        this.position = cipher.seekTo(position);
+
+        return this.position;
+    }
+
+    public long getPosition()
+    {
+        return position;
+    }
+
+    private class SegmentTask
+        implements Callable<Object>
+    {
+        private final long streamPosition;
+        private final byte[] in;
+        private final int inOff;
+        private final int len;
+        private final byte[] out;
+        private final int outOff;
+
+        SegmentTask(long streamPosition, byte[] in, int inOff, int len, byte[] out, int outOff)
+        {
+            this.streamPosition = streamPosition;
+            this.in = in;
+            this.inOff = inOff;
+            this.len = len;
+            this.out = out;
+            this.outOff = outOff;
+        }
+
+        public Object call()
+        {
+            SICBlockCipher segmentCipher = new SICBlockCipher(factory.createBlockCipher());
+
+            segmentCipher.init(true, params);
+            segmentCipher.seekTo(streamPosition);
+            segmentCipher.processBytes(in, inOff, len, out, outOff);
+
+            return null;
+        }
+    }
+}
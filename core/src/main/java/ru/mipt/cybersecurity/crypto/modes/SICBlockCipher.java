@@ -3,6 +3,8 @@ package ru.mipt.cybersecurity.crypto.modes;
 import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.SkippingStreamCipher;
 import ru.mipt.cybersecurity.crypto.StreamBlockCipher;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
@@ -15,15 +17,17 @@ import ru.mipt.cybersecurity.util.Pack;
  */
 public class SICBlockCipher
     extends StreamBlockCipher
-    implements SkippingStreamCipher
+    implements SkippingStreamCipher, MultiBlockCipher
 {
     private final BlockCipher     cipher;
+    private final MultiBlockCipher multiCipher;
     private final int             blockSize;
 
     private byte[]          IV;
     private byte[]          counter;
     private byte[]          counterOut;
     private int             byteCount;
+    private byte[]          counterBlocks;
 
     /**
      * Basic constructor.
@@ -40,6 +44,17 @@ public class SICBlockCipher
         this.counter = new byte[blockSize];
         this.counterOut = new byte[blockSize];
         this.byteCount = 0;
+
+        if (c instanceof MultiBlockCipher)
+        {
+            this.multiCipher = (MultiBlockCipher)c;
+            this.counterBlocks = new byte[multiCipher.getMultiBlockSize()];
+        }
+        else
+        {
+            this.multiCipher = null;
+            this.counterBlocks = null;
+        }
     }
 
     public void init(
@@ -88,6 +103,11 @@ public class SICBlockCipher
         return cipher.getBlockSize();
     }
 
+    public int getMultiBlockSize()
+    {
+        return (multiCipher != null) ? counterBlocks.length : blockSize;
+    }
+
     public int processBlock(byte[] in, int inOff, byte[] out, int outOff)
           throws DataLengthException, IllegalStateException
     {
@@ -96,6 +116,71 @@ public class SICBlockCipher
         return blockSize;
     }
 
+    public int processBlocks(byte[] in, int inOff, int blockCount, byte[] out, int outOff)
+          throws DataLengthException, IllegalStateException
+    {
+        return processBytes(in, inOff, blockCount * blockSize, out, outOff);
+    }
+
+    public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
+        throws DataLengthException
+    {
+        if (multiCipher == null)
+        {
+            return super.processBytes(in, inOff, len, out, outOff);
+        }
+
+        if (inOff + len > in.length)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (outOff + len > out.length)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+
+        int pos = 0;
+
+        // finish off any partially used key stream block first
+        while (byteCount != 0 && pos < len)
+        {
+            out[outOff + pos] = calculateByte(in[inOff + pos]);
+            pos++;
+        }
+
+        // whole blocks: generate a batch of counter blocks and encrypt them in one call
+        int blocks;
+        while ((blocks = Math.min((len - pos) / blockSize, counterBlocks.length / blockSize)) > 0)
+        {
+            for (int i = 0; i < blocks; i++)
+            {
+                System.arraycopy(counter, 0, counterBlocks, i * blockSize, blockSize);
+
+                incrementCounterAt(0);
+
+                checkCounter();
+            }
+
+            multiCipher.processBlocks(counterBlocks, 0, blocks, counterBlocks, 0);
+
+            int batchLen = blocks * blockSize;
+            for (int i = 0; i < batchLen; i++)
+            {
+                out[outOff + pos + i] = (byte)(in[inOff + pos + i] ^ counterBlocks[i]);
+            }
+
+            pos += batchLen;
+        }
+
+        while (pos < len)
+        {
+            out[outOff + pos] = calculateByte(in[inOff + pos]);
+            pos++;
+        }
+
+        return len;
+    }
+
     protected byte calculateByte(byte in)
           throws DataLengthException, IllegalStateException
     {
@@ -153,7 +238,7 @@ public class SICBlockCipher
 
         counter[counter.length - 1] += offSet;
 
-        if (old != 0 && counter[counter.length - 1] < old)
+        if ((counter[counter.length - 1] & 0xff) < (old & 0xff))
         {
             incrementCounterAt(1);
         }
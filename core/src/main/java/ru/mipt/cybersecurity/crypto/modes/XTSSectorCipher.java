@@ -0,0 +1,450 @@
+package ru.mipt.cybersecurity.crypto.modes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.util.ParallelTasks;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * XTS mode as described in IEEE Std 1619-2007 (and NIST SP 800-38E), for encrypting storage a
+ * sector (data unit) at a time.
+ * <p>
+ * The key passed to init() is the concatenation of the data key and the tweak key. Each sector is
+ * processed independently given its sector number, so sectors can be read and written in any
+ * order. The tweaks for a sector are computed in one pass by repeated multiplication by alpha and
+ * the blocks are then encrypted together, a sector size which is not a multiple of the block size
+ * is handled with ciphertext stealing.
+ * </p>
+ * <p>
+ * If an ExecutorService is supplied, batches of sectors larger than the segment size are split into
+ * segments which are processed on the executor's threads, each with its own cipher instances.
+ * </p>
+ */
+public class XTSSectorCipher
+{
+    private static final int BLOCK_SIZE = 16;
+    private static final int DEFAULT_SEGMENT_SIZE = 256 * 1024;
+
+    private final BlockCipherFactory factory;
+    private final ExecutorService executor;
+    private final int sectorSize;
+    private final int segmentSectors;
+    private final SectorProcessor local;
+
+    private KeyParameter dataKey;
+    private KeyParameter tweakKey;
+
+    /**
+     * Constructor for sequential processing only.
+     *
+     * @param factory source of the block cipher instances, the block size must be 128 bits.
+     * @param sectorSize the size of a sector in bytes, at least one block.
+     */
+    public XTSSectorCipher(BlockCipherFactory factory, int sectorSize)
+    {
+        this(factory, sectorSize, null, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor allowing batches of sectors to be processed in parallel, using the default segment
+     * size of 256 KiB.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param sectorSize the size of a sector in bytes, at least one block.
+     * @param executor the executor the segments are run on.
+     */
+    public XTSSectorCipher(BlockCipherFactory factory, int sectorSize, ExecutorService executor)
+    {
+        this(factory, sectorSize, executor, DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Constructor allowing the segment size to be specified.
+     *
+     * @param factory source of the block cipher instances for the calling and worker threads.
+     * @param sectorSize the size of a sector in bytes, at least one block.
+     * @param executor the executor the segments are run on, null for sequential processing.
+     * @param segmentSize the number of bytes given to each task, rounded down to whole sectors.
+     */
+    public XTSSectorCipher(BlockCipherFactory factory, int sectorSize, ExecutorService executor, int segmentSize)
+    {
+        if (sectorSize < BLOCK_SIZE)
+        {
+            throw new IllegalArgumentException("sector size must be at least " + BLOCK_SIZE + " bytes");
+        }
+
+        this.factory = factory;
+        this.executor = executor;
+        this.sectorSize = sectorSize;
+        this.segmentSectors = Math.max(1, segmentSize / sectorSize);
+        this.local = new SectorProcessor();
+    }
+
+    /**
+     * Initialise the cipher.
+     *
+     * @param params a KeyParameter holding the data key followed by the tweak key, the two halves
+     * must differ.
+     */
+    public void init(CipherParameters params)
+        throws IllegalArgumentException
+    {
+        if (!(params instanceof KeyParameter))
+        {
+            throw new IllegalArgumentException("XTS requires a KeyParameter");
+        }
+
+        byte[] key = ((KeyParameter)params).getKey();
+        int halfLength = key.length / 2;
+
+        if (key.length == 0 || key.length % 2 != 0)
+        {
+            throw new IllegalArgumentException("XTS key must be two keys of the same length");
+        }
+
+        KeyParameter newDataKey = new KeyParameter(key, 0, halfLength);
+        KeyParameter newTweakKey = new KeyParameter(key, halfLength, halfLength);
+
+        if (Arrays.constantTimeAreEqual(newDataKey.getKey(), newTweakKey.getKey()))
+        {
+            throw new IllegalArgumentException("XTS data key and tweak key must be different");
+        }
+
+        local.init(newDataKey, newTweakKey);
+
+        this.dataKey = newDataKey;
+        this.tweakKey = newTweakKey;
+    }
+
+    public String getAlgorithmName()
+    {
+        return local.encCipher.getAlgorithmName() + "/XTS";
+    }
+
+    public int getSectorSize()
+    {
+        return sectorSize;
+    }
+
+    /**
+     * Encrypt a single sector in place.
+     *
+     * @param sectorNo the sector number, treated as unsigned.
+     * @param buf the buffer holding the sector.
+     * @param off offset of the sector in buf.
+     */
+    public void encryptSector(long sectorNo, byte[] buf, int off)
+    {
+        processSector(true, sectorNo, buf, off, buf, off);
+    }
+
+    /**
+     * Decrypt a single sector in place.
+     *
+     * @param sectorNo the sector number, treated as unsigned.
+     * @param buf the buffer holding the sector.
+     * @param off offset of the sector in buf.
+     */
+    public void decryptSector(long sectorNo, byte[] buf, int off)
+    {
+        processSector(false, sectorNo, buf, off, buf, off);
+    }
+
+    /**
+     * Encrypt or decrypt a single sector.
+     *
+     * @param forEncryption true to encrypt, false to decrypt.
+     * @param sectorNo the sector number, treated as unsigned.
+     * @param in the input buffer.
+     * @param inOff offset of the sector in the input buffer.
+     * @param out the output buffer, may be the same as in.
+     * @param outOff offset of the output sector.
+     */
+    public void processSector(boolean forEncryption, long sectorNo, byte[] in, int inOff, byte[] out, int outOff)
+    {
+        checkStatus();
+        checkLengths(1, in, inOff, out, outOff);
+
+        local.process(forEncryption, sectorNo, in, inOff, out, outOff);
+    }
+
+    /**
+     * Encrypt a run of consecutive sectors in place.
+     *
+     * @param firstSectorNo the number of the first sector.
+     * @param count the number of sectors.
+     * @param buf the buffer holding the sectors.
+     * @param off offset of the first sector in buf.
+     */
+    public void encryptSectors(long firstSectorNo, int count, byte[] buf, int off)
+    {
+        processSectors(true, firstSectorNo, count, buf, off, buf, off);
+    }
+
+    /**
+     * Decrypt a run of consecutive sectors in place.
+     *
+     * @param firstSectorNo the number of the first sector.
+     * @param count the number of sectors.
+     * @param buf the buffer holding the sectors.
+     * @param off offset of the first sector in buf.
+     */
+    public void decryptSectors(long firstSectorNo, int count, byte[] buf, int off)
+    {
+        processSectors(false, firstSectorNo, count, buf, off, buf, off);
+    }
+
+    /**
+     * Encrypt or decrypt a run of consecutive sectors, in parallel if an executor was given and the
+     * run is longer than a segment.
+     *
+     * @param forEncryption true to encrypt, false to decrypt.
+     * @param firstSectorNo the number of the first sector.
+     * @param count the number of sectors.
+     * @param in the input buffer.
+     * @param inOff offset of the first sector in the input buffer.
+     * @param out the output buffer, may be the same as in.
+     * @param outOff offset of the first output sector.
+     */
+    public void processSectors(boolean forEncryption, long firstSectorNo, int count, byte[] in, int inOff, byte[] out, int outOff)
+    {
+        checkStatus();
+        checkLengths(count, in, inOff, out, outOff);
+
+        // overlapping but offset buffers have to be processed in order
+        if (executor == null || count <= segmentSectors || (in == out && inOff != outOff))
+        {
+            for (int i = 0; i != count; i++)
+            {
+                int pos = i * sectorSize;
+
+                local.process(forEncryption, firstSectorNo + i, in, inOff + pos, out, outOff + pos);
+            }
+            return;
+        }
+
+        List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+        for (int first = 0; first < count; first += segmentSectors)
+        {
+            int pos = first * sectorSize;
+
+            tasks.add(new SegmentTask(forEncryption, firstSectorNo + first, Math.min(segmentSectors, count - first),
+                in, inOff + pos, out, outOff + pos));
+        }
+
+        ParallelTasks.invokeAll(executor, tasks);
+    }
+
+    private void checkStatus()
+    {
+        if (dataKey == null)
+        {
+            throw new IllegalStateException("XTS cipher not initialised");
+        }
+    }
+
+    private void checkLengths(int count, byte[] in, int inOff, byte[] out, int outOff)
+    {
+        if (count < 0)
+        {
+            throw new IllegalArgumentException("sector count cannot be negative");
+        }
+
+        long len = (long)count * sectorSize;
+
+        if (inOff < 0 || in.length - inOff < len)
+        {
+            throw new DataLengthException("input buffer too short");
+        }
+        if (outOff < 0 || out.length - outOff < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+    }
+
+    /**
+     * The cipher instances and tweak buffer for processing sectors on one thread.
+     */
+    private class SectorProcessor
+    {
+        private final BlockCipher encCipher;
+        private final BlockCipher decCipher;
+        private final BlockCipher tweakCipher;
+        private final byte[] tweaks;
+        private final byte[] block = new byte[BLOCK_SIZE];
+
+        SectorProcessor()
+        {
+            this.encCipher = factory.createBlockCipher();
+            this.decCipher = factory.createBlockCipher();
+            this.tweakCipher = factory.createBlockCipher();
+
+            if (encCipher.getBlockSize() != BLOCK_SIZE)
+            {
+                throw new IllegalArgumentException("cipher required with a block size of " + BLOCK_SIZE + ".");
+            }
+
+            // one tweak per block, including any partial final block
+            this.tweaks = new byte[((sectorSize + BLOCK_SIZE - 1) / BLOCK_SIZE) * BLOCK_SIZE];
+        }
+
+        void init(KeyParameter dataKey, KeyParameter tweakKey)
+        {
+            encCipher.init(true, dataKey);
+            decCipher.init(false, dataKey);
+            tweakCipher.init(true, tweakKey);
+        }
+
+        void process(boolean forEncryption, long sectorNo, byte[] in, int inOff, byte[] out, int outOff)
+        {
+            BlockCipher cipher = forEncryption ? encCipher : decCipher;
+            int fullBlocks = sectorSize / BLOCK_SIZE;
+            int partial = sectorSize % BLOCK_SIZE;
+
+            computeTweaks(sectorNo);
+
+            // with ciphertext stealing the last full block is done with the partial one
+            int blocks = (partial == 0) ? fullBlocks : fullBlocks - 1;
+            int len = blocks * BLOCK_SIZE;
+
+            for (int i = 0; i < len; i++)
+            {
+                out[outOff + i] = (byte)(in[inOff + i] ^ tweaks[i]);
+            }
+
+            if (cipher instanceof MultiBlockCipher)
+            {
+                ((MultiBlockCipher)cipher).processBlocks(out, outOff, blocks, out, outOff);
+            }
+            else
+            {
+                for (int pos = 0; pos < len; pos += BLOCK_SIZE)
+                {
+                    cipher.processBlock(out, outOff + pos, out, outOff + pos);
+                }
+            }
+
+            for (int i = 0; i < len; i++)
+            {
+                out[outOff + i] ^= tweaks[i];
+            }
+
+            if (partial != 0)
+            {
+                stealCipherText(forEncryption, cipher, len, partial, in, inOff + len, out, outOff + len);
+            }
+        }
+
+        /*
+         * Process the last full block, at tweak index lastOff, and the partial block after it.
+         */
+        private void stealCipherText(boolean forEncryption, BlockCipher cipher, int lastOff, int partial,
+            byte[] in, int inOff, byte[] out, int outOff)
+        {
+            // when decrypting the last full block was encrypted with the final tweak
+            int firstTweak = forEncryption ? lastOff : lastOff + BLOCK_SIZE;
+            int secondTweak = forEncryption ? lastOff + BLOCK_SIZE : lastOff;
+
+            processBlock(cipher, firstTweak, in, inOff, block);
+
+            // the stolen tail of the block pads out the partial block
+            byte[] tail = new byte[partial];
+            System.arraycopy(in, inOff + BLOCK_SIZE, tail, 0, partial);
+
+            System.arraycopy(block, 0, out, outOff + BLOCK_SIZE, partial);
+            System.arraycopy(tail, 0, block, 0, partial);
+
+            processBlock(cipher, secondTweak, block, 0, block);
+            System.arraycopy(block, 0, out, outOff, BLOCK_SIZE);
+        }
+
+        private void processBlock(BlockCipher cipher, int tweakOff, byte[] in, int inOff, byte[] out)
+        {
+            for (int i = 0; i < BLOCK_SIZE; i++)
+            {
+                out[i] = (byte)(in[inOff + i] ^ tweaks[tweakOff + i]);
+            }
+
+            cipher.processBlock(out, 0, out, 0);
+
+            for (int i = 0; i < BLOCK_SIZE; i++)
+            {
+                out[i] ^= tweaks[tweakOff + i];
+            }
+        }
+
+        /*
+         * T_0 = E(K2, sectorNo), T_j = T_(j-1) * alpha in GF(2^128) with x^128 + x^7 + x^2 + x + 1.
+         */
+        private void computeTweaks(long sectorNo)
+        {
+            Arrays.fill(block, (byte)0);
+            Pack.longToLittleEndian(sectorNo, block, 0);
+            tweakCipher.processBlock(block, 0, block, 0);
+
+            long lo = Pack.littleEndianToLong(block, 0);
+            long hi = Pack.littleEndianToLong(block, 8);
+
+            for (int off = 0; off < tweaks.length; off += BLOCK_SIZE)
+            {
+                Pack.longToLittleEndian(lo, tweaks, off);
+                Pack.longToLittleEndian(hi, tweaks, off + 8);
+
+                long carry = hi >> 63;
+                hi = (hi << 1) | (lo >>> 63);
+                lo = (lo << 1) ^ (0x87L & carry);
+            }
+        }
+    }
+
+    private class SegmentTask
+        implements Callable<Object>
+    {
+        private final boolean forEncryption;
+        private final long firstSectorNo;
+        private final int count;
+        private final byte[] in;
+        private final int inOff;
+        private final byte[] out;
+        private final int outOff;
+
+        SegmentTask(boolean forEncryption, long firstSectorNo, int count, byte[] in, int inOff, byte[] out, int outOff)
+        {
+            this.forEncryption = forEncryption;
+            this.firstSectorNo = firstSectorNo;
+            this.count = count;
+            this.in = in;
+            this.inOff = inOff;
+            this.out = out;
+            this.outOff = outOff;
+        }
+
+        public Object call()
+        {
+            SectorProcessor processor = new SectorProcessor();
+
+            processor.init(dataKey, tweakKey);
+
+            for (int i = 0; i != count; i++)
+            {
+                int pos = i * sectorSize;
+
+                processor.process(forEncryption, firstSectorNo + i, in, inOff + pos, out, outOff + pos);
+            }
+
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.mipt.cybersecurity.crypto.modes.gcm;
+
+/**
+ * GCM multipliers that can fold several blocks into a GHASH value in one step implement this.
+ * <p>
+ * Groups of blocks are combined using precomputed powers of H, i.e. for four blocks
+ * Y' = (Y + X1).H^4 + X2.H^3 + X3.H^2 + X4.H, so the products of a group are independent of each
+ * other and only need one reduction between them.
+ */
+public interface GCMAggregateMultiplier
+    extends GCMMultiplier
+{
+    /**
+     * Return the number of blocks combined into each aggregated step.
+     *
+     * @return the number of blocks per aggregated step.
+     */
+    int getAggregateBlockCount();
+
+    /**
+     * Update the GHASH value Y with blockCount consecutive 16 byte blocks from X, giving the same result
+     * as XORing in each block followed by multiplyH().
+     *
+     * @param Y the 16 byte GHASH value to update.
+     * @param X the array containing the blocks.
+     * @param xOff offset into X the blocks start at.
+     * @param blockCount the number of blocks to process.
+     */
+    void multiplyHBlocks(byte[] Y, byte[] X, int xOff, int blockCount);
+}
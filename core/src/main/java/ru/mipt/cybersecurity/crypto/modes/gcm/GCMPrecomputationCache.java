@@ -0,0 +1,183 @@
+package ru.mipt.cybersecurity.crypto.modes.gcm;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * A bounded, least recently used, cache of GCM multiplication tables keyed by the hash subkey H.
+ * <p>
+ * Multipliers created with a cache share one set of tables for each key rather than building their
+ * own, so many cipher instances using the same key only cost the tables once. Tables dropped from the
+ * cache stay valid for the multipliers still using them, and are zeroed when the last of those is
+ * initialised with a different key. Tables belonging to multipliers which are simply discarded are left
+ * to the garbage collector.
+ * </p>
+ */
+public class GCMPrecomputationCache
+{
+    /**
+     * The number of keys held by the default cache.
+     */
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private static final GCMPrecomputationCache DEFAULT = new GCMPrecomputationCache(DEFAULT_CAPACITY);
+
+    private final int capacity;
+    private final Map<Key, Tables64kGCMPrecomputation> entries;
+
+    /**
+     * Base constructor.
+     *
+     * @param capacity the maximum number of keys to hold tables for.
+     */
+    public GCMPrecomputationCache(int capacity)
+    {
+        if (capacity <= 0)
+        {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<Key, Tables64kGCMPrecomputation>(16, 0.75f, true)
+        {
+            protected boolean removeEldestEntry(Map.Entry<Key, Tables64kGCMPrecomputation> eldest)
+            {
+                if (size() > GCMPrecomputationCache.this.capacity)
+                {
+                    evict(eldest);
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Return the process wide cache, used by the GCM ciphers of the provider.
+     *
+     * @return the default cache.
+     */
+    public static GCMPrecomputationCache getDefault()
+    {
+        return DEFAULT;
+    }
+
+    public int getCapacity()
+    {
+        return capacity;
+    }
+
+    /**
+     * Return the number of keys currently held.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Drop all the tables held, zeroing any which are not in use.
+     */
+    public synchronized void clear()
+    {
+        for (Iterator<Map.Entry<Key, Tables64kGCMPrecomputation>> it = entries.entrySet().iterator(); it.hasNext();)
+        {
+            evict(it.next());
+            it.remove();
+        }
+    }
+
+    Tables64kGCMPrecomputation acquire(byte[] H)
+    {
+        Key key = new Key(H);
+
+        synchronized (this)
+        {
+            Tables64kGCMPrecomputation tables = entries.get(key);
+            if (tables != null)
+            {
+                tables.references++;
+                return tables;
+            }
+        }
+
+        // build outside the lock, if another thread gets there first its tables are used instead
+        Tables64kGCMPrecomputation built = new Tables64kGCMPrecomputation(H);
+
+        synchronized (this)
+        {
+            Tables64kGCMPrecomputation tables = entries.get(key);
+            if (tables == null)
+            {
+                tables = built;
+                tables.cached = true;
+                entries.put(new Key(Arrays.clone(H)), tables);
+            }
+            else
+            {
+                built.clear();
+            }
+
+            tables.references++;
+            return tables;
+        }
+    }
+
+    synchronized void release(Tables64kGCMPrecomputation tables)
+    {
+        if (--tables.references == 0 && !tables.cached)
+        {
+            tables.clear();
+        }
+    }
+
+    private void evict(Map.Entry<Key, Tables64kGCMPrecomputation> entry)
+    {
+        Tables64kGCMPrecomputation tables = entry.getValue();
+
+        tables.cached = false;
+        if (tables.references == 0)
+        {
+            tables.clear();
+        }
+
+        entry.getKey().clear();
+    }
+
+    private static class Key
+    {
+        private final byte[] H;
+        private final int hashCode;
+
+        Key(byte[] H)
+        {
+            this.H = H;
+            this.hashCode = Arrays.hashCode(H);
+        }
+
+        void clear()
+        {
+            Arrays.fill(H, (byte)0);
+        }
+
+        public int hashCode()
+        {
+            return hashCode;
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+
+            Key other = (Key)o;
+
+            return H.length == other.H.length && Arrays.constantTimeAreEqual(H, other.H);
+        }
+    }
+}
@@ -4,11 +4,16 @@ import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.Pack;
 
 public class Tables4kGCMMultiplier
-    implements GCMMultiplier
+    implements GCMAggregateMultiplier
 {
+    private static final int AGGREGATE = 4;
+
     private byte[] H;
     private long[][] T;
 
+    // tables for H^2 .. H^AGGREGATE, only built if multiplyHBlocks is used
+    private long[][][] powers;
+
     public void init(byte[] H)
     {
         if (T == null)
@@ -21,20 +26,58 @@ public class Tables4kGCMMultiplier
         }
 
         this.H = Arrays.clone(H);
+        this.powers = null;
 
-        // T[0] = 0
+        initTable(T, this.H);
+    }
 
-        // T[1] = H.p^7
-        GCMUtil.asLongs(this.H, T[1]);
-        GCMUtil.multiplyP7(T[1], T[1]);
+    public int getAggregateBlockCount()
+    {
+        return AGGREGATE;
+    }
 
-        for (int n = 2; n < 256; n += 2)
+    public void multiplyHBlocks(byte[] Y, byte[] X, int xOff, int blockCount)
+    {
+        if (blockCount >= AGGREGATE && powers == null)
         {
-            // T[2.n] = T[n].p^-1
-            GCMUtil.divideP(T[n >> 1], T[n]);
+            powers = initPowers();
+        }
 
-            // T[2.n + 1] = T[2.n] + T[1]
-            GCMUtil.xor(T[n], T[1], T[n + 1]);
+        while (blockCount >= AGGREGATE)
+        {
+            long[][] T4 = powers[2], T3 = powers[1], T2 = powers[0], T1 = T;
+
+            GCMUtil.xor(Y, X, xOff);
+
+            long z0 = 0, z1 = 0;
+
+            for (int i = 15; i >= 0; --i)
+            {
+                long[] a = T4[Y[i] & 0xFF];
+                long[] b = T3[X[xOff + 16 + i] & 0xFF];
+                long[] c = T2[X[xOff + 32 + i] & 0xFF];
+                long[] d = T1[X[xOff + 48 + i] & 0xFF];
+
+                // one shift and reduction for the sum of all four products
+                long r = z1 << 56;
+                z1 = a[1] ^ b[1] ^ c[1] ^ d[1] ^ ((z1 >>> 8) | (z0 << 56));
+                z0 = a[0] ^ b[0] ^ c[0] ^ d[0] ^ (z0 >>> 8) ^ r ^ (r >>> 1) ^ (r >>> 2) ^ (r >>> 7);
+            }
+
+            Pack.longToBigEndian(z0, Y, 0);
+            Pack.longToBigEndian(z1, Y, 8);
+
+            xOff += AGGREGATE * 16;
+            blockCount -= AGGREGATE;
+        }
+
+        while (blockCount > 0)
+        {
+            GCMUtil.xor(Y, X, xOff);
+            multiplyH(Y);
+
+            xOff += 16;
+            blockCount--;
         }
     }
 
@@ -64,4 +107,37 @@ public class Tables4kGCMMultiplier
         Pack.longToBigEndian(z0, x, 0);
         Pack.longToBigEndian(z1, x, 8);
     }
+
+    private long[][][] initPowers()
+    {
+        long[][][] P = new long[AGGREGATE - 1][256][2];
+        byte[] Hn = Arrays.clone(H);
+
+        for (int i = 0; i < P.length; ++i)
+        {
+            // P[i] is the table for H^(i + 2)
+            GCMUtil.multiply(Hn, H);
+            initTable(P[i], Hn);
+        }
+
+        return P;
+    }
+
+    private static void initTable(long[][] T, byte[] H)
+    {
+        // T[0] = 0
+
+        // T[1] = H.p^7
+        GCMUtil.asLongs(H, T[1]);
+        GCMUtil.multiplyP7(T[1], T[1]);
+
+        for (int n = 2; n < 256; n += 2)
+        {
+            // T[2.n] = T[n].p^-1
+            GCMUtil.divideP(T[n >> 1], T[n]);
+
+            // T[2.n + 1] = T[2.n] + T[1]
+            GCMUtil.xor(T[n], T[1], T[n + 1]);
+        }
+    }
 }
@@ -1,76 +1,84 @@
 package ru.mipt.cybersecurity.crypto.modes.gcm;
 
-import ru.mipt.cybersecurity.util.Arrays;
-import ru.mipt.cybersecurity.util.Pack;
-
+/**
+ * A GCM multiplier using 64k of tables per key. The tables themselves are immutable, so multipliers
+ * created with a {@link GCMPrecomputationCache} share them with every other multiplier using the same
+ * key, leaving each instance with no per key state of its own.
+ */
 public class Tables64kGCMMultiplier
     implements GCMMultiplier
 {
-    private byte[] H;
-    private long[][][] T;
+    private final GCMPrecomputationCache cache;
+
+    private Tables64kGCMPrecomputation tables;
+    private boolean owned;
+
+    /**
+     * Create a multiplier which builds its own tables.
+     */
+    public Tables64kGCMMultiplier()
+    {
+        this((GCMPrecomputationCache)null);
+    }
+
+    /**
+     * Create a multiplier which takes its tables from the passed in cache.
+     *
+     * @param cache the cache to share tables through, null if the tables are not to be shared.
+     */
+    public Tables64kGCMMultiplier(GCMPrecomputationCache cache)
+    {
+        this.cache = cache;
+    }
+
+    /**
+     * Create a multiplier using a precomputation built elsewhere. If the multiplier is initialised
+     * with a different H it builds tables of its own, the passed in ones are never cleared.
+     *
+     * @param tables the tables to use for their H.
+     */
+    public Tables64kGCMMultiplier(Tables64kGCMPrecomputation tables)
+    {
+        this.cache = null;
+        this.tables = tables;
+        this.owned = false;
+    }
 
     public void init(byte[] H)
     {
-        if (T == null)
-        {
-            T = new long[16][256][2];
-        }
-        else if (Arrays.areEqual(this.H, H))
+        if (tables != null && tables.matches(H))
         {
             return;
         }
 
-        this.H = Arrays.clone(H);
+        Tables64kGCMPrecomputation old = tables;
+        boolean oldOwned = owned;
 
-        for (int i = 0; i < 16; ++i)
+        if (cache == null)
         {
-            long[][] t = T[i];
-
-            // t[0] = 0
+            tables = new Tables64kGCMPrecomputation(H);
+            owned = true;
+        }
+        else
+        {
+            tables = cache.acquire(H);
+        }
 
-            if (i == 0)
+        if (old != null)
+        {
+            if (cache != null)
             {
-                // t[1] = H.p^7
-                GCMUtil.asLongs(this.H, t[1]);
-                GCMUtil.multiplyP7(t[1], t[1]);
+                cache.release(old);
             }
-            else
+            else if (oldOwned)
             {
-                // t[1] = T[i-1][1].p^8
-                GCMUtil.multiplyP8(T[i - 1][1], t[1]);
-            }
-
-            for (int n = 2; n < 256; n += 2)
-            {
-                // t[2.n] = t[n].p^-1
-                GCMUtil.divideP(t[n >> 1], t[n]);
-
-                // t[2.n + 1] = t[2.n] + t[1]
-                GCMUtil.xor(t[n], t[1], t[n + 1]);
+                old.clear();
             }
         }
     }
 
     public void multiplyH(byte[] x)
     {
-//        long[] z = new long[2];
-//        for (int i = 15; i >= 0; --i)
-//        {
-//            GCMUtil.xor(z, T[i][x[i] & 0xFF]);
-//        }
-//        Pack.longToBigEndian(z, x, 0);
-
-        long[] t = T[15][x[15] & 0xFF];
-        long z0 = t[0], z1 = t[1];
-
-        for (int i = 14; i >= 0; --i)
-        {
-            t = T[i][x[i] & 0xFF];
-            z0 ^= t[0];
-            z1 ^= t[1];
-        }
-
-        Pack.longToBigEndian(z0, x, 0);
-        Pack.longToBigEndian(z1, x, 8);
+        tables.multiplyH(x);
     }
 }
@@ -0,0 +1,100 @@
+package ru.mipt.cybersecurity.crypto.modes.gcm;
+
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * The 64k multiplication tables for a single hash subkey H. Once built the tables are only read,
+ * so one instance can be shared by any number of multipliers and threads, either through a
+ * {@link GCMPrecomputationCache} or by passing it to {@link Tables64kGCMMultiplier} directly.
+ */
+public final class Tables64kGCMPrecomputation
+{
+    private final byte[] H;
+    private final long[][][] T;
+
+    // guarded by the owning GCMPrecomputationCache
+    int references;
+    boolean cached;
+
+    public Tables64kGCMPrecomputation(byte[] H)
+    {
+        this.H = Arrays.clone(H);
+        this.T = new long[16][256][2];
+
+        initTables(T, this.H);
+    }
+
+    boolean matches(byte[] H)
+    {
+        return H.length == this.H.length && Arrays.constantTimeAreEqual(this.H, H);
+    }
+
+    void multiplyH(byte[] x)
+    {
+        long[] t = T[15][x[15] & 0xFF];
+        long z0 = t[0], z1 = t[1];
+
+        for (int i = 14; i >= 0; --i)
+        {
+            t = T[i][x[i] & 0xFF];
+            z0 ^= t[0];
+            z1 ^= t[1];
+        }
+
+        Pack.longToBigEndian(z0, x, 0);
+        Pack.longToBigEndian(z1, x, 8);
+    }
+
+    /**
+     * Zero the tables - only called once nothing refers to this precomputation any more.
+     */
+    void clear()
+    {
+        Arrays.fill(H, (byte)0);
+        clearTables(T);
+    }
+
+    private static void clearTables(long[][][] T)
+    {
+        for (int i = 0; i < T.length; ++i)
+        {
+            for (int n = 0; n < T[i].length; ++n)
+            {
+                T[i][n][0] = 0L;
+                T[i][n][1] = 0L;
+            }
+        }
+    }
+
+    private static void initTables(long[][][] T, byte[] H)
+    {
+        for (int i = 0; i < 16; ++i)
+        {
+            long[][] t = T[i];
+
+            // t[0] = 0
+
+            if (i == 0)
+            {
+                // t[1] = H.p^7
+                GCMUtil.asLongs(H, t[1]);
+                GCMUtil.multiplyP7(t[1], t[1]);
+            }
+            else
+            {
+                // t[1] = T[i-1][1].p^8
+                GCMUtil.multiplyP8(T[i - 1][1], t[1]);
+            }
+
+            for (int n = 2; n < 256; n += 2)
+            {
+                // t[2.n] = t[n].p^-1
+                GCMUtil.divideP(t[n >> 1], t[n]);
+
+                // t[2.n + 1] = t[2.n] + t[1]
+                GCMUtil.xor(t[n], t[1], t[n + 1]);
+            }
+        }
+    }
+}
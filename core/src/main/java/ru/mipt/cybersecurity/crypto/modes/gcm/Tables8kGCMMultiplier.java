@@ -4,11 +4,16 @@ import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.Pack;
 
 public class Tables8kGCMMultiplier
-    implements GCMMultiplier
+    implements GCMAggregateMultiplier
 {
+    private static final int AGGREGATE = 4;
+
     private byte[] H;
     private long[][][] T;
 
+    // tables for H^2 .. H^AGGREGATE, only built if multiplyHBlocks is used
+    private long[][][][] powers;
+
     public void init(byte[] H)
     {
         if (T == null)
@@ -21,35 +26,59 @@ public class Tables8kGCMMultiplier
         }
 
         this.H = Arrays.clone(H);
+        this.powers = null;
 
-        for (int i = 0; i < 32; ++i)
+        initTables(T, this.H);
+    }
+
+    public int getAggregateBlockCount()
+    {
+        return AGGREGATE;
+    }
+
+    public void multiplyHBlocks(byte[] Y, byte[] X, int xOff, int blockCount)
+    {
+        if (blockCount >= AGGREGATE && powers == null)
         {
-            long[][] t = T[i];
+            powers = initPowers();
+        }
 
-            // t[0] = 0
+        while (blockCount >= AGGREGATE)
+        {
+            long[][][] T4 = powers[2], T3 = powers[1], T2 = powers[0], T1 = T;
 
-            if (i == 0)
-            {
-                // t[1] = H.p^3
-                GCMUtil.asLongs(this.H, t[1]);
-                GCMUtil.multiplyP3(t[1], t[1]);
-            }
-            else
-            {
-                // t[1] = T[i-1][1].p^4
-                GCMUtil.multiplyP4(T[i - 1][1], t[1]);
-            }
+            GCMUtil.xor(Y, X, xOff);
 
-            for (int n = 2; n < 16; n += 2)
+            long z0 = 0, z1 = 0;
+
+            for (int i = 15; i >= 0; --i)
             {
-                // t[2.n] = t[n].p^-1
-                GCMUtil.divideP(t[n >> 1], t[n]);
+                int y = Y[i], x2 = X[xOff + 16 + i], x3 = X[xOff + 32 + i], x4 = X[xOff + 48 + i];
 
-                // t[2.n + 1] = t[2.n] + t[1]
-                GCMUtil.xor(t[n], t[1], t[n + 1]);
+                long[] a = T4[i + i + 1][y & 0x0F], b = T4[i + i][(y & 0xF0) >>> 4];
+                long[] c = T3[i + i + 1][x2 & 0x0F], d = T3[i + i][(x2 & 0xF0) >>> 4];
+                long[] e = T2[i + i + 1][x3 & 0x0F], f = T2[i + i][(x3 & 0xF0) >>> 4];
+                long[] g = T1[i + i + 1][x4 & 0x0F], h = T1[i + i][(x4 & 0xF0) >>> 4];
+
+                z0 ^= a[0] ^ b[0] ^ c[0] ^ d[0] ^ e[0] ^ f[0] ^ g[0] ^ h[0];
+                z1 ^= a[1] ^ b[1] ^ c[1] ^ d[1] ^ e[1] ^ f[1] ^ g[1] ^ h[1];
             }
+
+            Pack.longToBigEndian(z0, Y, 0);
+            Pack.longToBigEndian(z1, Y, 8);
+
+            xOff += AGGREGATE * 16;
+            blockCount -= AGGREGATE;
         }
 
+        while (blockCount > 0)
+        {
+            GCMUtil.xor(Y, X, xOff);
+            multiplyH(Y);
+
+            xOff += 16;
+            blockCount--;
+        }
     }
 
     public void multiplyH(byte[] x)
@@ -76,4 +105,50 @@ public class Tables8kGCMMultiplier
         Pack.longToBigEndian(z0, x, 0);
         Pack.longToBigEndian(z1, x, 8);
    }
+
+    private long[][][][] initPowers()
+    {
+        long[][][][] P = new long[AGGREGATE - 1][32][16][2];
+        byte[] Hn = Arrays.clone(H);
+
+        for (int i = 0; i < P.length; ++i)
+        {
+            // P[i] is the table for H^(i + 2)
+            GCMUtil.multiply(Hn, H);
+            initTables(P[i], Hn);
+        }
+
+        return P;
+    }
+
+    private static void initTables(long[][][] T, byte[] H)
+    {
+        for (int i = 0; i < 32; ++i)
+        {
+            long[][] t = T[i];
+
+            // t[0] = 0
+
+            if (i == 0)
+            {
+                // t[1] = H.p^3
+                GCMUtil.asLongs(H, t[1]);
+                GCMUtil.multiplyP3(t[1], t[1]);
+            }
+            else
+            {
+                // t[1] = T[i-1][1].p^4
+                GCMUtil.multiplyP4(T[i - 1][1], t[1]);
+            }
+
+            for (int n = 2; n < 16; n += 2)
+            {
+                // t[2.n] = t[n].p^-1
+                GCMUtil.divideP(t[n >> 1], t[n]);
+
+                // t[2.n + 1] = t[2.n] + t[1]
+                GCMUtil.xor(t[n], t[1], t[n + 1]);
+            }
+        }
+    }
 }
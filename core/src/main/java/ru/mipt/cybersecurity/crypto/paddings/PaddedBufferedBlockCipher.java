@@ -5,6 +5,7 @@ import ru.mipt.cybersecurity.crypto.BufferedBlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithRandom;
 
@@ -209,6 +210,16 @@ public class PaddedBufferedBlockCipher
             len -= gapLen;
             inOff += gapLen;
 
+            if (cipher instanceof MultiBlockCipher && len > buf.length)
+            {
+                int blockCount = (len - buf.length + blockSize - 1) / blockSize;
+                int processed = ((MultiBlockCipher)cipher).processBlocks(in, inOff, blockCount, out, outOff + resultLen);
+
+                resultLen += processed;
+                len -= processed;
+                inOff += processed;
+            }
+
             while (len > buf.length)
             {
                 resultLen += cipher.processBlock(in, inOff, out, outOff + resultLen);
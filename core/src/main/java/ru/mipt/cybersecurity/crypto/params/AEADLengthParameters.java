@@ -0,0 +1,64 @@
+package ru.mipt.cybersecurity.crypto.params;
+
+/**
+ * AEAD parameters which also declare the lengths of the associated text and the message up
+ * front. Modes which would otherwise need all the data before they can start, such as CCM, can
+ * use these to process the data as it arrives.
+ */
+public class AEADLengthParameters
+    extends AEADParameters
+{
+    private int associatedTextLength;
+    private long dataLength;
+
+    /**
+     * Base constructor.
+     *
+     * @param key key to be used by underlying cipher
+     * @param macSize macSize in bits
+     * @param nonce nonce to be used
+     * @param associatedTextLength total length of the associated text in bytes
+     * @param dataLength length of the message (plain text) in bytes
+     */
+    public AEADLengthParameters(KeyParameter key, int macSize, byte[] nonce, int associatedTextLength, long dataLength)
+    {
+        this(key, macSize, nonce, null, associatedTextLength, dataLength);
+    }
+
+    /**
+     * Base constructor.
+     *
+     * @param key key to be used by underlying cipher
+     * @param macSize macSize in bits
+     * @param nonce nonce to be used
+     * @param associatedText initial associated text, if any
+     * @param associatedTextLength total length of the associated text in bytes, including any initial associated text
+     * @param dataLength length of the message (plain text) in bytes
+     */
+    public AEADLengthParameters(KeyParameter key, int macSize, byte[] nonce, byte[] associatedText, int associatedTextLength, long dataLength)
+    {
+        super(key, macSize, nonce, associatedText);
+
+        if (associatedTextLength < 0 || dataLength < 0)
+        {
+            throw new IllegalArgumentException("lengths cannot be negative");
+        }
+        if (associatedText != null && associatedText.length > associatedTextLength)
+        {
+            throw new IllegalArgumentException("initial associated text longer than associated text length");
+        }
+
+        this.associatedTextLength = associatedTextLength;
+        this.dataLength = dataLength;
+    }
+
+    public int getAssociatedTextLength()
+    {
+        return associatedTextLength;
+    }
+
+    public long getDataLength()
+    {
+        return dataLength;
+    }
+}
@@ -0,0 +1,280 @@
+package ru.mipt.cybersecurity.crypto.params;
+
+import ru.mipt.cybersecurity.crypto.CharToByteConverter;
+import ru.mipt.cybersecurity.crypto.PasswordConverter;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Parameters for the Argon2 memory-hard password hashing function (RFC 9106).
+ */
+public class Argon2Parameters
+{
+    public static final int ARGON2_d = 0x00;
+    public static final int ARGON2_i = 0x01;
+    public static final int ARGON2_id = 0x02;
+
+    public static final int ARGON2_VERSION_10 = 0x10;
+    public static final int ARGON2_VERSION_13 = 0x13;
+
+    private static final int DEFAULT_ITERATIONS = 3;
+    private static final int DEFAULT_MEMORY_COST = 12;
+    private static final int DEFAULT_LANES = 1;
+    private static final int DEFAULT_TYPE = ARGON2_i;
+    private static final int DEFAULT_VERSION = ARGON2_VERSION_13;
+
+    public static class Builder
+    {
+        private byte[] salt;
+        private byte[] secret;
+        private byte[] additional;
+
+        private int iterations;
+        private int memory;
+        private int lanes;
+
+        private int version;
+        private final int type;
+
+        private CharToByteConverter converter = PasswordConverter.UTF8;
+
+        /**
+         * Create a builder for Argon2i.
+         */
+        public Builder()
+        {
+            this(DEFAULT_TYPE);
+        }
+
+        /**
+         * Create a builder for the given Argon2 type.
+         *
+         * @param type one of ARGON2_d, ARGON2_i or ARGON2_id.
+         */
+        public Builder(int type)
+        {
+            if (type != ARGON2_d && type != ARGON2_i && type != ARGON2_id)
+            {
+                throw new IllegalArgumentException("unknown Argon2 type: " + type);
+            }
+
+            this.type = type;
+            this.lanes = DEFAULT_LANES;
+            this.memory = 1 << DEFAULT_MEMORY_COST;
+            this.iterations = DEFAULT_ITERATIONS;
+            this.version = DEFAULT_VERSION;
+        }
+
+        /**
+         * Set the number of lanes - the degree of parallelism, p.
+         *
+         * @param parallelism the number of lanes, 1 to 2^24 - 1.
+         * @return the current builder.
+         */
+        public Builder withParallelism(int parallelism)
+        {
+            this.lanes = parallelism;
+            return this;
+        }
+
+        public Builder withSalt(byte[] salt)
+        {
+            this.salt = Arrays.clone(salt);
+            return this;
+        }
+
+        public Builder withSecret(byte[] secret)
+        {
+            this.secret = Arrays.clone(secret);
+            return this;
+        }
+
+        public Builder withAdditional(byte[] additional)
+        {
+            this.additional = Arrays.clone(additional);
+            return this;
+        }
+
+        /**
+         * Set the number of passes over the memory, t.
+         *
+         * @param iterations the number of passes.
+         * @return the current builder.
+         */
+        public Builder withIterations(int iterations)
+        {
+            this.iterations = iterations;
+            return this;
+        }
+
+        /**
+         * Set the memory size, m.
+         *
+         * @param memory the memory size in kibibytes.
+         * @return the current builder.
+         */
+        public Builder withMemoryAsKB(int memory)
+        {
+            this.memory = memory;
+            return this;
+        }
+
+        /**
+         * Set the memory size, m, as a power of two.
+         *
+         * @param memory the base 2 logarithm of the memory size in kibibytes.
+         * @return the current builder.
+         */
+        public Builder withMemoryPowOfTwo(int memory)
+        {
+            this.memory = 1 << memory;
+            return this;
+        }
+
+        public Builder withVersion(int version)
+        {
+            this.version = version;
+            return this;
+        }
+
+        /**
+         * Set the converter used to turn a char[] password into bytes, UTF-8 by default.
+         *
+         * @param converter the converter to use.
+         * @return the current builder.
+         */
+        public Builder withCharToByteConverter(CharToByteConverter converter)
+        {
+            this.converter = converter;
+            return this;
+        }
+
+        public Argon2Parameters build()
+        {
+            if (version != ARGON2_VERSION_10 && version != ARGON2_VERSION_13)
+            {
+                throw new IllegalArgumentException("unknown Argon2 version: " + version);
+            }
+            if (lanes < 1 || lanes > 0xffffff)
+            {
+                throw new IllegalArgumentException("parallelism must be between 1 and 2^24 - 1");
+            }
+            if (iterations < 1)
+            {
+                throw new IllegalArgumentException("iterations must be at least 1");
+            }
+            if (memory < 8 * lanes)
+            {
+                throw new IllegalArgumentException("memory must be at least 8 times the parallelism, in kibibytes");
+            }
+
+            return new Argon2Parameters(type, salt, secret, additional, iterations, memory, lanes, version, converter);
+        }
+
+        public void clear()
+        {
+            Argon2Parameters.clear(salt);
+            Argon2Parameters.clear(secret);
+            Argon2Parameters.clear(additional);
+        }
+    }
+
+    private final byte[] salt;
+    private final byte[] secret;
+    private final byte[] additional;
+
+    private final int iterations;
+    private final int memory;
+    private final int lanes;
+
+    private final int version;
+    private final int type;
+
+    private final CharToByteConverter converter;
+
+    private Argon2Parameters(
+        int type,
+        byte[] salt,
+        byte[] secret,
+        byte[] additional,
+        int iterations,
+        int memory,
+        int lanes,
+        int version,
+        CharToByteConverter converter)
+    {
+        this.salt = Arrays.clone(salt);
+        this.secret = Arrays.clone(secret);
+        this.additional = Arrays.clone(additional);
+        this.iterations = iterations;
+        this.memory = memory;
+        this.lanes = lanes;
+        this.version = version;
+        this.type = type;
+        this.converter = converter;
+    }
+
+    public byte[] getSalt()
+    {
+        return Arrays.clone(salt);
+    }
+
+    public byte[] getSecret()
+    {
+        return Arrays.clone(secret);
+    }
+
+    public byte[] getAdditional()
+    {
+        return Arrays.clone(additional);
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Return the memory size.
+     *
+     * @return the memory size in kibibytes.
+     */
+    public int getMemory()
+    {
+        return memory;
+    }
+
+    public int getLanes()
+    {
+        return lanes;
+    }
+
+    public int getVersion()
+    {
+        return version;
+    }
+
+    public int getType()
+    {
+        return type;
+    }
+
+    public CharToByteConverter getCharToByteConverter()
+    {
+        return converter;
+    }
+
+    public void clear()
+    {
+        clear(salt);
+        clear(secret);
+        clear(additional);
+    }
+
+    private static void clear(byte[] data)
+    {
+        if (data != null)
+        {
+            Arrays.fill(data, (byte)0);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * An EntropySourceProvider reading from a kernel random device, by default /dev/urandom, which
+ * never blocks once the kernel pool has been initialised.
+ * <p>
+ * Each EntropySource the provider hands out opens the device on first use and reads it through its
+ * own FileChannel, which then stays open, so separate sources never wait on each other. Each byte
+ * read is passed through the SP 800-90B continuous health tests for its source, assuming full entropy.
+ * </p>
+ */
+public class DeviceEntropySourceProvider
+    implements EntropySourceProvider
+{
+    /**
+     * The default device.
+     */
+    public static final String DEFAULT_DEVICE = "/dev/urandom";
+
+    private final String device;
+    private final boolean predictionResistant;
+
+    /**
+     * Create a provider reading from /dev/urandom.
+     */
+    public DeviceEntropySourceProvider()
+    {
+        this(DEFAULT_DEVICE, true);
+    }
+
+    /**
+     * Create a provider reading from the given device.
+     *
+     * @param device path to the random device.
+     * @param predictionResistant true if each read from the device can be regarded as fresh entropy.
+     */
+    public DeviceEntropySourceProvider(String device, boolean predictionResistant)
+    {
+        this.device = device;
+        this.predictionResistant = predictionResistant;
+    }
+
+    public EntropySource get(int bitsRequired)
+    {
+        return new DeviceEntropySource(bitsRequired);
+    }
+
+    private class DeviceEntropySource
+        implements EntropySource
+    {
+        private final int bitsRequired;
+        private final EntropyHealthTest healthTest = new EntropyHealthTest(8, false);
+
+        private FileChannel channel;
+
+        DeviceEntropySource(int bitsRequired)
+        {
+            this.bitsRequired = bitsRequired;
+        }
+
+        public boolean isPredictionResistant()
+        {
+            return predictionResistant;
+        }
+
+        public byte[] getEntropy()
+        {
+            byte[] rv = new byte[(bitsRequired + 7) / 8];
+
+            read(rv);
+
+            return rv;
+        }
+
+        public int entropySize()
+        {
+            return bitsRequired;
+        }
+
+        private synchronized void read(byte[] bytes)
+        {
+            try
+            {
+                if (channel == null)
+                {
+                    channel = new FileInputStream(device).getChannel();
+                }
+
+                ByteBuffer buf = ByteBuffer.wrap(bytes);
+                while (buf.hasRemaining())
+                {
+                    if (channel.read(buf) < 0)
+                    {
+                        throw new IllegalStateException("unexpected end of " + device);
+                    }
+                }
+            }
+            catch (IOException e)
+            {
+                throw new IllegalStateException("unable to read " + device + ": " + e.getMessage(), e);
+            }
+
+            for (int i = 0; i != bytes.length; i++)
+            {
+                healthTest.check(bytes[i] & 0xff);
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+/**
+ * The continuous health tests of NIST SP 800-90B, section 4.4 - the Repetition Count Test and
+ * the Adaptive Proportion Test - applied to the raw samples of a noise source.
+ * <p>
+ * The cutoffs are derived from the assessed min-entropy per sample and the false positive
+ * probability alpha, as described in the standard. A sample which fails either test causes an
+ * IllegalStateException, after which the noise source should not be used.
+ * </p>
+ */
+public class EntropyHealthTest
+{
+    private static final int DEFAULT_ALPHA_EXPONENT = 40;
+
+    private final int rctCutoff;
+    private final int aptWindow;
+    private final int aptCutoff;
+
+    private boolean started;
+    private int lastSample;
+    private int rctCount;
+
+    private int aptSample;
+    private int aptCount;
+    private int aptIndex;
+
+    /**
+     * Create health tests with a false positive probability of 2^-40.
+     *
+     * @param minEntropy the assessed min-entropy per sample, in bits.
+     * @param binary true if the samples are single bits, false otherwise.
+     */
+    public EntropyHealthTest(double minEntropy, boolean binary)
+    {
+        this(minEntropy, binary, DEFAULT_ALPHA_EXPONENT);
+    }
+
+    /**
+     * Create health tests with a false positive probability of 2^-alphaExponent - SP 800-90B
+     * recommends an exponent between 20 and 40.
+     *
+     * @param minEntropy the assessed min-entropy per sample, in bits.
+     * @param binary true if the samples are single bits, false otherwise.
+     * @param alphaExponent the negated base 2 logarithm of the false positive probability.
+     */
+    public EntropyHealthTest(double minEntropy, boolean binary, int alphaExponent)
+    {
+        if (minEntropy <= 0 || minEntropy > (binary ? 1 : 32))
+        {
+            throw new IllegalArgumentException("min-entropy out of range");
+        }
+        if (alphaExponent < 1 || alphaExponent > 64)
+        {
+            throw new IllegalArgumentException("alpha exponent out of range");
+        }
+
+        this.rctCutoff = 1 + (int)Math.ceil(alphaExponent / minEntropy);
+        this.aptWindow = binary ? 1024 : 512;
+        this.aptCutoff = 1 + critBinom(aptWindow, Math.pow(2, -minEntropy), Math.pow(2, -alphaExponent));
+    }
+
+    /**
+     * Return the cutoff for the Repetition Count Test.
+     *
+     * @return the number of identical consecutive samples which is regarded as a failure.
+     */
+    public int getRepetitionCountCutoff()
+    {
+        return rctCutoff;
+    }
+
+    /**
+     * Return the cutoff for the Adaptive Proportion Test.
+     *
+     * @return the number of occurrences of the first sample in a window which is regarded as a failure.
+     */
+    public int getAdaptiveProportionCutoff()
+    {
+        return aptCutoff;
+    }
+
+    /**
+     * Return the window size used by the Adaptive Proportion Test.
+     *
+     * @return the window size, in samples.
+     */
+    public int getAdaptiveProportionWindow()
+    {
+        return aptWindow;
+    }
+
+    /**
+     * Run the next sample through both tests.
+     *
+     * @param sample the raw noise source sample.
+     * @throws IllegalStateException if either test fails.
+     */
+    public void check(int sample)
+    {
+        if (started && sample == lastSample)
+        {
+            if (++rctCount >= rctCutoff)
+            {
+                throw new IllegalStateException("entropy source failed repetition count test");
+            }
+        }
+        else
+        {
+            started = true;
+            lastSample = sample;
+            rctCount = 1;
+        }
+
+        if (aptIndex == 0)
+        {
+            aptSample = sample;
+            aptCount = 1;
+        }
+        else if (sample == aptSample)
+        {
+            if (++aptCount >= aptCutoff)
+            {
+                throw new IllegalStateException("entropy source failed adaptive proportion test");
+            }
+        }
+
+        if (++aptIndex == aptWindow)
+        {
+            aptIndex = 0;
+        }
+    }
+
+    /**
+     * Return the smallest k for which P(X > k) <= alpha, where X ~ Binomial(n, p). The
+     * probabilities are handled as logarithms, so a small p or large n does not underflow.
+     */
+    private static int critBinom(int n, double p, double alpha)
+    {
+        double[] logPmf = new double[n + 1];
+        double logP = Math.log(p);
+        double logQ = Math.log(1 - p);
+
+        logPmf[0] = n * logQ;
+        for (int k = 0; k < n; k++)
+        {
+            logPmf[k + 1] = logPmf[k] + Math.log(n - k) - Math.log(k + 1) + logP - logQ;
+        }
+
+        double tail = 0;
+        for (int k = n; k > 0; k--)
+        {
+            tail += Math.exp(logPmf[k]);
+            if (tail > alpha)
+            {
+                return k;
+            }
+        }
+
+        return 0;
+    }
+}
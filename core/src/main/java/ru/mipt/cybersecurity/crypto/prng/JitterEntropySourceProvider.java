@@ -0,0 +1,118 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * An EntropySourceProvider based on CPU execution time jitter - the noise source times a short
+ * walk over a buffer larger than the L1 cache with System.nanoTime().
+ * <p>
+ * The low byte of each timing is passed through the SP 800-90B continuous health tests at the
+ * assessed min-entropy, so a timer which is too coarse to be useful is detected rather than
+ * trusted. The raw timings are conditioned with SHA-512, gathering twice as many samples as the
+ * assessment says are needed for each output block.
+ * </p>
+ */
+public class JitterEntropySourceProvider
+    implements EntropySourceProvider
+{
+    private static final double DEFAULT_MIN_ENTROPY = 0.5;
+    private static final int MEMORY_SIZE = 64 * 1024;
+    private static final int WALK_LENGTH = 64;
+
+    private final double minEntropy;
+    private final EntropyHealthTest healthTest;
+    private final byte[] memory = new byte[MEMORY_SIZE];
+    private final Digest conditioner = new SHA512Digest();
+
+    private int position;
+
+    /**
+     * Create a provider assuming half a bit of min-entropy per timing.
+     */
+    public JitterEntropySourceProvider()
+    {
+        this(DEFAULT_MIN_ENTROPY);
+    }
+
+    /**
+     * Create a provider with a given assessment of the min-entropy per timing.
+     *
+     * @param minEntropy the min-entropy of each timing, in bits.
+     */
+    public JitterEntropySourceProvider(double minEntropy)
+    {
+        this.minEntropy = minEntropy;
+        this.healthTest = new EntropyHealthTest(minEntropy, false);
+    }
+
+    public EntropySource get(final int bitsRequired)
+    {
+        return new EntropySource()
+        {
+            public boolean isPredictionResistant()
+            {
+                return true;
+            }
+
+            public byte[] getEntropy()
+            {
+                return collect((bitsRequired + 7) / 8);
+            }
+
+            public int entropySize()
+            {
+                return bitsRequired;
+            }
+        };
+    }
+
+    private synchronized byte[] collect(int length)
+    {
+        byte[] rv = new byte[length];
+        byte[] block = new byte[conditioner.getDigestSize()];
+        byte[] sample = new byte[8];
+
+        for (int off = 0; off < length; off += block.length)
+        {
+            int blockLen = Math.min(block.length, length - off);
+            int samples = (int)Math.ceil(2 * blockLen * 8 / minEntropy);
+
+            for (int i = 0; i != samples; i++)
+            {
+                long delta = sample();
+
+                healthTest.check((int)delta & 0xff);
+
+                Pack.longToBigEndian(delta, sample, 0);
+                conditioner.update(sample, 0, sample.length);
+            }
+
+            conditioner.doFinal(block, 0);
+
+            System.arraycopy(block, 0, rv, off, blockLen);
+        }
+
+        Arrays.fill(block, (byte)0);
+
+        return rv;
+    }
+
+    private long sample()
+    {
+        long start = System.nanoTime();
+
+        // data dependent strides, so the walk cannot be predicted by the prefetcher
+        int pos = position;
+        for (int i = 0; i != WALK_LENGTH; i++)
+        {
+            pos = (pos + 4099 + (memory[pos] & 0xff) * 64) & (MEMORY_SIZE - 1);
+            memory[pos]++;
+        }
+        position = pos;
+
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,109 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+
+/**
+ * An EntropySourceProvider which combines several other providers, so the output is at least as
+ * good as the best of them.
+ * <p>
+ * Each call collects the full amount of entropy requested from every underlying source and hashes
+ * the lot together with SHA-512, in counter mode where more than 512 bits are asked for. The
+ * combined source is regarded as prediction resistant if any of the underlying sources are.
+ * </p>
+ */
+public class MixingEntropySourceProvider
+    implements EntropySourceProvider
+{
+    private final EntropySourceProvider[] providers;
+
+    /**
+     * Create a provider mixing the output of the passed in providers.
+     *
+     * @param providers the providers to combine.
+     */
+    public MixingEntropySourceProvider(EntropySourceProvider[] providers)
+    {
+        if (providers == null || providers.length == 0)
+        {
+            throw new IllegalArgumentException("at least one entropy source provider required");
+        }
+
+        this.providers = providers.clone();
+    }
+
+    public EntropySource get(final int bitsRequired)
+    {
+        final EntropySource[] sources = new EntropySource[providers.length];
+        boolean anyPredictionResistant = false;
+
+        for (int i = 0; i != sources.length; i++)
+        {
+            sources[i] = providers[i].get(bitsRequired);
+            anyPredictionResistant |= sources[i].isPredictionResistant();
+        }
+
+        final boolean predictionResistant = anyPredictionResistant;
+
+        return new EntropySource()
+        {
+            public boolean isPredictionResistant()
+            {
+                return predictionResistant;
+            }
+
+            public byte[] getEntropy()
+            {
+                byte[][] inputs = new byte[sources.length][];
+
+                for (int i = 0; i != sources.length; i++)
+                {
+                    inputs[i] = sources[i].getEntropy();
+                }
+
+                byte[] rv = mix(inputs, (bitsRequired + 7) / 8);
+
+                for (int i = 0; i != inputs.length; i++)
+                {
+                    Arrays.fill(inputs[i], (byte)0);
+                }
+
+                return rv;
+            }
+
+            public int entropySize()
+            {
+                return bitsRequired;
+            }
+        };
+    }
+
+    private static byte[] mix(byte[][] inputs, int length)
+    {
+        Digest digest = new SHA512Digest();
+        byte[] rv = new byte[length];
+        byte[] block = new byte[digest.getDigestSize()];
+        byte[] counter = new byte[4];
+
+        for (int off = 0, count = 1; off < length; off += block.length, count++)
+        {
+            Pack.intToBigEndian(count, counter, 0);
+            digest.update(counter, 0, counter.length);
+
+            for (int i = 0; i != inputs.length; i++)
+            {
+                digest.update(inputs[i], 0, inputs[i].length);
+            }
+
+            digest.doFinal(block, 0);
+
+            System.arraycopy(block, 0, rv, off, Math.min(block.length, length - off));
+        }
+
+        Arrays.fill(block, (byte)0);
+
+        return rv;
+    }
+}
@@ -0,0 +1,175 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+import java.util.LinkedList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * An EntropySourceProvider which gathers entropy ahead of time on an executor, so a DRBG reseed
+ * does not have to wait on a slow source.
+ * <p>
+ * Each EntropySource handed out keeps a queue of up to depth results, which starts filling as
+ * soon as the source is created and is topped up in the background every time a result is taken.
+ * When the queue is empty the result is collected directly instead. Results are only ever used
+ * once, and are not regarded as prediction resistant, as they may have been collected some time
+ * before they are used.
+ * </p>
+ */
+public class PrecollectingEntropySourceProvider
+    implements EntropySourceProvider
+{
+    private final EntropySourceProvider provider;
+    private final ExecutorService executor;
+    private final int depth;
+
+    /**
+     * Create a provider pre-collecting from another.
+     *
+     * @param provider the provider the entropy is collected from.
+     * @param executor the executor the collection is run on.
+     * @param depth the number of results to collect ahead of time for each source.
+     */
+    public PrecollectingEntropySourceProvider(EntropySourceProvider provider, ExecutorService executor, int depth)
+    {
+        if (depth < 1)
+        {
+            throw new IllegalArgumentException("depth must be at least 1");
+        }
+
+        this.provider = provider;
+        this.executor = executor;
+        this.depth = depth;
+    }
+
+    public EntropySource get(int bitsRequired)
+    {
+        return new PrecollectingEntropySource(provider.get(bitsRequired));
+    }
+
+    private class PrecollectingEntropySource
+        implements EntropySource
+    {
+        private final EntropySource source;
+        private final LinkedList<byte[]> queue = new LinkedList<byte[]>();
+
+        private boolean collecting;
+        private boolean failed;
+
+        PrecollectingEntropySource(EntropySource source)
+        {
+            this.source = source;
+
+            synchronized (queue)
+            {
+                scheduleCollection();
+            }
+        }
+
+        public boolean isPredictionResistant()
+        {
+            return false;
+        }
+
+        public byte[] getEntropy()
+        {
+            byte[] rv;
+
+            synchronized (queue)
+            {
+                rv = queue.isEmpty() ? null : queue.removeFirst();
+
+                scheduleCollection();
+            }
+
+            if (rv == null)
+            {
+                rv = collect();
+            }
+
+            return rv;
+        }
+
+        public int entropySize()
+        {
+            return source.entropySize();
+        }
+
+        private byte[] collect()
+        {
+            // the underlying source need not be thread safe
+            synchronized (source)
+            {
+                return source.getEntropy();
+            }
+        }
+
+        private void scheduleCollection()
+        {
+            if (collecting || failed || queue.size() >= depth)
+            {
+                return;
+            }
+
+            collecting = true;
+
+            try
+            {
+                executor.execute(new Runnable()
+                {
+                    public void run()
+                    {
+                        fill();
+                    }
+                });
+            }
+            catch (RejectedExecutionException e)
+            {
+                // executor shut down - entropy will be collected on demand
+                collecting = false;
+            }
+        }
+
+        private void fill()
+        {
+            try
+            {
+                for (;;)
+                {
+                    synchronized (queue)
+                    {
+                        if (queue.size() >= depth)
+                        {
+                            collecting = false;
+                            return;
+                        }
+                    }
+
+                    byte[] entropy = collect();
+
+                    synchronized (queue)
+                    {
+                        if (queue.size() < depth)
+                        {
+                            queue.addLast(entropy);
+                        }
+                        else
+                        {
+                            Arrays.fill(entropy, (byte)0);
+                        }
+                    }
+                }
+            }
+            catch (RuntimeException e)
+            {
+                // a failing source is left for the caller to discover on a direct collection
+                synchronized (queue)
+                {
+                    collecting = false;
+                    failed = true;
+                }
+            }
+        }
+    }
+}
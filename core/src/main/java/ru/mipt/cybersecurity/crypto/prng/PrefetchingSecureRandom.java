@@ -0,0 +1,266 @@
+package ru.mipt.cybersecurity.crypto.prng;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * A SecureRandom which serves requests from a ring buffer of output generated ahead of time.
+ * <p>
+ * Whenever the buffered output falls below the low water mark a refill is handed to the executor, so
+ * the cost of the underlying generator - including any reseed it decides to do, and the entropy
+ * gathering that goes with it - is paid on the executor's thread rather than by the caller. If a
+ * request cannot be met from the buffer the shortfall is generated directly.
+ * </p>
+ * <p>
+ * Bytes are wiped from the buffer as they are handed out, and everything still buffered is discarded
+ * on reseed, including the output of any refill that was under way at the time.
+ * </p>
+ */
+public class PrefetchingSecureRandom
+    extends SecureRandom
+{
+    /**
+     * The default buffer size - 4 KiB.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    private final SecureRandom source;
+    private final ExecutorService executor;
+    private final byte[] ring;
+    private final int lowWaterMark;
+
+    private int readPos;
+    private int available;
+    private long generation;
+    private boolean refillPending;
+
+    /**
+     * Create a prefetching SecureRandom with the default buffer size.
+     *
+     * @param source the generator the buffer is filled from, usually a SP800SecureRandom.
+     * @param executor the executor refills are run on.
+     */
+    public PrefetchingSecureRandom(SecureRandom source, ExecutorService executor)
+    {
+        this(source, executor, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a prefetching SecureRandom, refilling once less than half the buffer remains.
+     *
+     * @param source the generator the buffer is filled from, usually a SP800SecureRandom.
+     * @param executor the executor refills are run on.
+     * @param bufferSize the size of the ring buffer in bytes.
+     */
+    public PrefetchingSecureRandom(SecureRandom source, ExecutorService executor, int bufferSize)
+    {
+        if (bufferSize < 2)
+        {
+            throw new IllegalArgumentException("buffer size must be at least 2");
+        }
+
+        this.source = source;
+        this.executor = executor;
+        this.ring = new byte[bufferSize];
+        this.lowWaterMark = bufferSize / 2;
+
+        synchronized (ring)
+        {
+            scheduleRefill();
+        }
+    }
+
+    public void setSeed(byte[] seed)
+    {
+        // this will happen when SecureRandom() is created
+        if (source != null)
+        {
+            source.setSeed(seed);
+        }
+    }
+
+    public void setSeed(long seed)
+    {
+        // this will happen when SecureRandom() is created
+        if (source != null)
+        {
+            source.setSeed(seed);
+        }
+    }
+
+    public void nextBytes(byte[] bytes)
+    {
+        int taken;
+
+        synchronized (ring)
+        {
+            taken = take(bytes);
+
+            if (available < lowWaterMark)
+            {
+                scheduleRefill();
+            }
+        }
+
+        if (taken < bytes.length)
+        {
+            // the buffer has run dry, so the rest has to be paid for now
+            byte[] rest = new byte[bytes.length - taken];
+
+            source.nextBytes(rest);
+
+            System.arraycopy(rest, 0, bytes, taken, rest.length);
+            Arrays.fill(rest, (byte)0);
+        }
+    }
+
+    public byte[] generateSeed(int numBytes)
+    {
+        return source.generateSeed(numBytes);
+    }
+
+    /**
+     * Discard any buffered output, reseeding the source first if it is a SP800SecureRandom. On return
+     * every byte handed out will have been generated after the reseed.
+     *
+     * @param additionalInput optional additional input for the reseed.
+     */
+    public void reseed(byte[] additionalInput)
+    {
+        if (source instanceof SP800SecureRandom)
+        {
+            ((SP800SecureRandom)source).reseed(additionalInput);
+        }
+
+        synchronized (ring)
+        {
+            Arrays.fill(ring, (byte)0);
+            readPos = 0;
+            available = 0;
+            generation++;
+
+            scheduleRefill();
+        }
+    }
+
+    /**
+     * Return the number of bytes currently buffered.
+     *
+     * @return the number of bytes available without calling the source.
+     */
+    public int getAvailable()
+    {
+        synchronized (ring)
+        {
+            return available;
+        }
+    }
+
+    private int take(byte[] bytes)
+    {
+        int len = Math.min(bytes.length, available);
+        int first = Math.min(len, ring.length - readPos);
+
+        System.arraycopy(ring, readPos, bytes, 0, first);
+        wipe(ring, readPos, first);
+
+        if (first < len)
+        {
+            System.arraycopy(ring, 0, bytes, first, len - first);
+            wipe(ring, 0, len - first);
+        }
+
+        readPos = (readPos + len) % ring.length;
+        available -= len;
+
+        return len;
+    }
+
+    private void put(byte[] block, int len)
+    {
+        int writePos = (readPos + available) % ring.length;
+        int first = Math.min(len, ring.length - writePos);
+
+        System.arraycopy(block, 0, ring, writePos, first);
+        System.arraycopy(block, first, ring, 0, len - first);
+
+        available += len;
+    }
+
+    private void scheduleRefill()
+    {
+        if (refillPending)
+        {
+            return;
+        }
+
+        refillPending = true;
+
+        try
+        {
+            executor.execute(new Runnable()
+            {
+                public void run()
+                {
+                    refill();
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // executor shut down - requests will be met directly from the source
+            refillPending = false;
+        }
+    }
+
+    private void refill()
+    {
+        long startGeneration;
+        int len;
+
+        synchronized (ring)
+        {
+            startGeneration = generation;
+            len = ring.length - available;
+        }
+
+        byte[] block = new byte[len];
+        boolean generated = false;
+
+        try
+        {
+            source.nextBytes(block);
+            generated = true;
+        }
+        finally
+        {
+            synchronized (ring)
+            {
+                refillPending = false;
+
+                // output generated before a reseed is stale and is thrown away
+                if (generated && startGeneration == generation)
+                {
+                    put(block, Math.min(len, ring.length - available));
+                }
+                else if (generated)
+                {
+                    scheduleRefill();
+                }
+            }
+
+            Arrays.fill(block, (byte)0);
+        }
+    }
+
+    private static void wipe(byte[] buf, int off, int len)
+    {
+        for (int i = 0; i != len; i++)
+        {
+            buf[off + i] = 0;
+        }
+    }
+}
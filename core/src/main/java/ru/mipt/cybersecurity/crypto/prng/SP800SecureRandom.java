@@ -4,22 +4,45 @@ import java.security.SecureRandom;
 
 import ru.mipt.cybersecurity.crypto.prng.drbg.SP80090DRBG;
 
+/**
+ * SecureRandom based on one or more SP 800-90A DRBGs.
+ * <p>
+ * Where the builder has been asked for a pool, the DRBGs are independent instances, each with its own
+ * lock, and the calling thread decides which one serves a request - so threads only contend when
+ * they share a stripe. Each DRBG also has its own entropy source, so a prediction resistant pool,
+ * which reseeds on every request, gathers entropy for different stripes at the same time. The DRBGs
+ * are instantiated on first use.
+ * </p>
+ */
 public class SP800SecureRandom
     extends SecureRandom
 {
-    private final DRBGProvider drbgProvider;
+    private final DRBGProvider[] drbgProviders;
     private final boolean predictionResistant;
     private final SecureRandom randomSource;
-    private final EntropySource entropySource;
+    private final EntropySource[] entropySources;
 
-    private SP80090DRBG drbg;
+    private final Object[] locks;
+    private final SP80090DRBG[] drbgs;
 
     SP800SecureRandom(SecureRandom randomSource, EntropySource entropySource, DRBGProvider drbgProvider, boolean predictionResistant)
+    {
+        this(randomSource, new EntropySource[] { entropySource }, new DRBGProvider[] { drbgProvider }, predictionResistant);
+    }
+
+    SP800SecureRandom(SecureRandom randomSource, EntropySource[] entropySources, DRBGProvider[] drbgProviders, boolean predictionResistant)
     {
         this.randomSource = randomSource;
-        this.entropySource = entropySource;
-        this.drbgProvider = drbgProvider;
+        this.entropySources = entropySources;
+        this.drbgProviders = drbgProviders;
         this.predictionResistant = predictionResistant;
+        this.locks = new Object[drbgProviders.length];
+        this.drbgs = new SP80090DRBG[drbgProviders.length];
+
+        for (int i = 0; i != locks.length; i++)
+        {
+            locks[i] = new Object();
+        }
     }
 
     public void setSeed(byte[] seed)
@@ -47,12 +70,11 @@ public class SP800SecureRandom
 
     public void nextBytes(byte[] bytes)
     {
-        synchronized (this)
+        int stripe = getStripe();
+
+        synchronized (locks[stripe])
         {
-            if (drbg == null)
-            {
-                drbg = drbgProvider.get(entropySource);
-            }
+            SP80090DRBG drbg = getDRBG(stripe);
 
             // check if a reseed is required...
             if (drbg.generate(bytes, null, predictionResistant) < 0)
@@ -65,24 +87,63 @@ public class SP800SecureRandom
 
     public byte[] generateSeed(int numBytes)
     {
-        return EntropyUtil.generateSeed(entropySource, numBytes);
+        int stripe = getStripe();
+
+        // the entropy source is also used by the stripe's DRBG
+        synchronized (locks[stripe])
+        {
+            return EntropyUtil.generateSeed(entropySources[stripe], numBytes);
+        }
     }
 
     /**
-     * Force a reseed of the DRBG
+     * Force a reseed of the DRBG - where there is a pool, every DRBG in it which has been used
+     * is reseeded, the remainder will be instantiated with fresh entropy when first needed.
      *
      * @param additionalInput optional additional input
      */
     public void reseed(byte[] additionalInput)
     {
-        synchronized (this)
+        for (int i = 0; i != drbgs.length; i++)
         {
-            if (drbg == null)
+            synchronized (locks[i])
             {
-                drbg = drbgProvider.get(entropySource);
+                if (drbgs.length == 1 || drbgs[i] != null)
+                {
+                    getDRBG(i).reseed(additionalInput);
+                }
             }
+        }
+    }
 
-            drbg.reseed(additionalInput);
+    /**
+     * Return the number of independent DRBGs requests are spread across.
+     *
+     * @return the pool size, 1 if there is a single DRBG.
+     */
+    public int getPoolSize()
+    {
+        return drbgs.length;
+    }
+
+    private int getStripe()
+    {
+        if (drbgs.length == 1)
+        {
+            return 0;
         }
+
+        // thread ids are handed out in sequence, so consecutive threads land on different stripes
+        return (int)(Thread.currentThread().getId() % drbgs.length);
+    }
+
+    private SP80090DRBG getDRBG(int stripe)
+    {
+        if (drbgs[stripe] == null)
+        {
+            drbgs[stripe] = drbgProviders[stripe].get(entropySources[stripe]);
+        }
+
+        return drbgs[stripe];
     }
 }
@@ -3,12 +3,17 @@ package ru.mipt.cybersecurity.crypto.prng;
 import java.security.SecureRandom;
 
 import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
 import ru.mipt.cybersecurity.crypto.Digest;
 import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.macs.HMac;
 import ru.mipt.cybersecurity.crypto.prng.drbg.CTRSP800DRBG;
 import ru.mipt.cybersecurity.crypto.prng.drbg.HMacSP800DRBG;
 import ru.mipt.cybersecurity.crypto.prng.drbg.HashSP800DRBG;
 import ru.mipt.cybersecurity.crypto.prng.drbg.SP80090DRBG;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Memoable;
+import ru.mipt.cybersecurity.util.Pack;
 
 /**
  * Builder class for making SecureRandom objects based on SP 800-90A Deterministic Random Bit Generators (DRBG).
@@ -21,6 +26,7 @@ public class SP800SecureRandomBuilder
     private byte[] personalizationString;
     private int securityStrength = 256;
     private int entropyBitsRequired = 256;
+    private int poolSize = 1;
 
     /**
      * Basic constructor, creates a builder using an EntropySourceProvider based on the default SecureRandom with
@@ -102,6 +108,32 @@ public class SP800SecureRandomBuilder
         return this;
     }
 
+    /**
+     * Set the number of independent DRBGs a SecureRandom created by this builder spreads its requests across.
+     * <p>
+     * With a pool size greater than 1 each DRBG has its own lock, so threads calling nextBytes() only contend
+     * when they map to the same DRBG. Every DRBG is given its own copy of the underlying primitive, its own
+     * entropy source from the provider, and a personalization string extended with its index, so no two are
+     * seeded the same way even from the same nonce. The provider must allow its sources to be used from
+     * several threads at once. To allow copying, a digest must implement Memoable, a MAC must be a HMac on such a digest, and
+     * a block cipher must have a public no-argument constructor.
+     * </p>
+     *
+     * @param poolSize the number of DRBGs to use, 1 (the default) for a single DRBG.
+     * @return the current builder.
+     */
+    public SP800SecureRandomBuilder setPoolSize(int poolSize)
+    {
+        if (poolSize < 1)
+        {
+            throw new IllegalArgumentException("pool size must be at least 1");
+        }
+
+        this.poolSize = poolSize;
+
+        return this;
+    }
+
     /**
      * Build a SecureRandom based on a SP 800-90A Hash DRBG.
      *
@@ -112,7 +144,15 @@ public class SP800SecureRandomBuilder
      */
     public SP800SecureRandom buildHash(Digest digest, byte[] nonce, boolean predictionResistant)
     {
-        return new SP800SecureRandom(random, entropySourceProvider.get(entropyBitsRequired), new HashDRBGProvider(digest, nonce, personalizationString, securityStrength), predictionResistant);
+        DRBGProvider[] providers = new DRBGProvider[poolSize];
+
+        providers[0] = new HashDRBGProvider(digest, nonce, getPersonalizationString(0), securityStrength);
+        for (int i = 1; i < poolSize; i++)
+        {
+            providers[i] = new HashDRBGProvider(copyDigest(digest), nonce, getPersonalizationString(i), securityStrength);
+        }
+
+        return new SP800SecureRandom(random, getEntropySources(), providers, predictionResistant);
     }
 
     /**
@@ -126,7 +166,37 @@ public class SP800SecureRandomBuilder
      */
     public SP800SecureRandom buildCTR(BlockCipher cipher, int keySizeInBits, byte[] nonce, boolean predictionResistant)
     {
-        return new SP800SecureRandom(random, entropySourceProvider.get(entropyBitsRequired), new CTRDRBGProvider(cipher, keySizeInBits, nonce, personalizationString, securityStrength), predictionResistant);
+        DRBGProvider[] providers = new DRBGProvider[poolSize];
+
+        providers[0] = new CTRDRBGProvider(cipher, keySizeInBits, nonce, getPersonalizationString(0), securityStrength);
+        for (int i = 1; i < poolSize; i++)
+        {
+            providers[i] = new CTRDRBGProvider(copyCipher(cipher), keySizeInBits, nonce, getPersonalizationString(i), securityStrength);
+        }
+
+        return new SP800SecureRandom(random, getEntropySources(), providers, predictionResistant);
+    }
+
+    /**
+     * Build a SecureRandom based on a SP 800-90A CTR DRBG, taking the block ciphers for a pool from
+     * a factory rather than creating them from the class of an existing instance.
+     *
+     * @param cipherFactory source of the block ciphers to base the DRBGs on, one for each pool entry.
+     * @param keySizeInBits key size in bits to be used with the block cipher.
+     * @param nonce nonce value to use in DRBG construction.
+     * @param predictionResistant  specify whether the underlying DRBG in the resulting SecureRandom should reseed on each request for bytes.
+     * @return  a SecureRandom supported by a CTR DRBG.
+     */
+    public SP800SecureRandom buildCTR(BlockCipherFactory cipherFactory, int keySizeInBits, byte[] nonce, boolean predictionResistant)
+    {
+        DRBGProvider[] providers = new DRBGProvider[poolSize];
+
+        for (int i = 0; i < poolSize; i++)
+        {
+            providers[i] = new CTRDRBGProvider(cipherFactory.createBlockCipher(), keySizeInBits, nonce, getPersonalizationString(i), securityStrength);
+        }
+
+        return new SP800SecureRandom(random, getEntropySources(), providers, predictionResistant);
     }
 
     /**
@@ -139,7 +209,75 @@ public class SP800SecureRandomBuilder
      */
     public SP800SecureRandom buildHMAC(Mac hMac, byte[] nonce, boolean predictionResistant)
     {
-        return new SP800SecureRandom(random, entropySourceProvider.get(entropyBitsRequired), new HMacDRBGProvider(hMac, nonce, personalizationString, securityStrength), predictionResistant);
+        DRBGProvider[] providers = new DRBGProvider[poolSize];
+
+        providers[0] = new HMacDRBGProvider(hMac, nonce, getPersonalizationString(0), securityStrength);
+        for (int i = 1; i < poolSize; i++)
+        {
+            providers[i] = new HMacDRBGProvider(copyMac(hMac), nonce, getPersonalizationString(i), securityStrength);
+        }
+
+        return new SP800SecureRandom(random, getEntropySources(), providers, predictionResistant);
+    }
+
+    private EntropySource[] getEntropySources()
+    {
+        EntropySource[] sources = new EntropySource[poolSize];
+
+        for (int i = 0; i < poolSize; i++)
+        {
+            sources[i] = entropySourceProvider.get(entropyBitsRequired);
+        }
+
+        return sources;
+    }
+
+    private byte[] getPersonalizationString(int index)
+    {
+        if (poolSize == 1)
+        {
+            return personalizationString;
+        }
+
+        return Arrays.concatenate(personalizationString, Pack.intToBigEndian(index));
+    }
+
+    private static Digest copyDigest(Digest digest)
+    {
+        if (!(digest instanceof Memoable))
+        {
+            throw new IllegalArgumentException("digest " + digest.getAlgorithmName() + " must implement Memoable to be pooled");
+        }
+
+        return (Digest)((Memoable)digest).copy();
+    }
+
+    private static Mac copyMac(Mac mac)
+    {
+        if (!(mac instanceof HMac))
+        {
+            throw new IllegalArgumentException("only HMac can be pooled");
+        }
+
+        return new HMac(copyDigest(((HMac)mac).getUnderlyingDigest()));
+    }
+
+    private static BlockCipher copyCipher(BlockCipher cipher)
+    {
+        try
+        {
+            return (BlockCipher)cipher.getClass().getConstructor().newInstance();
+        }
+        catch (NoSuchMethodException e)
+        {
+            throw new IllegalArgumentException("cipher " + cipher.getClass().getName()
+                + " has no public no-argument constructor, use buildCTR() with a BlockCipherFactory to pool it");
+        }
+        catch (Exception e)
+        {
+            throw new IllegalArgumentException("cipher " + cipher.getClass().getName()
+                + " cannot be created to be pooled: " + e.getMessage());
+        }
     }
 
     private static class HashDRBGProvider
@@ -5,7 +5,11 @@ package ru.mipt.cybersecurity.crypto.prng;
  * <p>
  * Based on an idea from Marcus Lippert.
  * </p>
+ * @deprecated the generator busy-spins a thread and sleeps between samples, and has no health
+ * testing - use DeviceEntropySourceProvider or JitterEntropySourceProvider, optionally combined
+ * with MixingEntropySourceProvider and PrecollectingEntropySourceProvider.
  */
+@Deprecated
 public class ThreadedSeedGenerator
 {
     private class SeedGenerator
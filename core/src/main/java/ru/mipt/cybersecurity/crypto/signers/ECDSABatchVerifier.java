@@ -0,0 +1,481 @@
+package ru.mipt.cybersecurity.crypto.signers;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import ru.mipt.cybersecurity.crypto.params.ECDomainParameters;
+import ru.mipt.cybersecurity.crypto.params.ECPublicKeyParameters;
+import ru.mipt.cybersecurity.math.ec.ECAlgorithms;
+import ru.mipt.cybersecurity.math.ec.ECConstants;
+import ru.mipt.cybersecurity.math.ec.ECCurve;
+import ru.mipt.cybersecurity.math.ec.ECFieldElement;
+import ru.mipt.cybersecurity.math.ec.ECPoint;
+import ru.mipt.cybersecurity.math.ec.WNafUtil;
+import ru.mipt.cybersecurity.util.BigIntegers;
+import ru.mipt.cybersecurity.util.Integers;
+
+/**
+ * Verifier for a batch of ECDSA signatures, checking groups of signatures together with a single
+ * randomised multi-scalar multiplication rather than one double multiplication per signature.
+ * <p>
+ * For signatures (r_i, s_i) on messages e_i under keys Q_i the check is that
+ * <pre>
+ *     (sum b_i e_i / s_i) G + sum (b_i r_i / s_i) Q_i = sum +/-b_i R_i
+ * </pre>
+ * for b_0 = 1 and random 128 bit b_i otherwise, where R_i is the point with x coordinate r_i. The G
+ * terms collapse into a single scalar, as do the terms for signatures under the same key, and the
+ * inversions of the s_i are done together. An ECDSA signature only gives R_i up to its sign, so the
+ * signs are searched for, at the cost of an addition and a comparison of x coordinates for each
+ * combination, which limits a group to a handful of signatures.
+ * </p>
+ * <p>
+ * If a group fails its signatures are verified one at a time with an {@link ECDSASigner}, so a bad
+ * signature is located without rejecting its neighbours. Signatures that cannot be batched - on
+ * binary curves or curves with a cofactor, or where r_i does not determine the x coordinate of R_i -
+ * are also verified individually.
+ * </p>
+ */
+public class ECDSABatchVerifier
+    implements ECConstants
+{
+    private static final int GROUP_SIZE = 8;
+    private static final int RANDOMIZER_BITS = 128;
+    private static final int RANDOMIZER_WINDOW = 4;
+
+    private final SecureRandom random;
+    private final List items = new ArrayList();
+
+    /**
+     * Base constructor, the randomisers are drawn from a default SecureRandom.
+     */
+    public ECDSABatchVerifier()
+    {
+        this(new SecureRandom());
+    }
+
+    /**
+     * Constructor specifying the source of the randomisers.
+     *
+     * @param random the source of randomness for the batch check.
+     */
+    public ECDSABatchVerifier(SecureRandom random)
+    {
+        this.random = random;
+    }
+
+    /**
+     * Add a signature to the batch.
+     *
+     * @param key the public key to verify against.
+     * @param message the message digest, as passed to {@link ECDSASigner#verifySignature(byte[], BigInteger, BigInteger)}.
+     * @param r the r value of the signature.
+     * @param s the s value of the signature.
+     * @return the index of the signature in the results of {@link #verifyEach()}.
+     */
+    public int add(ECPublicKeyParameters key, byte[] message, BigInteger r, BigInteger s)
+    {
+        items.add(new Item(key, message, r, s));
+
+        return items.size() - 1;
+    }
+
+    /**
+     * Return the number of signatures in the batch.
+     *
+     * @return the batch size.
+     */
+    public int size()
+    {
+        return items.size();
+    }
+
+    /**
+     * Remove all the signatures from the batch.
+     */
+    public void reset()
+    {
+        items.clear();
+    }
+
+    /**
+     * Verify the whole batch.
+     *
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public boolean verify()
+    {
+        boolean[] results = verifyEach();
+
+        for (int i = 0; i != results.length; i++)
+        {
+            if (!results[i])
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Verify the batch, reporting on each signature.
+     *
+     * @return an array with an entry for each signature, in the order they were added, true if it is valid.
+     */
+    public boolean[] verifyEach()
+    {
+        boolean[] results = new boolean[items.size()];
+        Map groups = new HashMap();
+
+        for (int i = 0; i != results.length; i++)
+        {
+            Item item = (Item)items.get(i);
+            ECDomainParameters ec = item.key.getParameters();
+            BigInteger n = ec.getN();
+
+            // r and s in the range [1,n-1]
+            if (item.r.compareTo(ONE) < 0 || item.r.compareTo(n) >= 0
+                || item.s.compareTo(ONE) < 0 || item.s.compareTo(n) >= 0)
+            {
+                continue;
+            }
+
+            if (!isBatchable(ec))
+            {
+                results[i] = verifySingle(item);
+                continue;
+            }
+
+            ECCurve curve = ec.getCurve();
+
+            // another x coordinate could also reduce to r, leave it to the full check
+            if (curve.isValidFieldElement(item.r.add(n)))
+            {
+                results[i] = verifySingle(item);
+                continue;
+            }
+
+            try
+            {
+                item.R = curve.decodePoint(encodeX(curve, item.r));
+            }
+            catch (IllegalArgumentException e)
+            {
+                // no point has x coordinate r
+                continue;
+            }
+
+            List group = (List)groups.get(ec);
+            if (group == null)
+            {
+                group = new ArrayList();
+                groups.put(ec, group);
+            }
+            group.add(Integers.valueOf(i));
+
+            if (group.size() == GROUP_SIZE)
+            {
+                verifyGroup(ec, group, results);
+                group.clear();
+            }
+        }
+
+        for (Iterator it = groups.entrySet().iterator(); it.hasNext();)
+        {
+            Map.Entry entry = (Map.Entry)it.next();
+            List group = (List)entry.getValue();
+
+            if (!group.isEmpty())
+            {
+                verifyGroup((ECDomainParameters)entry.getKey(), group, results);
+            }
+        }
+
+        for (int i = 0; i != results.length; i++)
+        {
+            ((Item)items.get(i)).R = null;
+        }
+
+        return results;
+    }
+
+    private void verifyGroup(ECDomainParameters ec, List group, boolean[] results)
+    {
+        int count = group.size();
+        Item[] batch = new Item[count];
+        for (int i = 0; i != count; i++)
+        {
+            batch[i] = (Item)items.get(((Integer)group.get(i)).intValue());
+        }
+
+        boolean valid = count > 1 && checkGroup(ec, batch);
+
+        for (int i = 0; i != count; i++)
+        {
+            int index = ((Integer)group.get(i)).intValue();
+
+            results[index] = valid || verifySingle(batch[i]);
+        }
+    }
+
+    private boolean checkGroup(ECDomainParameters ec, Item[] batch)
+    {
+        BigInteger n = ec.getN();
+        ECCurve curve = ec.getCurve();
+        int count = batch.length;
+
+        BigInteger[] w = new BigInteger[count];
+        for (int i = 0; i != count; i++)
+        {
+            w[i] = batch[i].s;
+        }
+        invertAll(w, n);
+
+        List points = new ArrayList();
+        List scalars = new ArrayList();
+        points.add(ec.getG());
+        scalars.add(ZERO);
+
+        ECPoint[] bR = new ECPoint[count];
+
+        for (int i = 0; i != count; i++)
+        {
+            Item item = batch[i];
+            BigInteger b = (i == 0) ? ONE : nextRandomizer();
+            BigInteger e = calculateE(n, item.message);
+
+            BigInteger u1 = e.multiply(w[i]).multiply(b);
+            BigInteger u2 = item.r.multiply(w[i]).multiply(b);
+
+            scalars.set(0, ((BigInteger)scalars.get(0)).add(u1).mod(n));
+
+            ECPoint Q = ECAlgorithms.importPoint(curve, item.key.getQ());
+            int pos = points.indexOf(Q);
+            if (pos < 0)
+            {
+                points.add(Q);
+                scalars.add(u2.mod(n));
+            }
+            else
+            {
+                scalars.set(pos, ((BigInteger)scalars.get(pos)).add(u2).mod(n));
+            }
+
+            bR[i] = (i == 0) ? item.R : multiplyRandomizer(item.R, b);
+        }
+
+        ECPoint U = ECAlgorithms.sumOfMultiplies(
+            (ECPoint[])points.toArray(new ECPoint[points.size()]),
+            (BigInteger[])scalars.toArray(new BigInteger[scalars.size()])).normalize();
+
+        if (U.isInfinity())
+        {
+            return false;
+        }
+
+        /*
+         * Search the signs of the R_i in Gray code order. Comparing x coordinates matches both U and
+         * -U, which covers the sign of the first.
+         */
+        ECFieldElement Ux = U.getAffineXCoord();
+        ECPoint[] flip = new ECPoint[count];
+        boolean[] negated = new boolean[count];
+        ECPoint S = bR[0];
+        for (int i = 1; i != count; i++)
+        {
+            S = S.add(bR[i]);
+            flip[i] = bR[i].twice();
+        }
+
+        int patterns = 1 << (count - 1);
+        for (int k = 1; ; k++)
+        {
+            if (hasXCoord(S, Ux))
+            {
+                return true;
+            }
+            if (k == patterns)
+            {
+                return false;
+            }
+
+            int j = 1 + numberOfTrailingZeros(k);
+            S = negated[j] ? S.add(flip[j]) : S.subtract(flip[j]);
+            negated[j] = !negated[j];
+        }
+    }
+
+    /**
+     * Multiply p by a short randomiser. The general multipliers normalize their precomputation, keep
+     * it on the point and validate the result, none of which pays for a point used once.
+     */
+    private static ECPoint multiplyRandomizer(ECPoint p, BigInteger b)
+    {
+        byte[] wnaf = WNafUtil.generateWindowNaf(RANDOMIZER_WINDOW, b);
+
+        // odd multiples P, 3P, 5P, ...
+        ECPoint[] table = new ECPoint[1 << (RANDOMIZER_WINDOW - 2)];
+        ECPoint twiceP = p.twice();
+        table[0] = p;
+        for (int i = 1; i < table.length; i++)
+        {
+            table[i] = table[i - 1].add(twiceP);
+        }
+
+        ECPoint R = p.getCurve().getInfinity();
+        int zeros = 0;
+
+        for (int i = wnaf.length - 1; i >= 0; --i)
+        {
+            int digit = wnaf[i];
+            if (digit == 0)
+            {
+                ++zeros;
+                continue;
+            }
+
+            ECPoint T = table[Math.abs(digit) >>> 1];
+            if (digit < 0)
+            {
+                T = T.negate();
+            }
+
+            R = R.timesPow2(zeros).twicePlus(T);
+            zeros = 0;
+        }
+
+        return R.timesPow2(zeros);
+    }
+
+    /**
+     * Check whether the affine x coordinate of p is x, without normalizing p.
+     */
+    private static boolean hasXCoord(ECPoint p, ECFieldElement x)
+    {
+        if (p.isInfinity())
+        {
+            return false;
+        }
+
+        switch (p.getCurve().getCoordinateSystem())
+        {
+        case ECCurve.COORD_HOMOGENEOUS:
+            return x.multiply(p.getZCoord(0)).equals(p.getXCoord());
+        case ECCurve.COORD_JACOBIAN:
+        case ECCurve.COORD_JACOBIAN_CHUDNOVSKY:
+        case ECCurve.COORD_JACOBIAN_MODIFIED:
+            return x.multiply(p.getZCoord(0).square()).equals(p.getXCoord());
+        default:
+            return x.equals(p.normalize().getXCoord());
+        }
+    }
+
+    private boolean verifySingle(Item item)
+    {
+        ECDSASigner signer = new ECDSASigner();
+
+        signer.init(false, item.key);
+
+        return signer.verifySignature(item.message, item.r, item.s);
+    }
+
+    private BigInteger nextRandomizer()
+    {
+        BigInteger b;
+        do
+        {
+            b = new BigInteger(RANDOMIZER_BITS, random);
+        }
+        while (b.signum() == 0);
+
+        return b;
+    }
+
+    private static boolean isBatchable(ECDomainParameters ec)
+    {
+        return ECAlgorithms.isFpCurve(ec.getCurve()) && ONE.equals(ec.getH());
+    }
+
+    private static byte[] encodeX(ECCurve curve, BigInteger x)
+    {
+        int len = (curve.getFieldSize() + 7) / 8;
+        byte[] encoding = new byte[1 + len];
+
+        encoding[0] = 0x02;
+        System.arraycopy(BigIntegers.asUnsignedByteArray(len, x), 0, encoding, 1, len);
+
+        return encoding;
+    }
+
+    /**
+     * Invert all the values modulo n in place, with a single modular inversion.
+     */
+    private static void invertAll(BigInteger[] values, BigInteger n)
+    {
+        int count = values.length;
+        BigInteger[] prefix = new BigInteger[count];
+
+        prefix[0] = values[0];
+        for (int i = 1; i != count; i++)
+        {
+            prefix[i] = prefix[i - 1].multiply(values[i]).mod(n);
+        }
+
+        BigInteger inv = prefix[count - 1].modInverse(n);
+        for (int i = count - 1; i > 0; i--)
+        {
+            BigInteger value = values[i];
+            values[i] = inv.multiply(prefix[i - 1]).mod(n);
+            inv = inv.multiply(value).mod(n);
+        }
+        values[0] = inv;
+    }
+
+    // as ECDSASigner.calculateE()
+    private static BigInteger calculateE(BigInteger n, byte[] message)
+    {
+        int log2n = n.bitLength();
+        int messageBitLength = message.length * 8;
+
+        BigInteger e = new BigInteger(1, message);
+        if (log2n < messageBitLength)
+        {
+            e = e.shiftRight(messageBitLength - log2n);
+        }
+        return e;
+    }
+
+    private static int numberOfTrailingZeros(int k)
+    {
+        int count = 0;
+        while ((k & 1) == 0)
+        {
+            k >>>= 1;
+            count++;
+        }
+        return count;
+    }
+
+    private static class Item
+    {
+        final ECPublicKeyParameters key;
+        final byte[] message;
+        final BigInteger r;
+        final BigInteger s;
+
+        ECPoint R;
+
+        Item(ECPublicKeyParameters key, byte[] message, BigInteger r, BigInteger s)
+        {
+            this.key = key;
+            this.message = message;
+            this.r = r;
+            this.s = s;
+        }
+    }
+}
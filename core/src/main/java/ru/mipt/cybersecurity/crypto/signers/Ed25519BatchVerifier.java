@@ -0,0 +1,168 @@
+package ru.mipt.cybersecurity.crypto.signers;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+
+import ru.mipt.cybersecurity.crypto.params.Ed25519PublicKeyParameters;
+import ru.mipt.cybersecurity.math.ec.rfc8032.Ed25519;
+
+/**
+ * Verifier for a batch of Ed25519 signatures, checking them together with a single randomised
+ * multi-scalar multiplication (see {@link Ed25519#verifyBatch(byte[][], byte[][], byte[][], int, SecureRandom)}).
+ * <p>
+ * Unlike ECDSA, an Ed25519 signature carries its R point in full, so a batch of any size can be
+ * checked at once. If the check fails the batch is split in half and each half checked again,
+ * which locates a few bad signatures in a large batch without verifying every signature on its own.
+ * Verification is cofactored, so a signature is accepted here exactly when {@link Ed25519Signer}
+ * accepts it.
+ * </p>
+ */
+public class Ed25519BatchVerifier
+{
+    private static final int MIN_BATCH_SIZE = 4;
+
+    private final SecureRandom random;
+    private final List items = new ArrayList();
+
+    /**
+     * Base constructor, the randomisers are drawn from a default SecureRandom.
+     */
+    public Ed25519BatchVerifier()
+    {
+        this(new SecureRandom());
+    }
+
+    /**
+     * Constructor specifying the source of the randomisers.
+     *
+     * @param random the source of randomness for the batch check.
+     */
+    public Ed25519BatchVerifier(SecureRandom random)
+    {
+        this.random = random;
+    }
+
+    /**
+     * Add a signature to the batch.
+     *
+     * @param key the public key to verify against.
+     * @param message the signed message.
+     * @param signature the 64 byte signature.
+     * @return the index of the signature in the results of {@link #verifyEach()}.
+     */
+    public int add(Ed25519PublicKeyParameters key, byte[] message, byte[] signature)
+    {
+        items.add(new Item(key.getEncoded(), message, signature));
+
+        return items.size() - 1;
+    }
+
+    /**
+     * Return the number of signatures in the batch.
+     *
+     * @return the batch size.
+     */
+    public int size()
+    {
+        return items.size();
+    }
+
+    /**
+     * Remove all the signatures from the batch.
+     */
+    public void reset()
+    {
+        items.clear();
+    }
+
+    /**
+     * Verify the whole batch. An empty batch has no invalid signatures, so it verifies.
+     *
+     * @return true if every signature in the batch is valid, false otherwise.
+     */
+    public boolean verify()
+    {
+        if (items.isEmpty())
+        {
+            return true;
+        }
+
+        return verifyRange(0, items.size());
+    }
+
+    /**
+     * Verify the batch, reporting on each signature.
+     *
+     * @return an array with an entry for each signature, in the order they were added, true if it is valid.
+     */
+    public boolean[] verifyEach()
+    {
+        boolean[] results = new boolean[items.size()];
+
+        verifyEach(0, results.length, results);
+
+        return results;
+    }
+
+    private void verifyEach(int from, int to, boolean[] results)
+    {
+        if (to - from < MIN_BATCH_SIZE)
+        {
+            for (int i = from; i < to; i++)
+            {
+                Item item = (Item)items.get(i);
+
+                results[i] = item.signature.length == Ed25519.SIGNATURE_SIZE
+                    && Ed25519.verify(item.signature, 0, item.key, 0, item.message, 0, item.message.length);
+            }
+            return;
+        }
+
+        if (verifyRange(from, to))
+        {
+            for (int i = from; i < to; i++)
+            {
+                results[i] = true;
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        verifyEach(from, mid, results);
+        verifyEach(mid, to, results);
+    }
+
+    private boolean verifyRange(int from, int to)
+    {
+        int count = to - from;
+        byte[][] sigs = new byte[count][];
+        byte[][] keys = new byte[count][];
+        byte[][] messages = new byte[count][];
+
+        for (int i = 0; i != count; i++)
+        {
+            Item item = (Item)items.get(from + i);
+
+            sigs[i] = item.signature;
+            keys[i] = item.key;
+            messages[i] = item.message;
+        }
+
+        return Ed25519.verifyBatch(sigs, keys, messages, count, random);
+    }
+
+    private static class Item
+    {
+        final byte[] key;
+        final byte[] message;
+        final byte[] signature;
+
+        Item(byte[] key, byte[] message, byte[] signature)
+        {
+            this.key = key;
+            this.message = message;
+            this.signature = signature;
+        }
+    }
+}
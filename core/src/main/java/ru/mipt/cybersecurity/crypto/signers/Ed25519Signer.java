@@ -0,0 +1,108 @@
+package ru.mipt.cybersecurity.crypto.signers;
+
+import java.io.ByteArrayOutputStream;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.Signer;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PublicKeyParameters;
+import ru.mipt.cybersecurity.math.ec.rfc8032.Ed25519;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Ed25519 signer, as described in RFC 8032. The message is hashed twice when signing, so it is
+ * buffered until the signature is generated or verified.
+ */
+public class Ed25519Signer
+    implements Signer
+{
+    private final Buffer buffer = new Buffer();
+
+    private boolean forSigning;
+    private Ed25519PrivateKeyParameters privateKey;
+    private Ed25519PublicKeyParameters publicKey;
+
+    public void init(boolean forSigning, CipherParameters parameters)
+    {
+        this.forSigning = forSigning;
+
+        if (forSigning)
+        {
+            this.privateKey = (Ed25519PrivateKeyParameters)parameters;
+            this.publicKey = null;
+        }
+        else
+        {
+            this.privateKey = null;
+            this.publicKey = (Ed25519PublicKeyParameters)parameters;
+        }
+
+        reset();
+    }
+
+    public void update(byte b)
+    {
+        buffer.write(b);
+    }
+
+    public void update(byte[] buf, int off, int len)
+    {
+        buffer.write(buf, off, len);
+    }
+
+    public byte[] generateSignature()
+    {
+        if (!forSigning || privateKey == null)
+        {
+            throw new IllegalStateException("Ed25519Signer not initialised for signature generation.");
+        }
+
+        return buffer.generateSignature(privateKey);
+    }
+
+    public boolean verifySignature(byte[] signature)
+    {
+        if (forSigning || publicKey == null)
+        {
+            throw new IllegalStateException("Ed25519Signer not initialised for signature verification.");
+        }
+
+        return buffer.verifySignature(publicKey, signature);
+    }
+
+    public void reset()
+    {
+        buffer.reset();
+    }
+
+    private static class Buffer
+        extends ByteArrayOutputStream
+    {
+        synchronized byte[] generateSignature(Ed25519PrivateKeyParameters privateKey)
+        {
+            byte[] signature = new byte[Ed25519PrivateKeyParameters.SIGNATURE_SIZE];
+            privateKey.sign(buf, 0, count, signature, 0);
+            reset();
+            return signature;
+        }
+
+        synchronized boolean verifySignature(Ed25519PublicKeyParameters publicKey, byte[] signature)
+        {
+            if (Ed25519.SIGNATURE_SIZE != signature.length)
+            {
+                reset();
+                return false;
+            }
+
+            boolean result = publicKey.verify(buf, 0, count, signature, 0);
+            reset();
+            return result;
+        }
+
+        public synchronized void reset()
+        {
+            Arrays.fill(buf, (byte)0);
+            this.count = 0;
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package ru.mipt.cybersecurity.crypto.util;
+
+import ru.mipt.cybersecurity.crypto.params.Argon2Parameters;
+
+/**
+ * Configuration class for a PBKDF based around Argon2.
+ * <p>
+ * No object identifier has been assigned to Argon2 (RFC 9106), so {@link #getAlgorithm()} returns
+ * null and the configuration cannot be used where the PBKDF has to be written out in ASN.1.
+ * </p>
+ */
+public class Argon2Config
+    extends PBKDFConfig
+{
+    public static class Builder
+    {
+        private final int type;
+        private final int iterations;
+        private final int memory;
+        private final int parallelism;
+
+        private int saltLength = 16;
+
+        /**
+         * Base constructor.
+         *
+         * @param type the Argon2 type, one of Argon2Parameters.ARGON2_d, ARGON2_i or ARGON2_id.
+         * @param iterations the number of passes over the memory
+         * @param memory memory size in kibibytes
+         * @param parallelism number of lanes
+         */
+        public Builder(int type, int iterations, int memory, int parallelism)
+        {
+            if (type != Argon2Parameters.ARGON2_d && type != Argon2Parameters.ARGON2_i && type != Argon2Parameters.ARGON2_id)
+            {
+                throw new IllegalArgumentException("unknown Argon2 type: " + type);
+            }
+            if (iterations < 1)
+            {
+                throw new IllegalArgumentException("iterations must be at least 1");
+            }
+            if (parallelism < 1 || memory < 8 * parallelism)
+            {
+                throw new IllegalArgumentException("memory must be at least 8 times the parallelism, in kibibytes");
+            }
+
+            this.type = type;
+            this.iterations = iterations;
+            this.memory = memory;
+            this.parallelism = parallelism;
+        }
+
+        /**
+         * Set the length of the salt to use.
+         *
+         * @param saltLength the length of the salt (in octets) to use.
+         * @return the current builder.
+         */
+        public Builder withSaltLength(int saltLength)
+        {
+            this.saltLength = saltLength;
+
+            return this;
+        }
+
+        public Argon2Config build()
+        {
+            return new Argon2Config(this);
+        }
+    }
+
+    private final int type;
+    private final int iterations;
+    private final int memory;
+    private final int parallelism;
+    private final int saltLength;
+
+    private Argon2Config(Builder builder)
+    {
+        super(null);
+
+        this.type = builder.type;
+        this.iterations = builder.iterations;
+        this.memory = builder.memory;
+        this.parallelism = builder.parallelism;
+        this.saltLength = builder.saltLength;
+    }
+
+    public int getType()
+    {
+        return type;
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    public int getMemory()
+    {
+        return memory;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    public int getSaltLength()
+    {
+        return saltLength;
+    }
+}
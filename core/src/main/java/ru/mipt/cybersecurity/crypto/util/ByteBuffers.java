@@ -0,0 +1,446 @@
+package ru.mipt.cybersecurity.crypto.util;
+
+import java.nio.ByteBuffer;
+
+import ru.mipt.cybersecurity.crypto.BufferedBlockCipher;
+import ru.mipt.cybersecurity.crypto.ByteBufferStreamCipher;
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.StreamCipher;
+import ru.mipt.cybersecurity.crypto.modes.AEADCipher;
+import ru.mipt.cybersecurity.crypto.modes.ByteBufferAEADCipher;
+
+/**
+ * Utility methods for driving ciphers, digests and MACs directly from {@link ByteBuffer} objects.
+ * <p>
+ * Input is always consumed from the buffer's position to its limit and output is written from the output
+ * buffer's position, with both positions advanced past the bytes used. Buffers backed by an accessible array
+ * are passed straight to the underlying byte[] methods, so no copying takes place.
+ * </p>
+ * <p>
+ * Stream ciphers implementing {@link ByteBufferStreamCipher} (the Salsa20 and ChaCha engines) and AEAD ciphers
+ * implementing {@link ByteBufferAEADCipher} (ChaCha20-Poly1305) work on direct buffers in place. Anything else
+ * only has byte[] methods, so direct and read-only buffers are copied through a small bounded heap chunk on the
+ * way in and again on the way out - this bounds the memory used but is not zero-copy.
+ * </p>
+ * <p>
+ * The input and output may share memory. Stream ciphers, and AEAD ciphers implementing
+ * {@link ByteBufferAEADCipher}, never write past the input they have read, so on every call the output may start
+ * at, or before, the input. Block ciphers and other AEAD ciphers hold data back, a block or the tag, and release
+ * it on a later call ahead of the new input - a call can produce more output than it was given. For these, the
+ * output must trail the input by what is held back: start both at the same place and advance each by the bytes
+ * consumed and produced, as a single buffer decrypted in place does.
+ * </p>
+ */
+public class ByteBuffers
+{
+    private static final int CHUNK_SIZE = 4096;
+
+    private ByteBuffers()
+    {
+    }
+
+    /**
+     * Process the remaining bytes in in through a buffered block cipher, writing any output produced to out.
+     *
+     * @param cipher the buffered block cipher to use.
+     * @param in the buffer containing the input data.
+     * @param out the buffer any output is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     */
+    public static int processBytes(final BufferedBlockCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        return process(new Processor()
+        {
+            public int getUpdateOutputSize(int len)
+            {
+                return cipher.getUpdateOutputSize(len);
+            }
+
+            public int process(byte[] in, int inOff, int len, byte[] out, int outOff)
+            {
+                return cipher.processBytes(in, inOff, len, out, outOff);
+            }
+        }, in, out);
+    }
+
+    /**
+     * Finish the operation of a buffered block cipher, writing the last of the output to out.
+     *
+     * @param cipher the buffered block cipher to use.
+     * @param out the buffer the output is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     * @exception InvalidCipherTextException if padding is expected and not found.
+     */
+    public static int doFinal(final BufferedBlockCipher cipher, ByteBuffer out)
+        throws DataLengthException, InvalidCipherTextException
+    {
+        return finish(new Finisher()
+        {
+            public int getOutputSize()
+            {
+                return cipher.getOutputSize(0);
+            }
+
+            public int doFinal(byte[] out, int outOff)
+                throws InvalidCipherTextException
+            {
+                return cipher.doFinal(out, outOff);
+            }
+        }, out);
+    }
+
+    /**
+     * Process the remaining bytes in in through a stream cipher, writing the output to out.
+     *
+     * @param cipher the stream cipher to use.
+     * @param in the buffer containing the input data.
+     * @param out the buffer the output is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     */
+    public static int processBytes(final StreamCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (cipher instanceof ByteBufferStreamCipher)
+        {
+            return ((ByteBufferStreamCipher)cipher).processBytes(in, out);
+        }
+
+        return process(new Processor()
+        {
+            public int getUpdateOutputSize(int len)
+            {
+                return len;
+            }
+
+            public int process(byte[] in, int inOff, int len, byte[] out, int outOff)
+            {
+                return cipher.processBytes(in, inOff, len, out, outOff);
+            }
+        }, in, out);
+    }
+
+    /**
+     * Add the remaining bytes in aad to the associated data of an AEAD cipher.
+     *
+     * @param cipher the AEAD cipher to use.
+     * @param aad the buffer containing the associated data.
+     */
+    public static void processAADBytes(final AEADCipher cipher, ByteBuffer aad)
+    {
+        if (cipher instanceof ByteBufferAEADCipher)
+        {
+            ((ByteBufferAEADCipher)cipher).processAADBytes(aad);
+            return;
+        }
+
+        consume(new Consumer()
+        {
+            public void consume(byte[] in, int inOff, int len)
+            {
+                cipher.processAADBytes(in, inOff, len);
+            }
+        }, aad);
+    }
+
+    /**
+     * Process the remaining bytes in in through an AEAD cipher, writing any output produced to out.
+     *
+     * @param cipher the AEAD cipher to use.
+     * @param in the buffer containing the input data.
+     * @param out the buffer any output is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     */
+    public static int processBytes(final AEADCipher cipher, ByteBuffer in, ByteBuffer out)
+        throws DataLengthException
+    {
+        if (cipher instanceof ByteBufferAEADCipher)
+        {
+            return ((ByteBufferAEADCipher)cipher).processBytes(in, out);
+        }
+
+        return process(new Processor()
+        {
+            public int getUpdateOutputSize(int len)
+            {
+                return cipher.getUpdateOutputSize(len);
+            }
+
+            public int process(byte[] in, int inOff, int len, byte[] out, int outOff)
+            {
+                return cipher.processBytes(in, inOff, len, out, outOff);
+            }
+        }, in, out);
+    }
+
+    /**
+     * Finish the operation of an AEAD cipher, writing the last of the output (and the MAC when encrypting) to out.
+     *
+     * @param cipher the AEAD cipher to use.
+     * @param out the buffer the output is written to.
+     * @return the number of bytes written to out.
+     * @exception DataLengthException if there isn't enough space in out.
+     * @exception InvalidCipherTextException if the MAC fails to match.
+     */
+    public static int doFinal(final AEADCipher cipher, ByteBuffer out)
+        throws DataLengthException, InvalidCipherTextException
+    {
+        if (cipher instanceof ByteBufferAEADCipher)
+        {
+            return ((ByteBufferAEADCipher)cipher).doFinal(out);
+        }
+
+        return finish(new Finisher()
+        {
+            public int getOutputSize()
+            {
+                return cipher.getOutputSize(0);
+            }
+
+            public int doFinal(byte[] out, int outOff)
+                throws InvalidCipherTextException
+            {
+                return cipher.doFinal(out, outOff);
+            }
+        }, out);
+    }
+
+    /**
+     * Add the remaining bytes in in to a digest.
+     *
+     * @param digest the digest to update.
+     * @param in the buffer containing the input data.
+     */
+    public static void update(final Digest digest, ByteBuffer in)
+    {
+        consume(new Consumer()
+        {
+            public void consume(byte[] in, int inOff, int len)
+            {
+                digest.update(in, inOff, len);
+            }
+        }, in);
+    }
+
+    /**
+     * Close a digest, writing the result to out.
+     *
+     * @param digest the digest to finish.
+     * @param out the buffer the digest value is written to.
+     * @return the number of bytes written to out.
+     */
+    public static int doFinal(Digest digest, ByteBuffer out)
+    {
+        checkOutput(out, digest.getDigestSize());
+
+        if (out.hasArray())
+        {
+            int len = digest.doFinal(out.array(), out.arrayOffset() + out.position());
+
+            out.position(out.position() + len);
+
+            return len;
+        }
+
+        byte[] tmp = new byte[digest.getDigestSize()];
+        int len = digest.doFinal(tmp, 0);
+
+        out.put(tmp, 0, len);
+
+        return len;
+    }
+
+    /**
+     * Add the remaining bytes in in to a MAC.
+     *
+     * @param mac the MAC to update.
+     * @param in the buffer containing the input data.
+     */
+    public static void update(final Mac mac, ByteBuffer in)
+    {
+        consume(new Consumer()
+        {
+            public void consume(byte[] in, int inOff, int len)
+            {
+                mac.update(in, inOff, len);
+            }
+        }, in);
+    }
+
+    /**
+     * Compute the final MAC value, writing the result to out.
+     *
+     * @param mac the MAC to finish.
+     * @param out the buffer the MAC value is written to.
+     * @return the number of bytes written to out.
+     */
+    public static int doFinal(Mac mac, ByteBuffer out)
+    {
+        checkOutput(out, mac.getMacSize());
+
+        if (out.hasArray())
+        {
+            int len = mac.doFinal(out.array(), out.arrayOffset() + out.position());
+
+            out.position(out.position() + len);
+
+            return len;
+        }
+
+        byte[] tmp = new byte[mac.getMacSize()];
+        int len = mac.doFinal(tmp, 0);
+
+        out.put(tmp, 0, len);
+
+        return len;
+    }
+
+    private static int finish(Finisher finisher, ByteBuffer out)
+        throws InvalidCipherTextException
+    {
+        int maxLen = finisher.getOutputSize();
+
+        if (out.hasArray() && out.remaining() >= maxLen)
+        {
+            int len = finisher.doFinal(out.array(), out.arrayOffset() + out.position());
+
+            out.position(out.position() + len);
+
+            return len;
+        }
+
+        // the output size is only an upper bound (padding for example), so the real length is checked
+        byte[] tmp = new byte[maxLen];
+        int len = finisher.doFinal(tmp, 0);
+
+        checkOutput(out, len);
+        out.put(tmp, 0, len);
+
+        return len;
+    }
+
+    private static void checkOutput(ByteBuffer out, int len)
+    {
+        if (out.remaining() < len)
+        {
+            throw new OutputLengthException("output buffer too short");
+        }
+    }
+
+    private static void consume(Consumer consumer, ByteBuffer in)
+    {
+        int len = in.remaining();
+
+        if (in.hasArray())
+        {
+            consumer.consume(in.array(), in.arrayOffset() + in.position(), len);
+            in.position(in.limit());
+            return;
+        }
+
+        byte[] chunk = new byte[Math.min(len, CHUNK_SIZE)];
+
+        while (len > 0)
+        {
+            int chunkLen = Math.min(len, chunk.length);
+
+            in.get(chunk, 0, chunkLen);
+            consumer.consume(chunk, 0, chunkLen);
+
+            len -= chunkLen;
+        }
+    }
+
+    private static int process(Processor processor, ByteBuffer in, ByteBuffer out)
+    {
+        int len = in.remaining();
+
+        checkOutput(out, processor.getUpdateOutputSize(len));
+
+        if (in.hasArray() && out.hasArray())
+        {
+            int outLen = processor.process(in.array(), in.arrayOffset() + in.position(), len,
+                out.array(), out.arrayOffset() + out.position());
+
+            in.position(in.limit());
+            out.position(out.position() + outLen);
+
+            return outLen;
+        }
+
+        byte[] inChunk = in.hasArray() ? null : new byte[Math.min(len, CHUNK_SIZE)];
+        byte[] outChunk = null;
+        int total = 0;
+
+        while (len > 0)
+        {
+            int chunkLen = Math.min(len, CHUNK_SIZE);
+            byte[] inBuf;
+            int inOff;
+
+            if (inChunk == null)
+            {
+                inBuf = in.array();
+                inOff = in.arrayOffset() + in.position();
+                in.position(in.position() + chunkLen);
+            }
+            else
+            {
+                in.get(inChunk, 0, chunkLen);
+                inBuf = inChunk;
+                inOff = 0;
+            }
+
+            int outLen;
+            if (out.hasArray())
+            {
+                outLen = processor.process(inBuf, inOff, chunkLen, out.array(), out.arrayOffset() + out.position());
+                out.position(out.position() + outLen);
+            }
+            else
+            {
+                int maxLen = processor.getUpdateOutputSize(chunkLen);
+                if (outChunk == null || outChunk.length < maxLen)
+                {
+                    outChunk = new byte[maxLen];
+                }
+
+                outLen = processor.process(inBuf, inOff, chunkLen, outChunk, 0);
+                out.put(outChunk, 0, outLen);
+            }
+
+            len -= chunkLen;
+            total += outLen;
+        }
+
+        return total;
+    }
+
+    private interface Consumer
+    {
+        void consume(byte[] in, int inOff, int len);
+    }
+
+    private interface Finisher
+    {
+        int getOutputSize();
+
+        int doFinal(byte[] out, int outOff)
+            throws InvalidCipherTextException;
+    }
+
+    private interface Processor
+    {
+        int getUpdateOutputSize(int len);
+
+        int process(byte[] in, int inOff, int len, byte[] out, int outOff);
+    }
+}
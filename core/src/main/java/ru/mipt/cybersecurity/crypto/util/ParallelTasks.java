@@ -0,0 +1,59 @@
+package ru.mipt.cybersecurity.crypto.util;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Runs the tasks of the parallel modes and digests, passing back any failure to the calling thread.
+ */
+public class ParallelTasks
+{
+    private ParallelTasks()
+    {
+
+    }
+
+    /**
+     * Run all the tasks on the executor, returning once they have all completed.
+     *
+     * @param executor the executor to run the tasks on.
+     * @param tasks the tasks to run.
+     * @exception IllegalStateException if interrupted, or a task fails with a checked exception.
+     */
+    public static <T> void invokeAll(ExecutorService executor, List<Callable<T>> tasks)
+    {
+        List<Future<T>> results;
+
+        try
+        {
+            results = executor.invokeAll(tasks);
+
+            for (int i = 0; i != results.size(); i++)
+            {
+                results.get(i).get();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("interrupted while waiting for parallel tasks");
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException)cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error)cause;
+            }
+            throw new IllegalStateException("parallel task failed: " + cause);
+        }
+    }
+}
@@ -6,9 +6,16 @@ import ru.mipt.cybersecurity.math.ec.endo.ECEndomorphism;
 import ru.mipt.cybersecurity.math.ec.endo.GLVEndomorphism;
 import ru.mipt.cybersecurity.math.field.FiniteField;
 import ru.mipt.cybersecurity.math.field.PolynomialExtensionField;
+import ru.mipt.cybersecurity.math.raw.Nat;
 
 public class ECAlgorithms
 {
+    /*
+     * The number of points from which sumOfMultiplies uses the bucket method rather than
+     * interleaved WNAF.
+     */
+    private static final int PIPPENGER_THRESHOLD = 64;
+
     public static boolean isF2mCurve(ECCurve c)
     {
         return isF2mField(c.getField());
@@ -64,6 +71,11 @@ public class ECAlgorithms
             return validatePoint(implSumOfMultipliesGLV(imported, ks, (GLVEndomorphism)endomorphism));
         }
 
+        if (count >= PIPPENGER_THRESHOLD)
+        {
+            return validatePoint(implSumOfMultipliesPippenger(imported, ks));
+        }
+
         return validatePoint(implSumOfMultiplies(imported, ks));
     }
 
@@ -390,7 +402,7 @@ public class ECAlgorithms
         }
 
         ECPointMap pointMap = glvEndomorphism.getPointMap();
-        if (glvEndomorphism.hasEfficientPointMap())
+        if (glvEndomorphism.hasEfficientPointMap() && (len << 1) < PIPPENGER_THRESHOLD)
         {
             return ECAlgorithms.implSumOfMultiplies(ps, pointMap, abs);
         }
@@ -402,7 +414,12 @@ public class ECAlgorithms
             pqs[j++] = p;
             pqs[j++] = q;
         }
-        
+
+        if (pqs.length >= PIPPENGER_THRESHOLD)
+        {
+            return ECAlgorithms.implSumOfMultipliesPippenger(pqs, abs);
+        }
+
         return ECAlgorithms.implSumOfMultiplies(pqs, abs);
 
     }
@@ -434,6 +451,127 @@ public class ECAlgorithms
         return implSumOfMultiplies(negs, infos, wnafs);
     }
 
+    /**
+     * Pippenger's bucket method. Each scalar is recoded into signed c-bit digits, and for each
+     * digit position the points are added into buckets by the absolute value of their digit, the
+     * buckets then being summed with a running total. The cost per point is about one addition
+     * per window, with no per-point precomputation, against 2^(c-1) bucket sums per window.
+     */
+    static ECPoint implSumOfMultipliesPippenger(ECPoint[] ps, BigInteger[] ks)
+    {
+        int count = ps.length;
+        ECCurve curve = ps[0].getCurve();
+
+        ECPoint[] points = new ECPoint[count];
+        BigInteger[] abs = new BigInteger[count];
+        int bits = 0;
+        for (int i = 0; i < count; ++i)
+        {
+            BigInteger ki = ks[i];
+            points[i] = ki.signum() < 0 ? ps[i].negate() : ps[i];
+            abs[i] = ki.abs();
+            bits = Math.max(bits, abs[i].bitLength());
+        }
+
+        if (bits == 0)
+        {
+            return curve.getInfinity();
+        }
+
+        // bucket additions are cheaper with affine points
+        curve.normalizeAll(points);
+
+        int c = getPippengerWindowSize(count, bits);
+        int windows = (bits + c) / c;
+        int[][] digits = new int[count][];
+        for (int i = 0; i < count; ++i)
+        {
+            digits[i] = generatePippengerDigits(c, windows, abs[i]);
+        }
+
+        ECPoint infinity = curve.getInfinity();
+        ECPoint[] buckets = new ECPoint[1 << (c - 1)];
+        ECPoint R = infinity;
+
+        for (int w = windows - 1; w >= 0; --w)
+        {
+            for (int i = 0; i < count; ++i)
+            {
+                int d = digits[i][w];
+                if (d != 0)
+                {
+                    ECPoint p = d < 0 ? points[i].negate() : points[i];
+                    int b = Math.abs(d) - 1;
+                    buckets[b] = buckets[b] == null ? p : buckets[b].add(p);
+                }
+            }
+
+            // sum of (b + 1) * buckets[b], as a sum of running totals
+            ECPoint sum = null, windowSum = infinity;
+            for (int b = buckets.length - 1; b >= 0; --b)
+            {
+                if (buckets[b] != null)
+                {
+                    sum = sum == null ? buckets[b] : sum.add(buckets[b]);
+                    buckets[b] = null;
+                }
+                if (sum != null)
+                {
+                    windowSum = windowSum.add(sum);
+                }
+            }
+
+            R = R.timesPow2(c).add(windowSum);
+        }
+
+        return R;
+    }
+
+    /*
+     * Choose the window minimising the additions, about count + 2^c per window.
+     */
+    private static int getPippengerWindowSize(int count, int bits)
+    {
+        int best = 2;
+        long bestCost = Long.MAX_VALUE;
+        for (int c = 2; c <= 16; ++c)
+        {
+            long cost = (long)((bits + c) / c) * (count + (1L << c));
+            if (cost < bestCost)
+            {
+                best = c;
+                bestCost = cost;
+            }
+        }
+        return best;
+    }
+
+    /*
+     * Recode k into signed c-bit digits in the range [-(2^(c-1) - 1), 2^(c-1)], least significant first.
+     */
+    private static int[] generatePippengerDigits(int c, int windows, BigInteger k)
+    {
+        int[] x = Nat.fromBigInteger(windows * c + 32, k);
+        int[] digits = new int[windows];
+        int half = 1 << (c - 1), mask = (1 << c) - 1, carry = 0;
+
+        for (int w = 0; w < windows; ++w)
+        {
+            int pos = w * c, word = pos >>> 5, shift = pos & 31;
+            int bitsAt = x[word] >>> shift;
+            if (shift + c > 32)
+            {
+                bitsAt |= x[word + 1] << (32 - shift);
+            }
+
+            int d = (bitsAt & mask) + carry;
+            carry = d > half ? 1 : 0;
+            digits[w] = d - (carry << c);
+        }
+
+        return digits;
+    }
+
     private static ECPoint implSumOfMultiplies(boolean[] negs, WNafPreCompInfo[] infos, byte[][] wnafs)
     {
         int len = 0, count = wnafs.length;
@@ -1,8 +1,10 @@
 package ru.mipt.cybersecurity.math.ec;
 
 import java.math.BigInteger;
-import java.util.Hashtable;
+import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import ru.mipt.cybersecurity.math.ec.endo.ECEndomorphism;
 import ru.mipt.cybersecurity.math.ec.endo.GLVEndomorphism;
@@ -37,12 +39,14 @@ public abstract class ECCurve
         protected int coord;
         protected ECEndomorphism endomorphism;
         protected ECMultiplier multiplier;
+        protected PreCompCache preCompCache;
 
-        Config(int coord, ECEndomorphism endomorphism, ECMultiplier multiplier)
+        Config(int coord, ECEndomorphism endomorphism, ECMultiplier multiplier, PreCompCache preCompCache)
         {
             this.coord = coord;
             this.endomorphism = endomorphism;
             this.multiplier = multiplier;
+            this.preCompCache = preCompCache;
         }
 
         public Config setCoordinateSystem(int coord)
@@ -63,6 +67,19 @@ public abstract class ECCurve
             return this;
         }
 
+        /**
+         * Share the precomputations for points on the new curve through a cache keyed by the point
+         * encoding, so that separately decoded copies of the same point only precompute once.
+         *
+         * @param preCompCache the cache to use, null for none.
+         * @return the current config.
+         */
+        public Config setPreCompCache(PreCompCache preCompCache)
+        {
+            this.preCompCache = preCompCache;
+            return this;
+        }
+
         public ECCurve create()
         {
             if (!supportsCoordinateSystem(coord))
@@ -82,6 +99,7 @@ public abstract class ECCurve
                 c.coord = coord;
                 c.endomorphism = endomorphism;
                 c.multiplier = multiplier;
+                c.preCompCache = preCompCache;
             }
 
             return c;
@@ -95,6 +113,10 @@ public abstract class ECCurve
     protected int coord = COORD_AFFINE;
     protected ECEndomorphism endomorphism = null;
     protected ECMultiplier multiplier = null;
+    protected PreCompCache preCompCache = null;
+
+    private static final AtomicReferenceFieldUpdater preCompTableUpdater =
+        AtomicReferenceFieldUpdater.newUpdater(ECPoint.class, Map.class, "preCompTable");
 
     protected ECCurve(FiniteField field)
     {
@@ -109,7 +131,7 @@ public abstract class ECCurve
 
     public synchronized Config configure()
     {
-        return new Config(this.coord, this.endomorphism, this.multiplier);
+        return new Config(this.coord, this.endomorphism, this.multiplier, this.preCompCache);
     }
 
     public ECPoint validatePoint(BigInteger x, BigInteger y)
@@ -171,20 +193,41 @@ public abstract class ECCurve
         return coord == COORD_AFFINE;
     }
 
+    /**
+     * Return the cache shared precomputations are kept in, if there is one.
+     *
+     * @return the curve's PreCompCache, null if there is none.
+     */
+    public PreCompCache getPreCompCache()
+    {
+        return preCompCache;
+    }
+
     public PreCompInfo getPreCompInfo(ECPoint point, String name)
     {
         checkPoint(point);
-        synchronized (point)
+
+        Map table = point.preCompTable;
+        PreCompInfo preCompInfo = (table == null) ? null : (PreCompInfo)table.get(name);
+
+        if (preCompInfo == null && preCompCache != null && isCacheable(point))
         {
-            Hashtable table = point.preCompTable;
-            return table == null ? null : (PreCompInfo)table.get(name);
+            preCompInfo = preCompCache.get(this, point.getEncoded(false), name);
+            if (preCompInfo != null)
+            {
+                getPreCompTable(point).put(name, preCompInfo);
+            }
         }
+
+        return preCompInfo;
     }
 
     /**
      * Adds <code>PreCompInfo</code> for a point on this curve, under a given name. Used by
      * <code>ECMultiplier</code>s to save the precomputation for this <code>ECPoint</code> for use
-     * by subsequent multiplication.
+     * by subsequent multiplication. A <code>PreCompInfo</code> should not be modified once it has
+     * been added, extending a precomputation means adding a new object. Adding the object the point
+     * already holds does nothing.
      * 
      * @param point
      *            The <code>ECPoint</code> to store precomputations for.
@@ -196,15 +239,35 @@ public abstract class ECCurve
     public void setPreCompInfo(ECPoint point, String name, PreCompInfo preCompInfo)
     {
         checkPoint(point);
-        synchronized (point)
+
+        if (getPreCompTable(point).put(name, preCompInfo) == preCompInfo)
         {
-            Hashtable table = point.preCompTable;
-            if (null == table)
-            {
-                point.preCompTable = table = new Hashtable(4);
-            }
-            table.put(name, preCompInfo);
+            return;
+        }
+
+        if (preCompCache != null && isCacheable(point))
+        {
+            preCompCache.put(this, point.getEncoded(false), name, preCompInfo);
+        }
+    }
+
+    private static Map getPreCompTable(ECPoint point)
+    {
+        Map table = point.preCompTable;
+        if (table == null)
+        {
+            preCompTableUpdater.compareAndSet(point, null, new ConcurrentHashMap(4));
+            table = point.preCompTable;
         }
+        return table;
+    }
+
+    /*
+     * Only normalized points go through the cache, so a lookup never costs a field inversion.
+     */
+    private static boolean isCacheable(ECPoint point)
+    {
+        return point.isNormalized() && !point.isInfinity();
     }
 
     public ECPoint importPoint(ECPoint p)
@@ -1,7 +1,7 @@
 package ru.mipt.cybersecurity.math.ec;
 
 import java.math.BigInteger;
-import java.util.Hashtable;
+import java.util.Map;
 
 /**
  * base class for points on elliptic curves.
@@ -48,8 +48,8 @@ public abstract class ECPoint
 
     protected boolean withCompression;
 
-    // Hashtable is (String -> PreCompInfo)
-    protected Hashtable preCompTable = null;
+    // Map is (String -> PreCompInfo), a ConcurrentHashMap installed on first use by ECCurve
+    protected volatile Map preCompTable = null;
 
     protected ECPoint(ECCurve curve, ECFieldElement x, ECFieldElement y)
     {
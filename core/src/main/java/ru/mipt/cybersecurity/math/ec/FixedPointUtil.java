@@ -37,9 +37,9 @@ public class FixedPointUtil
 
         int n = 1 << minWidth;
         FixedPointPreCompInfo info = getFixedPointPreCompInfo(c.getPreCompInfo(p, PRECOMP_NAME));
-        ECPoint[] lookupTable = info.getPreComp();
+        ECLookupTable existing = info.getLookupTable();
 
-        if (lookupTable == null || lookupTable.length < n)
+        if (existing == null || existing.getSize() < n)
         {
             int bits = getCombSize(c);
             int d = (bits + minWidth - 1) / minWidth;
@@ -56,7 +56,7 @@ public class FixedPointUtil
 
             c.normalizeAll(pow2Table);
 
-            lookupTable = new ECPoint[n];
+            ECPoint[] lookupTable = new ECPoint[n];
             lookupTable[0] = pow2Table[0];
 
             for (int bit = minWidth - 1; bit >= 0; --bit)
@@ -72,6 +72,8 @@ public class FixedPointUtil
 
             c.normalizeAll(lookupTable);
 
+            // a published precomputation may be shared, so the new one goes in a new object
+            info = new FixedPointPreCompInfo();
             info.setLookupTable(c.createCacheSafeLookupTable(lookupTable, 0, lookupTable.length));
             info.setOffset(pow2Table[minWidth]);
             info.setPreComp(lookupTable);
@@ -0,0 +1,278 @@
+package ru.mipt.cybersecurity.math.ec;
+
+import java.math.BigInteger;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * A bounded, least recently used cache of point precomputations, shared by all the points on a
+ * curve and keyed by the curve and the encoding of the point.
+ * <p>
+ * Precomputations are normally held by the <code>ECPoint</code> object they were calculated for,
+ * so a point decoded afresh from the same public key starts with nothing. A curve configured with
+ * a cache (see {@link ECCurve.Config#setPreCompCache(PreCompCache)}) also records the precomputations
+ * of normalized points here, and a new point with a matching encoding picks them up on its first
+ * multiplication. The cache is only consulted when a point has no precomputation of its own, and
+ * only written when a precomputation is created or extended, so repeated multiplications of a
+ * point already holding one use the point's own lock-free table and never take the cache's lock.
+ * </p>
+ * <p>
+ * The cache keeps its own copy of each precomputation and hands out a fresh copy on each hit, so
+ * points decoded separately never share a <code>PreCompInfo</code> object. Only the known
+ * precomputation types are cached.
+ * </p>
+ * <p>
+ * A cache may be given to more than one curve. Entries are keyed on the curve's field, coefficients,
+ * order and coordinate system as well as the point encoding, so a point only picks up precomputations
+ * made on an equivalent curve.
+ * </p>
+ * <p>
+ * The cache is limited both in the number of entries and in an estimate of the memory the cached
+ * points take up, the least recently used entries being discarded first.
+ * </p>
+ */
+public class PreCompCache
+{
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap entries = new LinkedHashMap(16, 0.75f, true);
+
+    private long bytes = 0;
+
+    /**
+     * Base constructor.
+     *
+     * @param maxEntries the maximum number of precomputations to hold.
+     * @param maxBytes the maximum estimated size, in bytes, of the precomputed points held.
+     */
+    public PreCompCache(int maxEntries, long maxBytes)
+    {
+        if (maxEntries < 1)
+        {
+            throw new IllegalArgumentException("maxEntries must be at least 1");
+        }
+        if (maxBytes < 1)
+        {
+            throw new IllegalArgumentException("maxBytes must be at least 1");
+        }
+
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    public int getMaxEntries()
+    {
+        return maxEntries;
+    }
+
+    public long getMaxBytes()
+    {
+        return maxBytes;
+    }
+
+    /**
+     * Return the number of precomputations currently held.
+     *
+     * @return the number of entries in the cache.
+     */
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+
+    /**
+     * Return the estimated size of the precomputed points currently held.
+     *
+     * @return the estimate in bytes.
+     */
+    public synchronized long getEstimatedBytes()
+    {
+        return bytes;
+    }
+
+    /**
+     * Discard all the cached precomputations.
+     */
+    public synchronized void clear()
+    {
+        entries.clear();
+        bytes = 0;
+    }
+
+    synchronized PreCompInfo get(ECCurve curve, byte[] encoding, String name)
+    {
+        Entry entry = (Entry)entries.get(new Key(curve, encoding, name));
+
+        return entry == null ? null : copy(entry.preCompInfo);
+    }
+
+    synchronized void put(ECCurve curve, byte[] encoding, String name, PreCompInfo preCompInfo)
+    {
+        preCompInfo = copy(preCompInfo);
+        if (preCompInfo == null)
+        {
+            return;
+        }
+
+        Key key = new Key(curve, encoding, name);
+        long size = estimateSize(preCompInfo, curve.getFieldSize());
+
+        Entry previous = (Entry)entries.remove(key);
+        if (previous != null)
+        {
+            bytes -= previous.size;
+        }
+
+        if (size > maxBytes)
+        {
+            return;
+        }
+
+        entries.put(key, new Entry(preCompInfo, size));
+        bytes += size;
+
+        Iterator it = entries.values().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes)
+        {
+            Entry eldest = (Entry)it.next();
+            bytes -= eldest.size;
+            it.remove();
+        }
+    }
+
+    /**
+     * Estimate the memory taken by a precomputation as the affine coordinates of the points in it.
+     */
+    private static long estimateSize(PreCompInfo preCompInfo, int fieldSize)
+    {
+        long points = 1;
+
+        if (preCompInfo instanceof WNafPreCompInfo)
+        {
+            WNafPreCompInfo info = (WNafPreCompInfo)preCompInfo;
+
+            points += count(info.getPreComp()) + count(info.getPreCompNeg());
+        }
+        else if (preCompInfo instanceof FixedPointPreCompInfo)
+        {
+            ECLookupTable lookupTable = ((FixedPointPreCompInfo)preCompInfo).getLookupTable();
+
+            points += (lookupTable == null) ? 0 : lookupTable.getSize();
+        }
+        else if (preCompInfo instanceof WTauNafPreCompInfo)
+        {
+            points += count(((WTauNafPreCompInfo)preCompInfo).getPreComp());
+        }
+
+        return points * 2 * ((fieldSize + 7) / 8);
+    }
+
+    /**
+     * Return a copy of a precomputation, or null if it is not of a type the cache knows. The point
+     * arrays are shared, they are replaced rather than written to when a precomputation is extended.
+     */
+    private static PreCompInfo copy(PreCompInfo preCompInfo)
+    {
+        if (preCompInfo instanceof WNafPreCompInfo)
+        {
+            WNafPreCompInfo info = (WNafPreCompInfo)preCompInfo;
+            WNafPreCompInfo copy = new WNafPreCompInfo();
+
+            copy.setPreComp(info.getPreComp());
+            copy.setPreCompNeg(info.getPreCompNeg());
+            copy.setTwice(info.getTwice());
+
+            return copy;
+        }
+        if (preCompInfo instanceof FixedPointPreCompInfo)
+        {
+            FixedPointPreCompInfo info = (FixedPointPreCompInfo)preCompInfo;
+            FixedPointPreCompInfo copy = new FixedPointPreCompInfo();
+
+            copy.setLookupTable(info.getLookupTable());
+            copy.setOffset(info.getOffset());
+            copy.setWidth(info.getWidth());
+
+            return copy;
+        }
+        if (preCompInfo instanceof WTauNafPreCompInfo)
+        {
+            WTauNafPreCompInfo copy = new WTauNafPreCompInfo();
+
+            copy.setPreComp(((WTauNafPreCompInfo)preCompInfo).getPreComp());
+
+            return copy;
+        }
+
+        return null;
+    }
+
+    private static int count(Object[] points)
+    {
+        return points == null ? 0 : points.length;
+    }
+
+    private static class Key
+    {
+        private final ECCurve curve;
+        private final byte[] encoding;
+        private final String name;
+
+        Key(ECCurve curve, byte[] encoding, String name)
+        {
+            this.curve = curve;
+            this.encoding = encoding;
+            this.name = name;
+        }
+
+        public int hashCode()
+        {
+            return (curve.hashCode() * 31 + Arrays.hashCode(encoding)) * 31 + name.hashCode();
+        }
+
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof Key))
+            {
+                return false;
+            }
+
+            Key other = (Key)o;
+
+            return name.equals(other.name) && Arrays.areEqual(encoding, other.encoding)
+                && sameCurve(curve, other.curve);
+        }
+
+        private static boolean sameCurve(ECCurve c1, ECCurve c2)
+        {
+            if (c1 == c2)
+            {
+                return true;
+            }
+
+            return c1.getCoordinateSystem() == c2.getCoordinateSystem()
+                && c1.equals(c2)
+                && sameValue(c1.getOrder(), c2.getOrder());
+        }
+
+        private static boolean sameValue(BigInteger a, BigInteger b)
+        {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    private static class Entry
+    {
+        final PreCompInfo preCompInfo;
+        final long size;
+
+        Entry(PreCompInfo preCompInfo, long size)
+        {
+            this.preCompInfo = preCompInfo;
+            this.size = size;
+        }
+    }
+}
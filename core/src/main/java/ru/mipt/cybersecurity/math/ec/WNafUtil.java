@@ -350,7 +350,7 @@ public abstract class WNafUtil
         WNafPreCompInfo wnafPreCompP = precompute(p, width, includeNegated);
 
         ECPoint q = pointMap.map(p);
-        WNafPreCompInfo wnafPreCompQ = getWNafPreCompInfo(c.getPreCompInfo(q, PRECOMP_NAME));
+        WNafPreCompInfo wnafPreCompQ = new WNafPreCompInfo();
 
         ECPoint twiceP = wnafPreCompP.getTwice();
         if (twiceP != null)
@@ -385,11 +385,12 @@ public abstract class WNafUtil
     public static WNafPreCompInfo precompute(ECPoint p, int width, boolean includeNegated)
     {
         ECCurve c = p.getCurve();
-        WNafPreCompInfo wnafPreCompInfo = getWNafPreCompInfo(c.getPreCompInfo(p, PRECOMP_NAME));
+        WNafPreCompInfo existing = getWNafPreCompInfo(c.getPreCompInfo(p, PRECOMP_NAME));
 
         int iniPreCompLen = 0, reqPreCompLen = 1 << Math.max(0, width - 2);
 
-        ECPoint[] preComp = wnafPreCompInfo.getPreComp();
+        ECPoint twice = existing.getTwice();
+        ECPoint[] preComp = existing.getPreComp();
         if (preComp == null)
         {
             preComp = EMPTY_POINTS;
@@ -424,11 +425,11 @@ public abstract class WNafUtil
                 }
                 else
                 {
-                    ECPoint twiceP = wnafPreCompInfo.getTwice(), last = preComp[curPreCompLen - 1];
+                    ECPoint twiceP = twice, last = preComp[curPreCompLen - 1];
                     if (twiceP == null)
                     {
                         twiceP = preComp[0].twice();
-                        wnafPreCompInfo.setTwice(twiceP);
+                        twice = twiceP;
 
                         /*
                          * For Fp curves with Jacobian projective coordinates, use a (quasi-)isomorphism
@@ -482,12 +483,10 @@ public abstract class WNafUtil
             }
         }
 
-        wnafPreCompInfo.setPreComp(preComp);
+        ECPoint[] preCompNeg = existing.getPreCompNeg();
 
         if (includeNegated)
         {
-            ECPoint[] preCompNeg = wnafPreCompInfo.getPreCompNeg();
-            
             int pos;
             if (preCompNeg == null)
             {
@@ -508,10 +507,22 @@ public abstract class WNafUtil
                 preCompNeg[pos] = preComp[pos].negate();
                 ++pos;
             }
+        }
 
-            wnafPreCompInfo.setPreCompNeg(preCompNeg);
+        if (preComp == existing.getPreComp() && preCompNeg == existing.getPreCompNeg())
+        {
+            return existing;
         }
 
+        /*
+         * A published precomputation may be in use by other threads, or held by the curve's cache,
+         * so an extended one is always a new object.
+         */
+        WNafPreCompInfo wnafPreCompInfo = new WNafPreCompInfo();
+        wnafPreCompInfo.setPreComp(preComp);
+        wnafPreCompInfo.setPreCompNeg(preCompNeg);
+        wnafPreCompInfo.setTwice(twice);
+
         c.setPreCompInfo(p, PRECOMP_NAME, wnafPreCompInfo);
 
         return wnafPreCompInfo;
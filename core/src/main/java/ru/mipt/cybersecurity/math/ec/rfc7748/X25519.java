@@ -0,0 +1,199 @@
+package ru.mipt.cybersecurity.math.ec.rfc7748;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.math.ec.rfc8032.Ed25519;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * The X25519 function of RFC 7748, as a constant-time Montgomery ladder on the u-coordinate.
+ * <p>
+ * Multiplications of the base point (i.e. key pair generation) are done instead on the
+ * birationally equivalent Edwards curve, where the precomputed table of {@link Ed25519} makes
+ * them several times faster, and the result mapped back with u = (1 + y) / (1 - y).
+ * </p>
+ * <p>
+ * The working state of the ladder is kept by each thread and reused, so no memory is allocated
+ * after a thread's first call. It is zeroed at the end of each call, so no secret outlives it.
+ * </p>
+ */
+public abstract class X25519
+{
+    public static final int POINT_SIZE = 32;
+    public static final int SCALAR_SIZE = 32;
+
+    private static final int C_A24 = 121665;
+
+    private static final ThreadLocal<Work> work = new ThreadLocal<Work>();
+
+    private static class F extends X25519Field
+    {
+    }
+
+    private static class Work
+    {
+        final int[] n = new int[8];
+        final int[] x1 = F.create();
+        final int[] x2 = F.create();
+        final int[] z2 = F.create();
+        final int[] x3 = F.create();
+        final int[] z3 = F.create();
+        final int[] a = F.create();
+        final int[] b = F.create();
+        final int[] c = F.create();
+        final int[] d = F.create();
+        final int[] e = F.create();
+        final int[][] scratch = F.createScratch();
+    }
+
+    private static Work getWork()
+    {
+        Work w = work.get();
+        if (w == null)
+        {
+            w = new Work();
+            work.set(w);
+        }
+        return w;
+    }
+
+    /**
+     * Calculate the shared secret for the private key k and the peer's public key u, returning
+     * false if the result is all zeroes (i.e. u was of small order), as RFC 7748 requires.
+     */
+    public static boolean calculateAgreement(byte[] k, int kOff, byte[] u, int uOff, byte[] r, int rOff)
+    {
+        scalarMult(k, kOff, u, uOff, r, rOff);
+
+        int d = 0;
+        for (int i = 0; i < POINT_SIZE; ++i)
+        {
+            d |= r[rOff + i];
+        }
+        return d != 0;
+    }
+
+    public static void generatePrivateKey(SecureRandom random, byte[] k)
+    {
+        random.nextBytes(k);
+
+        k[0] &= 0xF8;
+        k[SCALAR_SIZE - 1] &= 0x7F;
+        k[SCALAR_SIZE - 1] |= 0x40;
+    }
+
+    public static void generatePublicKey(byte[] k, int kOff, byte[] r, int rOff)
+    {
+        scalarMultBase(k, kOff, r, rOff);
+    }
+
+    private static void decodeScalar(byte[] k, int kOff, int[] n)
+    {
+        for (int i = 0; i < 8; ++i)
+        {
+            int off = kOff + i * 4;
+            n[i] = (k[off] & 0xFF) | (k[off + 1] & 0xFF) << 8 | (k[off + 2] & 0xFF) << 16 | k[off + 3] << 24;
+        }
+
+        n[0] &= 0xFFFFFFF8;
+        n[7] &= 0x7FFFFFFF;
+        n[7] |= 0x40000000;
+    }
+
+    public static void scalarMult(byte[] k, int kOff, byte[] u, int uOff, byte[] r, int rOff)
+    {
+        Work w = getWork();
+
+        int[] n = w.n;
+        decodeScalar(k, kOff, n);
+
+        int[] x1 = w.x1;        F.decode(u, uOff, x1);
+        int[] x2 = w.x2;        F.one(x2);
+        int[] z2 = w.z2;        F.zero(z2);
+        int[] x3 = w.x3;        F.copy(x1, 0, x3, 0);
+        int[] z3 = w.z3;        F.one(z3);
+
+        int[] a = w.a;
+        int[] b = w.b;
+        int[] c = w.c;
+        int[] d = w.d;
+        int[] e = w.e;
+
+        int bit = 254, swap = 0;
+        do
+        {
+            int kt = (n[bit >>> 5] >>> (bit & 0x1F)) & 1;
+            swap ^= kt;
+            F.cswap(swap, x2, x3);
+            F.cswap(swap, z2, z3);
+            swap = kt;
+
+            F.apm(x2, z2, a, b);        // A = x2 + z2, B = x2 - z2
+            F.apm(x3, z3, c, d);        // C = x3 + z3, D = x3 - z3
+            F.mul(d, a, d);             // DA
+            F.mul(c, b, c);             // CB
+            F.sqr(a, a);                // AA
+            F.sqr(b, b);                // BB
+            F.sub(a, b, e);             // E = AA - BB
+            F.mul(e, C_A24, z2);
+            F.add(z2, a, z2);
+            F.mul(z2, e, z2);           // z2 = E * (AA + a24 * E)
+            F.mul(a, b, x2);            // x2 = AA * BB
+            F.apm(d, c, x3, z3);
+            F.sqr(x3, x3);              // x3 = (DA + CB)^2
+            F.sqr(z3, z3);
+            F.mul(z3, x1, z3);          // z3 = x1 * (DA - CB)^2
+        }
+        while (--bit >= 0);
+
+        F.cswap(swap, x2, x3);
+        F.cswap(swap, z2, z3);
+
+        F.inv(z2, z2, w.scratch);
+        F.mul(x2, z2, x2);
+        F.encode(x2, r, rOff);
+
+        wipe(w);
+    }
+
+    public static void scalarMultBase(byte[] k, int kOff, byte[] r, int rOff)
+    {
+        Work w = getWork();
+
+        int[] y = w.x2;
+        int[] z = w.z2;
+
+        Ed25519.scalarMultBaseYZ(k, kOff, y, z);
+
+        F.apm(z, y, y, z);
+
+        F.inv(z, z, w.scratch);
+        F.mul(y, z, y);
+        F.encode(y, r, rOff);
+
+        wipe(w);
+    }
+
+    /**
+     * Zero the scalar and every intermediate of the last operation held in the thread's working state.
+     */
+    private static void wipe(Work w)
+    {
+        Arrays.fill(w.n, 0);
+        F.zero(w.x1);
+        F.zero(w.x2);
+        F.zero(w.z2);
+        F.zero(w.x3);
+        F.zero(w.z3);
+        F.zero(w.a);
+        F.zero(w.b);
+        F.zero(w.c);
+        F.zero(w.d);
+        F.zero(w.e);
+
+        for (int i = 0; i < w.scratch.length; ++i)
+        {
+            Arrays.fill(w.scratch[i], 0);
+        }
+    }
+}
@@ -0,0 +1,469 @@
+package ru.mipt.cybersecurity.math.ec.rfc7748;
+
+/**
+ * Constant-time arithmetic in GF(2^255 - 19) for the X25519 and Ed25519 implementations.
+ * <p>
+ * An element is held as 10 signed limbs in radix 2^25.5, alternately 26 and 25 bits wide, so that
+ * limb products accumulate in a <code>long</code> without the carry handling needed by the
+ * 32-bit representation of <code>Curve25519Field</code>. None of the methods branch on, or index
+ * memory by, the values of the elements, and none of them allocate: {@link #inv(int[], int[], int[][])},
+ * {@link #pow22523(int[], int[], int[][])} and {@link #sqrtRatioVar(int[], int[], int[], int[][])}
+ * take their temporary elements from scratch space made by {@link #createScratch()}, and the
+ * routines which need the canonical form of an element normalize it in place.
+ * </p>
+ * <p>
+ * The inputs to {@link #mul(int[], int[], int[])} and {@link #sqr(int[], int[])} may have limbs
+ * of up to 27 bits, i.e. the (unreduced) sum or difference of two reduced elements; all of the
+ * multiplication and squaring routines return reduced elements.
+ * </p>
+ */
+public abstract class X25519Field
+{
+    public static final int SIZE = 10;
+
+    private static final int SCRATCH_SIZE = 7;
+
+    private static final int M25 = 0x01FFFFFF;
+    private static final int M26 = 0x03FFFFFF;
+
+    private static final int[] ROOT_NEG_ONE = new int[]{ 0x020EA0B0, 0x0186C9D2, 0x008F189D, 0x0035697F,
+        0x00BD0C60, 0x01FBD7A7, 0x02804C9E, 0x01E16569, 0x0004FC1D, 0x00AE0C92 };
+
+    protected X25519Field()
+    {
+    }
+
+    public static void add(int[] x, int[] y, int[] z)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[i] = x[i] + y[i];
+        }
+    }
+
+    /**
+     * Calculate z = x + y and w = x - y, which may alias x or y.
+     */
+    public static void apm(int[] x, int[] y, int[] zp, int[] zm)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            int xi = x[i], yi = y[i];
+            zp[i] = xi + yi;
+            zm[i] = xi - yi;
+        }
+    }
+
+    public static void carry(int[] z)
+    {
+        long z0 = z[0], z1 = z[1], z2 = z[2], z3 = z[3], z4 = z[4];
+        long z5 = z[5], z6 = z[6], z7 = z[7], z8 = z[8], z9 = z[9];
+
+        z1 += (z0 >> 26); z0 &= M26;
+        z2 += (z1 >> 25); z1 &= M25;
+        z3 += (z2 >> 26); z2 &= M26;
+        z4 += (z3 >> 25); z3 &= M25;
+        z5 += (z4 >> 26); z4 &= M26;
+        z6 += (z5 >> 25); z5 &= M25;
+        z7 += (z6 >> 26); z6 &= M26;
+        z8 += (z7 >> 25); z7 &= M25;
+        z9 += (z8 >> 26); z8 &= M26;
+        z0 += (z9 >> 25) * 19; z9 &= M25;
+        z1 += (z0 >> 26); z0 &= M26;
+
+        z[0] = (int)z0; z[1] = (int)z1; z[2] = (int)z2; z[3] = (int)z3; z[4] = (int)z4;
+        z[5] = (int)z5; z[6] = (int)z6; z[7] = (int)z7; z[8] = (int)z8; z[9] = (int)z9;
+    }
+
+    /**
+     * Copy x into z if cond is -1, leave z unchanged if cond is 0.
+     */
+    public static void cmov(int cond, int[] x, int xOff, int[] z, int zOff)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            int zi = z[zOff + i], diff = zi ^ x[xOff + i];
+            z[zOff + i] = zi ^ (diff & cond);
+        }
+    }
+
+    /**
+     * Negate z if negate is 1, leave it unchanged if negate is 0.
+     */
+    public static void cnegate(int negate, int[] z)
+    {
+        int mask = 0 - negate;
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[i] = (z[i] ^ mask) - mask;
+        }
+    }
+
+    public static void copy(int[] x, int xOff, int[] z, int zOff)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[zOff + i] = x[xOff + i];
+        }
+    }
+
+    public static int[] create()
+    {
+        return new int[SIZE];
+    }
+
+    public static int[] createTable(int n)
+    {
+        return new int[SIZE * n];
+    }
+
+    /**
+     * Create scratch space for the routines that need temporary elements. It may be reused for
+     * any number of calls, but only by one of them at a time.
+     */
+    public static int[][] createScratch()
+    {
+        return new int[SCRATCH_SIZE][SIZE];
+    }
+
+    /**
+     * Swap a and b if swap is 1, leave them unchanged if swap is 0.
+     */
+    public static void cswap(int swap, int[] a, int[] b)
+    {
+        int mask = 0 - swap;
+        for (int i = 0; i < SIZE; ++i)
+        {
+            int ai = a[i], bi = b[i];
+            int dummy = mask & (ai ^ bi);
+            a[i] = ai ^ dummy;
+            b[i] = bi ^ dummy;
+        }
+    }
+
+    /**
+     * Decode a little-endian 32 byte encoding, ignoring the top bit.
+     */
+    public static void decode(byte[] x, int xOff, int[] z)
+    {
+        int t0 = decode32(x, xOff +  0), t1 = decode32(x, xOff +  4);
+        int t2 = decode32(x, xOff +  8), t3 = decode32(x, xOff + 12);
+        int t4 = decode32(x, xOff + 16), t5 = decode32(x, xOff + 20);
+        int t6 = decode32(x, xOff + 24), t7 = decode32(x, xOff + 28);
+
+        z[0] =   t0                         & M26;
+        z[1] = ((t1 <<  6) | (t0 >>> 26)) & M25;
+        z[2] = ((t2 << 13) | (t1 >>> 19)) & M26;
+        z[3] = ((t3 << 19) | (t2 >>> 13)) & M25;
+        z[4] =   t3 >>>  6;
+        z[5] =   t4                         & M25;
+        z[6] = ((t5 <<  7) | (t4 >>> 25)) & M26;
+        z[7] = ((t6 << 13) | (t5 >>> 19)) & M25;
+        z[8] = ((t7 << 20) | (t6 >>> 12)) & M26;
+        z[9] =  (t7 >>>  6)                 & M25;
+    }
+
+    private static int decode32(byte[] bs, int off)
+    {
+        int n = bs[off] & 0xFF;
+        n |= (bs[++off] & 0xFF) << 8;
+        n |= (bs[++off] & 0xFF) << 16;
+        n |=  bs[++off]         << 24;
+        return n;
+    }
+
+    /**
+     * Write the canonical little-endian 32 byte encoding of x. x is normalized in place, which does
+     * not change its value.
+     */
+    public static void encode(int[] x, byte[] z, int zOff)
+    {
+        normalize(x);
+
+        int[] t = x;
+        int z0 = t[0], z1 = t[1], z2 = t[2], z3 = t[3], z4 = t[4];
+        int z5 = t[5], z6 = t[6], z7 = t[7], z8 = t[8], z9 = t[9];
+
+        encode32( z0         | (z1 << 26), z, zOff +  0);
+        encode32((z1 >>>  6) | (z2 << 19), z, zOff +  4);
+        encode32((z2 >>> 13) | (z3 << 13), z, zOff +  8);
+        encode32((z3 >>> 19) | (z4 <<  6), z, zOff + 12);
+        encode32( z5         | (z6 << 25), z, zOff + 16);
+        encode32((z6 >>>  7) | (z7 << 19), z, zOff + 20);
+        encode32((z7 >>> 13) | (z8 << 12), z, zOff + 24);
+        encode32((z8 >>> 20) | (z9 <<  6), z, zOff + 28);
+    }
+
+    private static void encode32(int n, byte[] bs, int off)
+    {
+        bs[  off] = (byte)(n       );
+        bs[++off] = (byte)(n >>>  8);
+        bs[++off] = (byte)(n >>> 16);
+        bs[++off] = (byte)(n >>> 24);
+    }
+
+    /**
+     * Calculate z = 1/x (or zero if x is zero), as x^(p - 2).
+     */
+    public static void inv(int[] x, int[] z, int[][] scratch)
+    {
+        int[] x2 = scratch[0];
+        int[] rz = scratch[1];
+        powPm5d8(x, x2, rz, scratch, 2);
+        sqr(rz, 3, rz);
+        mul(rz, x2, z);
+    }
+
+    /**
+     * Return 1 if x is zero modulo p, else 0. x is normalized in place, which does not change its
+     * value.
+     */
+    public static int isZero(int[] x)
+    {
+        normalize(x);
+
+        int d = 0;
+        for (int i = 0; i < SIZE; ++i)
+        {
+            d |= x[i];
+        }
+        d = (d >>> 1) | (d & 1);
+        return (d - 1) >>> 31;
+    }
+
+    /**
+     * Return the least significant bit of the canonical form of x. x is normalized in place, which
+     * does not change its value.
+     */
+    public static int isNegative(int[] x)
+    {
+        normalize(x);
+        return x[0] & 1;
+    }
+
+    public static void mul(int[] x, int y, int[] z)
+    {
+        long t0 = (long)x[0] * y, t1 = (long)x[1] * y, t2 = (long)x[2] * y, t3 = (long)x[3] * y, t4 = (long)x[4] * y;
+        long t5 = (long)x[5] * y, t6 = (long)x[6] * y, t7 = (long)x[7] * y, t8 = (long)x[8] * y, t9 = (long)x[9] * y;
+
+        reduce(t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, z);
+    }
+
+    public static void mul(int[] x, int[] y, int[] z)
+    {
+        long x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4];
+        long x5 = x[5], x6 = x[6], x7 = x[7], x8 = x[8], x9 = x[9];
+        long y0 = y[0], y1 = y[1], y2 = y[2], y3 = y[3], y4 = y[4];
+        long y5 = y[5], y6 = y[6], y7 = y[7], y8 = y[8], y9 = y[9];
+
+        /*
+         * Limb i has weight 2^ceil(25.5 * i), so the product of two odd limbs carries an extra factor
+         * of 2, and products that wrap past 2^255 are folded back in with a factor of 19.
+         */
+        long t0 = x0 * y0 + 19 * (x2 * y8 + x4 * y6 + x6 * y4 + x8 * y2 + 2 * (x1 * y9 + x3 * y7 + x5 * y5 + x7 * y3 + x9 * y1));
+        long t1 = x0 * y1 + x1 * y0 + 19 * (x2 * y9 + x3 * y8 + x4 * y7 + x5 * y6 + x6 * y5 + x7 * y4 + x8 * y3 + x9 * y2);
+        long t2 = x0 * y2 + x2 * y0 + 2 * x1 * y1 + 19 * (x4 * y8 + x6 * y6 + x8 * y4 + 2 * (x3 * y9 + x5 * y7 + x7 * y5 + x9 * y3));
+        long t3 = x0 * y3 + x1 * y2 + x2 * y1 + x3 * y0 + 19 * (x4 * y9 + x5 * y8 + x6 * y7 + x7 * y6 + x8 * y5 + x9 * y4);
+        long t4 = x0 * y4 + x2 * y2 + x4 * y0 + 2 * (x1 * y3 + x3 * y1) + 19 * (x6 * y8 + x8 * y6 + 2 * (x5 * y9 + x7 * y7 + x9 * y5));
+        long t5 = x0 * y5 + x1 * y4 + x2 * y3 + x3 * y2 + x4 * y1 + x5 * y0 + 19 * (x6 * y9 + x7 * y8 + x8 * y7 + x9 * y6);
+        long t6 = x0 * y6 + x2 * y4 + x4 * y2 + x6 * y0 + 2 * (x1 * y5 + x3 * y3 + x5 * y1) + 19 * (x8 * y8 + 2 * (x7 * y9 + x9 * y7));
+        long t7 = x0 * y7 + x1 * y6 + x2 * y5 + x3 * y4 + x4 * y3 + x5 * y2 + x6 * y1 + x7 * y0 + 19 * (x8 * y9 + x9 * y8);
+        long t8 = x0 * y8 + x2 * y6 + x4 * y4 + x6 * y2 + x8 * y0 + 2 * (x1 * y7 + x3 * y5 + x5 * y3 + x7 * y1) + 38 * x9 * y9;
+        long t9 = x0 * y9 + x1 * y8 + x2 * y7 + x3 * y6 + x4 * y5 + x5 * y4 + x6 * y3 + x7 * y2 + x8 * y1 + x9 * y0;
+
+        reduce(t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, z);
+    }
+
+    public static void negate(int[] x, int[] z)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[i] = -x[i];
+        }
+    }
+
+    /**
+     * Reduce z to its canonical form, the unique representative in [0, p).
+     */
+    public static void normalize(int[] z)
+    {
+        carry(z);
+
+        long z0 = z[0], z1 = z[1], z2 = z[2], z3 = z[3], z4 = z[4];
+        long z5 = z[5], z6 = z[6], z7 = z[7], z8 = z[8], z9 = z[9];
+
+        // After the carry the value is in [0, 2p), so q = 1 exactly when it is at least p.
+        long q = (19 * z9 + (1L << 24)) >> 25;
+        q = (z0 + q) >> 26;
+        q = (z1 + q) >> 25;
+        q = (z2 + q) >> 26;
+        q = (z3 + q) >> 25;
+        q = (z4 + q) >> 26;
+        q = (z5 + q) >> 25;
+        q = (z6 + q) >> 26;
+        q = (z7 + q) >> 25;
+        q = (z8 + q) >> 26;
+        q = (z9 + q) >> 25;
+
+        z0 += 19 * q;
+
+        z1 += (z0 >> 26); z0 &= M26;
+        z2 += (z1 >> 25); z1 &= M25;
+        z3 += (z2 >> 26); z2 &= M26;
+        z4 += (z3 >> 25); z3 &= M25;
+        z5 += (z4 >> 26); z4 &= M26;
+        z6 += (z5 >> 25); z5 &= M25;
+        z7 += (z6 >> 26); z6 &= M26;
+        z8 += (z7 >> 25); z7 &= M25;
+        z9 += (z8 >> 26); z8 &= M26;
+        z9 &= M25;
+
+        z[0] = (int)z0; z[1] = (int)z1; z[2] = (int)z2; z[3] = (int)z3; z[4] = (int)z4;
+        z[5] = (int)z5; z[6] = (int)z6; z[7] = (int)z7; z[8] = (int)z8; z[9] = (int)z9;
+    }
+
+    public static void one(int[] z)
+    {
+        z[0] = 1;
+        for (int i = 1; i < SIZE; ++i)
+        {
+            z[i] = 0;
+        }
+    }
+
+    /**
+     * Calculate z = x^((p - 5) / 8) = x^(2^252 - 3), as used for square roots.
+     */
+    public static void pow22523(int[] x, int[] z, int[][] scratch)
+    {
+        powPm5d8(x, scratch[0], z, scratch, 1);
+    }
+
+    /**
+     * Calculate rz = x^(2^252 - 3), leaving x^3 in rx2 so that inv() can finish with
+     * x^(p - 2) = (x^(2^252 - 3))^8 * x^3. Three temporaries are taken from scratch, starting at
+     * index off; rx2 must not be x, rz may be.
+     */
+    private static void powPm5d8(int[] x, int[] rx2, int[] rz, int[][] scratch, int off)
+    {
+        int[] x2 = rx2;                 sqr(x, x2);             mul(x, x2, x2);
+        int[] x3 = scratch[off];        sqr(x2, x3);            mul(x, x3, x3);
+        int[] x5 = x3;                  sqr(x3, 2, x5);         mul(x2, x5, x5);
+        int[] x10 = scratch[off + 1];   sqr(x5, 5, x10);        mul(x5, x10, x10);
+        int[] x15 = scratch[off + 2];   sqr(x10, 5, x15);       mul(x5, x15, x15);
+        int[] x25 = x5;                 sqr(x15, 10, x25);      mul(x10, x25, x25);
+        int[] x50 = x10;                sqr(x25, 25, x50);      mul(x25, x50, x50);
+        int[] x75 = x15;                sqr(x50, 25, x75);      mul(x25, x75, x75);
+        int[] x125 = x25;               sqr(x75, 50, x125);     mul(x50, x125, x125);
+        int[] x250 = x50;               sqr(x125, 125, x250);   mul(x125, x250, x250);
+
+        int[] t = x125;
+        sqr(x250, 2, t);
+        mul(t, x, rz);
+    }
+
+    private static void reduce(long t0, long t1, long t2, long t3, long t4, long t5, long t6, long t7, long t8,
+        long t9, int[] z)
+    {
+        t1 += (t0 >> 26); t0 &= M26;
+        t2 += (t1 >> 25); t1 &= M25;
+        t3 += (t2 >> 26); t2 &= M26;
+        t4 += (t3 >> 25); t3 &= M25;
+        t5 += (t4 >> 26); t4 &= M26;
+        t6 += (t5 >> 25); t5 &= M25;
+        t7 += (t6 >> 26); t6 &= M26;
+        t8 += (t7 >> 25); t7 &= M25;
+        t9 += (t8 >> 26); t8 &= M26;
+        t0 += (t9 >> 25) * 19; t9 &= M25;
+        t1 += (t0 >> 26); t0 &= M26;
+
+        z[0] = (int)t0; z[1] = (int)t1; z[2] = (int)t2; z[3] = (int)t3; z[4] = (int)t4;
+        z[5] = (int)t5; z[6] = (int)t6; z[7] = (int)t7; z[8] = (int)t8; z[9] = (int)t9;
+    }
+
+    public static void sqr(int[] x, int[] z)
+    {
+        long x0 = x[0], x1 = x[1], x2 = x[2], x3 = x[3], x4 = x[4];
+        long x5 = x[5], x6 = x[6], x7 = x[7], x8 = x[8], x9 = x[9];
+
+        long t0 = x0 * x0 + 19 * (2 * (x2 * x8 + x4 * x6 + x5 * x5) + 4 * (x1 * x9 + x3 * x7));
+        long t1 = 2 * x0 * x1 + 38 * (x2 * x9 + x3 * x8 + x4 * x7 + x5 * x6);
+        long t2 = 2 * (x0 * x2 + x1 * x1) + 19 * (x6 * x6 + 2 * x4 * x8 + 4 * (x3 * x9 + x5 * x7));
+        long t3 = 2 * (x0 * x3 + x1 * x2) + 38 * (x4 * x9 + x5 * x8 + x6 * x7);
+        long t4 = x2 * x2 + 2 * x0 * x4 + 4 * x1 * x3 + 19 * (2 * (x6 * x8 + x7 * x7) + 4 * x5 * x9);
+        long t5 = 2 * (x0 * x5 + x1 * x4 + x2 * x3) + 38 * (x6 * x9 + x7 * x8);
+        long t6 = 2 * (x0 * x6 + x2 * x4 + x3 * x3) + 4 * x1 * x5 + 19 * (x8 * x8 + 4 * x7 * x9);
+        long t7 = 2 * (x0 * x7 + x1 * x6 + x2 * x5 + x3 * x4) + 38 * x8 * x9;
+        long t8 = x4 * x4 + 2 * (x0 * x8 + x2 * x6) + 4 * (x1 * x7 + x3 * x5) + 38 * x9 * x9;
+        long t9 = 2 * (x0 * x9 + x1 * x8 + x2 * x7 + x3 * x6 + x4 * x5);
+
+        reduce(t0, t1, t2, t3, t4, t5, t6, t7, t8, t9, z);
+    }
+
+    public static void sqr(int[] x, int n, int[] z)
+    {
+        sqr(x, z);
+
+        while (--n > 0)
+        {
+            sqr(z, z);
+        }
+    }
+
+    /**
+     * Calculate a square root of u/v for the point decompression of RFC 8032, returning false if
+     * there is none. Only the public encoding of a point is processed, so this may branch.
+     */
+    public static boolean sqrtRatioVar(int[] u, int[] v, int[] z, int[][] scratch)
+    {
+        int[] uv3 = scratch[0];
+        int[] uv7 = scratch[1];
+
+        mul(u, v, uv3);
+        sqr(v, uv7);
+        mul(uv3, uv7, uv3);
+        sqr(uv7, uv7);
+        mul(uv7, uv3, uv7);
+
+        int[] t = scratch[2];
+        int[] x = scratch[3];
+        powPm5d8(uv7, x, t, scratch, 4);
+        mul(t, uv3, x);
+
+        int[] vx2 = uv7;
+        sqr(x, vx2);
+        mul(vx2, v, vx2);
+
+        sub(vx2, u, t);
+        if (isZero(t) != 0)
+        {
+            copy(x, 0, z, 0);
+            return true;
+        }
+
+        add(vx2, u, t);
+        if (isZero(t) != 0)
+        {
+            mul(x, ROOT_NEG_ONE, z);
+            return true;
+        }
+
+        return false;
+    }
+
+    public static void sub(int[] x, int[] y, int[] z)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[i] = x[i] - y[i];
+        }
+    }
+
+    public static void zero(int[] z)
+    {
+        for (int i = 0; i < SIZE; ++i)
+        {
+            z[i] = 0;
+        }
+    }
+}
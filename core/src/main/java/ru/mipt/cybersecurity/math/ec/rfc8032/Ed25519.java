@@ -0,0 +1,1029 @@
+package ru.mipt.cybersecurity.math.ec.rfc8032;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.math.ec.rfc7748.X25519Field;
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Ed25519 signatures, as described in RFC 8032, using extended twisted Edwards coordinates over
+ * {@link X25519Field}.
+ * <p>
+ * Multiplications of the base point, which involve secret scalars, run in constant time using a
+ * table of 256 precomputed multiples of the base point and a signed radix-16 recoding of the
+ * scalar. Verification only involves public values and uses a variable-time interleaved wNAF
+ * multiplication instead, which also serves for the verification of a batch of signatures.
+ * Verification is cofactored, i.e. checks [8][S]B = [8]R + [8][k]A, so that single and batch
+ * verification always agree.
+ * </p>
+ * <p>
+ * The working state of an operation (points, field elements, scalars and the SHA-512 digest) is
+ * kept by each thread and reused, so key generation, signing and verification allocate no memory
+ * after a thread's first call. Batch verification still allocates tables in proportion to the
+ * size of the batch. Key generation and signing zero the secret parts of that state before they
+ * return.
+ * </p>
+ */
+public abstract class Ed25519
+{
+    public static final int PUBLIC_KEY_SIZE = 32;
+    public static final int SECRET_KEY_SIZE = 32;
+    public static final int SIGNATURE_SIZE = 64;
+
+    private static final int POINT_BYTES = 32;
+    private static final int SCALAR_BYTES = 32;
+
+    private static final int SCALAR_LIMBS = 13;
+    private static final long M21 = 0x1FFFFFL;
+
+    // L = 2^252 + 27742317777372353535851937790883648493, in 21 bit limbs
+    private static final long[] L = new long[]{ 1430509L, 1626855L, 1442968L, 997804L, 1960495L, 683900L,
+        0L, 0L, 0L, 0L, 0L, 0L, 1L };
+
+    private static final int[] D = new int[]{ 0x035978A3, 0x00D37284, 0x03156EBD, 0x006A0A0E, 0x0001C029,
+        0x0179E898, 0x03A03CBB, 0x01CE7198, 0x02E2B6FF, 0x01480DB3 };
+    private static final int[] D2 = new int[]{ 0x02B2F159, 0x01A6E509, 0x022ADD7A, 0x00D4141D, 0x00038052,
+        0x00F3D130, 0x03407977, 0x019CE331, 0x01C56DFF, 0x00901B67 };
+    private static final int[] B_X = new int[]{ 0x0325D51A, 0x018B5823, 0x00F6592A, 0x0104A92D, 0x01A4B31D,
+        0x01D6DC5C, 0x027118FE, 0x007FD814, 0x013CD6E5, 0x0085A4DB };
+    private static final int[] B_Y = new int[]{ 0x02666658, 0x01999999, 0x00CCCCCC, 0x01333333, 0x01999999,
+        0x00666666, 0x03333333, 0x00CCCCCC, 0x02666666, 0x01999999 };
+
+    private static final int WNAF_WIDTH = 5;
+    private static final int WNAF_WIDTH_BASE = 7;
+
+    private static final int PRECOMP_BLOCKS = 32;
+    private static final int PRECOMP_POINTS = 8;
+
+    private static final ThreadLocal<Work> work = new ThreadLocal<Work>();
+
+    private static final Object precompLock = new Object();
+    private static PointExt[] precompBaseWnaf = null;
+    private static volatile int[] precompBase = null;
+
+    private static class F extends X25519Field
+    {
+    }
+
+    private static class PointExt
+    {
+        int[] x = F.create();
+        int[] y = F.create();
+        int[] z = F.create();
+        int[] t = F.create();
+    }
+
+    private static class PointPrecomp
+    {
+        int[] ypx = F.create();
+        int[] ymx = F.create();
+        int[] xyd = F.create();
+    }
+
+    /**
+     * Everything an operation needs, allocated once per thread. Each public method takes the
+     * thread's instance once and hands it down; none of them calls another while using it.
+     */
+    private static class Work
+    {
+        final Digest digest = new SHA512Digest();
+        final byte[] hash = new byte[64];
+        final byte[] pk = new byte[PUBLIC_KEY_SIZE];
+        final byte[] s = new byte[SCALAR_BYTES];
+        final byte[] r = new byte[SCALAR_BYTES];
+        final byte[] k = new byte[SCALAR_BYTES];
+        final byte[] R = new byte[POINT_BYTES];
+        final byte[] digits = new byte[2 * SCALAR_BYTES];
+        final byte[] wsB = new byte[SCALAR_BYTES * 8];
+        final byte[] wsA = new byte[SCALAR_BYTES * 8];
+        final byte[][] wsOne = new byte[][]{ wsA };
+
+        final long[] lx = new long[SCALAR_LIMBS];
+        final long[] ly = new long[SCALAR_LIMBS];
+        final long[] limbs = new long[2 * SCALAR_LIMBS - 1];
+
+        final PointExt pA = new PointExt();
+        final PointExt pR = new PointExt();
+        final PointExt pZ = new PointExt();
+        final PointExt pD = new PointExt();
+        final PointExt[] tableA = createPoints(1 << (WNAF_WIDTH - 2));
+        final PointExt[][] tablesOne = new PointExt[][]{ tableA };
+        final PointPrecomp pp = new PointPrecomp();
+
+        final int[] a = F.create();
+        final int[] b = F.create();
+        final int[] c = F.create();
+        final int[] d = F.create();
+        final int[] e = F.create();
+        final int[] f = F.create();
+        final int[] g = F.create();
+        final int[] h = F.create();
+        final int[] u = F.create();
+        final int[] v = F.create();
+        final int[][] scratch = F.createScratch();
+    }
+
+    private static Work getWork()
+    {
+        Work w = work.get();
+        if (w == null)
+        {
+            w = new Work();
+            work.set(w);
+        }
+        return w;
+    }
+
+    private static PointExt[] createPoints(int count)
+    {
+        PointExt[] points = new PointExt[count];
+        for (int i = 0; i < count; ++i)
+        {
+            points[i] = new PointExt();
+        }
+        return points;
+    }
+
+    public static void generatePrivateKey(SecureRandom random, byte[] k)
+    {
+        random.nextBytes(k);
+    }
+
+    public static void generatePublicKey(byte[] sk, int skOff, byte[] pk, int pkOff)
+    {
+        generatePublicKey(sk, skOff, pk, pkOff, getWork());
+    }
+
+    public static void sign(byte[] sk, int skOff, byte[] m, int mOff, int mLen, byte[] sig, int sigOff)
+    {
+        Work w = getWork();
+
+        generatePublicKey(sk, skOff, w.pk, 0, w);
+        sign(sk, skOff, w.pk, 0, m, mOff, mLen, sig, sigOff, w);
+    }
+
+    public static void sign(byte[] sk, int skOff, byte[] pk, int pkOff, byte[] m, int mOff, int mLen, byte[] sig,
+        int sigOff)
+    {
+        sign(sk, skOff, pk, pkOff, m, mOff, mLen, sig, sigOff, getWork());
+    }
+
+    public static boolean verify(byte[] sig, int sigOff, byte[] pk, int pkOff, byte[] m, int mOff, int mLen)
+    {
+        Work w = getWork();
+
+        int sOff = sigOff + POINT_BYTES;
+        if (!checkScalarVar(sig, sOff, w))
+        {
+            return false;
+        }
+
+        PointExt pA = w.pA;
+        PointExt pR = w.pR;
+        if (!decodePointVar(pk, pkOff, true, pA, w) || !decodePointVar(sig, sigOff, true, pR, w))
+        {
+            return false;
+        }
+
+        byte[] k = w.k;
+        calculateK(sig, sigOff, pk, pkOff, m, mOff, mLen, k, w);
+
+        // [S]B - [k]A - R must be a point of small order
+        getWNafVar(sig, sOff, WNAF_WIDTH_BASE, w.wsB);
+        getWNafVar(k, 0, WNAF_WIDTH, w.wsA);
+        pointPrecomputeVar(pA, w.tableA, w);
+
+        PointExt pZ = w.pZ;
+        scalarMultStrausVar(w.wsB, w.wsOne, w.tablesOne, 1, pZ, w);
+        pointAddVar(false, pR, pZ, w);
+
+        return isSmallOrderVar(pZ, w);
+    }
+
+    /**
+     * Verify a batch of signatures at once, returning true only if all of them are valid.
+     * <p>
+     * Each equation [S_i]B = R_i + [k_i]A_i is multiplied by a random, nonzero 128 bit z_i and the
+     * sum is checked with a single multi-scalar multiplication, sharing the doublings between all the
+     * signatures. An invalid signature makes the check fail except with probability about 2^-128;
+     * which signature is at fault then has to be found by verifying them individually.
+     * </p>
+     *
+     * @param sigs the signatures.
+     * @param pks the corresponding public keys.
+     * @param msgs the corresponding messages.
+     * @param count the number of signatures to verify, at least 1.
+     * @param random the source of the random weights.
+     * @return true if all the signatures are valid, false otherwise.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    public static boolean verifyBatch(byte[][] sigs, byte[][] pks, byte[][] msgs, int count, SecureRandom random)
+    {
+        if (count < 1)
+        {
+            throw new IllegalArgumentException("'count' must be at least 1");
+        }
+
+        Work w = getWork();
+
+        byte[] sumS = w.s;
+        Arrays.fill(sumS, (byte)0);
+
+        byte[][] ws = new byte[2 * count][SCALAR_BYTES * 8];
+        PointExt[][] tables = new PointExt[2 * count][];
+
+        byte[] z = w.r;
+        byte[] zk = w.R;
+        byte[] zLow = new byte[16];
+        Arrays.fill(z, (byte)0);
+        for (int i = 0; i < count; ++i)
+        {
+            byte[] sig = sigs[i], pk = pks[i];
+            if (sig.length != SIGNATURE_SIZE || pk.length != PUBLIC_KEY_SIZE)
+            {
+                return false;
+            }
+
+            if (!checkScalarVar(sig, POINT_BYTES, w))
+            {
+                return false;
+            }
+
+            PointExt pA = w.pA;
+            PointExt pR = w.pR;
+            if (!decodePointVar(pk, 0, true, pA, w) || !decodePointVar(sig, 0, true, pR, w))
+            {
+                return false;
+            }
+
+            byte[] k = w.k;
+            calculateK(sig, 0, pk, 0, msgs[i], 0, msgs[i].length, k, w);
+
+            do
+            {
+                random.nextBytes(zLow);
+            }
+            while (isZero(zLow));
+            System.arraycopy(zLow, 0, z, 0, zLow.length);
+
+            mulAddScalar(z, 0, sig, POINT_BYTES, sumS, sumS, 0, w);
+            mulAddScalar(z, 0, k, 0, null, zk, 0, w);
+
+            getWNafVar(z, 0, WNAF_WIDTH, ws[2 * i]);
+            tables[2 * i] = pointPrecomputeVar(pR, createPoints(1 << (WNAF_WIDTH - 2)), w);
+            getWNafVar(zk, 0, WNAF_WIDTH, ws[2 * i + 1]);
+            tables[2 * i + 1] = pointPrecomputeVar(pA, createPoints(1 << (WNAF_WIDTH - 2)), w);
+        }
+
+        getWNafVar(sumS, 0, WNAF_WIDTH_BASE, w.wsB);
+
+        PointExt pZ = w.pZ;
+        scalarMultStrausVar(w.wsB, ws, tables, 2 * count, pZ, w);
+
+        return isSmallOrderVar(pZ, w);
+    }
+
+    /**
+     * Calculate the Y and Z coordinates of the multiple of the base point by the pruned scalar k,
+     * for use by X25519 (u = (Z + Y) / (Z - Y)).
+     */
+    public static void scalarMultBaseYZ(byte[] k, int kOff, int[] y, int[] z)
+    {
+        Work w = getWork();
+
+        byte[] n = w.s;
+        pruneScalar(k, kOff, n);
+
+        PointExt p = w.pZ;
+        scalarMultBase(n, p, w);
+
+        F.copy(p.y, 0, y, 0);
+        F.copy(p.z, 0, z, 0);
+
+        Arrays.fill(n, (byte)0);
+        wipe(w);
+    }
+
+    private static void generatePublicKey(byte[] sk, int skOff, byte[] pk, int pkOff, Work w)
+    {
+        byte[] h = w.hash;
+        Digest d = w.digest;
+        d.reset();
+        d.update(sk, skOff, SECRET_KEY_SIZE);
+        d.doFinal(h, 0);
+
+        byte[] s = w.s;
+        pruneScalar(h, 0, s);
+
+        scalarMultBaseEncoded(s, pk, pkOff, w);
+
+        Arrays.fill(h, (byte)0);
+        Arrays.fill(s, (byte)0);
+        wipe(w);
+    }
+
+    private static void sign(byte[] sk, int skOff, byte[] pk, int pkOff, byte[] m, int mOff, int mLen, byte[] sig,
+        int sigOff, Work w)
+    {
+        byte[] h = w.hash;
+        Digest d = w.digest;
+        d.reset();
+        d.update(sk, skOff, SECRET_KEY_SIZE);
+        d.doFinal(h, 0);
+
+        byte[] s = w.s;
+        pruneScalar(h, 0, s);
+
+        d.update(h, SCALAR_BYTES, SCALAR_BYTES);
+        d.update(m, mOff, mLen);
+        d.doFinal(h, 0);
+
+        byte[] r = w.r;
+        reduceScalar(h, r, w);
+        byte[] R = w.R;
+        scalarMultBaseEncoded(r, R, 0, w);
+
+        d.update(R, 0, POINT_BYTES);
+        d.update(pk, pkOff, POINT_BYTES);
+        d.update(m, mOff, mLen);
+        d.doFinal(h, 0);
+
+        byte[] k = w.k;
+        reduceScalar(h, k, w);
+
+        System.arraycopy(R, 0, sig, sigOff, POINT_BYTES);
+        mulAddScalar(k, 0, s, 0, r, sig, sigOff + POINT_BYTES, w);
+
+        Arrays.fill(h, (byte)0);
+        Arrays.fill(s, (byte)0);
+        Arrays.fill(r, (byte)0);
+        wipe(w);
+    }
+
+    /**
+     * Zero what a secret scalar multiplication leaves behind in the thread's working state: the
+     * result point, the table entry last looked up, the field temporaries and the challenge.
+     */
+    private static void wipe(Work w)
+    {
+        Arrays.fill(w.k, (byte)0);
+
+        PointExt p = w.pZ;
+        F.zero(p.x);
+        F.zero(p.y);
+        F.zero(p.z);
+        F.zero(p.t);
+
+        PointPrecomp pp = w.pp;
+        F.zero(pp.ypx);
+        F.zero(pp.ymx);
+        F.zero(pp.xyd);
+
+        F.zero(w.a);
+        F.zero(w.b);
+        F.zero(w.c);
+        F.zero(w.d);
+        F.zero(w.e);
+        F.zero(w.f);
+        F.zero(w.g);
+        F.zero(w.h);
+        F.zero(w.u);
+        F.zero(w.v);
+
+        for (int i = 0; i < w.scratch.length; ++i)
+        {
+            Arrays.fill(w.scratch[i], 0);
+        }
+    }
+
+    private static void calculateK(byte[] R, int rOff, byte[] pk, int pkOff, byte[] m, int mOff, int mLen, byte[] k,
+        Work w)
+    {
+        byte[] h = w.hash;
+        Digest d = w.digest;
+        d.reset();
+        d.update(R, rOff, POINT_BYTES);
+        d.update(pk, pkOff, POINT_BYTES);
+        d.update(m, mOff, mLen);
+        d.doFinal(h, 0);
+
+        reduceScalar(h, k, w);
+    }
+
+    private static boolean checkPointVar(byte[] p, int pOff)
+    {
+        // the y coordinate must be less than p = 2^255 - 19
+        if ((p[pOff + 31] & 0x7F) != 0x7F)
+        {
+            return true;
+        }
+        for (int i = 30; i > 0; --i)
+        {
+            if ((p[pOff + i] & 0xFF) != 0xFF)
+            {
+                return true;
+            }
+        }
+        return (p[pOff] & 0xFF) < 0xED;
+    }
+
+    private static boolean checkScalarVar(byte[] s, int sOff, Work w)
+    {
+        long[] n = w.lx;
+        decodeLimbs(s, sOff, SCALAR_BYTES, n);
+
+        for (int i = SCALAR_LIMBS - 1; i >= 0; --i)
+        {
+            if (n[i] != L[i])
+            {
+                return n[i] < L[i];
+            }
+        }
+        return false;
+    }
+
+    private static boolean decodePointVar(byte[] p, int pOff, boolean negate, PointExt r, Work w)
+    {
+        if (!checkPointVar(p, pOff))
+        {
+            return false;
+        }
+
+        int x_0 = (p[pOff + POINT_BYTES - 1] & 0x80) >>> 7;
+
+        // decoding ignores the top bit, which holds x_0
+        F.decode(p, pOff, r.y);
+
+        int[] u = w.u;
+        int[] v = w.v;
+
+        F.sqr(r.y, u);
+        F.mul(D, u, v);
+        u[0] -= 1;
+        v[0] += 1;
+
+        if (!F.sqrtRatioVar(u, v, r.x, w.scratch))
+        {
+            return false;
+        }
+
+        F.normalize(r.x);
+        if (x_0 == 1 && F.isZero(r.x) != 0)
+        {
+            return false;
+        }
+
+        if (negate ^ (x_0 != (r.x[0] & 1)))
+        {
+            F.negate(r.x, r.x);
+        }
+
+        F.one(r.z);
+        F.mul(r.x, r.y, r.t);
+        return true;
+    }
+
+    private static void encodePoint(PointExt p, byte[] r, int rOff, Work w)
+    {
+        int[] x = w.u;
+        int[] y = w.v;
+
+        F.inv(p.z, y, w.scratch);
+        F.mul(p.x, y, x);
+        F.mul(p.y, y, y);
+
+        F.encode(y, r, rOff);
+        r[rOff + POINT_BYTES - 1] |= (byte)(F.isNegative(x) << 7);
+    }
+
+    private static void getWNafVar(byte[] n, int nOff, int width, byte[] ws)
+    {
+        Arrays.fill(ws, (byte)0);
+
+        int pow2 = 1 << width, mask = pow2 - 1;
+        int carry = 0, i = 0;
+
+        while (i < ws.length)
+        {
+            int bit = (n[nOff + (i >>> 3)] >>> (i & 7)) & 1;
+            if (bit == carry)
+            {
+                ++i;
+                continue;
+            }
+
+            int word = carry;
+            for (int j = 0; j < width && (i + j) < ws.length; ++j)
+            {
+                word += ((n[nOff + ((i + j) >>> 3)] >>> ((i + j) & 7)) & 1) << j;
+            }
+            word &= mask;
+
+            carry = word >>> (width - 1);
+            ws[i] = (byte)(word - (carry << width));
+            i += width;
+        }
+    }
+
+    private static boolean isSmallOrderVar(PointExt p, Work w)
+    {
+        pointDouble(p, w);
+        pointDouble(p, w);
+        pointDouble(p, w);
+
+        int[] t = w.u;
+        F.sub(p.y, p.z, t);
+
+        return F.isZero(p.x) != 0 && F.isZero(t) != 0;
+    }
+
+    private static void pointAddVar(boolean negate, PointExt p, PointExt r, Work w)
+    {
+        int[] a = w.a;
+        int[] b = w.b;
+        int[] c = w.c;
+        int[] d = w.d;
+        int[] e = w.e;
+        int[] f = w.f;
+        int[] g = w.g;
+        int[] h = w.h;
+
+        // negating p swaps (y + x) with (y - x) and changes the sign of its t
+        int[] nc, nd, nf, ng;
+        if (negate)
+        {
+            nc = d; nd = c; nf = g; ng = f;
+        }
+        else
+        {
+            nc = c; nd = d; nf = f; ng = g;
+        }
+
+        F.apm(r.y, r.x, b, a);
+        F.apm(p.y, p.x, d, c);
+        F.mul(a, nc, a);
+        F.mul(b, nd, b);
+        F.mul(r.t, p.t, c);
+        F.mul(c, D2, c);
+        F.mul(r.z, p.z, d);
+        F.add(d, d, d);
+        F.apm(b, a, h, e);
+        F.apm(d, c, ng, nf);
+        F.carry(ng);
+
+        F.mul(e, f, r.x);
+        F.mul(g, h, r.y);
+        F.mul(f, g, r.z);
+        F.mul(e, h, r.t);
+    }
+
+    private static void pointAddPrecomp(PointPrecomp p, PointExt r, Work w)
+    {
+        int[] a = w.a;
+        int[] b = w.b;
+        int[] c = w.c;
+        int[] d = w.d;
+        int[] e = w.e;
+        int[] f = w.f;
+        int[] g = w.g;
+        int[] h = w.h;
+
+        F.apm(r.y, r.x, b, a);
+        F.mul(a, p.ymx, a);
+        F.mul(b, p.ypx, b);
+        F.mul(r.t, p.xyd, c);
+        F.add(r.z, r.z, d);
+        F.apm(b, a, h, e);
+        F.apm(d, c, g, f);
+        F.carry(g);
+
+        F.mul(e, f, r.x);
+        F.mul(g, h, r.y);
+        F.mul(f, g, r.z);
+        F.mul(e, h, r.t);
+    }
+
+    private static void pointCopy(PointExt p, PointExt r)
+    {
+        F.copy(p.x, 0, r.x, 0);
+        F.copy(p.y, 0, r.y, 0);
+        F.copy(p.z, 0, r.z, 0);
+        F.copy(p.t, 0, r.t, 0);
+    }
+
+    private static void pointDouble(PointExt r, Work w)
+    {
+        int[] a = w.a;
+        int[] b = w.b;
+        int[] c = w.c;
+        int[] e = w.e;
+        int[] f = w.f;
+        int[] g = w.g;
+        int[] h = w.h;
+
+        F.sqr(r.x, a);
+        F.sqr(r.y, b);
+        F.sqr(r.z, c);
+        F.add(c, c, c);
+        F.carry(c);
+        F.apm(b, a, h, g);
+        F.add(r.x, r.y, e);
+        F.sqr(e, e);
+        F.sub(e, h, e);
+        F.sub(c, g, f);
+
+        F.mul(e, f, r.x);
+        F.mul(h, g, r.y);
+        F.mul(g, f, r.z);
+        F.mul(e, h, r.t);
+    }
+
+    private static void pointLookup(int block, int index, PointPrecomp p)
+    {
+        int sign = index >>> 31;
+        int abs = (index ^ -sign) + sign;
+
+        F.one(p.ypx);
+        F.one(p.ymx);
+        F.zero(p.xyd);
+
+        int[] table = precompBase;
+        int off = block * PRECOMP_POINTS * 3 * F.SIZE;
+
+        for (int i = 1; i <= PRECOMP_POINTS; ++i)
+        {
+            int cond = ((i ^ abs) - 1) >> 31;
+            F.cmov(cond, table, off, p.ypx, 0);     off += F.SIZE;
+            F.cmov(cond, table, off, p.ymx, 0);     off += F.SIZE;
+            F.cmov(cond, table, off, p.xyd, 0);     off += F.SIZE;
+        }
+
+        F.cswap(sign, p.ypx, p.ymx);
+        F.cnegate(sign, p.xyd);
+    }
+
+    /**
+     * Fill table with the odd multiples p, 3p, 5p, ... of p, returning it.
+     */
+    private static PointExt[] pointPrecomputeVar(PointExt p, PointExt[] table, Work w)
+    {
+        PointExt d = w.pD;
+        pointCopy(p, d);
+        pointDouble(d, w);
+
+        pointCopy(p, table[0]);
+        for (int i = 1; i < table.length; ++i)
+        {
+            pointCopy(table[i - 1], table[i]);
+            pointAddVar(false, d, table[i], w);
+        }
+        return table;
+    }
+
+    private static void pointSetNeutral(PointExt p)
+    {
+        F.zero(p.x);
+        F.one(p.y);
+        F.one(p.z);
+        F.zero(p.t);
+    }
+
+    private static void precompute()
+    {
+        if (precompBase != null)
+        {
+            return;
+        }
+
+        synchronized (precompLock)
+        {
+            if (precompBase != null)
+            {
+                return;
+            }
+
+            // only done once, so the working state is not worth keeping
+            Work w = new Work();
+
+            PointExt b = new PointExt();
+            F.copy(B_X, 0, b.x, 0);
+            F.copy(B_Y, 0, b.y, 0);
+            F.one(b.z);
+            F.mul(b.x, b.y, b.t);
+
+            precompBaseWnaf = pointPrecomputeVar(b, createPoints(1 << (WNAF_WIDTH_BASE - 2)), w);
+
+            int[] table = F.createTable(PRECOMP_BLOCKS * PRECOMP_POINTS * 3);
+            int off = 0;
+
+            PointExt q = new PointExt();
+            PointPrecomp p = new PointPrecomp();
+            int[] x = F.create();
+            int[] y = F.create();
+
+            for (int block = 0; block < PRECOMP_BLOCKS; ++block)
+            {
+                // entry i of the block is (i + 1).256^block.B
+                pointCopy(b, q);
+                for (int i = 0; i < PRECOMP_POINTS; ++i)
+                {
+                    F.inv(q.z, y, w.scratch);
+                    F.mul(q.x, y, x);
+                    F.mul(q.y, y, y);
+
+                    F.apm(y, x, p.ypx, p.ymx);
+                    F.normalize(p.ypx);
+                    F.normalize(p.ymx);
+                    F.mul(x, y, p.xyd);
+                    F.mul(p.xyd, D2, p.xyd);
+
+                    F.copy(p.ypx, 0, table, off);     off += F.SIZE;
+                    F.copy(p.ymx, 0, table, off);     off += F.SIZE;
+                    F.copy(p.xyd, 0, table, off);     off += F.SIZE;
+
+                    pointAddVar(false, b, q, w);
+                }
+
+                for (int i = 0; i < 8; ++i)
+                {
+                    pointDouble(b, w);
+                }
+            }
+
+            precompBase = table;
+        }
+    }
+
+    private static void pruneScalar(byte[] n, int nOff, byte[] r)
+    {
+        System.arraycopy(n, nOff, r, 0, SCALAR_BYTES);
+
+        r[0] &= 0xF8;
+        r[SCALAR_BYTES - 1] &= 0x7F;
+        r[SCALAR_BYTES - 1] |= 0x40;
+    }
+
+    /**
+     * Calculate r = [k]B in constant time, for k &lt; 2^255.
+     */
+    private static void scalarMultBase(byte[] k, PointExt r, Work w)
+    {
+        precompute();
+
+        // recode k as 64 signed radix-16 digits, all in [-8, 8) except the last, in [0, 8]
+        byte[] e = w.digits;
+        int carry = 0;
+        for (int i = 0; i < SCALAR_BYTES; ++i)
+        {
+            int b = k[i] & 0xFF;
+            int lo = (b & 0x0F) + carry;
+            carry = (lo + 8) >> 4;
+            e[2 * i] = (byte)(lo - (carry << 4));
+            int hi = (b >>> 4) + carry;
+            carry = (hi + 8) >> 4;
+            e[2 * i + 1] = (byte)(hi - (carry << 4));
+        }
+        e[2 * SCALAR_BYTES - 1] += (byte)(carry << 4);
+
+        PointPrecomp p = w.pp;
+        pointSetNeutral(r);
+
+        for (int i = 1; i < e.length; i += 2)
+        {
+            pointLookup(i >>> 1, e[i], p);
+            pointAddPrecomp(p, r, w);
+        }
+
+        pointDouble(r, w);
+        pointDouble(r, w);
+        pointDouble(r, w);
+        pointDouble(r, w);
+
+        for (int i = 0; i < e.length; i += 2)
+        {
+            pointLookup(i >>> 1, e[i], p);
+            pointAddPrecomp(p, r, w);
+        }
+
+        Arrays.fill(e, (byte)0);
+    }
+
+    private static void scalarMultBaseEncoded(byte[] k, byte[] r, int rOff, Work w)
+    {
+        PointExt p = w.pZ;
+        scalarMultBase(k, p, w);
+        encodePoint(p, r, rOff, w);
+    }
+
+    /**
+     * Calculate r = [nb]B + sum([ns[i]]ps[i]) by interleaving the wNAF representations of the
+     * scalars (all less than 2^253), given as wsB for nb and ws[i] for ns[i], with tables[i] holding
+     * the odd multiples of ps[i]. Only for use with public values.
+     */
+    private static void scalarMultStrausVar(byte[] wsB, byte[][] ws, PointExt[][] tables, int count, PointExt r,
+        Work w)
+    {
+        precompute();
+
+        pointSetNeutral(r);
+
+        int bit = wsB.length - 1;
+        while (bit > 0 && isZeroColumn(wsB, ws, count, bit))
+        {
+            --bit;
+        }
+
+        for (;;)
+        {
+            int wb = wsB[bit];
+            if (wb != 0)
+            {
+                pointAddVar(wb < 0, precompBaseWnaf[(wb ^ (wb >> 31)) >>> 1], r, w);
+            }
+
+            for (int i = 0; i < count; ++i)
+            {
+                int wp = ws[i][bit];
+                if (wp != 0)
+                {
+                    pointAddVar(wp < 0, tables[i][(wp ^ (wp >> 31)) >>> 1], r, w);
+                }
+            }
+
+            if (--bit < 0)
+            {
+                break;
+            }
+
+            pointDouble(r, w);
+        }
+    }
+
+    private static boolean isZero(byte[] bs)
+    {
+        int bits = 0;
+        for (int i = 0; i < bs.length; ++i)
+        {
+            bits |= bs[i];
+        }
+        return bits == 0;
+    }
+
+    private static boolean isZeroColumn(byte[] wsB, byte[][] ws, int count, int bit)
+    {
+        if (wsB[bit] != 0)
+        {
+            return false;
+        }
+        for (int i = 0; i < count; ++i)
+        {
+            if (ws[i][bit] != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Arithmetic modulo L on scalars held as signed 21 bit limbs, after the sc_reduce and
+     * sc_muladd of ref10. Folding a limb at 2^252 uses 2^252 = -27742317777372353535851937790883648493
+     * (mod L), written below as six limbs. Nothing here branches on the values.
+     */
+
+    private static void carryLimbs(long[] s, int from, int to)
+    {
+        for (int i = from; i < to; ++i)
+        {
+            s[i + 1] += s[i] >> 21;
+            s[i] &= M21;
+        }
+    }
+
+    private static void decodeLimbs(byte[] bs, int off, int len, long[] s)
+    {
+        long acc = 0;
+        int bits = 0, j = 0;
+
+        for (int i = 0; i < len; ++i)
+        {
+            acc |= (long)(bs[off + i] & 0xFF) << bits;
+            bits += 8;
+            if (bits >= 21)
+            {
+                s[j++] = acc & M21;
+                acc >>>= 21;
+                bits -= 21;
+            }
+        }
+        if (j < s.length)
+        {
+            s[j] = acc;
+        }
+    }
+
+    private static void encodeLimbs(long[] s, byte[] r, int rOff)
+    {
+        long acc = 0;
+        int bits = 0, j = 0;
+
+        for (int i = 0; i < SCALAR_LIMBS; ++i)
+        {
+            acc |= s[i] << bits;
+            bits += 21;
+            while (bits >= 8 && j < SCALAR_BYTES)
+            {
+                r[rOff + j++] = (byte)acc;
+                acc >>>= 8;
+                bits -= 8;
+            }
+        }
+    }
+
+    private static void foldLimb(long[] s, int i)
+    {
+        long c = s[i];
+        s[i - 12] += c * 666643;
+        s[i - 11] += c * 470296;
+        s[i - 10] += c * 654183;
+        s[i -  9] -= c * 997805;
+        s[i -  8] += c * 136657;
+        s[i -  7] -= c * 683901;
+        s[i] = 0;
+    }
+
+    /**
+     * Calculate a * b + c mod L into r, where c may be null for zero and may be the same as r.
+     */
+    private static void mulAddScalar(byte[] a, int aOff, byte[] b, int bOff, byte[] c, byte[] r, int rOff, Work w)
+    {
+        long[] x = w.lx;
+        long[] y = w.ly;
+        long[] s = w.limbs;
+
+        decodeLimbs(a, aOff, SCALAR_BYTES, x);
+        decodeLimbs(b, bOff, SCALAR_BYTES, y);
+        Arrays.fill(s, 0L);
+        if (c != null)
+        {
+            decodeLimbs(c, 0, SCALAR_BYTES, s);
+        }
+
+        for (int i = 0; i < SCALAR_LIMBS; ++i)
+        {
+            for (int j = 0; j < SCALAR_LIMBS; ++j)
+            {
+                s[i + j] += x[i] * y[j];
+            }
+        }
+
+        carryLimbs(s, 0, s.length - 1);
+        reduceLimbs(s);
+
+        encodeLimbs(s, r, rOff);
+
+        Arrays.fill(x, 0L);
+        Arrays.fill(y, 0L);
+        Arrays.fill(s, 0L);
+    }
+
+    private static void reduceScalar(byte[] n, byte[] r, Work w)
+    {
+        long[] s = w.limbs;
+        Arrays.fill(s, 0L);
+        decodeLimbs(n, 0, 64, s);
+        reduceLimbs(s);
+
+        encodeLimbs(s, r, 0);
+        Arrays.fill(s, 0L);
+    }
+
+    /**
+     * Reduce the value held in the 25 limbs of s to its canonical form modulo L, in limbs 0 to 12.
+     */
+    private static void reduceLimbs(long[] s)
+    {
+        for (int i = s.length - 1; i > 12; --i)
+        {
+            foldLimb(s, i);
+            carryLimbs(s, i - 12, i - 1);
+        }
+
+        // two more folds of limb 12 bring the value into (-L, L)
+        carryLimbs(s, 0, 12);
+        foldLimb(s, 12);
+        carryLimbs(s, 0, 12);
+        foldLimb(s, 12);
+        carryLimbs(s, 0, 12);
+
+        // and adding L if the value is negative makes it canonical
+        long mask = s[12] >> 63;
+        for (int i = 0; i < SCALAR_LIMBS; ++i)
+        {
+            s[i] += L[i] & mask;
+        }
+        carryLimbs(s, 0, 12);
+    }
+}
@@ -0,0 +1,209 @@
+package ru.mipt.cybersecurity.crypto.prng.test;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.prng.DeviceEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.EntropyHealthTest;
+import ru.mipt.cybersecurity.crypto.prng.EntropySource;
+import ru.mipt.cybersecurity.crypto.prng.EntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.JitterEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.MixingEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.PrecollectingEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandom;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandomBuilder;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+public class EntropySourceTest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "EntropySource";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        testCutoffs();
+        testRepetitionCount();
+        testAdaptiveProportion();
+
+        testSource(new DeviceEntropySourceProvider(), 256);
+        testSource(new DeviceEntropySourceProvider(), 1000);
+        testSource(new JitterEntropySourceProvider(), 256);
+        testSource(new MixingEntropySourceProvider(new EntropySourceProvider[] {
+            new DeviceEntropySourceProvider(), new JitterEntropySourceProvider() }), 1100);
+
+        testMixing();
+        testPrecollecting();
+    }
+
+    private void testCutoffs()
+    {
+        // SP 800-90B, section 4.4, alpha = 2^-20
+        checkCutoffs(0.5, false, 41, 410);
+        checkCutoffs(1, false, 21, 311);
+        checkCutoffs(2, false, 11, 177);
+        checkCutoffs(4, false, 6, 62);
+        checkCutoffs(8, false, 4, 13);
+        checkCutoffs(1, true, 21, 589);
+
+        EntropyHealthTest healthTest = new EntropyHealthTest(8, false);
+        isEquals(6, healthTest.getRepetitionCountCutoff());
+        isEquals(512, healthTest.getAdaptiveProportionWindow());
+        isEquals(1024, new EntropyHealthTest(1, true).getAdaptiveProportionWindow());
+    }
+
+    private void checkCutoffs(double minEntropy, boolean binary, int rct, int apt)
+    {
+        EntropyHealthTest healthTest = new EntropyHealthTest(minEntropy, binary, 20);
+
+        isEquals("RCT cutoff for H=" + minEntropy, rct, healthTest.getRepetitionCountCutoff());
+        isEquals("APT cutoff for H=" + minEntropy, apt, healthTest.getAdaptiveProportionCutoff());
+    }
+
+    private void testRepetitionCount()
+    {
+        EntropyHealthTest healthTest = new EntropyHealthTest(8, false);
+
+        for (int i = 0; i != 1000; i++)
+        {
+            healthTest.check(i & 0xff);
+        }
+
+        try
+        {
+            for (int i = 0; i != healthTest.getRepetitionCountCutoff(); i++)
+            {
+                healthTest.check(7);
+            }
+            fail("repetition count test passed");
+        }
+        catch (IllegalStateException e)
+        {
+            isEquals("entropy source failed repetition count test", e.getMessage());
+        }
+    }
+
+    private void testAdaptiveProportion()
+    {
+        EntropyHealthTest healthTest = new EntropyHealthTest(4, false);
+
+        try
+        {
+            // the first sample of the window turns up every other sample - never twice in a row
+            for (int i = 0; i != healthTest.getAdaptiveProportionWindow(); i++)
+            {
+                healthTest.check((i & 1) == 0 ? 0 : i);
+            }
+            fail("adaptive proportion test passed");
+        }
+        catch (IllegalStateException e)
+        {
+            isEquals("entropy source failed adaptive proportion test", e.getMessage());
+        }
+    }
+
+    private void testSource(EntropySourceProvider provider, int bits)
+    {
+        EntropySource source = provider.get(bits);
+        Set<String> seen = new HashSet<String>();
+
+        isEquals(bits, source.entropySize());
+
+        for (int i = 0; i != 8; i++)
+        {
+            byte[] entropy = source.getEntropy();
+
+            isEquals((bits + 7) / 8, entropy.length);
+            isTrue("entropy repeated", seen.add(Hex.toHexString(entropy)));
+        }
+    }
+
+    private void testMixing()
+    {
+        EntropySourceProvider fixed = new EntropySourceProvider()
+        {
+            public EntropySource get(final int bitsRequired)
+            {
+                return new EntropySource()
+                {
+                    public boolean isPredictionResistant()
+                    {
+                        return false;
+                    }
+
+                    public byte[] getEntropy()
+                    {
+                        return new byte[(bitsRequired + 7) / 8];
+                    }
+
+                    public int entropySize()
+                    {
+                        return bitsRequired;
+                    }
+                };
+            }
+        };
+
+        EntropySource mixed = new MixingEntropySourceProvider(new EntropySourceProvider[] { fixed, fixed }).get(1100);
+        isTrue("fixed sources prediction resistant", !mixed.isPredictionResistant());
+
+        // counter mode blocks must differ even for constant input
+        byte[] out = mixed.getEntropy();
+        isEquals(138, out.length);
+        isTrue("counter mode blocks equal", !areEqual(Arrays.copyOfRange(out, 0, 64), Arrays.copyOfRange(out, 64, 128)));
+        isTrue("mixing not deterministic", areEqual(out, mixed.getEntropy()));
+
+        mixed = new MixingEntropySourceProvider(new EntropySourceProvider[] { fixed, new DeviceEntropySourceProvider() }).get(256);
+        isTrue("device source not prediction resistant", mixed.isPredictionResistant());
+    }
+
+    private void testPrecollecting()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            PrecollectingEntropySourceProvider provider = new PrecollectingEntropySourceProvider(
+                new DeviceEntropySourceProvider(), executor, 4);
+
+            testSource(provider, 256);
+
+            isTrue("precollected source prediction resistant", !provider.get(256).isPredictionResistant());
+
+            SP800SecureRandom random = new SP800SecureRandomBuilder(provider)
+                .buildHash(new SHA256Digest(), null, false);
+
+            byte[] a = new byte[64];
+            byte[] b = new byte[64];
+
+            random.nextBytes(a);
+            random.reseed((byte[])null);
+            random.nextBytes(b);
+
+            isTrue("reseeded output repeated", !areEqual(a, b));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        // once the executor is gone entropy is collected on demand
+        testSource(new PrecollectingEntropySourceProvider(new DeviceEntropySourceProvider(), executor, 4), 128);
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new EntropySourceTest());
+    }
+}
@@ -0,0 +1,182 @@
+package ru.mipt.cybersecurity.crypto.prng.test;
+
+import java.security.SecureRandom;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.prng.PrefetchingSecureRandom;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandom;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandomBuilder;
+import ru.mipt.cybersecurity.util.Pack;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+public class PrefetchingSecureRandomTest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "PrefetchingSecureRandom";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try
+        {
+            testUnique(executor);
+            testReseed(executor);
+            testSP800(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        testShutdown(executor);
+    }
+
+    private void testUnique(ExecutorService executor)
+        throws Exception
+    {
+        CounterRandom source = new CounterRandom();
+        PrefetchingSecureRandom random = new PrefetchingSecureRandom(source, executor, 256);
+        Set<Long> seen = new HashSet<Long>();
+
+        for (int i = 0; i != 2000; i++)
+        {
+            byte[] bytes = new byte[8 * (1 + i % 5)];
+
+            random.nextBytes(bytes);
+
+            for (int j = 0; j != bytes.length; j += 8)
+            {
+                isTrue("value repeated", seen.add(Long.valueOf(Pack.bigEndianToLong(bytes, j))));
+            }
+
+            if (i % 100 == 0)
+            {
+                // let the refill catch up now and then so the buffered path is exercised
+                waitForRefill(random, 64);
+            }
+        }
+
+        // a request bigger than the whole buffer
+        byte[] big = new byte[8 * 100];
+        random.nextBytes(big);
+        for (int j = 0; j != big.length; j += 8)
+        {
+            isTrue("value repeated", seen.add(Long.valueOf(Pack.bigEndianToLong(big, j))));
+        }
+    }
+
+    private void testReseed(ExecutorService executor)
+        throws Exception
+    {
+        CounterRandom source = new CounterRandom();
+        PrefetchingSecureRandom random = new PrefetchingSecureRandom(source, executor, 1024);
+        byte[] bytes = new byte[8];
+
+        waitForRefill(random, 256);
+        random.nextBytes(bytes);
+
+        for (int i = 0; i != 50; i++)
+        {
+            long mark = source.next();
+
+            random.reseed((byte[])null);
+
+            random.nextBytes(bytes);
+
+            isTrue("stale output after reseed", Pack.bigEndianToLong(bytes, 0) >= mark);
+        }
+    }
+
+    private void testSP800(ExecutorService executor)
+        throws Exception
+    {
+        SP800SecureRandom drbg = new SP800SecureRandomBuilder().buildHash(new SHA256Digest(), null, false);
+        PrefetchingSecureRandom random = new PrefetchingSecureRandom(drbg, executor);
+        Set<String> seen = new HashSet<String>();
+
+        waitForRefill(random, 256);
+
+        for (int i = 0; i != 500; i++)
+        {
+            byte[] bytes = new byte[16];
+
+            random.nextBytes(bytes);
+
+            isTrue("value repeated", seen.add(Hex.toHexString(bytes)));
+
+            if (i == 250)
+            {
+                random.reseed(new byte[4]);
+            }
+        }
+
+        isEquals("seed length", 20, random.generateSeed(20).length);
+    }
+
+    private void testShutdown(ExecutorService executor)
+    {
+        CounterRandom source = new CounterRandom();
+        PrefetchingSecureRandom random = new PrefetchingSecureRandom(source, executor, 64);
+        byte[] bytes = new byte[32];
+
+        // nothing can be prefetched, so everything comes straight from the source
+        random.nextBytes(bytes);
+        random.nextBytes(bytes);
+
+        isEquals("bytes buffered", 0, random.getAvailable());
+        isEquals("source not used directly", 8, source.next());
+    }
+
+    private static void waitForRefill(PrefetchingSecureRandom random, int minimum)
+        throws InterruptedException
+    {
+        for (int i = 0; i != 1000 && random.getAvailable() < minimum; i++)
+        {
+            Thread.sleep(1);
+        }
+    }
+
+    /**
+     * Source producing a sequence of 64 bit counter values, so repeats are easy to spot.
+     */
+    private static class CounterRandom
+        extends SecureRandom
+    {
+        private long counter;
+
+        public synchronized void nextBytes(byte[] bytes)
+        {
+            if (bytes.length % 8 != 0)
+            {
+                throw new IllegalArgumentException("multiple of 8 bytes required");
+            }
+
+            for (int i = 0; i != bytes.length; i += 8)
+            {
+                Pack.longToBigEndian(counter++, bytes, i);
+            }
+        }
+
+        synchronized long next()
+        {
+            return counter;
+        }
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new PrefetchingSecureRandomTest());
+    }
+}
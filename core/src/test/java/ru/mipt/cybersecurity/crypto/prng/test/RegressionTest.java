@@ -12,7 +12,9 @@ public class RegressionTest
         new HMacDRBGTest(),
         new SP800RandomTest(),
         new X931Test(),
-        new FixedSecureRandomTest()
+        new FixedSecureRandomTest(),
+        new PrefetchingSecureRandomTest(),
+        new EntropySourceTest()
     };
 
     public static void main(
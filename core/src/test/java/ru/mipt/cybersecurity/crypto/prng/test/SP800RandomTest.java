@@ -1,12 +1,23 @@
 package ru.mipt.cybersecurity.crypto.prng.test;
 
 import java.security.SecureRandom;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
 import ru.mipt.cybersecurity.crypto.digests.SHA1Digest;
 import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA3Digest;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
 import ru.mipt.cybersecurity.crypto.engines.DESedeEngine;
 import ru.mipt.cybersecurity.crypto.macs.HMac;
 import ru.mipt.cybersecurity.crypto.prng.BasicEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.EntropySource;
+import ru.mipt.cybersecurity.crypto.prng.EntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandom;
 import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandomBuilder;
 import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.encoders.Hex;
@@ -233,6 +244,196 @@ public class SP800RandomTest
         }
     }
 
+    private void testPool()
+        throws Exception
+    {
+        SP800SecureRandomBuilder rBuild = new SP800SecureRandomBuilder(new SecureRandom(), false)
+            .setPersonalizationString(Hex.decode("404142434445464748494A4B4C4D4E4F"))
+            .setPoolSize(4);
+
+        checkPool(rBuild.buildHash(new SHA256Digest(), null, false));
+        checkPool(rBuild.buildHMAC(new HMac(new SHA256Digest()), null, false));
+        checkPool(rBuild.buildCTR(new AESEngine(), 256, null, false));
+        checkPool(rBuild.buildCTR(new BlockCipherFactory()
+        {
+            public BlockCipher createBlockCipher()
+            {
+                return new AESEngine();
+            }
+        }, 256, null, false));
+
+        try
+        {
+            rBuild.buildCTR(new AESEngine()
+            {
+                // anonymous, so no public constructor to pool it with
+            }, 256, null, false);
+            fail("cipher without public constructor pooled");
+        }
+        catch (IllegalArgumentException e)
+        {
+            isTrue(e.getMessage().indexOf("BlockCipherFactory") >= 0);
+        }
+
+        try
+        {
+            rBuild.buildHash(new SHA3Digest(256), null, false);
+            fail("non-Memoable digest pooled");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            rBuild.setPoolSize(0);
+            fail("zero pool size accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    /*
+     * A prediction resistant pool reseeds on every request, so its DRBGs must be able to gather
+     * entropy at the same time rather than queueing on one source.
+     */
+    private void testPoolEntropy()
+        throws Exception
+    {
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger maxInside = new AtomicInteger();
+        final SecureRandom seeds = new SecureRandom();
+
+        EntropySourceProvider slowProvider = new EntropySourceProvider()
+        {
+            public EntropySource get(final int bitsRequired)
+            {
+                return new EntropySource()
+                {
+                    public boolean isPredictionResistant()
+                    {
+                        return true;
+                    }
+
+                    public byte[] getEntropy()
+                    {
+                        int count = inside.incrementAndGet();
+                        while (count > maxInside.get())
+                        {
+                            maxInside.compareAndSet(maxInside.get(), count);
+                        }
+
+                        try
+                        {
+                            Thread.sleep(20);
+                        }
+                        catch (InterruptedException e)
+                        {
+                            Thread.currentThread().interrupt();
+                        }
+
+                        inside.decrementAndGet();
+
+                        byte[] rv = new byte[(bitsRequired + 7) / 8];
+                        seeds.nextBytes(rv);
+                        return rv;
+                    }
+
+                    public int entropySize()
+                    {
+                        return bitsRequired;
+                    }
+                };
+            }
+        };
+
+        final SP800SecureRandom random = new SP800SecureRandomBuilder(slowProvider)
+            .setPoolSize(4)
+            .buildHash(new SHA256Digest(), null, true);
+
+        // thread ids are handed out on creation, so these are consecutive and each has its own stripe
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    for (int i = 0; i != 5; i++)
+                    {
+                        random.nextBytes(new byte[32]);
+                    }
+                }
+            };
+        }
+
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].start();
+        }
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].join();
+        }
+
+        isTrue("pooled DRBGs serialised on entropy gathering", maxInside.get() > 1);
+    }
+
+    private void checkPool(final SP800SecureRandom random)
+        throws Exception
+    {
+        final Set<String> outputs = Collections.synchronizedSet(new HashSet<String>());
+        final Exception[] failure = new Exception[1];
+        Thread[] threads = new Thread[8];
+
+        isEquals("pool size", 4, random.getPoolSize());
+
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    try
+                    {
+                        for (int i = 0; i != 100; i++)
+                        {
+                            byte[] bytes = new byte[32];
+
+                            random.nextBytes(bytes);
+                            outputs.add(Hex.toHexString(bytes));
+
+                            if (i == 50)
+                            {
+                                random.reseed((byte[])null);
+                            }
+                        }
+                    }
+                    catch (Exception e)
+                    {
+                        failure[0] = e;
+                    }
+                }
+            };
+            threads[t].start();
+        }
+
+        for (int t = 0; t != threads.length; t++)
+        {
+            threads[t].join();
+        }
+
+        if (failure[0] != null)
+        {
+            throw failure[0];
+        }
+
+        isEquals("pooled DRBGs repeated output", threads.length * 100, outputs.size());
+    }
+
     public void performTest()
         throws Exception
     {
@@ -240,6 +441,8 @@ public class SP800RandomTest
         testHMACRandom();
         testCTRRandom();
         testGenerateSeed();
+        testPool();
+        testPoolEntropy();
     }
 
     public static void main(String[] args)
@@ -0,0 +1,175 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESLightEngine;
+import ru.mipt.cybersecurity.crypto.modes.GCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.GCMPreparedKey;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Test vectors from the NIST standard tests, FIPS-197 appendix C and Brian Gladman's vector set
+ * <a href="http://fp.gladman.plus.com/cryptography_technology/rijndael/">
+ * http://fp.gladman.plus.com/cryptography_technology/rijndael/</a>, plus GCM over the bitsliced
+ * engine checked against AESLightEngine.
+ */
+public class AESBitslicedTest
+    extends CipherTest
+{
+    static SimpleTest[]  tests = 
+            {
+                new BlockCipherVectorTest(0, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("80000000000000000000000000000000")),
+                        "00000000000000000000000000000000", "0EDD33D3C621E546455BD8BA1418BEC8"),
+                new BlockCipherVectorTest(1, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("00000000000000000000000000000080")),
+                        "00000000000000000000000000000000", "172AEAB3D507678ECAF455C12587ADB7"),
+                new BlockCipherMonteCarloTest(2, 10000, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("00000000000000000000000000000000")),
+                        "00000000000000000000000000000000", "C34C052CC0DA8D73451AFE5F03BE297F"),
+                new BlockCipherMonteCarloTest(3, 10000, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("5F060D3716B345C253F6749ABAC10917")),
+                        "355F697E8B868B65B25A04E18D782AFA", "ACC863637868E3E068D2FD6E3508454A"),
+                new BlockCipherVectorTest(4, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("000000000000000000000000000000000000000000000000")),
+                        "80000000000000000000000000000000", "6CD02513E8D4DC986B4AFE087A60BD0C"),
+                new BlockCipherMonteCarloTest(5, 10000, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("AAFE47EE82411A2BF3F6752AE8D7831138F041560631B114")),
+                        "F3F6752AE8D7831138F041560631B114", "77BA00ED5412DFF27C8ED91F3C376172"),
+                new BlockCipherVectorTest(6, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("0000000000000000000000000000000000000000000000000000000000000000")),
+                        "80000000000000000000000000000000", "DDC6BF790C15760D8D9AEB6F9A75FD4E"),
+                new BlockCipherMonteCarloTest(7, 10000, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("28E79E2AFC5F7745FCCABE2F6257C2EF4C4EDFB37324814ED4137C288711A386")),
+                        "C737317FE0846F132B23C8C2A672CE22", "E58B82BFBA53C0040DC610C642121168"),
+                new BlockCipherVectorTest(8, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("000102030405060708090a0b0c0d0e0f")),
+                        "00112233445566778899aabbccddeeff", "69c4e0d86a7b0430d8cdb78070b4c55a"),
+                new BlockCipherVectorTest(9, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("000102030405060708090a0b0c0d0e0f1011121314151617")),
+                        "00112233445566778899aabbccddeeff", "dda97ca4864cdfe06eaf70a0ec0d7191"),
+                new BlockCipherVectorTest(10, new AESBitslicedEngine(),
+                        new KeyParameter(Hex.decode("000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f")),
+                        "00112233445566778899aabbccddeeff", "8ea2b7ca516745bfeafc49904b496089")
+            };
+    
+    private BlockCipher _engine = new AESBitslicedEngine();
+
+    private final SecureRandom random = new SecureRandom();
+
+    AESBitslicedTest()
+    {
+        super(tests, new AESBitslicedEngine(), new KeyParameter(new byte[16]));
+    }
+
+    public String getName()
+    {
+        return "AESBitsliced";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        super.performTest();
+
+        gcmTest(16);
+        gcmTest(24);
+        gcmTest(32);
+
+        try
+        {
+            _engine.processBlock(new byte[16], 0, new byte[16], 0);
+
+            fail("uninitialised engine not detected");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        //
+        // init tests
+        //
+        try
+        {
+            byte[]      dudKey = new byte[6];
+            
+            _engine.init(true, new KeyParameter(dudKey));
+            
+            fail("failed key length check");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected 
+        }
+        
+        try
+        {
+            byte[]      iv = new byte[16];
+
+            _engine.init(true, new ParametersWithIV(null, iv));
+            
+            fail("failed parameter check");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected 
+        }
+    }
+
+    private void gcmTest(int keySize)
+        throws Exception
+    {
+        byte[] key = new byte[keySize];
+        byte[] nonce = new byte[12];
+        byte[] plain = new byte[1000 + keySize];
+
+        random.nextBytes(key);
+        random.nextBytes(nonce);
+        random.nextBytes(plain);
+
+        AEADParameters params = new AEADParameters(new KeyParameter(key), 128, nonce);
+        GCMBlockCipher ref = new GCMBlockCipher(new AESLightEngine());
+        GCMBlockCipher gcm = new GCMBlockCipher(new AESBitslicedEngine());
+
+        ref.init(true, params);
+        byte[] expected = new byte[ref.getOutputSize(plain.length)];
+        ref.doFinal(expected, ref.processBytes(plain, 0, plain.length, expected, 0));
+
+        gcm.init(true, params);
+        byte[] cipherText = new byte[gcm.getOutputSize(plain.length)];
+        gcm.doFinal(cipherText, gcm.processBytes(plain, 0, plain.length, cipherText, 0));
+
+        isTrue("GCM encryption mismatch for " + keySize * 8 + " bit key", Arrays.areEqual(expected, cipherText));
+
+        gcm.init(false, params);
+        byte[] decrypted = new byte[gcm.getOutputSize(cipherText.length)];
+        gcm.doFinal(decrypted, gcm.processBytes(cipherText, 0, cipherText.length, decrypted, 0));
+
+        isTrue("GCM decryption mismatch for " + keySize * 8 + " bit key", Arrays.areEqual(plain, decrypted));
+
+        // a prepared key skips its 64k tables here, the result must be the same
+        AEADParameters preparedParams = new AEADParameters(
+            new GCMPreparedKey(new AESLightEngine(), new KeyParameter(key)), 128, nonce);
+
+        gcm = new GCMBlockCipher(new AESBitslicedEngine());
+        gcm.init(true, preparedParams);
+        cipherText = new byte[gcm.getOutputSize(plain.length)];
+        gcm.doFinal(cipherText, gcm.processBytes(plain, 0, plain.length, cipherText, 0));
+
+        isTrue("GCM prepared key mismatch for " + keySize * 8 + " bit key", Arrays.areEqual(expected, cipherText));
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new AESBitslicedTest());
+    }
+}
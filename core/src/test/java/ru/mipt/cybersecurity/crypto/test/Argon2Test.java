@@ -0,0 +1,201 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.mipt.cybersecurity.crypto.generators.Argon2BytesGenerator;
+import ru.mipt.cybersecurity.crypto.params.Argon2Parameters;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Argon2 tests - the RFC 9106 vectors, and vectors from the reference implementation.
+ */
+public class Argon2Test
+    extends SimpleTest
+{
+    private static final int DEFAULT_OUTPUTLEN = 32;
+
+    public String getName()
+    {
+        return "Argon2";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        testRFC9106(new Argon2BytesGenerator());
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            testRFC9106(new Argon2BytesGenerator(executor));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        testReference();
+        testArenaReuse();
+        testParameters();
+    }
+
+    private void testRFC9106(Argon2BytesGenerator generator)
+    {
+        checkRFC9106(generator, Argon2Parameters.ARGON2_d,
+            "512b391b6f1162975371d30919734294f868e3be3984f3c1a13a4db9fabe4acb");
+        checkRFC9106(generator, Argon2Parameters.ARGON2_i,
+            "c814d9d1dc7f37aa13f0d77f2494bda1c8de6b016dd388d29952a4c4672b6ce8");
+        checkRFC9106(generator, Argon2Parameters.ARGON2_id,
+            "0d640df58d78766c08c037a34a8b53c9d01ef0452d75b65eb52520e96b01e659");
+    }
+
+    private void checkRFC9106(Argon2BytesGenerator generator, int type, String expected)
+    {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(type)
+            .withVersion(Argon2Parameters.ARGON2_VERSION_13)
+            .withIterations(3)
+            .withMemoryAsKB(32)
+            .withParallelism(4)
+            .withSalt(filled(16, 0x02))
+            .withSecret(filled(8, 0x03))
+            .withAdditional(filled(12, 0x04))
+            .build();
+
+        generator.init(parameters);
+
+        byte[] result = new byte[DEFAULT_OUTPUTLEN];
+        generator.generateBytes(filled(32, 0x01), result);
+
+        isTrue("RFC 9106 type " + type + " failed", areEqual(Hex.decode(expected), result));
+    }
+
+    private void testReference()
+    {
+        checkReference(Argon2Parameters.ARGON2_VERSION_10, 2, 16, 1,
+            "f6c4db4a54e2a370627aff3db6176b94a2a209a62c8e36152711802f7b30c694");
+        checkReference(Argon2Parameters.ARGON2_VERSION_13, 2, 16, 1,
+            "c1628832147d9720c5bd1cfd61367078729f6dfb6f8fea9ff98158e0d7816ed0");
+        checkReference(Argon2Parameters.ARGON2_VERSION_13, 2, 8, 1,
+            "89e9029f4637b295beb027056a7336c414fadd43f6b208645281cb214a56452f");
+    }
+
+    private void checkReference(int version, int iterations, int memoryPowOfTwo, int parallelism, String expected)
+    {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_i)
+            .withVersion(version)
+            .withIterations(iterations)
+            .withMemoryPowOfTwo(memoryPowOfTwo)
+            .withParallelism(parallelism)
+            .withSalt(Strings.toByteArray("somesalt"))
+            .build();
+
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+
+        generator.init(parameters);
+
+        byte[] result = new byte[DEFAULT_OUTPUTLEN];
+        generator.generateBytes("password".toCharArray(), result);
+
+        isTrue("reference vector m=2^" + memoryPowOfTwo + " v=" + Integer.toHexString(version) + " failed",
+            areEqual(Hex.decode(expected), result));
+    }
+
+    private void testArenaReuse()
+    {
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+
+        // a large arena first, then smaller hashes in it, then back to the large one
+        checkReuse(generator, 256, 4);
+        checkReuse(generator, 64, 2);
+        checkReuse(generator, 33, 1);
+        checkReuse(generator, 256, 4);
+    }
+
+    private void checkReuse(Argon2BytesGenerator reused, int memory, int parallelism)
+    {
+        Argon2Parameters parameters = new Argon2Parameters.Builder(Argon2Parameters.ARGON2_id)
+            .withIterations(2)
+            .withMemoryAsKB(memory)
+            .withParallelism(parallelism)
+            .withSalt(filled(16, 0x02))
+            .build();
+
+        Argon2BytesGenerator fresh = new Argon2BytesGenerator();
+        byte[] expected = new byte[64];
+        byte[] result = new byte[64];
+
+        fresh.init(parameters);
+        fresh.generateBytes(filled(8, 0x01), expected);
+
+        reused.init(parameters);
+        reused.generateBytes(filled(8, 0x01), result);
+
+        isTrue("arena reuse failed for m=" + memory, areEqual(expected, result));
+    }
+
+    private void testParameters()
+    {
+        try
+        {
+            new Argon2Parameters.Builder(3);
+            fail("bad type accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new Argon2Parameters.Builder().withMemoryAsKB(31).withParallelism(4).build();
+            fail("memory below 8 * p accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new Argon2Parameters.Builder().withVersion(0x12).build();
+            fail("bad version accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        Argon2BytesGenerator generator = new Argon2BytesGenerator();
+        generator.init(new Argon2Parameters.Builder().withMemoryAsKB(8).withSalt(filled(16, 0)).build());
+
+        try
+        {
+            generator.generateBytes(new byte[8], new byte[3]);
+            fail("short output accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static byte[] filled(int length, int value)
+    {
+        byte[] data = new byte[length];
+
+        for (int i = 0; i != length; i++)
+        {
+            data[i] = (byte)value;
+        }
+
+        return data;
+    }
+
+    public static void main(String[] args)
+    {
+        runTest(new Argon2Test());
+    }
+}
@@ -0,0 +1,191 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.Blake2bpDigest;
+import ru.mipt.cybersecurity.crypto.digests.Blake2spDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Tests for the BLAKE2bp and BLAKE2sp parallel tree digests, run both sequentially and with the
+ * leaves hashed on an executor.
+ */
+public class Blake2TreeDigestTest
+    extends SimpleTest
+{
+    // first entries of https://blake2.net/blake2bp-kat.txt and blake2sp-kat.txt - empty message, key 0x00, 0x01, ...
+    private static final String BLAKE2BP_KEYED = "9d9461073e4eb640a255357b839f394b838c6ff57c9b686a3f76107c1066728f3c9956bd785cbc3bf79dc2ab578c5a0c063b9d9c405848de1dbe821cd05c940a";
+    private static final String BLAKE2SP_KEYED = "715cb13895aeb678f6124160bff21465b30f4f6874193fc851b4621043f09cc6";
+
+    // unkeyed, message byte i is i mod 251
+    private static final String[][] blake2bpVectors =
+        { // message length, hash
+            { "0", "b5ef811a8038f70b628fa8b294daae7492b1ebe343a80eaabbf1f6ae664dd67b9d90b0120791eab81dc96985f28849f6a305186a85501b405114bfa678df9380" },
+            { "1", "a139280e72757b723e6473d5be59f36e9d50fc5cd7d4585cbc09804895a36c521242fb2789f85cb9e35491f31d4a6952f9d8e097aef94fa1ca0b12525721f03d" },
+            { "255", "a69a92e71d1326c8c7140eb21717997a6c861b07e6e193dfa48f4999725c25ee1debfa095ce163fe1e9e14cbef6494f037aa733b6297efb9ae44de0e9ab7c403" },
+            { "256", "df9683ee0fc68136399d6d3afa6d22123ea468ab5c908efd5b4acebe4fd12fc4b19c7913de640cb727a5d98764cd8ca41e43faf1957baadbf57df802fe01c8e8" },
+            { "1000", "440c4c3a7a50159b43a3b80e63083fa88b7e644490061ce763e92426d1fa9f034d0a3a4f94d99042b98d068da35c5af694ea9e7f51b8551af5c99c2eef95024d" },
+            { "100000", "5cdeae115c2491fb0b9c70267e9d3294e47d4f30f3218d8f9b3e2ed58cf7a67e05c08ce328a86fd4e0d09fc239d3f397480290a8576f9dbdc97222fae9bba448" }
+        };
+
+    private static final String[][] blake2spVectors =
+        { // message length, hash
+            { "0", "dd0e891776933f43c7d032b08a917e25741f8aa9a12c12e1cac8801500f2ca4f" },
+            { "1", "a6b9eecc25227ad788c99d3f236debc8da408849e9a5178978727a81457f7239" },
+            { "255", "3aafcdc0f0ec17f0d35db5dae359b9fa2045f4ed5af4e708bd3b8817e1722d21" },
+            { "256", "d1b35d04c0849d6dc758990229c9539784b9e9a8592aa5db63b7cb424ac7105c" },
+            { "1000", "611f1af6610cdaf674ec2c9178f6376ebe234ef50998a3be3f1fa698fb779274" },
+            { "100000", "eb7050ea034453a75de798404d87f5568c4c0c6a7cccba79bd5863a40a33d10b" }
+        };
+
+    private static final int[] CHUNK_SIZES = { 1, 63, 512, 100000 };
+
+    public String getName()
+    {
+        return "BLAKE2 Tree";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkDigest(new Blake2bpDigest(key(64), null), new byte[0], 1, Hex.decode(BLAKE2BP_KEYED));
+        checkDigest(new Blake2spDigest(key(32), null), new byte[0], 1, Hex.decode(BLAKE2SP_KEYED));
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            for (int i = 0; i != blake2bpVectors.length; i++)
+            {
+                byte[] message = message(Integer.parseInt(blake2bpVectors[i][0]));
+                byte[] expected = Hex.decode(blake2bpVectors[i][1]);
+
+                for (int c = 0; c != CHUNK_SIZES.length; c++)
+                {
+                    checkDigest(new Blake2bpDigest(), message, CHUNK_SIZES[c], expected);
+                    checkDigest(new Blake2bpDigest(null, executor, 512), message, CHUNK_SIZES[c], expected);
+                }
+            }
+
+            for (int i = 0; i != blake2spVectors.length; i++)
+            {
+                byte[] message = message(Integer.parseInt(blake2spVectors[i][0]));
+                byte[] expected = Hex.decode(blake2spVectors[i][1]);
+
+                for (int c = 0; c != CHUNK_SIZES.length; c++)
+                {
+                    checkDigest(new Blake2spDigest(), message, CHUNK_SIZES[c], expected);
+                    checkDigest(new Blake2spDigest(null, executor, 512), message, CHUNK_SIZES[c], expected);
+                }
+            }
+
+            keyedTest(new Blake2bpDigest(key(64), null), new Blake2bpDigest(key(64), executor, 512));
+            keyedTest(new Blake2spDigest(key(32), null), new Blake2spDigest(key(32), executor, 512));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        cloneTest(new Blake2bpDigest(key(64), null), new Blake2bpDigest(key(64), null));
+        cloneTest(new Blake2spDigest(key(32), null), new Blake2spDigest(key(32), null));
+
+        try
+        {
+            new Blake2spDigest(key(33), null);
+            fail("over long key accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private void keyedTest(Digest sequential, Digest parallel)
+    {
+        byte[] message = message(70000);
+        byte[] expected = new byte[sequential.getDigestSize()];
+
+        sequential.update(message, 0, message.length);
+        sequential.doFinal(expected, 0);
+
+        checkDigest(parallel, message, 4096, expected);
+        // and again, after the implicit reset, to check the key is restored
+        checkDigest(parallel, message, 100000, expected);
+    }
+
+    private void cloneTest(Digest digest, Digest reference)
+    {
+        byte[] message = message(3000);
+        byte[] expected = new byte[reference.getDigestSize()];
+
+        reference.update(message, 0, message.length);
+        reference.doFinal(expected, 0);
+
+        digest.update(message, 0, 1234);
+
+        Digest copy = (digest instanceof Blake2bpDigest)
+            ? (Digest)new Blake2bpDigest((Blake2bpDigest)digest) : new Blake2spDigest((Blake2spDigest)digest);
+
+        byte[] remainder = Arrays.copyOfRange(message, 1234, message.length);
+
+        checkDigest(digest, remainder, 100, expected);
+        checkDigest(copy, remainder, 100, expected);
+    }
+
+    private void checkDigest(Digest digest, byte[] message, int chunkSize, byte[] expected)
+    {
+        for (int off = 0; off < message.length; off += chunkSize)
+        {
+            int len = Math.min(chunkSize, message.length - off);
+
+            if (len == 1)
+            {
+                digest.update(message[off]);
+            }
+            else
+            {
+                digest.update(message, off, len);
+            }
+        }
+
+        byte[] hash = new byte[digest.getDigestSize()];
+        digest.doFinal(hash, 0);
+
+        if (!areEqual(expected, hash))
+        {
+            fail(digest.getAlgorithmName() + " mismatch on " + message.length + " byte message in chunks of " + chunkSize,
+                Hex.toHexString(expected), Hex.toHexString(hash));
+        }
+    }
+
+    private static byte[] key(int length)
+    {
+        byte[] key = new byte[length];
+        for (int i = 0; i != length; i++)
+        {
+            key[i] = (byte)i;
+        }
+        return key;
+    }
+
+    private static byte[] message(int length)
+    {
+        byte[] message = new byte[length];
+        for (int i = 0; i != length; i++)
+        {
+            message[i] = (byte)(i % 251);
+        }
+        return message;
+    }
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        runTest(new Blake2TreeDigestTest());
+    }
+}
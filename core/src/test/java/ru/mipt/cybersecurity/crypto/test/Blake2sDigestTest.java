@@ -0,0 +1,138 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.Blake2sDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+public class Blake2sDigestTest
+    extends SimpleTest
+{
+    private static final String KEY = "000102030405060708090a0b0c0d0e0f101112131415161718191a1b1c1d1e1f";
+
+    // Vectors from BLAKE2 web site: https://blake2.net/blake2s-test.txt, message is 0x00, 0x01, ... of the given length
+    private static final String[][] keyedTestVectors =
+        { // message length, hash
+            { "0", "48a8997da407876b3d79c0d92325ad3b89cbb754d86ab71aee047ad345fd2c49" },
+            { "1", "40d15fee7c328830166ac3f918650f807e7e01e177258cdc0a39b11f598066f1" },
+            { "2", "6bb71300644cd3991b26ccd4d274acd1adeab8b1d7914546c1198bbe9fc9d803" },
+            { "63", "c65382513f07460da39833cb666c5ed82e61b9e998f4b0c4287cee56c3cc9bcd" },
+            { "64", "8975b0577fd35566d750b362b0897a26c399136df07bababbde6203ff2954ed4" },
+            { "65", "21fe0ceb0052be7fb0f004187cacd7de67fa6eb0938d927677f2398c132317a8" },
+            { "255", "3fb735061abc519dfe979e54c1ee5bfad0a9d858b3315bad34bde999efd724dd" }
+        };
+
+    private static final String[][] unkeyedTestVectors =
+        { // digest size, message, hash
+            { "256", "", "69217a3079908094e11121d042354a7c1f55b6482ca1a51e1b250dfd1ed0eef9" },
+            { "256", "abc", "508c5e8c327c14e2e1a72ba34eeb452f37458b209ed63a294d999b4c86675982" },
+            { "256", "The quick brown fox jumps over the lazy dog", "606beeec743ccbeff6cbcdf5d5302aa855c256c29b88c8ed331ea1a6bf3c8812" },
+            { "224", "abc", "0b033fc226df7abde29f67a05d3dc62cf271ef3dfea4d387407fbd55" },
+            { "160", "abc", "5ae3b99be29b01834c3b508521ede60438f8de17" },
+            { "128", "abc", "aa4938119b1dc7b87cbad0ffd200d0ae" },
+        };
+
+    public String getName()
+    {
+        return "BLAKE2s";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        Blake2sDigest keyed = new Blake2sDigest(Hex.decode(KEY));
+        for (int i = 0; i != keyedTestVectors.length; i++)
+        {
+            byte[] message = message(Integer.parseInt(keyedTestVectors[i][0]));
+
+            checkDigest(keyed, message, 1, Hex.decode(keyedTestVectors[i][1]));
+            checkDigest(keyed, message, 17, Hex.decode(keyedTestVectors[i][1]));
+            checkDigest(keyed, message, message.length + 1, Hex.decode(keyedTestVectors[i][1]));
+        }
+
+        for (int i = 0; i != unkeyedTestVectors.length; i++)
+        {
+            Blake2sDigest digest = new Blake2sDigest(Integer.parseInt(unkeyedTestVectors[i][0]));
+
+            checkDigest(digest, Strings.toByteArray(unkeyedTestVectors[i][1]), 64, Hex.decode(unkeyedTestVectors[i][2]));
+        }
+
+        // key, salt and personalization together
+        Blake2sDigest salted = new Blake2sDigest(Arrays.copyOfRange(Hex.decode(KEY), 0, 16), 16,
+            Hex.decode("0001020304050607"), Hex.decode("08090a0b0c0d0e0f"));
+        checkDigest(salted, message(14), 64, Hex.decode("2ab78a67762c1076c402720988183e4d"));
+
+        cloneTest();
+        resetTest();
+    }
+
+    private void checkDigest(Digest digest, byte[] message, int chunkSize, byte[] expected)
+    {
+        for (int off = 0; off < message.length; off += chunkSize)
+        {
+            int len = Math.min(chunkSize, message.length - off);
+
+            if (len == 1)
+            {
+                digest.update(message[off]);
+            }
+            else
+            {
+                digest.update(message, off, len);
+            }
+        }
+
+        byte[] hash = new byte[digest.getDigestSize() + 11];
+        digest.doFinal(hash, 11);
+
+        if (!areEqual(expected, Arrays.copyOfRange(hash, 11, hash.length)))
+        {
+            fail("BLAKE2s mismatch on " + message.length + " byte message", Hex.toHexString(expected),
+                Hex.toHexString(Arrays.copyOfRange(hash, 11, hash.length)));
+        }
+    }
+
+    private void cloneTest()
+    {
+        byte[] message = message(100);
+        byte[] expected = Hex.decode(keyedTestVectors[keyedTestVectors.length - 1][1]);
+        byte[] remainder = Arrays.copyOfRange(message(255), 100, 255);
+
+        Blake2sDigest source = new Blake2sDigest(Hex.decode(KEY));
+        source.update(message, 0, message.length);
+
+        Blake2sDigest copy = new Blake2sDigest(source);
+
+        checkDigest(source, remainder, 64, expected);
+        checkDigest(copy, remainder, 64, expected);
+    }
+
+    private void resetTest()
+    {
+        byte[] message = message(65);
+        Blake2sDigest digest = new Blake2sDigest(Hex.decode(KEY));
+
+        digest.update(message, 0, message.length);
+        digest.reset();
+
+        checkDigest(digest, message, 64, Hex.decode(keyedTestVectors[5][1]));
+    }
+
+    private static byte[] message(int length)
+    {
+        byte[] message = new byte[length];
+        for (int i = 0; i != length; i++)
+        {
+            message[i] = (byte)i;
+        }
+        return message;
+    }
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        runTest(new Blake2sDigestTest());
+    }
+}
@@ -0,0 +1,547 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.nio.ByteBuffer;
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.BufferedBlockCipher;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.StreamCipher;
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.engines.ChaChaEngine;
+import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.modes.AEADBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.AEADCipher;
+import ru.mipt.cybersecurity.crypto.modes.CBCBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.ChaCha20Poly1305;
+import ru.mipt.cybersecurity.crypto.modes.GCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.SICBlockCipher;
+import ru.mipt.cybersecurity.crypto.paddings.PaddedBufferedBlockCipher;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.crypto.util.ByteBuffers;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check the ByteBuffer methods against the byte[] methods for heap, direct, read-only and
+ * in place buffers.
+ */
+public class ByteBufferTest
+    extends SimpleTest
+{
+    private static final int HEAP = 0;
+    private static final int DIRECT = 1;
+    private static final int READ_ONLY = 2;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ByteBuffer";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        KeyParameter key = new KeyParameter(randomBytes(16));
+
+        // cover inputs both below and above the chunk size used for direct buffers
+        int[] lengths = { 0, 1, 15, 16, 33, 4095, 4096, 4097, 10000 };
+
+        for (int i = 0; i != lengths.length; i++)
+        {
+            byte[] msg = randomBytes(lengths[i]);
+
+            for (int inType = HEAP; inType <= READ_ONLY; inType++)
+            {
+                for (int outType = HEAP; outType <= DIRECT; outType++)
+                {
+                    bufferedTest(key, msg, inType, outType);
+                    streamTest(key, msg, inType, outType);
+                    aeadTest(key, msg, inType, outType);
+                    chachaTest(msg, inType, outType);
+                }
+
+                digestTest(msg, inType);
+                macTest(key, msg, inType);
+            }
+
+            inPlaceTest(key, msg, false);
+            inPlaceTest(key, msg, true);
+            chachaInPlaceTest(msg);
+            overlapTest(key, msg, false);
+            overlapTest(key, msg, true);
+        }
+
+        shortBufferTest(key);
+    }
+
+    private void bufferedTest(KeyParameter key, byte[] msg, int inType, int outType)
+        throws InvalidCipherTextException
+    {
+        ParametersWithIV params = new ParametersWithIV(key, randomBytes(16));
+        BufferedBlockCipher cipher = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+
+        cipher.init(true, params);
+        byte[] expected = new byte[cipher.getOutputSize(msg.length)];
+        int len = cipher.processBytes(msg, 0, msg.length, expected, 0);
+        len += cipher.doFinal(expected, len);
+
+        ByteBuffer in = createBuffer(msg, inType);
+        ByteBuffer out = allocate(expected.length + 3, outType);
+        out.position(3);
+
+        cipher.init(true, params);
+        int outLen = cipher.processBytes(in, out);
+        outLen += cipher.doFinal(out);
+
+        isEquals("CBC output length", len, outLen);
+        isEquals("CBC input not consumed", 0, in.remaining());
+        isEquals("CBC output position", 3 + len, out.position());
+        isTrue("CBC ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 3, len)));
+
+        out.position(3);
+        ByteBuffer decOut = allocate(msg.length, outType);
+
+        cipher.init(false, params);
+        outLen = cipher.processBytes(out, decOut);
+        outLen += cipher.doFinal(decOut);
+
+        isEquals("CBC decrypt length", msg.length, outLen);
+        isTrue("CBC ByteBuffer decrypt mismatch", Arrays.areEqual(msg, contents(decOut, 0, msg.length)));
+    }
+
+    private void streamTest(KeyParameter key, byte[] msg, int inType, int outType)
+    {
+        ParametersWithIV params = new ParametersWithIV(key, randomBytes(16));
+        StreamCipher cipher = new SICBlockCipher(new AESEngine());
+
+        cipher.init(true, params);
+        byte[] expected = new byte[msg.length];
+        cipher.processBytes(msg, 0, msg.length, expected, 0);
+
+        ByteBuffer in = createBuffer(msg, inType);
+        ByteBuffer out = allocate(msg.length, outType);
+
+        cipher.init(true, params);
+        int outLen = ByteBuffers.processBytes(cipher, in, out);
+
+        isEquals("SIC output length", msg.length, outLen);
+        isTrue("SIC ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 0, outLen)));
+    }
+
+    private void aeadTest(KeyParameter key, byte[] msg, int inType, int outType)
+        throws InvalidCipherTextException
+    {
+        byte[] aad = randomBytes(msg.length % 50);
+        AEADParameters params = new AEADParameters(key, 128, randomBytes(12));
+        AEADBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+
+        cipher.init(true, params);
+        cipher.processAADBytes(aad, 0, aad.length);
+        byte[] expected = new byte[cipher.getOutputSize(msg.length)];
+        int len = cipher.processBytes(msg, 0, msg.length, expected, 0);
+        cipher.doFinal(expected, len);
+
+        ByteBuffer out = allocate(expected.length, outType);
+
+        // a GCM instance will not encrypt twice with the same nonce
+        cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(true, params);
+        ByteBuffers.processAADBytes(cipher, createBuffer(aad, inType));
+        int outLen = ByteBuffers.processBytes(cipher, createBuffer(msg, inType), out);
+        outLen += ByteBuffers.doFinal(cipher, out);
+
+        isEquals("GCM output length", expected.length, outLen);
+        isTrue("GCM ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 0, outLen)));
+
+        ByteBuffer decOut = allocate(msg.length, outType);
+
+        cipher.init(false, params);
+        ByteBuffers.processAADBytes(cipher, createBuffer(aad, inType));
+        outLen = ByteBuffers.processBytes(cipher, createBuffer(expected, inType), decOut);
+        outLen += ByteBuffers.doFinal(cipher, decOut);
+
+        isEquals("GCM decrypt length", msg.length, outLen);
+        isTrue("GCM ByteBuffer decrypt mismatch", Arrays.areEqual(msg, contents(decOut, 0, outLen)));
+    }
+
+    /*
+     * ChaCha and ChaCha20-Poly1305 have their own ByteBuffer methods, the input is fed in three
+     * pieces so the held back tag bytes are split across calls when decrypting.
+     */
+    private void chachaTest(byte[] msg, int inType, int outType)
+        throws InvalidCipherTextException
+    {
+        KeyParameter key = new KeyParameter(randomBytes(32));
+
+        ParametersWithIV ivParams = new ParametersWithIV(key, randomBytes(8));
+        StreamCipher engine = new ChaChaEngine();
+
+        engine.init(true, ivParams);
+        byte[] streamExpected = new byte[msg.length];
+        engine.processBytes(msg, 0, msg.length, streamExpected, 0);
+
+        ByteBuffer out = allocate(msg.length, outType);
+
+        engine.init(true, ivParams);
+        int outLen = feed(engine, null, createBuffer(msg, inType), out);
+
+        isEquals("ChaCha output length", msg.length, outLen);
+        isTrue("ChaCha ByteBuffer mismatch", Arrays.areEqual(streamExpected, contents(out, 0, outLen)));
+
+        byte[] aad = randomBytes(msg.length % 50);
+        AEADParameters params = new AEADParameters(key, 128, randomBytes(12));
+        ChaCha20Poly1305 cipher = new ChaCha20Poly1305();
+
+        cipher.init(true, params);
+        cipher.processAADBytes(aad, 0, aad.length);
+        byte[] expected = new byte[cipher.getOutputSize(msg.length)];
+        cipher.doFinal(expected, cipher.processBytes(msg, 0, msg.length, expected, 0));
+
+        out = allocate(expected.length, outType);
+
+        cipher = new ChaCha20Poly1305();
+        cipher.init(true, params);
+        ByteBuffers.processAADBytes(cipher, createBuffer(aad, inType));
+        outLen = feed(null, cipher, createBuffer(msg, inType), out);
+        outLen += ByteBuffers.doFinal(cipher, out);
+
+        isEquals("ChaCha20Poly1305 output length", expected.length, outLen);
+        isTrue("ChaCha20Poly1305 ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 0, outLen)));
+
+        ByteBuffer decOut = allocate(msg.length, outType);
+
+        cipher.init(false, params);
+        ByteBuffers.processAADBytes(cipher, createBuffer(aad, inType));
+        outLen = feed(null, cipher, createBuffer(expected, inType), decOut);
+        outLen += ByteBuffers.doFinal(cipher, decOut);
+
+        isEquals("ChaCha20Poly1305 decrypt length", msg.length, outLen);
+        isTrue("ChaCha20Poly1305 ByteBuffer decrypt mismatch", Arrays.areEqual(msg, contents(decOut, 0, outLen)));
+
+        expected[random.nextInt(expected.length)] ^= 1;
+        decOut.clear();
+
+        cipher.init(false, params);
+        ByteBuffers.processAADBytes(cipher, createBuffer(aad, inType));
+        feed(null, cipher, createBuffer(expected, inType), decOut);
+        try
+        {
+            ByteBuffers.doFinal(cipher, decOut);
+            fail("ChaCha20Poly1305 corrupted message accepted");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
+    }
+
+    private void chachaInPlaceTest(byte[] msg)
+        throws InvalidCipherTextException
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(32)), 128, randomBytes(12));
+        ChaCha20Poly1305 cipher = new ChaCha20Poly1305();
+
+        cipher.init(true, params);
+        byte[] expected = new byte[cipher.getOutputSize(msg.length)];
+        cipher.doFinal(expected, cipher.processBytes(msg, 0, msg.length, expected, 0));
+
+        ByteBuffer buf = allocate(expected.length, DIRECT);
+        buf.put(msg);
+        buf.flip();
+
+        ByteBuffer out = buf.duplicate();
+        out.limit(out.capacity());
+
+        cipher = new ChaCha20Poly1305();
+        cipher.init(true, params);
+        feed(null, cipher, buf, out);
+        ByteBuffers.doFinal(cipher, out);
+
+        isTrue("ChaCha20Poly1305 in place encrypt mismatch", Arrays.areEqual(expected, contents(out, 0, expected.length)));
+
+        buf.clear();
+        out.clear();
+
+        cipher.init(false, params);
+        feed(null, cipher, buf, out);
+        ByteBuffers.doFinal(cipher, out);
+
+        isTrue("ChaCha20Poly1305 in place decrypt mismatch", Arrays.areEqual(msg, contents(out, 0, msg.length)));
+    }
+
+    private int feed(StreamCipher stream, ChaCha20Poly1305 aead, ByteBuffer in, ByteBuffer out)
+    {
+        int end = in.limit();
+        int[] splits = { in.position() + in.remaining() / 3, in.position() + in.remaining() * 2 / 3, end };
+        int outLen = 0;
+
+        for (int i = 0; i != splits.length; i++)
+        {
+            in.limit(splits[i]);
+            outLen += (stream != null) ? ByteBuffers.processBytes(stream, in, out) : ByteBuffers.processBytes(aead, in, out);
+        }
+
+        return outLen;
+    }
+
+    private void digestTest(byte[] msg, int inType)
+    {
+        Digest digest = new SHA256Digest();
+        byte[] expected = new byte[digest.getDigestSize()];
+
+        digest.update(msg, 0, msg.length);
+        digest.doFinal(expected, 0);
+
+        for (int outType = HEAP; outType <= DIRECT; outType++)
+        {
+            ByteBuffer out = allocate(expected.length, outType);
+
+            ByteBuffers.update(digest, createBuffer(msg, inType));
+            isEquals("digest length", expected.length, ByteBuffers.doFinal(digest, out));
+            isTrue("digest ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 0, expected.length)));
+        }
+    }
+
+    private void macTest(KeyParameter key, byte[] msg, int inType)
+    {
+        Mac mac = new HMac(new SHA256Digest());
+        byte[] expected = new byte[mac.getMacSize()];
+
+        mac.init(key);
+        mac.update(msg, 0, msg.length);
+        mac.doFinal(expected, 0);
+
+        for (int outType = HEAP; outType <= DIRECT; outType++)
+        {
+            ByteBuffer out = allocate(expected.length, outType);
+
+            ByteBuffers.update(mac, createBuffer(msg, inType));
+            isEquals("mac length", expected.length, ByteBuffers.doFinal(mac, out));
+            isTrue("mac ByteBuffer mismatch", Arrays.areEqual(expected, contents(out, 0, expected.length)));
+        }
+    }
+
+    private void inPlaceTest(KeyParameter key, byte[] msg, boolean direct)
+        throws InvalidCipherTextException
+    {
+        AEADParameters params = new AEADParameters(key, 128, randomBytes(12));
+        AEADBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+
+        cipher.init(true, params);
+        byte[] expected = new byte[cipher.getOutputSize(msg.length)];
+        cipher.doFinal(expected, cipher.processBytes(msg, 0, msg.length, expected, 0));
+
+        ByteBuffer buf = allocate(expected.length, direct ? DIRECT : HEAP);
+        buf.put(msg);
+        buf.flip();
+
+        ByteBuffer out = buf.duplicate();
+        out.limit(out.capacity());
+
+        cipher = new GCMBlockCipher(new AESEngine());
+        cipher.init(true, params);
+        ByteBuffers.processBytes(cipher, buf, out);
+        ByteBuffers.doFinal(cipher, out);
+
+        isTrue("GCM in place encrypt mismatch", Arrays.areEqual(expected, contents(out, 0, expected.length)));
+
+        buf.clear();
+        out.clear();
+
+        cipher.init(false, params);
+        ByteBuffers.processBytes(cipher, buf, out);
+        ByteBuffers.doFinal(cipher, out);
+
+        isTrue("GCM in place decrypt mismatch", Arrays.areEqual(msg, contents(out, 0, msg.length)));
+
+        // stream cipher in place
+        ParametersWithIV ivParams = new ParametersWithIV(key, randomBytes(16));
+        StreamCipher sic = new SICBlockCipher(new AESEngine());
+
+        sic.init(true, ivParams);
+        byte[] sicExpected = new byte[msg.length];
+        sic.processBytes(msg, 0, msg.length, sicExpected, 0);
+
+        buf.clear();
+        buf.put(msg);
+        buf.flip();
+        out = buf.duplicate();
+
+        sic.init(true, ivParams);
+        ByteBuffers.processBytes(sic, buf, out);
+
+        isTrue("SIC in place mismatch", Arrays.areEqual(sicExpected, contents(out, 0, msg.length)));
+    }
+
+    /*
+     * Decryption in place over several calls. ChaCha20-Poly1305 never releases more than it is given,
+     * so each call's output can start at its own input, which puts bytes held back from one call over
+     * input the next call has not read yet. GCM and padded CBC can release more than they are given,
+     * so their output trails the input through the whole message instead.
+     */
+    private void overlapTest(KeyParameter key, byte[] msg, boolean direct)
+        throws InvalidCipherTextException
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(32)), 128, randomBytes(12));
+        AEADCipher chacha = new ChaCha20Poly1305();
+
+        chacha.init(true, params);
+        byte[] expected = new byte[chacha.getOutputSize(msg.length)];
+        chacha.doFinal(expected, chacha.processBytes(msg, 0, msg.length, expected, 0));
+
+        chacha.init(false, params);
+        isTrue("ChaCha20Poly1305 overlapped decrypt mismatch",
+            Arrays.areEqual(msg, decryptInPlace(chacha, null, createBuffer(expected, direct ? DIRECT : HEAP), false)));
+
+        byte[] data = Arrays.clone(expected);
+        byte[] plain = new byte[msg.length];
+        int third = data.length / 3, len = 0;
+
+        chacha.init(false, params);
+        for (int off = 0; off < data.length; off += third)
+        {
+            int count = chacha.processBytes(data, off, Math.min(third, data.length - off), data, off);
+
+            System.arraycopy(data, off, plain, len, count);
+            len += count;
+        }
+        chacha.doFinal(data, 0);
+
+        isTrue("ChaCha20Poly1305 byte[] overlapped decrypt mismatch", Arrays.areEqual(msg, plain));
+
+        params = new AEADParameters(key, 128, randomBytes(12));
+        AEADCipher gcm = new GCMBlockCipher(new AESEngine());
+
+        gcm.init(true, params);
+        expected = new byte[gcm.getOutputSize(msg.length)];
+        gcm.doFinal(expected, gcm.processBytes(msg, 0, msg.length, expected, 0));
+
+        gcm.init(false, params);
+        isTrue("GCM in place decrypt mismatch",
+            Arrays.areEqual(msg, decryptInPlace(gcm, null, createBuffer(expected, direct ? DIRECT : HEAP), true)));
+
+        ParametersWithIV ivParams = new ParametersWithIV(key, randomBytes(16));
+        BufferedBlockCipher cbc = new PaddedBufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+
+        cbc.init(true, ivParams);
+        expected = new byte[cbc.getOutputSize(msg.length)];
+        cbc.doFinal(expected, cbc.processBytes(msg, 0, msg.length, expected, 0));
+
+        cbc.init(false, ivParams);
+        isTrue("CBC in place decrypt mismatch",
+            Arrays.areEqual(msg, decryptInPlace(null, cbc, createBuffer(expected, direct ? DIRECT : HEAP), true)));
+    }
+
+    /*
+     * Decrypt in in three calls writing over the same memory, either with one output buffer trailing
+     * the input or with each call's output starting at its own input, and piece the result together.
+     */
+    private byte[] decryptInPlace(AEADCipher aead, BufferedBlockCipher buffered, ByteBuffer in, boolean trailing)
+        throws InvalidCipherTextException
+    {
+        byte[] plain = new byte[in.remaining()];
+        int end = in.limit();
+        int[] splits = { in.position() + in.remaining() / 3, in.position() + in.remaining() * 2 / 3, end };
+        int total = 0;
+
+        ByteBuffer out = in.duplicate();
+        for (int i = 0; i != splits.length; i++)
+        {
+            in.limit(splits[i]);
+
+            if (!trailing)
+            {
+                out = in.duplicate();
+            }
+            out.limit(end);
+
+            int start = out.position();
+            int len = (aead != null) ? ByteBuffers.processBytes(aead, in, out) : buffered.processBytes(in, out);
+
+            System.arraycopy(contents(out, start, len), 0, plain, total, len);
+            total += len;
+        }
+
+        out = ByteBuffer.allocate(plain.length);
+        int len = (aead != null) ? ByteBuffers.doFinal(aead, out) : buffered.doFinal(out);
+
+        System.arraycopy(contents(out, 0, len), 0, plain, total, len);
+        total += len;
+
+        return Arrays.copyOfRange(plain, 0, total);
+    }
+
+    private void shortBufferTest(KeyParameter key)
+    {
+        BufferedBlockCipher cipher = new BufferedBlockCipher(new CBCBlockCipher(new AESEngine()));
+
+        cipher.init(true, new ParametersWithIV(key, new byte[16]));
+
+        try
+        {
+            cipher.processBytes(ByteBuffer.allocateDirect(32), ByteBuffer.allocateDirect(31));
+            fail("short output buffer not detected");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+    }
+
+    private ByteBuffer createBuffer(byte[] data, int type)
+    {
+        if (type == DIRECT)
+        {
+            ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+            buf.put(data);
+            buf.flip();
+            return buf;
+        }
+
+        // offset into a larger array so arrayOffset and position both matter
+        byte[] padded = new byte[data.length + 7];
+        System.arraycopy(data, 0, padded, 5, data.length);
+
+        ByteBuffer buf = ByteBuffer.wrap(padded, 2, data.length + 3).slice();
+        buf.position(3);
+
+        return (type == READ_ONLY) ? buf.asReadOnlyBuffer() : buf;
+    }
+
+    private ByteBuffer allocate(int length, int type)
+    {
+        return (type == DIRECT) ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    }
+
+    private byte[] contents(ByteBuffer buf, int off, int len)
+    {
+        byte[] data = new byte[len];
+        ByteBuffer dup = buf.duplicate();
+
+        dup.clear();
+        dup.position(off);
+        dup.get(data);
+
+        return data;
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new ByteBufferTest());
+    }
+}
@@ -1,12 +1,17 @@
 package ru.mipt.cybersecurity.crypto.test;
 
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
 import ru.mipt.cybersecurity.crypto.engines.AESEngine;
 import ru.mipt.cybersecurity.crypto.engines.DESEngine;
 import ru.mipt.cybersecurity.crypto.modes.CCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.params.AEADLengthParameters;
 import ru.mipt.cybersecurity.crypto.params.AEADParameters;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.Strings;
 import ru.mipt.cybersecurity.util.encoders.Hex;
 import ru.mipt.cybersecurity.util.test.SimpleTest;
@@ -156,6 +161,236 @@ public class CCMTest
                 new KeyParameter(K1), 32, N2));
         AEADTestUtil.testBufferSizeChecks(this, new CCMBlockCipher(new AESEngine()), new AEADParameters(
                 new KeyParameter(K1), 32, N2));
+
+        streamingTest();
+        streamingLengthTest();
+    }
+
+    private void streamingTest()
+        throws InvalidCipherTextException
+    {
+        SecureRandom random = new SecureRandom();
+        CCMBlockCipher packet = new CCMBlockCipher(new AESEngine());
+        CCMBlockCipher stream = new CCMBlockCipher(new AESEngine());
+        int[] lengths = { 0, 1, 16, 33, 1000, 70000 };
+
+        for (int i = 0; i != lengths.length; i++)
+        {
+            KeyParameter key = new KeyParameter(new byte[16]);
+            byte[] n = new byte[13 - i];
+            byte[] a = new byte[i * 9];
+            byte[] p = new byte[lengths[i]];
+
+            random.nextBytes(key.getKey());
+            random.nextBytes(n);
+            random.nextBytes(a);
+            random.nextBytes(p);
+
+            packet.init(true, new AEADParameters(key, 128, n, a));
+            byte[] expected = packet.processPacket(p, 0, p.length);
+
+            stream.init(true, new AEADLengthParameters(key, 128, n, a.length, p.length));
+            stream.processAADBytes(a, 0, a.length);
+
+            byte[] enc = new byte[stream.getOutputSize(p.length)];
+            int inPos = 0, outPos = 0;
+            while (inPos < p.length)
+            {
+                int len = Math.min(p.length - inPos, random.nextInt(5000));
+                int outLen = stream.processBytes(p, inPos, len, enc, outPos);
+
+                if (outLen != len)
+                {
+                    fail("streaming encryption held back data");
+                }
+                inPos += len;
+                outPos += outLen;
+            }
+            outPos += stream.doFinal(enc, outPos);
+
+            if (outPos != enc.length || !areEqual(expected, enc))
+            {
+                fail("streaming encryption fails to match packet mode for length " + p.length);
+            }
+
+            stream.init(false, new AEADLengthParameters(key, 128, n, a, a.length, p.length));
+
+            byte[] dec = new byte[stream.getOutputSize(enc.length)];
+            inPos = 0;
+            outPos = 0;
+            while (inPos < enc.length)
+            {
+                int len = Math.min(enc.length - inPos, random.nextInt(5000));
+                if (stream.processBytes(enc, inPos, len, dec, outPos) != 0)
+                {
+                    fail("streaming decryption released data before the MAC check");
+                }
+                inPos += len;
+            }
+            outPos += stream.doFinal(dec, outPos);
+
+            if (outPos != p.length || !areEqual(p, dec))
+            {
+                fail("streaming decryption fails to match for length " + p.length);
+            }
+            if (!areEqual(packet.getMac(), stream.getMac()))
+            {
+                fail("streaming MAC fails to match for length " + p.length);
+            }
+
+            if (enc.length > 0)
+            {
+                enc[random.nextInt(enc.length)] ^= 1;
+                Arrays.fill(dec, (byte)0);
+
+                try
+                {
+                    stream.processBytes(enc, 0, enc.length, dec, 0);
+                    stream.doFinal(dec, 0);
+
+                    fail("streaming decryption tampering not detected");
+                }
+                catch (InvalidCipherTextException e)
+                {
+                    // expected
+                }
+
+                if (!areEqual(new byte[dec.length], dec))
+                {
+                    fail("streaming decryption released unverified data");
+                }
+            }
+        }
+    }
+
+    private void streamingLengthTest()
+        throws InvalidCipherTextException
+    {
+        CCMBlockCipher ccm = new CCMBlockCipher(new AESEngine());
+
+        ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N2, A2.length, P2.length));
+        ccm.processAADBytes(A2, 0, A2.length);
+
+        byte[] enc = new byte[C2.length];
+        int len = ccm.processBytes(P2, 0, P2.length, enc, 0);
+        ccm.doFinal(enc, len);
+
+        if (!areEqual(C2, enc) || !areEqual(T2, ccm.getMac()))
+        {
+            fail("streaming encryption fails to match test vector");
+        }
+
+        // associated text that needs padding, followed by empty calls, must only be padded once
+        byte[] a = Arrays.copyOfRange(A2, 0, 13);
+
+        CCMBlockCipher packet = new CCMBlockCipher(new AESEngine());
+        packet.init(true, new AEADParameters(new KeyParameter(K2), 48, N2, a));
+        byte[] expected = packet.processPacket(P2, 0, P2.length);
+
+        ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N2, a.length, P2.length));
+        ccm.processAADBytes(a, 0, a.length);
+        ccm.processAADBytes(a, 0, 0);
+
+        enc = new byte[expected.length];
+        len = ccm.processBytes(P2, 0, P2.length, enc, 0);
+        ccm.processAADBytes(a, 0, 0);
+        ccm.doFinal(enc, len);
+
+        if (!areEqual(expected, enc))
+        {
+            fail("streaming encryption pads associated text more than once");
+        }
+
+        ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N2, a, a.length, P2.length));
+        ccm.processAADBytes(a, 0, 0);
+
+        len = ccm.processBytes(P2, 0, P2.length, enc, 0);
+        ccm.doFinal(enc, len);
+
+        if (!areEqual(expected, enc))
+        {
+            fail("streaming encryption pads initial associated text more than once");
+        }
+
+        enc = new byte[C2.length];
+
+        try
+        {
+            ccm.processAADBytes(A2, 0, A2.length);
+            ccm.processAADBytes(A2, 0, 1);
+
+            fail("associated text over declared length not picked up");
+        }
+        catch (DataLengthException e)
+        {
+            // expected
+        }
+
+        ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N2, A2.length, P2.length));
+
+        try
+        {
+            ccm.processBytes(P2, 0, P2.length, enc, 0);
+
+            fail("missing associated text not picked up");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        ccm.processAADBytes(A2, 0, A2.length);
+
+        try
+        {
+            ccm.processBytes(P2, 0, P2.length - 1, enc, 0);
+            ccm.doFinal(enc, P2.length - 1);
+
+            fail("short data not picked up");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N2, 0, P2.length));
+
+        try
+        {
+            ccm.processBytes(P2, 0, P2.length, enc, 0);
+            ccm.processBytes(P2, 0, 1, enc, P2.length);
+
+            fail("data over declared length not picked up");
+        }
+        catch (DataLengthException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            ccm.init(true, new AEADLengthParameters(new KeyParameter(K2), 48, N4, 0, 1L << 16));
+
+            fail("data length too large for nonce not picked up");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        ccm.init(false, new AEADLengthParameters(new KeyParameter(K2), 48, N2, A2, A2.length, P2.length));
+
+        try
+        {
+            ccm.processBytes(C2, 0, C2.length - 1, enc, 0);
+            ccm.doFinal(enc, 0);
+
+            fail("truncated MAC not picked up");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
     }
 
     private boolean isEqual(byte[] exp, byte[] other, int off)
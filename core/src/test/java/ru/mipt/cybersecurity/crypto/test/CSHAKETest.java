@@ -0,0 +1,99 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import ru.mipt.cybersecurity.crypto.digests.CSHAKEDigest;
+import ru.mipt.cybersecurity.crypto.digests.SHAKEDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * cSHAKE test vectors from:
+ *
+ * https://csrc.nist.gov/CSRC/media/Projects/Cryptographic-Standards-and-Guidelines/documents/examples/cSHAKE_samples.pdf
+ */
+public class CSHAKETest
+    extends SimpleTest
+{
+    public String getName()
+    {
+        return "CSHAKE";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkCSHAKE(128, null, Strings.toByteArray("Email Signature"), Hex.decode("00010203"),
+            "c1c36925b6409a04f1b504fcbca9d82b4017277cb5ed2b2065fc1d3814d5aaf5");
+        checkCSHAKE(128, null, Strings.toByteArray("Email Signature"), message(200),
+            "c5221d50e4f822d96a2e8881a961420f294b7b24fe3d2094baed2c6524cc166b");
+        checkCSHAKE(256, null, Strings.toByteArray("Email Signature"), Hex.decode("00010203"),
+            "d008828e2b80ac9d2218ffee1d070c48b8e4c87bff32c9699d5b6896eee0edd164020e2be0560858d9c00c037e34a96937c561a74c412bb4c746469527281c8c");
+        checkCSHAKE(256, null, Strings.toByteArray("Email Signature"), message(200),
+            "07dc27b11e51fbac75bc7b3c1d983e8b4b85fb1defaf218912ac86430273091727f42b17ed1df63e8ec118f04b23633c1dfb1574c8fb55cb45da8e25afb092bb");
+        checkCSHAKE(128, Strings.toByteArray("Name"), null, message(200),
+            "d1e1b1c877b5d57f50b52920c988d45e2d763c62cc3898a639b9e3ce3c9f786d2e03887e659d10db69797cebfc316c25");
+
+        // with no function name or customization string cSHAKE is SHAKE
+        CSHAKEDigest cshake = new CSHAKEDigest(256, null, new byte[0]);
+        SHAKEDigest shake = new SHAKEDigest(256);
+        byte[] msg = message(300);
+        byte[] expected = new byte[100];
+        byte[] res = new byte[100];
+
+        shake.update(msg, 0, msg.length);
+        shake.doFinal(expected, 0, expected.length);
+        cshake.update(msg, 0, msg.length);
+        cshake.doFinal(res, 0, res.length);
+
+        isTrue("SHAKE equivalence failed", Arrays.areEqual(expected, res));
+
+        // incremental output, copy and reset
+        cshake = new CSHAKEDigest(128, null, Strings.toByteArray("Email Signature"));
+        cshake.update(msg, 0, 100);
+
+        CSHAKEDigest copy = new CSHAKEDigest(cshake);
+
+        cshake.update(msg, 100, 200);
+        cshake.doOutput(res, 0, 7);
+        cshake.doOutput(res, 7, 93);
+        cshake.reset();
+
+        copy.update(msg, 100, 200);
+        copy.doFinal(expected, 0, expected.length);
+
+        isTrue("incremental output failed", Arrays.areEqual(expected, res));
+
+        cshake.update(msg, 0, msg.length);
+        cshake.doFinal(res, 0, res.length);
+
+        isTrue("reset failed", Arrays.areEqual(expected, res));
+    }
+
+    private void checkCSHAKE(int bitLength, byte[] N, byte[] S, byte[] msg, String expected)
+    {
+        CSHAKEDigest cshake = new CSHAKEDigest(bitLength, N, S);
+        byte[] res = new byte[expected.length() / 2];
+
+        cshake.update(msg, 0, msg.length);
+        cshake.doFinal(res, 0, res.length);
+
+        isTrue("cSHAKE" + bitLength + " failed on " + msg.length + " byte message", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    static byte[] message(int length)
+    {
+        byte[] msg = new byte[length];
+        for (int i = 0; i != length; i++)
+        {
+            msg[i] = (byte)i;
+        }
+        return msg;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new CSHAKETest());
+    }
+}
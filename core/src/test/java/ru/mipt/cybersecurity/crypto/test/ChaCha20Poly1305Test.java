@@ -0,0 +1,295 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.engines.ChaCha7539Engine;
+import ru.mipt.cybersecurity.crypto.macs.Poly1305;
+import ru.mipt.cybersecurity.crypto.modes.AEADCipher;
+import ru.mipt.cybersecurity.crypto.modes.ChaCha20Poly1305;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Pack;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * ChaCha20-Poly1305 AEAD tests, RFC 7539 section 2.8.2 plus a cross check against ChaCha7539Engine
+ * and Poly1305 used directly.
+ */
+public class ChaCha20Poly1305Test
+    extends SimpleTest
+{
+    private static final byte[] K = Hex.decode("808182838485868788898a8b8c8d8e8f909192939495969798999a9b9c9d9e9f");
+    private static final byte[] N = Hex.decode("070000004041424344454647");
+    private static final byte[] A = Hex.decode("50515253c0c1c2c3c4c5c6c7");
+    private static final byte[] P = Strings.toByteArray(
+        "Ladies and Gentlemen of the class of '99: If I could offer you only one tip for the future, sunscreen would be it.");
+    private static final byte[] C = Hex.decode(
+          "d31a8d34648e60db7b86afbc53ef7ec2a4aded51296e08fea9e2b5a736ee62d6"
+        + "3dbea45e8ca9671282fafb69da92728b1a71de0a9e060b2905d6a5b67ecd3b36"
+        + "92ddbd7f2d778b8c9803aee328091b58fab324e4fad675945585808b4831d7bc"
+        + "3ff4def08e4b7a9de576d26586cec64b6116");
+    private static final byte[] T = Hex.decode("1ae10b594f09e26a7e902ecbd0600691");
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ChaCha20Poly1305";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        vectorTest();
+
+        int[] lengths = { 0, 1, 15, 16, 63, 64, 65, 255, 256, 257, 1000, 10000 };
+        for (int i = 0; i != lengths.length; i++)
+        {
+            referenceTest(i * 5, lengths[i]);
+        }
+
+        inPlaceTest();
+        tamperTest();
+        stateTest();
+    }
+
+    private void vectorTest()
+        throws InvalidCipherTextException
+    {
+        AEADCipher cipher = new ChaCha20Poly1305();
+        AEADParameters params = new AEADParameters(new KeyParameter(K), 128, N, A);
+
+        cipher.init(true, params);
+        byte[] out = new byte[cipher.getOutputSize(P.length)];
+        int len = cipher.processBytes(P, 0, P.length, out, 0);
+        len += cipher.doFinal(out, len);
+
+        isEquals("encrypt length", out.length, len);
+        isTrue("cipher text mismatch", Arrays.areEqual(C, Arrays.copyOfRange(out, 0, P.length)));
+        isTrue("tag mismatch", Arrays.areEqual(T, cipher.getMac()));
+
+        cipher.init(false, new ParametersWithIV(new KeyParameter(K), N));
+        cipher.processAADBytes(A, 0, A.length);
+        byte[] dec = process(cipher, out);
+
+        isTrue("decrypt mismatch", Arrays.areEqual(P, dec));
+    }
+
+    private void referenceTest(int aadLength, int length)
+        throws InvalidCipherTextException
+    {
+        byte[] key = randomBytes(32);
+        byte[] nonce = randomBytes(12);
+        byte[] aad = randomBytes(aadLength);
+        byte[] plain = randomBytes(length);
+
+        byte[] expected = reference(key, nonce, aad, plain);
+
+        AEADCipher cipher = new ChaCha20Poly1305();
+
+        cipher.init(true, new AEADParameters(new KeyParameter(key), 128, nonce));
+        for (int i = 0; i != aad.length; i++)
+        {
+            cipher.processAADByte(aad[i]);
+        }
+        byte[] cipherText = process(cipher, plain);
+
+        isTrue("encrypt mismatch for " + length, Arrays.areEqual(expected, cipherText));
+
+        cipher.init(false, new AEADParameters(new KeyParameter(key), 128, nonce, aad));
+        byte[] decrypted = process(cipher, cipherText);
+
+        isTrue("decrypt mismatch for " + length, Arrays.areEqual(plain, decrypted));
+
+        // decryption can be repeated after doFinal
+        decrypted = process(cipher, cipherText);
+
+        isTrue("repeat decrypt mismatch for " + length, Arrays.areEqual(plain, decrypted));
+    }
+
+    /*
+     * RFC 7539 section 2.8 built from the separate primitives.
+     */
+    private byte[] reference(byte[] key, byte[] nonce, byte[] aad, byte[] plain)
+    {
+        ChaCha7539Engine engine = new ChaCha7539Engine();
+        engine.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
+
+        byte[] polyKey = new byte[64];
+        engine.processBytes(polyKey, 0, polyKey.length, polyKey, 0);
+
+        byte[] out = new byte[plain.length + 16];
+        engine.processBytes(plain, 0, plain.length, out, 0);
+
+        Poly1305 mac = new Poly1305();
+        mac.init(new KeyParameter(Arrays.copyOfRange(polyKey, 0, 32)));
+        mac.update(aad, 0, aad.length);
+        mac.update(new byte[16], 0, (16 - aad.length % 16) % 16);
+        mac.update(out, 0, plain.length);
+        mac.update(new byte[16], 0, (16 - plain.length % 16) % 16);
+        mac.update(Pack.longToLittleEndian(aad.length), 0, 8);
+        mac.update(Pack.longToLittleEndian(plain.length), 0, 8);
+        mac.doFinal(out, plain.length);
+
+        return out;
+    }
+
+    private void inPlaceTest()
+        throws InvalidCipherTextException
+    {
+        byte[] key = randomBytes(32);
+        byte[] nonce = randomBytes(12);
+        byte[] plain = randomBytes(3000);
+        byte[] expected = reference(key, nonce, new byte[0], plain);
+
+        AEADCipher cipher = new ChaCha20Poly1305();
+        byte[] buf = new byte[expected.length];
+        System.arraycopy(plain, 0, buf, 0, plain.length);
+
+        cipher.init(true, new ParametersWithIV(new KeyParameter(key), nonce));
+        cipher.doFinal(buf, cipher.processBytes(buf, 0, plain.length, buf, 0));
+
+        isTrue("in place encrypt mismatch", Arrays.areEqual(expected, buf));
+
+        cipher.init(false, new ParametersWithIV(new KeyParameter(key), nonce));
+        cipher.doFinal(buf, cipher.processBytes(buf, 0, buf.length, buf, 0));
+
+        isTrue("in place decrypt mismatch", Arrays.areEqual(plain, Arrays.copyOfRange(buf, 0, plain.length)));
+    }
+
+    private void tamperTest()
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(K), 128, N, A);
+        AEADCipher cipher = new ChaCha20Poly1305();
+
+        byte[] cipherText = Arrays.concatenate(C, T);
+        for (int i = 0; i < cipherText.length; i += 7)
+        {
+            byte[] tampered = Arrays.clone(cipherText);
+            tampered[i] ^= 0x40;
+
+            try
+            {
+                cipher.init(false, params);
+                process(cipher, tampered);
+
+                fail("tampered cipher text not detected at " + i);
+            }
+            catch (InvalidCipherTextException e)
+            {
+                // expected
+            }
+        }
+
+        try
+        {
+            cipher.init(false, params);
+            process(cipher, Arrays.copyOfRange(T, 0, 15));
+
+            fail("short cipher text not detected");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
+    }
+
+    private void stateTest()
+        throws InvalidCipherTextException
+    {
+        AEADCipher cipher = new ChaCha20Poly1305();
+        AEADParameters params = new AEADParameters(new KeyParameter(K), 128, N);
+
+        try
+        {
+            cipher.init(true, new AEADParameters(new KeyParameter(K), 96, N));
+            fail("short MAC size accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            cipher.init(true, new ParametersWithIV(new KeyParameter(K), new byte[8]));
+            fail("short nonce accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        cipher.init(true, params);
+        cipher.processBytes(P, 0, 10, new byte[10], 0);
+
+        try
+        {
+            cipher.processAADBytes(A, 0, A.length);
+            fail("AAD accepted after data");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        cipher.doFinal(new byte[16], 0);
+
+        try
+        {
+            cipher.processBytes(P, 0, 10, new byte[10], 0);
+            fail("encryption continued after doFinal");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            cipher.init(true, params);
+            fail("nonce reuse not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private byte[] process(AEADCipher cipher, byte[] in)
+        throws InvalidCipherTextException
+    {
+        byte[] out = new byte[cipher.getOutputSize(in.length)];
+        int inPos = 0, outPos = 0;
+
+        while (inPos < in.length)
+        {
+            int len = Math.min(in.length - inPos, random.nextInt(300));
+            outPos += cipher.processBytes(in, inPos, len, out, outPos);
+            inPos += len;
+        }
+        outPos += cipher.doFinal(out, outPos);
+
+        isEquals("output length", out.length, outPos);
+
+        return out;
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new ChaCha20Poly1305Test());
+    }
+}
@@ -0,0 +1,164 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.asn1.x9.ECNamedCurveTable;
+import ru.mipt.cybersecurity.asn1.x9.X9ECParameters;
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPair;
+import ru.mipt.cybersecurity.crypto.ec.CustomNamedCurves;
+import ru.mipt.cybersecurity.crypto.generators.ECKeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.params.ECDomainParameters;
+import ru.mipt.cybersecurity.crypto.params.ECKeyGenerationParameters;
+import ru.mipt.cybersecurity.crypto.params.ECPublicKeyParameters;
+import ru.mipt.cybersecurity.crypto.signers.ECDSABatchVerifier;
+import ru.mipt.cybersecurity.crypto.signers.ECDSASigner;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+public class ECDSABatchVerifierTest
+    extends SimpleTest
+{
+    private static final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ECDSABatchVerifier";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        testBatch(CustomNamedCurves.getByName("secp256r1"), 3);
+        testBatch(ECNamedCurveTable.getByName("secp256r1"), 2);
+        testBatch(CustomNamedCurves.getByName("secp256k1"), 4);
+        testBatch(CustomNamedCurves.getByName("secp384r1"), 1);
+
+        // binary curve with a cofactor, verified one by one
+        testBatch(ECNamedCurveTable.getByName("sect233k1"), 2);
+
+        testMixedCurves();
+    }
+
+    private void testBatch(X9ECParameters x9, int keyCount)
+    {
+        ECDomainParameters ec = new ECDomainParameters(x9.getCurve(), x9.getG(), x9.getN(), x9.getH(), x9.getSeed());
+
+        AsymmetricCipherKeyPair[] keys = new AsymmetricCipherKeyPair[keyCount];
+        for (int i = 0; i != keyCount; i++)
+        {
+            keys[i] = generateKeyPair(ec);
+        }
+
+        for (int size = 1; size <= 20; size += 3)
+        {
+            ECDSABatchVerifier verifier = new ECDSABatchVerifier(random);
+            byte[][] messages = new byte[size][];
+            BigInteger[][] sigs = new BigInteger[size][];
+
+            for (int i = 0; i != size; i++)
+            {
+                AsymmetricCipherKeyPair kp = keys[i % keyCount];
+
+                messages[i] = new byte[32];
+                random.nextBytes(messages[i]);
+                sigs[i] = sign(kp, messages[i]);
+
+                verifier.add((ECPublicKeyParameters)kp.getPublic(), messages[i], sigs[i][0], sigs[i][1]);
+            }
+
+            isTrue("valid batch of " + size + " rejected", verifier.verify());
+
+            // corrupt some signatures in a second batch and make sure exactly those are found
+            ECDSABatchVerifier bad = new ECDSABatchVerifier(random);
+            boolean[] expected = new boolean[size];
+            for (int i = 0; i != size; i++)
+            {
+                BigInteger r = sigs[i][0], s = sigs[i][1];
+                byte[] message = messages[i];
+
+                switch (i % 5)
+                {
+                case 1:
+                    s = s.add(BigInteger.valueOf(1)).mod(ec.getN());
+                    break;
+                case 3:
+                    message = (byte[])message.clone();
+                    message[0] ^= 1;
+                    break;
+                case 4:
+                    if (i == 4)
+                    {
+                        r = ec.getN();
+                    }
+                    else
+                    {
+                        expected[i] = true;
+                    }
+                    break;
+                default:
+                    expected[i] = true;
+                    break;
+                }
+
+                bad.add((ECPublicKeyParameters)keys[i % keyCount].getPublic(), message, r, s);
+            }
+
+            boolean[] results = bad.verifyEach();
+            for (int i = 0; i != size; i++)
+            {
+                isTrue("signature " + i + " of " + size + " misreported", results[i] == expected[i]);
+            }
+            isTrue("bad batch of " + size + " accepted", size < 2 ? bad.verify() : !bad.verify());
+        }
+    }
+
+    private void testMixedCurves()
+    {
+        X9ECParameters[] curves = new X9ECParameters[]{ CustomNamedCurves.getByName("secp256r1"),
+            CustomNamedCurves.getByName("secp256k1"), ECNamedCurveTable.getByName("sect233k1") };
+
+        ECDSABatchVerifier verifier = new ECDSABatchVerifier(random);
+        for (int i = 0; i != 15; i++)
+        {
+            X9ECParameters x9 = curves[i % curves.length];
+            ECDomainParameters ec = new ECDomainParameters(x9.getCurve(), x9.getG(), x9.getN(), x9.getH(), x9.getSeed());
+            AsymmetricCipherKeyPair kp = generateKeyPair(ec);
+            byte[] message = new byte[20];
+
+            random.nextBytes(message);
+            BigInteger[] sig = sign(kp, message);
+
+            verifier.add((ECPublicKeyParameters)kp.getPublic(), message, sig[0], sig[1]);
+        }
+
+        isTrue("mixed curve batch rejected", verifier.verify());
+        isTrue("wrong size", verifier.size() == 15);
+
+        verifier.reset();
+        isTrue("empty batch rejected", verifier.verify());
+    }
+
+    private static AsymmetricCipherKeyPair generateKeyPair(ECDomainParameters ec)
+    {
+        ECKeyPairGenerator kpg = new ECKeyPairGenerator();
+
+        kpg.init(new ECKeyGenerationParameters(ec, random));
+
+        return kpg.generateKeyPair();
+    }
+
+    private static BigInteger[] sign(AsymmetricCipherKeyPair kp, byte[] message)
+    {
+        ECDSASigner signer = new ECDSASigner();
+
+        signer.init(true, kp.getPrivate());
+
+        return signer.generateSignature(message);
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new ECDSABatchVerifierTest());
+    }
+}
@@ -0,0 +1,203 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPair;
+import ru.mipt.cybersecurity.crypto.KeyGenerationParameters;
+import ru.mipt.cybersecurity.crypto.generators.Ed25519KeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PublicKeyParameters;
+import ru.mipt.cybersecurity.crypto.signers.Ed25519BatchVerifier;
+import ru.mipt.cybersecurity.crypto.signers.Ed25519Signer;
+import ru.mipt.cybersecurity.math.ec.rfc8032.Ed25519;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Ed25519 tests, using the test vectors of RFC 8032.
+ */
+public class Ed25519Test
+    extends SimpleTest
+{
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final String[][] VECTORS = {
+        {
+            "9d61b19deffd5a60ba844af492ec2cc44449c5697b326919703bac031cae7f60",
+            "d75a980182b10ab7d54bfed3c964073a0ee172f3daa62325af021a68f707511a",
+            "",
+            "e5564300c360ac729086e2cc806e828a84877f1eb8e5d974d873e065224901555fb8821590a33bacc61e39701cf9b46bd25bf5f0595bbe24655141438e7a100b"
+        },
+        {
+            "4ccd089b28ff96da9db6c346ec114e0f5b8a319f35aba624da8cf6ed4fb8a6fb",
+            "3d4017c3e843895a92b70aa74d1b7ebc9c982ccf2ec4968cc0cd55f12af4660c",
+            "72",
+            "92a009a9f0d4cab8720e820b5f642540a2b27b5416503f8fb3762223ebdb69da085ac1e43e15996e458f3613d0f11d8c387b2eaeb4302aeeb00d291612bb0c00"
+        },
+        {
+            "c5aa8df43f9f837bedb7442f31dcb7b166d38535076f094b85ce3a2e0b4458f7",
+            "fc51cd8e6218a1a38da47ed00230f0580816ed13ba3303ac5deb911548908025",
+            "af82",
+            "6291d657deec24024827e69c3abe01a30ce548a284743a445e3680d7db5ac3ac18ff9b538d16f290ae67f760984dc6594a7c15e9716ed28dc027beceea1ec40a"
+        }
+    };
+
+    // L, the order of the base point, little-endian
+    private static final byte[] L = Hex.decode("edd3f55c1a631258d69cf7a2def9de1400000000000000000000000000000010");
+
+    public String getName()
+    {
+        return "Ed25519";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        for (int i = 0; i != VECTORS.length; i++)
+        {
+            checkVector(VECTORS[i]);
+        }
+
+        checkRandom();
+        checkMalleability();
+        checkBatch();
+    }
+
+    private void checkVector(String[] vector)
+    {
+        Ed25519PrivateKeyParameters privateKey = new Ed25519PrivateKeyParameters(Hex.decode(vector[0]), 0);
+        Ed25519PublicKeyParameters publicKey = privateKey.generatePublicKey();
+        byte[] message = Hex.decode(vector[2]);
+
+        isTrue("public key wrong", Arrays.areEqual(Hex.decode(vector[1]), publicKey.getEncoded()));
+
+        byte[] sig = sign(privateKey, message);
+        isTrue("signature wrong", Arrays.areEqual(Hex.decode(vector[3]), sig));
+        isTrue("signature rejected", verify(new Ed25519PublicKeyParameters(Hex.decode(vector[1]), 0), message, sig));
+
+        byte[] badMessage = Arrays.append(message, (byte)0);
+        isTrue("signature accepted for wrong message", !verify(publicKey, badMessage, sig));
+    }
+
+    private void checkRandom()
+    {
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new KeyGenerationParameters(random, 256));
+
+        for (int i = 0; i < 10; i++)
+        {
+            AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+            byte[] message = new byte[random.nextInt(100)];
+            random.nextBytes(message);
+
+            byte[] sig = sign((Ed25519PrivateKeyParameters)kp.getPrivate(), message);
+            isTrue("random signature rejected", verify((Ed25519PublicKeyParameters)kp.getPublic(), message, sig));
+
+            sig[random.nextInt(sig.length)] ^= (byte)(1 << random.nextInt(8));
+            isTrue("corrupted signature accepted", !verify((Ed25519PublicKeyParameters)kp.getPublic(), message, sig));
+        }
+    }
+
+    private void checkMalleability()
+    {
+        // S + L verifies the same equation, but RFC 8032 requires S < L
+        String[] vector = VECTORS[1];
+        byte[] sig = Hex.decode(vector[3]);
+
+        int carry = 0;
+        for (int i = 0; i < 32; i++)
+        {
+            carry += (sig[32 + i] & 0xFF) + (L[i] & 0xFF);
+            sig[32 + i] = (byte)carry;
+            carry >>>= 8;
+        }
+
+        isTrue("non-canonical S accepted",
+            !verify(new Ed25519PublicKeyParameters(Hex.decode(vector[1]), 0), Hex.decode(vector[2]), sig));
+    }
+
+    private void checkBatch()
+    {
+        Ed25519KeyPairGenerator kpg = new Ed25519KeyPairGenerator();
+        kpg.init(new KeyGenerationParameters(random, 256));
+
+        for (int size = 1; size <= 40; size += 13)
+        {
+            Ed25519BatchVerifier verifier = new Ed25519BatchVerifier(random);
+            Ed25519BatchVerifier bad = new Ed25519BatchVerifier(random);
+            boolean[] expected = new boolean[size];
+
+            for (int i = 0; i != size; i++)
+            {
+                AsymmetricCipherKeyPair kp = kpg.generateKeyPair();
+                Ed25519PublicKeyParameters publicKey = (Ed25519PublicKeyParameters)kp.getPublic();
+                byte[] message = new byte[20];
+                random.nextBytes(message);
+
+                byte[] sig = sign((Ed25519PrivateKeyParameters)kp.getPrivate(), message);
+                verifier.add(publicKey, message, sig);
+
+                switch (i % 7)
+                {
+                case 3:
+                    sig = Arrays.clone(sig);
+                    sig[40] ^= 1;
+                    break;
+                case 5:
+                    message = Arrays.clone(message);
+                    message[0] ^= 1;
+                    break;
+                default:
+                    expected[i] = true;
+                    break;
+                }
+
+                bad.add(publicKey, message, sig);
+            }
+
+            isTrue("valid batch of " + size + " rejected", verifier.verify());
+
+            boolean[] results = bad.verifyEach();
+            for (int i = 0; i != size; i++)
+            {
+                isTrue("signature " + i + " of " + size + " misreported", results[i] == expected[i]);
+            }
+            isTrue("bad batch of " + size + " accepted", size < 4 ? bad.verify() : !bad.verify());
+        }
+
+        isTrue("empty batch rejected", new Ed25519BatchVerifier().verify());
+
+        try
+        {
+            Ed25519.verifyBatch(new byte[0][], new byte[0][], new byte[0][], 0, random);
+            fail("empty batch accepted by Ed25519.verifyBatch");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static byte[] sign(Ed25519PrivateKeyParameters privateKey, byte[] message)
+    {
+        Ed25519Signer signer = new Ed25519Signer();
+        signer.init(true, privateKey);
+        signer.update(message, 0, message.length);
+        return signer.generateSignature();
+    }
+
+    private static boolean verify(Ed25519PublicKeyParameters publicKey, byte[] message, byte[] sig)
+    {
+        Ed25519Signer verifier = new Ed25519Signer();
+        verifier.init(false, publicKey);
+        verifier.update(message, 0, message.length);
+        return verifier.verifySignature(sig);
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new Ed25519Test());
+    }
+}
@@ -5,15 +5,19 @@ import java.security.SecureRandom;
 import ru.mipt.cybersecurity.crypto.BlockCipher;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
 import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESLightEngine;
 import ru.mipt.cybersecurity.crypto.engines.DESEngine;
 import ru.mipt.cybersecurity.crypto.modes.GCMBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.gcm.BasicGCMMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMAggregateMultiplier;
 import ru.mipt.cybersecurity.crypto.modes.gcm.GCMMultiplier;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMPrecomputationCache;
 import ru.mipt.cybersecurity.crypto.modes.gcm.Tables4kGCMMultiplier;
 import ru.mipt.cybersecurity.crypto.modes.gcm.Tables64kGCMMultiplier;
 import ru.mipt.cybersecurity.crypto.modes.gcm.Tables8kGCMMultiplier;
 import ru.mipt.cybersecurity.crypto.params.AEADParameters;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
 import ru.mipt.cybersecurity.util.Strings;
 import ru.mipt.cybersecurity.util.Times;
 import ru.mipt.cybersecurity.util.encoders.Hex;
@@ -307,6 +311,8 @@ public class GCMTest
         randomTests();
         outputSizeTests();
         testExceptions();
+        aggregateTests();
+        sharedTablesTests();
     }
 
     protected BlockCipher createAESEngine()
@@ -545,6 +551,7 @@ public class GCMTest
         randomTests(srng, new Tables4kGCMMultiplier());
         randomTests(srng, new Tables8kGCMMultiplier());
         randomTests(srng, new Tables64kGCMMultiplier());
+        randomTests(srng, new Tables64kGCMMultiplier(GCMPrecomputationCache.getDefault()));
     }
 
     private void randomTests(SecureRandom srng, GCMMultiplier m)
@@ -662,6 +669,154 @@ public class GCMTest
         }
     }
 
+    private void aggregateTests()
+        throws InvalidCipherTextException
+    {
+        SecureRandom srng = new SecureRandom();
+
+        aggregateTest(srng, new Tables4kGCMMultiplier());
+        aggregateTest(srng, new Tables8kGCMMultiplier());
+    }
+
+    private void sharedTablesTests()
+        throws InvalidCipherTextException
+    {
+        SecureRandom srng = new SecureRandom();
+        GCMPrecomputationCache cache = new GCMPrecomputationCache(2);
+
+        byte[][] keys = new byte[3][16];
+        for (int i = 0; i != keys.length; i++)
+        {
+            srng.nextBytes(keys[i]);
+        }
+
+        byte[] P = new byte[300];
+        srng.nextBytes(P);
+        byte[] N = Hex.decode("cafebabefacedbaddecaf888");
+
+        byte[] expected = sharedTablesEncrypt(new GCMBlockCipher(createAESEngine(), new BasicGCMMultiplier()), keys[0], N, P);
+
+        // two ciphers with the same key use one set of tables
+        GCMBlockCipher c1 = new GCMBlockCipher(createAESEngine(), new Tables64kGCMMultiplier(cache));
+        GCMBlockCipher c2 = new GCMBlockCipher(createAESEngine(), new Tables64kGCMMultiplier(cache));
+
+        isTrue("shared tables mismatch", areEqual(expected, sharedTablesEncrypt(c1, keys[0], N, P)));
+        isTrue("shared tables mismatch", areEqual(expected, sharedTablesEncrypt(c2, keys[0], N, P)));
+        isTrue("tables not shared", cache.size() == 1);
+
+        // push the key in use out of the cache, its tables must stay valid for c1 and c2
+        for (int i = 1; i != keys.length; i++)
+        {
+            sharedTablesEncrypt(new GCMBlockCipher(createAESEngine(), new Tables64kGCMMultiplier(cache)), keys[i], N, P);
+        }
+        isTrue("cache not bounded", cache.size() == 2);
+
+        isTrue("evicted tables not usable", areEqual(P, sharedTablesDecrypt(c1, keys[0], N, expected)));
+        isTrue("evicted tables not usable", areEqual(P, sharedTablesDecrypt(c2, keys[0], N, expected)));
+
+        // re-keying moves c1 onto the cached tables for keys[2]
+        byte[] expected2 = sharedTablesEncrypt(new GCMBlockCipher(createAESEngine(), new BasicGCMMultiplier()), keys[2], N, P);
+
+        isTrue("shared tables mismatch after re-key", areEqual(expected2, sharedTablesEncrypt(c1, keys[2], N, P)));
+        isTrue("unexpected cache size", cache.size() == 2);
+
+        cache.clear();
+        isTrue("cache not cleared", cache.size() == 0);
+
+        // tables in use survive a clear
+        isTrue("tables in use lost on clear", areEqual(P, sharedTablesDecrypt(c1, keys[2], N, expected2)));
+    }
+
+    private byte[] sharedTablesEncrypt(GCMBlockCipher cipher, byte[] K, byte[] N, byte[] P)
+        throws InvalidCipherTextException
+    {
+        cipher.init(true, new AEADParameters(new KeyParameter(K), 128, N));
+        byte[] C = new byte[cipher.getOutputSize(P.length)];
+        cipher.doFinal(C, cipher.processBytes(P, 0, P.length, C, 0));
+        return C;
+    }
+
+    private byte[] sharedTablesDecrypt(GCMBlockCipher cipher, byte[] K, byte[] N, byte[] C)
+        throws InvalidCipherTextException
+    {
+        cipher.init(false, new AEADParameters(new KeyParameter(K), 128, N));
+        byte[] P = new byte[cipher.getOutputSize(C.length)];
+        cipher.doFinal(P, cipher.processBytes(C, 0, C.length, P, 0));
+        return P;
+    }
+
+    private void aggregateTest(SecureRandom srng, GCMAggregateMultiplier m)
+        throws InvalidCipherTextException
+    {
+        byte[] H = new byte[16];
+        srng.nextBytes(H);
+
+        GCMMultiplier ref = new BasicGCMMultiplier();
+        ref.init(H);
+        m.init(H);
+
+        for (int blockCount = 0; blockCount <= 3 * m.getAggregateBlockCount() + 1; ++blockCount)
+        {
+            byte[] X = new byte[5 + blockCount * 16];
+            srng.nextBytes(X);
+
+            byte[] Y = new byte[16];
+            srng.nextBytes(Y);
+            byte[] expected = Arrays.clone(Y);
+
+            for (int i = 0; i != blockCount; i++)
+            {
+                for (int j = 0; j != 16; j++)
+                {
+                    expected[j] ^= X[5 + i * 16 + j];
+                }
+                ref.multiplyH(expected);
+            }
+
+            m.multiplyHBlocks(Y, X, 5, blockCount);
+
+            isTrue("aggregated multiply failed for " + blockCount + " blocks", areEqual(expected, Y));
+        }
+
+        // bulk processing against the single block reference, input fed in random pieces
+        byte[] K = new byte[16];
+        srng.nextBytes(K);
+        byte[] P = new byte[1000 + nextInt(srng, 1000)];
+        srng.nextBytes(P);
+        byte[] A = new byte[nextInt(srng, 300)];
+        srng.nextBytes(A);
+
+        AEADParameters parameters = new AEADParameters(new KeyParameter(K), 128, Hex.decode("cafebabefacedbaddecaf888"), A);
+
+        GCMBlockCipher refCipher = new GCMBlockCipher(new AESLightEngine(), new BasicGCMMultiplier());
+        refCipher.init(true, parameters);
+        byte[] C = new byte[refCipher.getOutputSize(P.length)];
+        refCipher.doFinal(C, refCipher.processBytes(P, 0, P.length, C, 0));
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean forEncryption = (pass == 0);
+            byte[] in = forEncryption ? P : C;
+            byte[] expected = forEncryption ? C : P;
+
+            GCMBlockCipher cipher = new GCMBlockCipher(createAESEngine(), m);
+            cipher.init(forEncryption, parameters);
+
+            byte[] out = new byte[cipher.getOutputSize(in.length)];
+            int inPos = 0, outPos = 0;
+            while (inPos < in.length)
+            {
+                int len = Math.min(in.length - inPos, nextInt(srng, 200));
+                outPos += cipher.processBytes(in, inPos, len, out, outPos);
+                inPos += len;
+            }
+            outPos += cipher.doFinal(out, outPos);
+
+            isTrue("bulk output length wrong", outPos == expected.length);
+            isTrue("bulk output mismatch", areEqual(expected, out));
+        }
+    }
+
     private void outputSizeTests()
     {
         byte[] K = new byte[16];
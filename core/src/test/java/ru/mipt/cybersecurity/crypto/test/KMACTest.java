@@ -0,0 +1,98 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import ru.mipt.cybersecurity.crypto.macs.KMAC;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * KMAC test vectors from:
+ *
+ * https://csrc.nist.gov/CSRC/media/Projects/Cryptographic-Standards-and-Guidelines/documents/examples/KMAC_samples.pdf
+ */
+public class KMACTest
+    extends SimpleTest
+{
+    private static final byte[] KEY = Hex.decode("404142434445464748494A4B4C4D4E4F505152535455565758595A5B5C5D5E5F");
+    private static final byte[] S = Strings.toByteArray("My Tagged Application");
+
+    public String getName()
+    {
+        return "KMAC";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        byte[] short4 = Hex.decode("00010203");
+        byte[] long200 = CSHAKETest.message(200);
+
+        checkKMAC(128, KEY, null, short4, "e5780b0d3ea6f7d3a429c5706aa43a00fadbd7d49628839e3187243f456ee14e");
+        checkKMAC(128, KEY, S, short4, "3b1fba963cd8b0b59e8c1a6d71888b7143651af8ba0a7070c0979e2811324aa5");
+        checkKMAC(128, KEY, S, long200, "1f5b4e6cca02209e0dcb5ca635b89a15e271ecc760071dfd805faa38f9729230");
+        checkKMAC(256, KEY, S, short4, "20c570c31346f703c9ac36c61c03cb64c3970d0cfc787e9b79599d273a68d2f7f69d4cc3de9d104a351689f27cf6f5951f0103f33f4f24871024d9c27773a8dd");
+        checkKMAC(256, KEY, null, long200, "75358cf39e41494e949707927cee0af20a3ff553904c86b08f21cc414bcfd691589d27cf5e15369cbbff8b9a4c2eb17800855d0235ff635da82533ec6b759b69");
+        checkKMAC(256, KEY, S, long200, "b58618f71f92e1d56c1b8c55ddd7cd188b97b4ca4d99831eb2699a837da2e4d970fbacfde50033aea585f1a2708510c32d07880801bd182898fe476876fc8965");
+        // key longer than the rate
+        checkKMAC(128, CSHAKETest.message(200), null, short4, "7b8d1ec0b6486ee59254c8541858d4b7a4f70c30297ef859a34c48282b5b49a1");
+
+        // KMACXOF
+        checkKMACXof(128, null, short4, "cd83740bbd92ccc8cf032b1481a0f4460e7ca9dd12b08a0c4031178bacd6ec35");
+        checkKMACXof(256, S, long200, "d5be731c954ed7732846bb59dbe3a8e30f83e77a4bff4459f2f1c2b4ecebb8ce67ba01c62e8ab8578d2d499bd1bb276768781190020a306a97de281dcc30305d");
+
+        KMAC kmac = new KMAC(128, null);
+        try
+        {
+            kmac.update(short4, 0, short4.length);
+            fail("no exception on update before init");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    private void checkKMAC(int bitLength, byte[] key, byte[] s, byte[] msg, String expected)
+    {
+        KMAC kmac = new KMAC(bitLength, s);
+        byte[] res = new byte[kmac.getMacSize()];
+
+        kmac.init(new KeyParameter(key));
+
+        kmac.update(msg, 0, msg.length);
+        kmac.doFinal(res, 0);
+
+        isTrue("KMAC" + bitLength + " failed on " + msg.length + " byte message", Arrays.areEqual(Hex.decode(expected), res));
+
+        // doFinal() leaves the MAC reset and keyed
+        for (int i = 0; i != msg.length; i++)
+        {
+            kmac.update(msg[i]);
+        }
+        kmac.doFinal(res, 0);
+
+        isTrue("KMAC" + bitLength + " reset failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    private void checkKMACXof(int bitLength, byte[] s, byte[] msg, String expected)
+    {
+        KMAC kmac = new KMAC(bitLength, s);
+        byte[] res = new byte[expected.length() / 2];
+
+        kmac.init(new KeyParameter(KEY));
+
+        kmac.update(msg, 0, msg.length);
+        kmac.doOutput(res, 0, 5);
+        kmac.doOutput(res, 5, res.length - 5);
+
+        isTrue("KMACXOF" + bitLength + " failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new KMACTest());
+    }
+}
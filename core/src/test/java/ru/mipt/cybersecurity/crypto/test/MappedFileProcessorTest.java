@@ -0,0 +1,185 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA3Digest;
+import ru.mipt.cybersecurity.crypto.io.MappedFileProcessor;
+import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.RSAKeyParameters;
+import ru.mipt.cybersecurity.crypto.signers.RSADigestSigner;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Base64;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check a single mapped pass over a file gives the same results as feeding each consumer the
+ * file contents separately.
+ */
+public class MappedFileProcessorTest
+    extends SimpleTest
+{
+    private static final BigInteger MOD = new BigInteger(Base64.decode("AIASoe2PQb1IP7bTyC9usjHP7FvnUMVpKW49iuFtrw/dMpYlsMMoIU2jupfifDpdFxIktSB4P+6Ymg5WjvHKTIrvQ7SR4zV4jaPTu56Ys0pZ9EDA6gb3HLjtU+8Bb1mfWM+yjKxcPDuFjwEtjGlPHg1Vq+CA9HNcMSKNn2+tW6qt"));
+    private static final BigInteger PUB_EXP = new BigInteger(Base64.decode("EQ=="));
+    private static final BigInteger PRIV_EXP = new BigInteger(Base64.decode("DxFAOhDajr00rBjqX+7nyZ/9sHWRCCp9WEN5wCsFiWVRPtdB+NeLcou7mWXwf1Y+8xNgmmh//fPV45G2dsyBeZbXeJwB7bzx9NMEAfedchyOwjR8PYdjK3NpTLKtZlEJ6Jkh4QihrXpZMO4fKZWUm9bid3+lmiq43FwW+Hof8/E="));
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "MappedFileProcessor";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkFile(0, MappedFileProcessor.DEFAULT_WINDOW_SIZE);
+        checkFile(1, MappedFileProcessor.DEFAULT_WINDOW_SIZE);
+        checkFile(100003, MappedFileProcessor.DEFAULT_WINDOW_SIZE);
+        // several windows, the last one short
+        checkFile(100003, 40000);
+        checkFile(3 * 16384, 16384);
+
+        checkRegion();
+
+        try
+        {
+            new MappedFileProcessor(1024);
+            fail("small window accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private void checkFile(int length, int windowSize)
+        throws Exception
+    {
+        byte[] data = new byte[length];
+        random.nextBytes(data);
+
+        File file = createFile(data);
+        try
+        {
+            byte[] key = new byte[32];
+            random.nextBytes(key);
+
+            Digest sha256 = new SHA256Digest();
+            Digest sha3 = new SHA3Digest(256);
+            Mac hmac = new HMac(new SHA256Digest());
+            RSADigestSigner signer = new RSADigestSigner(new SHA256Digest());
+
+            hmac.init(new KeyParameter(key));
+            signer.init(true, new RSAKeyParameters(true, MOD, PRIV_EXP));
+
+            long processed = new MappedFileProcessor(windowSize)
+                .addDigest(sha256).addDigest(sha3).addMac(hmac).addSigner(signer).process(file);
+
+            isEquals("length wrong", length, processed);
+
+            isTrue("SHA-256 mismatch", Arrays.areEqual(digest(new SHA256Digest(), data), result(sha256)));
+            isTrue("SHA3-256 mismatch", Arrays.areEqual(digest(new SHA3Digest(256), data), result(sha3)));
+
+            Mac refMac = new HMac(new SHA256Digest());
+            refMac.init(new KeyParameter(key));
+            refMac.update(data, 0, data.length);
+            byte[] expectedMac = new byte[refMac.getMacSize()];
+            refMac.doFinal(expectedMac, 0);
+
+            byte[] mac = new byte[hmac.getMacSize()];
+            hmac.doFinal(mac, 0);
+
+            isTrue("HMac mismatch", Arrays.areEqual(expectedMac, mac));
+
+            RSADigestSigner verifier = new RSADigestSigner(new SHA256Digest());
+            verifier.init(false, new RSAKeyParameters(false, MOD, PUB_EXP));
+            verifier.update(data, 0, data.length);
+
+            isTrue("signature failed", verifier.verifySignature(signer.generateSignature()));
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private void checkRegion()
+        throws Exception
+    {
+        byte[] data = new byte[70001];
+        random.nextBytes(data);
+
+        File file = createFile(data);
+        try
+        {
+            RandomAccessFile raf = new RandomAccessFile(file, "r");
+            try
+            {
+                Digest sha256 = new SHA256Digest();
+                MappedFileProcessor processor = new MappedFileProcessor(32768).addDigest(sha256);
+
+                raf.getChannel().position(5);
+                processor.process(raf.getChannel());
+
+                isEquals("channel position moved", 5, raf.getChannel().position());
+                isTrue("channel tail mismatch", Arrays.areEqual(
+                    digest(new SHA256Digest(), Arrays.copyOfRange(data, 5, data.length)), result(sha256)));
+
+                processor.process(raf.getChannel(), 1000, 40000);
+
+                isTrue("region mismatch", Arrays.areEqual(
+                    digest(new SHA256Digest(), Arrays.copyOfRange(data, 1000, 41000)), result(sha256)));
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        finally
+        {
+            file.delete();
+        }
+    }
+
+    private static File createFile(byte[] data)
+        throws Exception
+    {
+        File file = File.createTempFile("bcmap", ".dat");
+        FileOutputStream fOut = new FileOutputStream(file);
+
+        fOut.write(data);
+        fOut.close();
+
+        return file;
+    }
+
+    private static byte[] digest(Digest digest, byte[] data)
+    {
+        digest.update(data, 0, data.length);
+
+        return result(digest);
+    }
+
+    private static byte[] result(Digest digest)
+    {
+        byte[] res = new byte[digest.getDigestSize()];
+
+        digest.doFinal(res, 0);
+
+        return res;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new MappedFileProcessorTest());
+    }
+}
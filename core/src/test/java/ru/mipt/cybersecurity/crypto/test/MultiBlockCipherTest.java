@@ -0,0 +1,228 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BufferedBlockCipher;
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESFastEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESLightEngine;
+import ru.mipt.cybersecurity.crypto.modes.AEADBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.CBCBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.OCBBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.SICBlockCipher;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check the multi-block paths of the AES engines and the modes using them against
+ * the single block processing of AESLightEngine.
+ */
+public class MultiBlockCipherTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "MultiBlockCipher";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        for (int keySize = 16; keySize <= 32; keySize += 8)
+        {
+            KeyParameter key = new KeyParameter(randomBytes(keySize));
+
+            engineTest(new AESEngine(), key);
+            engineTest(new AESFastEngine(), key);
+            engineTest(new AESBitslicedEngine(), key);
+
+            sicTest(new AESEngine(), key);
+            sicTest(new AESFastEngine(), key);
+            sicTest(new AESBitslicedEngine(), key);
+
+            cbcTest(new AESEngine(), key);
+            cbcTest(new AESFastEngine(), key);
+            cbcTest(new AESBitslicedEngine(), key);
+
+            ocbTest(new AESEngine(), new AESEngine(), key);
+            ocbTest(new AESFastEngine(), new AESFastEngine(), key);
+            ocbTest(new AESBitslicedEngine(), new AESBitslicedEngine(), key);
+        }
+    }
+
+    private void engineTest(MultiBlockCipher engine, KeyParameter key)
+    {
+        BlockCipher ref = new AESLightEngine();
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean forEncryption = (pass == 0);
+
+            engine.init(forEncryption, key);
+            ref.init(forEncryption, key);
+
+            for (int blockCount = 0; blockCount <= 13; ++blockCount)
+            {
+                byte[] in = randomBytes(blockCount * 16 + 3);
+                byte[] expected = new byte[in.length + 5];
+                byte[] out = new byte[in.length + 5];
+
+                for (int i = 0; i != blockCount; i++)
+                {
+                    ref.processBlock(in, 3 + i * 16, expected, 5 + i * 16);
+                }
+
+                int len = engine.processBlocks(in, 3, blockCount, out, 5);
+
+                isEquals(engine.getAlgorithmName() + " processBlocks length", blockCount * 16, len);
+                isTrue(engine.getAlgorithmName() + " processBlocks failed for " + blockCount + " blocks", Arrays.areEqual(expected, out));
+
+                // in place
+                engine.processBlocks(in, 3, blockCount, in, 3);
+
+                isTrue(engine.getAlgorithmName() + " in place processBlocks failed for " + blockCount + " blocks",
+                    Arrays.areEqual(Arrays.copyOfRange(expected, 5, 5 + blockCount * 16), Arrays.copyOfRange(in, 3, 3 + blockCount * 16)));
+            }
+        }
+    }
+
+    private void sicTest(BlockCipher engine, KeyParameter key)
+    {
+        SICBlockCipher sic = new SICBlockCipher(engine);
+        SICBlockCipher ref = new SICBlockCipher(new AESLightEngine());
+
+        // start close to a carry out of the low counter bytes
+        byte[] iv = randomBytes(16);
+        iv[15] = (byte)0xf7;
+        iv[14] = (byte)0xff;
+
+        CipherParameters params = new ParametersWithIV(key, iv);
+
+        sic.init(true, params);
+        ref.init(true, params);
+
+        byte[] in = randomBytes(2000);
+        byte[] expected = new byte[in.length];
+        byte[] out = new byte[in.length];
+
+        ref.processBytes(in, 0, in.length, expected, 0);
+
+        int pos = 0;
+        while (pos < in.length)
+        {
+            int len = Math.min(in.length - pos, random.nextInt(300));
+            pos += sic.processBytes(in, pos, len, out, pos);
+        }
+
+        isTrue("SIC multi-block output mismatch", Arrays.areEqual(expected, out));
+
+        sic.seekTo(17);
+        sic.processBlocks(in, 17, 100, out, 17);
+
+        isTrue("SIC processBlocks output mismatch", Arrays.areEqual(expected, out));
+        isEquals("SIC position wrong", ref.getPosition() - in.length + 17 + 1600, sic.getPosition());
+    }
+
+    private void cbcTest(BlockCipher engine, KeyParameter key)
+        throws Exception
+    {
+        CipherParameters params = new ParametersWithIV(key, randomBytes(16));
+        BufferedBlockCipher ref = new BufferedBlockCipher(new CBCBlockCipher(new AESLightEngine()));
+        BufferedBlockCipher cbc = new BufferedBlockCipher(new CBCBlockCipher(engine));
+
+        byte[] plain = randomBytes(1600);
+        byte[] cipherText = new byte[plain.length];
+
+        ref.init(true, params);
+        ref.doFinal(cipherText, ref.processBytes(plain, 0, plain.length, cipherText, 0));
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean forEncryption = (pass == 0);
+            byte[] in = forEncryption ? plain : cipherText;
+            byte[] expected = forEncryption ? cipherText : plain;
+            byte[] out = new byte[in.length];
+
+            cbc.init(forEncryption, params);
+
+            int inPos = 0, outPos = 0;
+            while (inPos < in.length)
+            {
+                int len = Math.min(in.length - inPos, random.nextInt(200));
+                outPos += cbc.processBytes(in, inPos, len, out, outPos);
+                inPos += len;
+            }
+            outPos += cbc.doFinal(out, outPos);
+
+            isEquals("CBC output length", in.length, outPos);
+            isTrue("CBC multi-block output mismatch", Arrays.areEqual(expected, out));
+
+            // in place
+            byte[] buf = Arrays.clone(in);
+
+            cbc.init(forEncryption, params);
+            cbc.doFinal(buf, cbc.processBytes(buf, 0, buf.length, buf, 0));
+
+            isTrue("CBC in place multi-block output mismatch", Arrays.areEqual(expected, buf));
+        }
+    }
+
+    private void ocbTest(BlockCipher hashCipher, BlockCipher mainCipher, KeyParameter key)
+        throws Exception
+    {
+        AEADParameters params = new AEADParameters(key, 128, randomBytes(12), randomBytes(20));
+        AEADBlockCipher ref = new OCBBlockCipher(new AESLightEngine(), new AESLightEngine());
+        AEADBlockCipher ocb = new OCBBlockCipher(hashCipher, mainCipher);
+
+        byte[] plain = randomBytes(1000);
+
+        ref.init(true, params);
+        byte[] cipherText = new byte[ref.getOutputSize(plain.length)];
+        ref.doFinal(cipherText, ref.processBytes(plain, 0, plain.length, cipherText, 0));
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean forEncryption = (pass == 0);
+            byte[] in = forEncryption ? plain : cipherText;
+            byte[] expected = forEncryption ? cipherText : plain;
+
+            ocb.init(forEncryption, params);
+
+            byte[] out = new byte[ocb.getOutputSize(in.length)];
+
+            int inPos = 0, outPos = 0;
+            while (inPos < in.length)
+            {
+                int len = Math.min(in.length - inPos, random.nextInt(150));
+                outPos += ocb.processBytes(in, inPos, len, out, outPos);
+                inPos += len;
+            }
+            outPos += ocb.doFinal(out, outPos);
+
+            isEquals("OCB output length", expected.length, outPos);
+            isTrue("OCB multi-block output mismatch", Arrays.areEqual(expected, out));
+        }
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new MultiBlockCipherTest());
+    }
+}
@@ -0,0 +1,180 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.DataLengthException;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.MultiBufferDigest;
+import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA256MultiBufferDigest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512MultiBufferDigest;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check the multi-buffer digests against the single message ones, covering every padding case.
+ */
+public class MultiBufferDigestTest
+    extends SimpleTest
+{
+    private static final int[] LENGTHS = { 0, 1, 3, 55, 56, 63, 64, 65, 111, 112, 119, 120, 127, 128, 129, 200, 1000 };
+    private static final int[] COUNTS = { 0, 1, 7, 8, 9, 17 };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "MultiBufferDigest";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        vectorTest(new SHA256MultiBufferDigest(3),
+            "ba7816bf8f01cfea414140de5dae2223b00361a396177a9cb410ff61f20015ad");
+        vectorTest(new SHA512MultiBufferDigest(3),
+            "ddaf35a193617abacc417349ae20413112e6fa4e89a97ea20a9eeee64b55d39a"
+          + "2192992a274fc1a836ba3c23a3feebbd454d4423643ce80e2a9ac94fa54ca49f");
+
+        for (int i = 0; i != LENGTHS.length; i++)
+        {
+            referenceTest(new SHA256MultiBufferDigest(LENGTHS[i]), new SHA256Digest());
+            referenceTest(new SHA512MultiBufferDigest(LENGTHS[i]), new SHA512Digest());
+
+            submitTest(new SHA256MultiBufferDigest(LENGTHS[i]), new SHA256Digest());
+            submitTest(new SHA512MultiBufferDigest(LENGTHS[i]), new SHA512Digest());
+        }
+
+        stateTest(new SHA256MultiBufferDigest(32));
+    }
+
+    private void vectorTest(MultiBufferDigest digest, String expected)
+    {
+        byte[] out = new byte[digest.getDigestSize()];
+
+        digest.digest(Strings.toByteArray("abc"), 0, 1, out, 0);
+
+        isTrue(digest.getAlgorithmName() + " vector failed", Arrays.areEqual(Hex.decode(expected), out));
+    }
+
+    private void referenceTest(MultiBufferDigest digest, Digest ref)
+    {
+        int msgLen = digest.getMessageLength();
+        int digestSize = digest.getDigestSize();
+
+        for (int c = 0; c != COUNTS.length; c++)
+        {
+            int count = COUNTS[c];
+            byte[] in = randomBytes(3 + count * msgLen);
+            byte[] expected = reference(ref, in, 3, msgLen, count);
+            byte[] out = new byte[5 + count * digestSize];
+
+            int len = digest.digest(in, 3, count, out, 5);
+
+            isEquals("digest length", count * digestSize, len);
+            isTrue(digest.getAlgorithmName() + " mismatch for " + count + " messages of " + msgLen + " bytes",
+                Arrays.areEqual(expected, Arrays.copyOfRange(out, 5, out.length)));
+        }
+    }
+
+    private void submitTest(MultiBufferDigest digest, Digest ref)
+    {
+        int msgLen = digest.getMessageLength();
+        int lanes = digest.getLaneCount();
+        int count = lanes + lanes / 2;
+
+        byte[] in = randomBytes(count * msgLen);
+        byte[] expected = reference(ref, in, 0, msgLen, count);
+        byte[] out = new byte[count * digest.getDigestSize()];
+
+        int outOff = 0;
+        for (int i = 0; i != count; i++)
+        {
+            if (digest.submit(in, i * msgLen))
+            {
+                isEquals("full lanes not harvested", lanes, digest.harvest(out, outOff));
+                outOff += lanes * digest.getDigestSize();
+            }
+        }
+
+        isEquals("partial lanes not harvested", count - lanes, digest.harvest(out, outOff));
+        isEquals("empty harvest", 0, digest.harvest(out, 0));
+
+        isTrue(digest.getAlgorithmName() + " submit mismatch for " + msgLen + " bytes", Arrays.areEqual(expected, out));
+    }
+
+    private void stateTest(MultiBufferDigest digest)
+    {
+        byte[] msg = new byte[digest.getMessageLength()];
+
+        for (int i = 0; i != digest.getLaneCount(); i++)
+        {
+            digest.submit(msg, 0);
+        }
+
+        try
+        {
+            digest.submit(msg, 0);
+            fail("submit to full lanes accepted");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            digest.harvest(new byte[digest.getDigestSize()], 0);
+            fail("short harvest buffer accepted");
+        }
+        catch (OutputLengthException e)
+        {
+            // expected
+        }
+
+        digest.reset();
+
+        try
+        {
+            digest.submit(msg, 1);
+            fail("short message accepted");
+        }
+        catch (DataLengthException e)
+        {
+            // expected
+        }
+
+        isEquals("reset did not clear lanes", 0, digest.harvest(new byte[0], 0));
+    }
+
+    private static byte[] reference(Digest ref, byte[] in, int inOff, int msgLen, int count)
+    {
+        int digestSize = ref.getDigestSize();
+        byte[] out = new byte[count * digestSize];
+
+        for (int i = 0; i != count; i++)
+        {
+            ref.update(in, inOff + i * msgLen, msgLen);
+            ref.doFinal(out, i * digestSize);
+        }
+
+        return out;
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new MultiBufferDigestTest());
+    }
+}
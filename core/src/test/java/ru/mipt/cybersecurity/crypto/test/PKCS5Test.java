@@ -1,6 +1,8 @@
 package ru.mipt.cybersecurity.crypto.test;
 
 import java.io.ByteArrayInputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import ru.mipt.cybersecurity.asn1.ASN1InputStream;
 import ru.mipt.cybersecurity.asn1.ASN1OctetString;
@@ -14,6 +16,7 @@ import ru.mipt.cybersecurity.asn1.pkcs.RC2CBCParameter;
 import ru.mipt.cybersecurity.crypto.BufferedBlockCipher;
 import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.PBEParametersGenerator;
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
 import ru.mipt.cybersecurity.crypto.engines.DESEngine;
 import ru.mipt.cybersecurity.crypto.engines.DESedeEngine;
 import ru.mipt.cybersecurity.crypto.engines.RC2Engine;
@@ -22,6 +25,7 @@ import ru.mipt.cybersecurity.crypto.modes.CBCBlockCipher;
 import ru.mipt.cybersecurity.crypto.paddings.PaddedBufferedBlockCipher;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Strings;
 import ru.mipt.cybersecurity.util.encoders.Base64;
 import ru.mipt.cybersecurity.util.encoders.Hex;
 import ru.mipt.cybersecurity.util.test.SimpleTest;
@@ -255,6 +259,36 @@ public class PKCS5Test
         {
             fail("192 (60000) test failed");
         }
+
+        //
+        // RFC 7914 PBKDF2-HMAC-SHA256 tests, two blocks each, sequential and in parallel
+        //
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try
+        {
+            sha256Test(new PKCS5S2ParametersGenerator(new SHA256Digest()), "passwd", "salt", 1,
+                "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+            sha256Test(new PKCS5S2ParametersGenerator(new SHA256Digest(), executor), "passwd", "salt", 1,
+                "55ac046e56e3089fec1691c22544b605f94185216dde0465e68b9d57c20dacbc49ca9cccf179b645991664b39d77ef317c71b845b1e30bd509112041d3a19783");
+            sha256Test(new PKCS5S2ParametersGenerator(new SHA256Digest()), "Password", "NaCl", 80000,
+                "4ddcd8f60b98be21830cee5ef22701f9641a4418d04c0414aeff08876b34ab56a1d425a1225833549adb841b51c9b3176a272bdebba1d078478f62b397f33c8d");
+            sha256Test(new PKCS5S2ParametersGenerator(new SHA256Digest(), executor), "Password", "NaCl", 80000,
+                "4ddcd8f60b98be21830cee5ef22701f9641a4418d04c0414aeff08876b34ab56a1d425a1225833549adb841b51c9b3176a272bdebba1d078478f62b397f33c8d");
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void sha256Test(PBEParametersGenerator generator, String password, String salt, int iterationCount, String expected)
+    {
+        generator.init(Strings.toByteArray(password), Strings.toByteArray(salt), iterationCount);
+
+        if (!areEqual(((KeyParameter)generator.generateDerivedParameters(512)).getKey(), Hex.decode(expected)))
+        {
+            fail("SHA-256 " + iterationCount + " test failed");
+        }
     }
 
     public static void main(
@@ -0,0 +1,111 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.mipt.cybersecurity.crypto.digests.ParallelHash;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * ParallelHash test vectors from:
+ *
+ * https://csrc.nist.gov/CSRC/media/Projects/Cryptographic-Standards-and-Guidelines/documents/examples/ParallelHash_samples.pdf
+ */
+public class ParallelHashTest
+    extends SimpleTest
+{
+    private static final byte[] MSG24 = Hex.decode("000102030405060710111213141516172021222324252627");
+    private static final byte[] MSG72 = Hex.decode("000102030405060708090A0B101112131415161718191A1B202122232425262728292A2B303132333435363738393A3B404142434445464748494A4B505152535455565758595A5B");
+    private static final byte[] S = Strings.toByteArray("Parallel Data");
+
+    public String getName()
+    {
+        return "ParallelHash";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkParallelHash(new ParallelHash(128, null, 8), MSG24, "ba8dc1d1d979331d3f813603c67f72609ab5e44b94a0b8f9af46514454a2b4f5");
+        checkParallelHash(new ParallelHash(128, S, 8), MSG24, "fc484dcb3f84dceedc353438151bee58157d6efed0445a81f165e495795b7206");
+        checkParallelHash(new ParallelHash(128, S, 12), MSG72, "f7fd5312896c6685c828af7e2adb97e393e7f8d54e3c2ea4b95e5aca3796e8fc");
+        checkParallelHash(new ParallelHash(256, null, 8), MSG24, "bc1ef124da34495e948ead207dd9842235da432d2bbc54b4c110e64c451105531b7f2a3e0ce055c02805e7c2de1fb746af97a1dd01f43b824e31b87612410429");
+
+        // ParallelHashXOF
+        checkParallelHashXof(new ParallelHash(128, null, 8), MSG24, "fe47d661e49ffe5b7d999922c062356750caf552985b8e8ce6667f2727c3c8d3");
+        checkParallelHashXof(new ParallelHash(256, S, 12), MSG72, "6b3e790b330c889a204c2fbc728d809f19367328d852f4002dc829f73afd6bcefb7fe5b607b13a801c0be5c1170bdb794e339458fdb0e62a6af3d42558970249");
+
+        byte[] big = new byte[300007];
+        for (int i = 0; i != big.length; i++)
+        {
+            big[i] = (byte)(i % 251);
+        }
+
+        String big128 = "f3775ca2d320d3f31d4dbb17122d55e32c3d335ffa9a4043d377fc9e726eb6f9";
+        String big256 = "125641558bbf1e57881e14722d9a6e2b987fef91732136942a9ba7b9fc485edb3ba3dbdc0326d2a4e4b0b70b13d25d042646328b04ff1ae40a9a1af00fe1aee9";
+
+        checkParallelHash(new ParallelHash(128, Strings.toByteArray("Big"), 1024), big, big128);
+        checkParallelHash(new ParallelHash(256, null, 777), big, big256);
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try
+        {
+            checkParallelHash(new ParallelHash(128, Strings.toByteArray("Big"), 1024, 256, executor), big, big128);
+            checkParallelHash(new ParallelHash(256, null, 777, 512, executor), big, big256);
+            // small blocks, so many segments
+            checkParallelHash(new ParallelHash(128, S, 12, 256, executor), MSG72, "f7fd5312896c6685c828af7e2adb97e393e7f8d54e3c2ea4b95e5aca3796e8fc");
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void checkParallelHash(ParallelHash pHash, byte[] msg, String expected)
+    {
+        byte[] res = new byte[pHash.getDigestSize()];
+
+        pHash.update(msg, 0, msg.length);
+        pHash.doFinal(res, 0);
+
+        isTrue(pHash.getAlgorithmName() + " failed on " + msg.length + " byte message", Arrays.areEqual(Hex.decode(expected), res));
+
+        // again after the reset, in uneven pieces, with a copy taken half way
+        int half = msg.length / 2;
+
+        pHash.update(msg, 0, 1);
+        pHash.update(msg, 1, half - 1);
+
+        ParallelHash copy = new ParallelHash(pHash);
+
+        pHash.update(msg, half, msg.length - half);
+        pHash.doFinal(res, 0);
+
+        isTrue(pHash.getAlgorithmName() + " reset failed", Arrays.areEqual(Hex.decode(expected), res));
+
+        copy.update(msg, half, msg.length - half);
+        copy.doFinal(res, 0);
+
+        isTrue(pHash.getAlgorithmName() + " copy failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    private void checkParallelHashXof(ParallelHash pHash, byte[] msg, String expected)
+    {
+        byte[] res = new byte[expected.length() / 2];
+
+        pHash.update(msg, 0, msg.length);
+        pHash.doOutput(res, 0, 9);
+        pHash.doOutput(res, 9, res.length - 9);
+
+        isTrue(pHash.getAlgorithmName() + " XOF failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new ParallelHashTest());
+    }
+}
@@ -0,0 +1,254 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
+import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.modes.AEADBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.GCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.ParallelGCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.ParallelSICCipher;
+import ru.mipt.cybersecurity.crypto.modes.SICBlockCipher;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check the parallel SIC and GCM modes give the same results as the single threaded ones.
+ */
+public class ParallelModesTest
+    extends SimpleTest
+{
+    private static final BlockCipherFactory AES_FACTORY = new BlockCipherFactory()
+    {
+        public BlockCipher createBlockCipher()
+        {
+            return new AESEngine();
+        }
+    };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "ParallelModes";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            // small segments so even modest messages are split many ways
+            sicTest(executor, 64);
+            sicTest(executor, 4096);
+
+            gcmTest(executor, 64, 12, 128);
+            gcmTest(executor, 64, 7, 96);
+            gcmTest(executor, 4096, 12, 128);
+            gcmTest(executor, 4096, 60, 64);
+
+            gcmInPlaceTest(executor);
+            gcmTamperTest(executor);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private void sicTest(ExecutorService executor, int segmentSize)
+    {
+        KeyParameter key = new KeyParameter(randomBytes(16));
+        byte[] iv = randomBytes(16);
+
+        // close to a carry out of the low counter bytes
+        iv[15] = (byte)0xf0;
+        iv[14] = (byte)0xff;
+
+        ParametersWithIV params = new ParametersWithIV(key, iv);
+
+        SICBlockCipher ref = new SICBlockCipher(new AESEngine());
+        ParallelSICCipher sic = new ParallelSICCipher(AES_FACTORY, executor, segmentSize);
+
+        byte[] in = randomBytes(50000);
+        byte[] expected = new byte[in.length];
+        byte[] out = new byte[in.length];
+
+        ref.init(true, params);
+        ref.processBytes(in, 0, in.length, expected, 0);
+
+        sic.init(true, params);
+
+        int pos = 0;
+        while (pos < in.length)
+        {
+            int len = Math.min(in.length - pos, random.nextInt(8000));
+            pos += sic.processBytes(in, pos, len, out, pos);
+
+            isEquals("SIC position", pos, sic.getPosition());
+        }
+
+        isTrue("parallel SIC output mismatch", Arrays.areEqual(expected, out));
+
+        // in place, starting part way into a block
+        byte[] buf = Arrays.clone(in);
+
+        sic.seekTo(5);
+        sic.processBytes(buf, 5, buf.length - 5, buf, 5);
+
+        isTrue("parallel SIC in place mismatch", Arrays.areEqual(
+            Arrays.copyOfRange(expected, 5, expected.length), Arrays.copyOfRange(buf, 5, buf.length)));
+
+        // changing the IV only
+        byte[] newIv = randomBytes(16);
+
+        ref.init(true, new ParametersWithIV(key, newIv));
+        ref.processBytes(in, 0, in.length, expected, 0);
+
+        sic.init(true, new ParametersWithIV(null, newIv));
+        sic.processBytes(in, 0, in.length, out, 0);
+
+        isTrue("parallel SIC IV change mismatch", Arrays.areEqual(expected, out));
+    }
+
+    private void gcmTest(ExecutorService executor, int segmentSize, int nonceLength, int macSize)
+        throws InvalidCipherTextException
+    {
+        KeyParameter key = new KeyParameter(randomBytes(16));
+        int[] lengths = { 0, 1, 15, 16, 17, 200, 1023, 20000 };
+
+        for (int i = 0; i != lengths.length; i++)
+        {
+            AEADParameters params = new AEADParameters(key, macSize, randomBytes(nonceLength), randomBytes(i * 7));
+            byte[] aad = randomBytes(i * 11);
+            byte[] plain = randomBytes(lengths[i]);
+
+            AEADBlockCipher ref = new GCMBlockCipher(new AESEngine());
+            ref.init(true, params);
+            ref.processAADBytes(aad, 0, aad.length);
+            byte[] expected = new byte[ref.getOutputSize(plain.length)];
+            ref.doFinal(expected, ref.processBytes(plain, 0, plain.length, expected, 0));
+
+            AEADBlockCipher gcm = new ParallelGCMBlockCipher(AES_FACTORY, executor, segmentSize);
+
+            gcm.init(true, params);
+            byte[] cipherText = process(gcm, aad, plain);
+
+            isTrue("parallel GCM encrypt mismatch for " + plain.length, Arrays.areEqual(expected, cipherText));
+            isTrue("parallel GCM mac mismatch", Arrays.areEqual(ref.getMac(), gcm.getMac()));
+
+            gcm.init(false, params);
+            byte[] decrypted = process(gcm, aad, cipherText);
+
+            isTrue("parallel GCM decrypt mismatch for " + plain.length, Arrays.areEqual(plain, decrypted));
+
+            // decryption can be repeated after doFinal
+            decrypted = process(gcm, aad, cipherText);
+
+            isTrue("parallel GCM repeat decrypt mismatch for " + plain.length, Arrays.areEqual(plain, decrypted));
+        }
+    }
+
+    private void gcmInPlaceTest(ExecutorService executor)
+        throws InvalidCipherTextException
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(32)), 128, randomBytes(12));
+        byte[] plain = randomBytes(30000);
+
+        AEADBlockCipher ref = new GCMBlockCipher(new AESEngine());
+        ref.init(true, params);
+        byte[] expected = new byte[ref.getOutputSize(plain.length)];
+        ref.doFinal(expected, ref.processBytes(plain, 0, plain.length, expected, 0));
+
+        AEADBlockCipher gcm = new ParallelGCMBlockCipher(AES_FACTORY, executor, 1024);
+        byte[] buf = new byte[expected.length];
+        System.arraycopy(plain, 0, buf, 0, plain.length);
+
+        gcm.init(true, params);
+        gcm.doFinal(buf, gcm.processBytes(buf, 0, plain.length, buf, 0));
+
+        isTrue("parallel GCM in place encrypt mismatch", Arrays.areEqual(expected, buf));
+
+        gcm.init(false, params);
+        gcm.doFinal(buf, gcm.processBytes(buf, 0, buf.length, buf, 0));
+
+        isTrue("parallel GCM in place decrypt mismatch", Arrays.areEqual(plain, Arrays.copyOfRange(buf, 0, plain.length)));
+    }
+
+    private void gcmTamperTest(ExecutorService executor)
+    {
+        AEADParameters params = new AEADParameters(new KeyParameter(randomBytes(16)), 128, randomBytes(12));
+        AEADBlockCipher gcm = new ParallelGCMBlockCipher(AES_FACTORY, executor, 256);
+        byte[] plain = randomBytes(5000);
+
+        try
+        {
+            gcm.init(true, params);
+            byte[] cipherText = process(gcm, new byte[0], plain);
+
+            cipherText[2345] ^= 1;
+
+            gcm.init(false, params);
+            process(gcm, new byte[0], cipherText);
+
+            fail("tampered cipher text not detected");
+        }
+        catch (InvalidCipherTextException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            gcm.init(true, params);
+            fail("nonce reuse not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private byte[] process(AEADBlockCipher cipher, byte[] aad, byte[] in)
+        throws InvalidCipherTextException
+    {
+        cipher.processAADBytes(aad, 0, aad.length);
+
+        byte[] out = new byte[cipher.getOutputSize(in.length)];
+        int inPos = 0, outPos = 0;
+
+        while (inPos < in.length)
+        {
+            int len = Math.min(in.length - inPos, random.nextInt(6000));
+            outPos += cipher.processBytes(in, inPos, len, out, outPos);
+            inPos += len;
+        }
+        outPos += cipher.doFinal(out, outPos);
+
+        isEquals("output length", out.length, outPos);
+
+        return out;
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new ParallelModesTest());
+    }
+}
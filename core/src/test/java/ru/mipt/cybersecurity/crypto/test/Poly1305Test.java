@@ -115,6 +115,7 @@ public class Poly1305Test
             testCase(i);
         }
         testSequential();
+        testFourBlock();
         testReset();
         rfc7539Test();
     }
@@ -223,6 +224,53 @@ public class Poly1305Test
         }
     }
 
+    private void testFourBlock()
+    {
+        SecureRandom random = new SecureRandom();
+        byte[] k = new byte[32];
+        byte[] m = new byte[1000];
+        byte[] check = new byte[16];
+        byte[] out = new byte[16];
+
+        for (int i = 0; i != 40; i++)
+        {
+            // the first pass uses the largest limbs, to exercise the carry bounds
+            if (i == 0)
+            {
+                Arrays.fill(k, (byte)0xff);
+                Arrays.fill(m, (byte)0xff);
+            }
+            else
+            {
+                random.nextBytes(k);
+                random.nextBytes(m);
+            }
+            Poly1305KeyGenerator.clamp(k);
+
+            int len = (i == 0) ? m.length : random.nextInt(m.length);
+
+            Mac poly = new Poly1305();
+            poly.init(new KeyParameter(k));
+
+            // single byte updates only ever take the one block path
+            for (int j = 0; j != len; j++)
+            {
+                poly.update(m[j]);
+            }
+            poly.doFinal(check, 0);
+
+            int split = random.nextInt(len + 1);
+            poly.update(m, 0, split);
+            poly.update(m, split, len - split);
+            poly.doFinal(out, 0);
+
+            if (!Arrays.areEqual(check, out))
+            {
+                fail("four block mismatch for length " + len, new String(Hex.encode(check)), new String(Hex.encode(out)));
+            }
+        }
+    }
+
     private void testReset()
     {
         CipherKeyGenerator gen = new Poly1305KeyGenerator();
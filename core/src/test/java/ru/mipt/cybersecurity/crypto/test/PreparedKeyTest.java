@@ -0,0 +1,339 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.MultiBlockCipher;
+import ru.mipt.cybersecurity.crypto.digests.KeccakDigest;
+import ru.mipt.cybersecurity.crypto.digests.SHA1Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA256Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.crypto.digests.SHA512tDigest;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESFastEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESLightEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESPreparedKey;
+import ru.mipt.cybersecurity.crypto.engines.TwofishEngine;
+import ru.mipt.cybersecurity.crypto.macs.CMac;
+import ru.mipt.cybersecurity.crypto.macs.CMacPreparedKey;
+import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.macs.HMacPreparedKey;
+import ru.mipt.cybersecurity.crypto.modes.GCMBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.GCMPreparedKey;
+import ru.mipt.cybersecurity.crypto.params.AEADParameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * Check that prepared keys give the same results as plain keys, including when one prepared
+ * key is shared by several threads.
+ */
+public class PreparedKeyTest
+    extends SimpleTest
+{
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "PreparedKey";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        for (int keySize = 16; keySize <= 32; keySize += 8)
+        {
+            byte[] key = randomBytes(keySize);
+            AESPreparedKey preparedKey = new AESPreparedKey(key);
+
+            aesTest(new AESEngine(), key, preparedKey);
+            aesTest(new AESFastEngine(), key, preparedKey);
+            aesTest(new AESBitslicedEngine(), key, preparedKey);
+
+            cMacTest(key, preparedKey);
+            gcmTest(key, preparedKey);
+        }
+
+        hMacTest(new SHA1Digest(), randomBytes(20));
+        hMacTest(new SHA256Digest(), randomBytes(32));
+        hMacTest(new SHA512Digest(), randomBytes(200));
+        hMacTest(new SHA512tDigest(256), randomBytes(64));
+
+        mismatchTest();
+        threadTest();
+    }
+
+    private void aesTest(BlockCipher engine, byte[] key, AESPreparedKey preparedKey)
+    {
+        BlockCipher ref = new AESLightEngine();
+        byte[] in = randomBytes(16 * 9);
+
+        for (int pass = 0; pass < 2; ++pass)
+        {
+            boolean forEncryption = (pass == 0);
+            byte[] expected = new byte[in.length];
+            byte[] out = new byte[in.length];
+
+            ref.init(forEncryption, new KeyParameter(key));
+            engine.init(forEncryption, preparedKey);
+
+            for (int i = 0; i != in.length; i += 16)
+            {
+                ref.processBlock(in, i, expected, i);
+            }
+
+            ((MultiBlockCipher)engine).processBlocks(in, 0, 8, out, 0);
+            engine.processBlock(in, 128, out, 128);
+
+            isTrue(engine.getAlgorithmName() + " prepared key mismatch", Arrays.areEqual(expected, out));
+        }
+    }
+
+    private void hMacTest(Digest digest, byte[] key)
+    {
+        Mac ref = new HMac(digest);
+        Mac mac = new HMac(digest);
+        HMacPreparedKey preparedKey = new HMacPreparedKey(digest, key);
+
+        ref.init(new KeyParameter(key));
+        mac.init(preparedKey);
+
+        for (int i = 0; i < 3; ++i)
+        {
+            byte[] msg = randomBytes(random.nextInt(500));
+
+            isTrue("HMac prepared key mismatch for " + digest.getAlgorithmName(),
+                Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+        }
+
+        // reset() part way through a message
+        mac.update(randomBytes(50), 0, 50);
+        mac.reset();
+
+        byte[] msg = randomBytes(77);
+        isTrue("HMac prepared key mismatch after reset", Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+
+        // back to a plain key
+        byte[] other = randomBytes(16);
+        ref.init(new KeyParameter(other));
+        mac.init(new KeyParameter(other));
+
+        isTrue("HMac plain key mismatch after prepared key", Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+    }
+
+    private void cMacTest(byte[] key, AESPreparedKey aesKey)
+    {
+        Mac ref = new CMac(new AESLightEngine());
+        Mac mac = new CMac(new AESEngine());
+        CMacPreparedKey preparedKey = new CMacPreparedKey(new AESEngine(), aesKey);
+
+        ref.init(new KeyParameter(key));
+
+        for (int i = 0; i < 3; ++i)
+        {
+            byte[] msg = randomBytes(random.nextInt(100));
+
+            mac.init(preparedKey);
+
+            isTrue("CMac prepared key mismatch", Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+        }
+    }
+
+    private void gcmTest(byte[] key, AESPreparedKey aesKey)
+        throws Exception
+    {
+        GCMPreparedKey preparedKey = new GCMPreparedKey(new AESEngine(), aesKey);
+        byte[] nonce = randomBytes(12);
+        byte[] aad = randomBytes(20);
+        byte[] plain = randomBytes(1000);
+
+        GCMBlockCipher ref = new GCMBlockCipher(new AESLightEngine());
+        ref.init(true, new AEADParameters(new KeyParameter(key), 128, nonce, aad));
+        byte[] expected = new byte[ref.getOutputSize(plain.length)];
+        ref.doFinal(expected, ref.processBytes(plain, 0, plain.length, expected, 0));
+
+        GCMBlockCipher gcm = new GCMBlockCipher(new AESEngine());
+        gcm.init(true, new AEADParameters(preparedKey, 128, nonce, aad));
+        byte[] cipherText = new byte[gcm.getOutputSize(plain.length)];
+        gcm.doFinal(cipherText, gcm.processBytes(plain, 0, plain.length, cipherText, 0));
+
+        isTrue("GCM prepared key mismatch", Arrays.areEqual(expected, cipherText));
+
+        gcm.init(false, new AEADParameters(preparedKey, 128, nonce, aad));
+        byte[] decrypted = new byte[gcm.getOutputSize(cipherText.length)];
+        gcm.doFinal(decrypted, gcm.processBytes(cipherText, 0, cipherText.length, decrypted, 0));
+
+        isTrue("GCM prepared key decrypt mismatch", Arrays.areEqual(plain, decrypted));
+
+        // and back to a plain key on the same instance
+        byte[] otherKey = randomBytes(16);
+        ref.init(true, new AEADParameters(new KeyParameter(otherKey), 128, nonce));
+        gcm.init(true, new AEADParameters(new KeyParameter(otherKey), 128, nonce));
+
+        byte[] r = new byte[ref.getOutputSize(plain.length)];
+        ref.doFinal(r, ref.processBytes(plain, 0, plain.length, r, 0));
+        byte[] g = new byte[gcm.getOutputSize(plain.length)];
+        gcm.doFinal(g, gcm.processBytes(plain, 0, plain.length, g, 0));
+
+        isTrue("GCM plain key mismatch after prepared key", Arrays.areEqual(r, g));
+    }
+
+    /*
+     * A prepared key given to a primitive it was not prepared for is just a key.
+     */
+    private void mismatchTest()
+    {
+        byte[] key = randomBytes(16);
+        byte[] msg = randomBytes(100);
+
+        Mac ref = new HMac(new SHA1Digest());
+        Mac mac = new HMac(new SHA1Digest());
+        ref.init(new KeyParameter(key));
+        mac.init(new HMacPreparedKey(new SHA256Digest(), key));
+
+        isTrue("HMac mismatched prepared key not treated as plain key", Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+
+        ref = new CMac(new TwofishEngine());
+        mac = new CMac(new TwofishEngine());
+        ref.init(new KeyParameter(key));
+        mac.init(new CMacPreparedKey(new AESEngine(), new KeyParameter(key)));
+
+        isTrue("CMac mismatched prepared key not treated as plain key", Arrays.areEqual(macOf(ref, msg), macOf(mac, msg)));
+
+        BlockCipher twofish = new TwofishEngine();
+        BlockCipher twofishRef = new TwofishEngine();
+        byte[] a = new byte[16], b = new byte[16];
+        twofish.init(true, new AESPreparedKey(key));
+        twofishRef.init(true, new KeyParameter(key));
+        twofish.processBlock(msg, 0, a, 0);
+        twofishRef.processBlock(msg, 0, b, 0);
+
+        isTrue("AES prepared key not usable as plain key", Arrays.areEqual(a, b));
+
+        try
+        {
+            new HMacPreparedKey(new KeccakDigest(256), key);
+            fail("non-Memoable digest accepted");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private void threadTest()
+        throws Exception
+    {
+        final byte[] key = randomBytes(32);
+        final HMacPreparedKey hMacKey = new HMacPreparedKey(new SHA256Digest(), key);
+        final GCMPreparedKey gcmKey = new GCMPreparedKey(new AESEngine(), new AESPreparedKey(key));
+
+        final byte[][] msgs = new byte[16][];
+        final byte[][] hMacs = new byte[msgs.length][];
+        final byte[][] gcms = new byte[msgs.length][];
+
+        Mac hMac = new HMac(new SHA256Digest());
+        hMac.init(new KeyParameter(key));
+        GCMBlockCipher gcm = new GCMBlockCipher(new AESLightEngine());
+
+        for (int i = 0; i != msgs.length; i++)
+        {
+            msgs[i] = randomBytes(100 + 37 * i);
+            hMacs[i] = macOf(hMac, msgs[i]);
+
+            gcm.init(true, new AEADParameters(new KeyParameter(key), 128, nonce(i)));
+            gcms[i] = new byte[gcm.getOutputSize(msgs[i].length)];
+            gcm.doFinal(gcms[i], gcm.processBytes(msgs[i], 0, msgs[i].length, gcms[i], 0));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+            for (int t = 0; t < 8; t++)
+            {
+                results.add(executor.submit(new Callable<Boolean>()
+                {
+                    public Boolean call()
+                        throws Exception
+                    {
+                        Mac mac = new HMac(new SHA256Digest());
+                        GCMBlockCipher cipher = new GCMBlockCipher(new AESEngine());
+
+                        for (int n = 0; n < 50; n++)
+                        {
+                            int i = n % msgs.length;
+
+                            mac.init(hMacKey);
+                            if (!Arrays.areEqual(hMacs[i], macOf(mac, msgs[i])))
+                            {
+                                return Boolean.FALSE;
+                            }
+
+                            cipher.init(false, new AEADParameters(gcmKey, 128, nonce(i)));
+                            byte[] out = new byte[cipher.getOutputSize(gcms[i].length)];
+                            cipher.doFinal(out, cipher.processBytes(gcms[i], 0, gcms[i].length, out, 0));
+                            if (!Arrays.areEqual(msgs[i], out))
+                            {
+                                return Boolean.FALSE;
+                            }
+                        }
+
+                        return Boolean.TRUE;
+                    }
+                }));
+            }
+
+            for (int t = 0; t != results.size(); t++)
+            {
+                isTrue("shared prepared key failed in thread " + t, results.get(t).get().booleanValue());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
+    private static byte[] nonce(int i)
+    {
+        byte[] nonce = new byte[12];
+        nonce[11] = (byte)i;
+        return nonce;
+    }
+
+    private static byte[] macOf(Mac mac, byte[] msg)
+    {
+        byte[] out = new byte[mac.getMacSize()];
+
+        mac.update(msg, 0, msg.length);
+        mac.doFinal(out, 0);
+
+        return out;
+    }
+
+    private byte[] randomBytes(int length)
+    {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new PreparedKeyTest());
+    }
+}
@@ -10,6 +10,7 @@ public class RegressionTest
         new AESTest(),
         new AESLightTest(),
         new AESFastTest(),
+        new AESBitslicedTest(),
         new AESWrapTest(),
         new AESWrapPadTest(),
         new ARIATest(),
@@ -154,7 +155,25 @@ public class RegressionTest
         new SM4Test(),
         new DSTU7624Test(),
         new DSTU7564Test(),
-        new IsoTrailerTest()
+        new IsoTrailerTest(),
+        new MultiBlockCipherTest(),
+        new ByteBufferTest(),
+        new ParallelModesTest(),
+        new ChaCha20Poly1305Test(),
+        new XTSTest(),
+        new PreparedKeyTest(),
+        new MultiBufferDigestTest(),
+        new Blake2sDigestTest(),
+        new Blake2TreeDigestTest(),
+        new CSHAKETest(),
+        new KMACTest(),
+        new TupleHashTest(),
+        new ParallelHashTest(),
+        new MappedFileProcessorTest(),
+        new Argon2Test(),
+        new ECDSABatchVerifierTest(),
+        new X25519Test(),
+        new Ed25519Test()
     };
 
     public static void main(
@@ -2,6 +2,8 @@ package ru.mipt.cybersecurity.crypto.test;
 
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import ru.mipt.cybersecurity.crypto.generators.SCrypt;
 import ru.mipt.cybersecurity.util.Strings;
@@ -22,6 +24,7 @@ public class SCryptTest extends SimpleTest
     public void performTest() throws Exception
     {
         testParameters();
+        testParallel();
         testVectors();
     }
 
@@ -40,6 +43,37 @@ public class SCryptTest extends SimpleTest
         checkIllegal("Len parameter must be > 1", new byte[0], new byte[0], 2, 1, 1, 0);
        }
 
+    public void testParallel()
+    {
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            byte[] P = Strings.toByteArray("password");
+            byte[] S = Strings.toByteArray("NaCl");
+            byte[] expected = Hex.decode(
+                "fdbabe1c9d3472007856e7190d01e9fe7c6ad7cbc8237830e77376634b3731622eaf30d92e22a3886ff109279d9830dac727afb94a83ee6d8360cbdfa2cc0640");
+
+            isTrue("sequential vector failed", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64)));
+            isTrue("parallel vector failed", areEqual(expected, SCrypt.generate(P, S, 1024, 8, 16, 64, executor)));
+
+            // smaller N after larger reuses the per-thread scratch, larger r forces a new one
+            byte[] small = Hex.decode(
+                "77d6576238657b203b19ca42c18a0497f16b4844e3074ae8dfdffa3fede21442fcd0069ded0948f8326a753a0fc81f17e8d3e0fb2e0d3628cf35e20c38d18906");
+
+            isTrue("reused scratch failed", areEqual(small, SCrypt.generate(new byte[0], new byte[0], 16, 1, 1, 64, executor)));
+            isTrue("reused scratch failed", areEqual(small, SCrypt.generate(new byte[0], new byte[0], 16, 1, 1, 64)));
+
+            byte[] p4 = SCrypt.generate(P, S, 256, 2, 4, 32);
+            isTrue("parallel p = 4 mismatch", areEqual(p4, SCrypt.generate(P, S, 256, 2, 4, 32, executor)));
+            isTrue("repeated parallel p = 4 mismatch", areEqual(p4, SCrypt.generate(P, S, 256, 2, 4, 32, executor)));
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+    }
+
     private void checkOK(String msg, byte[] pass, byte[] salt, int N, int r, int p, int len)
     {
         try
@@ -0,0 +1,91 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import ru.mipt.cybersecurity.crypto.digests.TupleHash;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * TupleHash test vectors from:
+ *
+ * https://csrc.nist.gov/CSRC/media/Projects/Cryptographic-Standards-and-Guidelines/documents/examples/TupleHash_samples.pdf
+ */
+public class TupleHashTest
+    extends SimpleTest
+{
+    private static final byte[][] TUPLE2 = { Hex.decode("000102"), Hex.decode("101112131415") };
+    private static final byte[][] TUPLE3 = { Hex.decode("000102"), Hex.decode("101112131415"), Hex.decode("202122232425262728") };
+    private static final byte[] S = Strings.toByteArray("My Tuple App");
+
+    public String getName()
+    {
+        return "TupleHash";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkTupleHash(128, null, TUPLE2, "c5d8786c1afb9b82111ab34b65b2c0048fa64e6d48e263264ce1707d3ffc8ed1");
+        checkTupleHash(128, S, TUPLE2, "75cdb20ff4db1154e841d758e24160c54bae86eb8c13e7f5f40eb35588e96dfb");
+        checkTupleHash(128, S, TUPLE3, "e60f202c89a2631eda8d4c588ca5fd07f39e5151998deccf973adb3804bb6e84");
+        checkTupleHash(256, null, TUPLE2, "cfb7058caca5e668f81a12a20a2195ce97a925f1dba3e7449a56f82201ec607311ac2696b1ab5ea2352df1423bde7bd4bb78c9aed1a853c78672f9eb23bbe194");
+
+        // TupleHashXOF
+        checkTupleHashXof(128, null, TUPLE2, "2f103cd7c32320353495c68de1a8129245c6325f6f2a3d608d92179c96e68488");
+        checkTupleHashXof(256, S, TUPLE3, "0c59b11464f2336c34663ed51b2b950bec743610856f36c28d1d088d8a2446284dd09830a6a178dc752376199fae935d86cfdee5913d4922dfd369b66a53c897");
+
+        // the split between the strings matters
+        TupleHash split = new TupleHash(128, null);
+        byte[] res = new byte[32];
+
+        split.update(TUPLE2[0], 0, 2);
+        split.update(TUPLE2[0], 2, 1);
+        split.update(TUPLE2[1], 0, TUPLE2[1].length);
+        split.doFinal(res, 0);
+
+        isTrue("TupleHash ignored string boundary",
+            !Arrays.areEqual(Hex.decode("c5d8786c1afb9b82111ab34b65b2c0048fa64e6d48e263264ce1707d3ffc8ed1"), res));
+    }
+
+    private void checkTupleHash(int bitLength, byte[] s, byte[][] tuple, String expected)
+    {
+        TupleHash tHash = new TupleHash(bitLength, s);
+        byte[] res = new byte[tHash.getDigestSize()];
+
+        for (int i = 0; i != tuple.length; i++)
+        {
+            tHash.update(tuple[i], 0, tuple[i].length);
+        }
+
+        TupleHash copy = new TupleHash(tHash);
+
+        tHash.doFinal(res, 0);
+        isTrue("TupleHash" + bitLength + " failed", Arrays.areEqual(Hex.decode(expected), res));
+
+        copy.doFinal(res, 0);
+        isTrue("TupleHash" + bitLength + " copy failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    private void checkTupleHashXof(int bitLength, byte[] s, byte[][] tuple, String expected)
+    {
+        TupleHash tHash = new TupleHash(bitLength, s);
+        byte[] res = new byte[expected.length() / 2];
+
+        for (int i = 0; i != tuple.length; i++)
+        {
+            tHash.update(tuple[i], 0, tuple[i].length);
+        }
+
+        tHash.doOutput(res, 0, 3);
+        tHash.doOutput(res, 3, res.length - 3);
+
+        isTrue("TupleHashXOF" + bitLength + " failed", Arrays.areEqual(Hex.decode(expected), res));
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new TupleHashTest());
+    }
+}
@@ -0,0 +1,165 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPair;
+import ru.mipt.cybersecurity.crypto.KeyGenerationParameters;
+import ru.mipt.cybersecurity.crypto.agreement.X25519Agreement;
+import ru.mipt.cybersecurity.crypto.generators.X25519KeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.params.X25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.X25519PublicKeyParameters;
+import ru.mipt.cybersecurity.math.ec.rfc7748.X25519;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * X25519 tests, using the test vectors of RFC 7748.
+ */
+public class X25519Test
+    extends SimpleTest
+{
+    private static final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "X25519";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        checkScalarMult("a546e36bf0527c9d3b16154b82465edd62144c0ac1fc5a18506a2244ba449ac4",
+            "e6db6867583030db3594c1a424b15f7c726624ec26b3353b10a903a6d0ab1c4c",
+            "c3da55379de9c6908e94ea4df28d084f32eccf03491c71f754b4075577a28552");
+        checkScalarMult("4b66e9d4d1b4673c5ad22691957d6af5c11b6421e0ea01d42ca4169e7918ba0d",
+            "e5210f12786811d3f4b7959d0538ae2c31dbe7106fc03c3efc4cd549c715a493",
+            "95cbde9476e8907d7aade45cb4b873f88b595a68799fa152e6f8f7647aac7957");
+
+        checkIterated();
+        checkAgreement();
+        checkBasePoint();
+        checkRandomAgreement();
+        checkSmallOrder();
+    }
+
+    private void checkScalarMult(String k, String u, String expected)
+    {
+        byte[] r = new byte[X25519.POINT_SIZE];
+        X25519.scalarMult(Hex.decode(k), 0, Hex.decode(u), 0, r, 0);
+
+        isTrue("scalar multiplication failed", Arrays.areEqual(Hex.decode(expected), r));
+    }
+
+    private void checkIterated()
+    {
+        byte[] k = new byte[X25519.POINT_SIZE];
+        k[0] = 9;
+        byte[] u = Arrays.clone(k);
+        byte[] r = new byte[X25519.POINT_SIZE];
+
+        for (int i = 1; i <= 1000; i++)
+        {
+            X25519.scalarMult(k, 0, u, 0, r, 0);
+            System.arraycopy(k, 0, u, 0, X25519.POINT_SIZE);
+            System.arraycopy(r, 0, k, 0, X25519.POINT_SIZE);
+
+            if (i == 1)
+            {
+                isTrue("iteration 1 failed",
+                    Arrays.areEqual(Hex.decode("422c8e7a6227d7bca1350b3e2bb7279f7897b87bb6854b783c60e80311ae3079"), k));
+            }
+        }
+
+        isTrue("iteration 1000 failed",
+            Arrays.areEqual(Hex.decode("684cf59ba83309552800ef566f2f4d3c1c3887c49360e3875f2eb94d99532c51"), k));
+    }
+
+    private void checkAgreement()
+    {
+        X25519PrivateKeyParameters alice = new X25519PrivateKeyParameters(
+            Hex.decode("77076d0a7318a57d3c16c17251b26645df4c2f87ebc0992ab177fba51db92c2a"), 0);
+        X25519PrivateKeyParameters bob = new X25519PrivateKeyParameters(
+            Hex.decode("5dab087e624a8a4b79e17f8b83800ee66f3bb1292618b6fd1c2f8b27ff88e0eb"), 0);
+
+        isTrue("alice public key wrong", Arrays.areEqual(
+            Hex.decode("8520f0098930a754748b7ddcb43ef75a0dbf3a0d26381af4eba4a98eaa9b4e6a"),
+            alice.generatePublicKey().getEncoded()));
+        isTrue("bob public key wrong", Arrays.areEqual(
+            Hex.decode("de9edb7d7b7dc1b4d35b61c2ece435373f8343c85b78674dadfc7e146f882b4f"),
+            bob.generatePublicKey().getEncoded()));
+
+        byte[] expected = Hex.decode("4a5d9d5ba4ce2de1728e3bf480350f25e07e21c947d19e3376f09b3c1e161742");
+
+        isTrue("alice agreement wrong", Arrays.areEqual(expected, agree(alice, bob.generatePublicKey())));
+        isTrue("bob agreement wrong", Arrays.areEqual(expected, agree(bob, alice.generatePublicKey())));
+    }
+
+    private void checkBasePoint()
+    {
+        // the fixed-base path goes through Ed25519, check it against the ladder
+        byte[] u = new byte[X25519.POINT_SIZE];
+        u[0] = 9;
+
+        for (int i = 0; i < 20; i++)
+        {
+            byte[] k = new byte[X25519.SCALAR_SIZE];
+            random.nextBytes(k);
+
+            byte[] r1 = new byte[X25519.POINT_SIZE];
+            byte[] r2 = new byte[X25519.POINT_SIZE];
+            X25519.scalarMultBase(k, 0, r1, 0);
+            X25519.scalarMult(k, 0, u, 0, r2, 0);
+
+            isTrue("base point multiplication failed", Arrays.areEqual(r1, r2));
+        }
+    }
+
+    private void checkRandomAgreement()
+    {
+        X25519KeyPairGenerator kpg = new X25519KeyPairGenerator();
+        kpg.init(new KeyGenerationParameters(random, 256));
+
+        for (int i = 0; i < 10; i++)
+        {
+            AsymmetricCipherKeyPair kp1 = kpg.generateKeyPair();
+            AsymmetricCipherKeyPair kp2 = kpg.generateKeyPair();
+
+            byte[] s1 = agree((X25519PrivateKeyParameters)kp1.getPrivate(), (X25519PublicKeyParameters)kp2.getPublic());
+            byte[] s2 = agree((X25519PrivateKeyParameters)kp2.getPrivate(), (X25519PublicKeyParameters)kp1.getPublic());
+
+            isTrue("random agreement failed", Arrays.areEqual(s1, s2));
+        }
+    }
+
+    private void checkSmallOrder()
+    {
+        X25519PrivateKeyParameters key = new X25519PrivateKeyParameters(random);
+
+        try
+        {
+            agree(key, new X25519PublicKeyParameters(new byte[X25519.POINT_SIZE], 0));
+            fail("small order point accepted");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+    }
+
+    private static byte[] agree(X25519PrivateKeyParameters privateKey, X25519PublicKeyParameters publicKey)
+    {
+        X25519Agreement agreement = new X25519Agreement();
+        agreement.init(privateKey);
+
+        byte[] secret = new byte[agreement.getAgreementSize()];
+        agreement.calculateAgreement(publicKey, secret, 0);
+        return secret;
+    }
+
+    public static void main(
+        String[] args)
+    {
+        runTest(new X25519Test());
+    }
+}
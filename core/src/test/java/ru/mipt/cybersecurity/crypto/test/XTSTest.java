@@ -0,0 +1,224 @@
+package ru.mipt.cybersecurity.crypto.test;
+
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import ru.mipt.cybersecurity.crypto.BlockCipher;
+import ru.mipt.cybersecurity.crypto.BlockCipherFactory;
+import ru.mipt.cybersecurity.crypto.engines.AESEngine;
+import ru.mipt.cybersecurity.crypto.engines.AESLightEngine;
+import ru.mipt.cybersecurity.crypto.modes.XTSSectorCipher;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.encoders.Hex;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+/**
+ * XTS-AES tests, vectors from IEEE Std 1619-2007.
+ */
+public class XTSTest
+    extends SimpleTest
+{
+    private static final BlockCipherFactory AES_FACTORY = new BlockCipherFactory()
+    {
+        public BlockCipher createBlockCipher()
+        {
+            return new AESEngine();
+        }
+    };
+
+    private static final BlockCipherFactory AES_LIGHT_FACTORY = new BlockCipherFactory()
+    {
+        public BlockCipher createBlockCipher()
+        {
+            return new AESLightEngine();
+        }
+    };
+
+    // vector 2
+    private static final String K2 = "1111111111111111111111111111111122222222222222222222222222222222";
+    private static final long S2 = 0x3333333333L;
+    private static final String P2 = "4444444444444444444444444444444444444444444444444444444444444444";
+    private static final String C2 = "c454185e6a16936e39334038acef838bfb186fff7480adc4289382ecd6d394f0";
+
+    // vector 10, 256 bit keys
+    private static final String K10 = "2718281828459045235360287471352662497757247093699959574966967627"
+        + "3141592653589793238462643383279502884197169399375105820974944592";
+    private static final long S10 = 0xffL;
+    private static final String C10 =
+          "1c3b3a102f770386e4836c99e370cf9bea00803f5e482357a4ae12d414a3e63b"
+        + "5d31e276f8fe4a8d66b317f9ac683f44680a86ac35adfc3345befecb4bb188fd"
+        + "5776926c49a3095eb108fd1098baec70aaa66999a72a82f27d848b21d4a741b0"
+        + "c5cd4d5fff9dac89aeba122961d03a757123e9870f8acf1000020887891429ca"
+        + "2a3e7a7d7df7b10355165c8b9a6d0a7de8b062c4500dc4cd120c0f7418dae3d0"
+        + "b5781c34803fa75421c790dfe1de1834f280d7667b327f6c8cd7557e12ac3a0f"
+        + "93ec05c52e0493ef31a12d3d9260f79a289d6a379bc70c50841473d1a8cc81ec"
+        + "583e9645e07b8d9670655ba5bbcfecc6dc3966380ad8fecb17b6ba02469a020a"
+        + "84e18e8f84252070c13e9f1f289be54fbc481457778f616015e1327a02b140f1"
+        + "505eb309326d68378f8374595c849d84f4c333ec4423885143cb47bd71c5edae"
+        + "9be69a2ffeceb1bec9de244fbe15992b11b77c040f12bd8f6a975a44a0f90c29"
+        + "a9abc3d4d893927284c58754cce294529f8614dcd2aba991925fedc4ae74ffac"
+        + "6e333b93eb4aff0479da9a410e4450e0dd7ae4c6e2910900575da401fc07059f"
+        + "645e8b7e9bfdef33943054ff84011493c27b3429eaedb4ed5376441a77ed4385"
+        + "1ad77f16f541dfd269d50d6a5f14fb0aab1cbb4c1550be97f7ab4066193c4caa"
+        + "773dad38014bd2092fa755c824bb5e54c4f36ffda9fcea70b9c6e693e148c151";
+
+    // vectors 15 to 18, ciphertext stealing
+    private static final String K15 = "fffefdfcfbfaf9f8f7f6f5f4f3f2f1f0bfbebdbcbbbab9b8b7b6b5b4b3b2b1b0";
+    private static final long S15 = 0x123456789aL;
+    private static final String[] C15 = {
+        "6c1625db4671522d3d7599601de7ca09ed",
+        "d069444b7a7e0cab09e24447d24deb1fedbf",
+        "e5df1351c0544ba1350b3363cd8ef4beedbf9d",
+        "9d84c813f719aa2c7be3f66171c7c5c2edbf9dac"
+    };
+
+    private final SecureRandom random = new SecureRandom();
+
+    public String getName()
+    {
+        return "XTS";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        vectorTest(K2, S2, Hex.decode(P2), C2);
+        vectorTest(K10, S10, sequence(512), C10);
+
+        for (int i = 0; i != C15.length; i++)
+        {
+            vectorTest(K15, S15, sequence(17 + i), C15[i]);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+
+        try
+        {
+            batchTest(executor, 512, 2048);
+            batchTest(executor, 4096, 16384);
+            batchTest(executor, 4100, 4100);
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        keyTest();
+    }
+
+    private void vectorTest(String key, long sectorNo, byte[] plain, String cipherText)
+    {
+        byte[] expected = Hex.decode(cipherText);
+
+        checkVector(new XTSSectorCipher(AES_FACTORY, plain.length), key, sectorNo, plain, expected);
+        checkVector(new XTSSectorCipher(AES_LIGHT_FACTORY, plain.length), key, sectorNo, plain, expected);
+    }
+
+    private void checkVector(XTSSectorCipher xts, String key, long sectorNo, byte[] plain, byte[] expected)
+    {
+        xts.init(new KeyParameter(Hex.decode(key)));
+
+        byte[] buf = Arrays.clone(plain);
+        xts.encryptSector(sectorNo, buf, 0);
+
+        isTrue("XTS encryption failed for " + xts.getAlgorithmName() + " length " + plain.length,
+            Arrays.areEqual(expected, buf));
+
+        byte[] out = new byte[plain.length + 3];
+        xts.processSector(false, sectorNo, buf, 0, out, 3);
+
+        isTrue("XTS decryption failed for length " + plain.length,
+            Arrays.areEqual(plain, Arrays.copyOfRange(out, 3, out.length)));
+    }
+
+    private void batchTest(ExecutorService executor, int sectorSize, int segmentSize)
+    {
+        byte[] key = new byte[64];
+        random.nextBytes(key);
+
+        int count = 37;
+        long firstSector = 0xfffffffffffffff0L;
+        byte[] plain = new byte[count * sectorSize];
+        random.nextBytes(plain);
+
+        XTSSectorCipher single = new XTSSectorCipher(AES_FACTORY, sectorSize);
+        XTSSectorCipher parallel = new XTSSectorCipher(AES_FACTORY, sectorSize, executor, segmentSize);
+
+        single.init(new KeyParameter(key));
+        parallel.init(new KeyParameter(key));
+
+        byte[] expected = Arrays.clone(plain);
+        for (int i = 0; i != count; i++)
+        {
+            single.encryptSector(firstSector + i, expected, i * sectorSize);
+        }
+
+        byte[] buf = Arrays.clone(plain);
+        parallel.encryptSectors(firstSector, count, buf, 0);
+
+        isTrue("parallel XTS encryption mismatch for sector size " + sectorSize, Arrays.areEqual(expected, buf));
+
+        parallel.decryptSectors(firstSector, count, buf, 0);
+
+        isTrue("parallel XTS decryption mismatch for sector size " + sectorSize, Arrays.areEqual(plain, buf));
+
+        // random access to a single sector of the batch
+        byte[] sector = Arrays.copyOfRange(expected, 5 * sectorSize, 6 * sectorSize);
+        parallel.decryptSector(firstSector + 5, sector, 0);
+
+        isTrue("XTS random access mismatch", Arrays.areEqual(Arrays.copyOfRange(plain, 5 * sectorSize, 6 * sectorSize), sector));
+    }
+
+    private void keyTest()
+    {
+        XTSSectorCipher xts = new XTSSectorCipher(AES_FACTORY, 512);
+
+        try
+        {
+            xts.encryptSector(0, new byte[512], 0);
+            fail("uninitialised cipher not detected");
+        }
+        catch (IllegalStateException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            xts.init(new KeyParameter(new byte[32]));
+            fail("equal key halves not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+
+        try
+        {
+            new XTSSectorCipher(AES_FACTORY, 15);
+            fail("short sector not detected");
+        }
+        catch (IllegalArgumentException e)
+        {
+            // expected
+        }
+    }
+
+    private static byte[] sequence(int length)
+    {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i != length; i++)
+        {
+            bytes[i] = (byte)i;
+        }
+        return bytes;
+    }
+
+    public static void main(
+        String[]    args)
+    {
+        runTest(new XTSTest());
+    }
+}
@@ -26,6 +26,7 @@ public class AllTests
         suite.addTestSuite(ECAlgorithmsTest.class);
         suite.addTestSuite(ECPointTest.class);
         suite.addTestSuite(FixedPointTest.class);
+        suite.addTestSuite(PreCompCacheTest.class);
 
         return new BCTestSetup(suite);
     }
@@ -41,6 +41,14 @@ public class ECAlgorithmsTest extends TestCase
         }
     }
 
+    public void testSumOfManyMultiplies()
+    {
+        // enough points for the bucket method, with and without a GLV endomorphism
+        doTestSumOfManyMultiplies(CustomNamedCurves.getByName("secp256r1"), 70);
+        doTestSumOfManyMultiplies(CustomNamedCurves.getByName("secp256k1"), 40);
+        doTestSumOfManyMultiplies(ECNamedCurveTable.getByName("sect233r1"), 65);
+    }
+
     public void testSumOfTwoMultiplies()
     {
         X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
@@ -84,6 +92,34 @@ public class ECAlgorithmsTest extends TestCase
         }
     }
 
+    private void doTestSumOfManyMultiplies(X9ECParameters x9, int count)
+    {
+        ECPoint[] points = new ECPoint[count];
+        BigInteger[] scalars = new BigInteger[count];
+        for (int i = 0; i < count; ++i)
+        {
+            points[i] = getRandomPoint(x9);
+            scalars[i] = getRandomScalar(x9);
+        }
+
+        // negative and zero scalars
+        scalars[1] = scalars[1].negate();
+        scalars[2] = BigInteger.valueOf(0);
+
+        ECPoint u = x9.getCurve().getInfinity();
+        for (int i = 0; i < count; ++i)
+        {
+            u = u.add(points[i].multiply(scalars[i]));
+        }
+
+        ECPoint v = ECAlgorithms.sumOfMultiplies(points, scalars);
+
+        ECPoint[] results = new ECPoint[]{ u, v };
+        x9.getCurve().normalizeAll(results);
+
+        assertPointsEqual("ECAlgorithms.sumOfMultiplies is incorrect for " + count + " points", results[0], results[1]);
+    }
+
     private void doTestSumOfTwoMultiplies(X9ECParameters x9)
     {
         ECPoint p = getRandomPoint(x9);
@@ -0,0 +1,180 @@
+package ru.mipt.cybersecurity.math.ec.test;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.asn1.x9.X9ECParameters;
+import ru.mipt.cybersecurity.crypto.ec.CustomNamedCurves;
+import ru.mipt.cybersecurity.math.ec.ECAlgorithms;
+import ru.mipt.cybersecurity.math.ec.ECCurve;
+import ru.mipt.cybersecurity.math.ec.ECPoint;
+import ru.mipt.cybersecurity.math.ec.PreCompCache;
+import ru.mipt.cybersecurity.math.ec.WNafPreCompInfo;
+import ru.mipt.cybersecurity.math.ec.WNafUtil;
+
+import junit.framework.TestCase;
+
+public class PreCompCacheTest
+    extends TestCase
+{
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final X9ECParameters x9 = CustomNamedCurves.getByName("secp256r1");
+
+    public void testSharedAcrossDecodedPoints()
+    {
+        PreCompCache cache = new PreCompCache(16, 1 << 20);
+        ECCurve curve = x9.getCurve().configure().setPreCompCache(cache).create();
+
+        BigInteger d = new BigInteger(x9.getN().bitLength() - 1, RANDOM);
+        byte[] encoding = x9.getG().multiply(d).getEncoded(true);
+        BigInteger k = new BigInteger(x9.getN().bitLength(), RANDOM);
+
+        ECPoint q1 = curve.decodePoint(encoding);
+        ECPoint r1 = q1.multiply(k);
+
+        assertEquals(1, cache.size());
+        assertTrue(cache.getEstimatedBytes() > 0);
+
+        ECPoint q2 = curve.decodePoint(encoding);
+        assertNotSame(q1, q2);
+
+        // the points share the precomputed points, but not the object holding them
+        WNafPreCompInfo info1 = WNafUtil.getWNafPreCompInfo(q1), info2 = WNafUtil.getWNafPreCompInfo(q2);
+        assertNotSame(info1, info2);
+        assertSame(info1.getPreComp(), info2.getPreComp());
+
+        ECPoint r2 = q2.multiply(k);
+        assertEquals(r1, r2);
+        assertEquals(ECAlgorithms.referenceMultiply(q2, k), r2);
+        assertEquals(1, cache.size());
+
+        // changes to one point's precomputation do not reach the cache
+        info2.setPreComp(null);
+        assertNotNull(WNafUtil.getWNafPreCompInfo(curve.decodePoint(encoding)).getPreComp());
+    }
+
+    public void testNoWriteOnRepeat()
+    {
+        PreCompCache cache = new PreCompCache(2, 1 << 20);
+        ECCurve curve = x9.getCurve().configure().setPreCompCache(cache).create();
+
+        ECPoint[] points = new ECPoint[3];
+        for (int i = 0; i < points.length; ++i)
+        {
+            points[i] = curve.decodePoint(x9.getG().multiply(BigInteger.valueOf(i + 2)).getEncoded(false));
+        }
+
+        points[0].multiply(BigInteger.valueOf(12345));
+        points[1].multiply(BigInteger.valueOf(12345));
+
+        // the point already holds its precomputation, so this must not touch the cache...
+        points[0].multiply(BigInteger.valueOf(54321));
+
+        // ...leaving points[0] the least recently used entry, and the one evicted here
+        points[2].multiply(BigInteger.valueOf(12345));
+
+        assertEquals(2, cache.size());
+        assertNull(curve.getPreCompInfo(curve.decodePoint(points[0].getEncoded(false)), "bc_wnaf"));
+        assertNotNull(curve.getPreCompInfo(curve.decodePoint(points[1].getEncoded(false)), "bc_wnaf"));
+    }
+
+    public void testBounds()
+    {
+        PreCompCache cache = new PreCompCache(3, 1 << 20);
+        ECCurve curve = x9.getCurve().configure().setPreCompCache(cache).create();
+
+        ECPoint[] points = new ECPoint[5];
+        for (int i = 0; i < points.length; ++i)
+        {
+            byte[] encoding = x9.getG().multiply(BigInteger.valueOf(i + 2)).getEncoded(false);
+            points[i] = curve.decodePoint(encoding);
+            points[i].multiply(BigInteger.valueOf(12345));
+        }
+
+        assertEquals(3, cache.size());
+
+        // the eldest was evicted, so a fresh copy of it starts without a precomputation
+        ECPoint first = curve.decodePoint(points[0].getEncoded(false));
+        assertNull(curve.getPreCompInfo(first, "bc_wnaf"));
+
+        ECPoint last = curve.decodePoint(points[4].getEncoded(false));
+        assertNotNull(curve.getPreCompInfo(last, "bc_wnaf"));
+
+        PreCompCache small = new PreCompCache(100, 1);
+        ECCurve smallCurve = x9.getCurve().configure().setPreCompCache(small).create();
+        smallCurve.decodePoint(points[1].getEncoded(false)).multiply(BigInteger.valueOf(12345));
+        assertEquals(0, small.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(0, cache.getEstimatedBytes());
+    }
+
+    public void testSharedAcrossCurves()
+    {
+        PreCompCache cache = new PreCompCache(16, 1 << 20);
+
+        ECPoint g = x9.getG().normalize();
+        BigInteger q = x9.getCurve().getField().getCharacteristic();
+        BigInteger a = x9.getCurve().getA().toBigInteger();
+        BigInteger b = x9.getCurve().getB().toBigInteger();
+        BigInteger x = g.getAffineXCoord().toBigInteger();
+
+        // a second curve over the same field that G also lies on: y^2 = x^3 + (a + 1)x + (b - x)
+        ECCurve curve1 = new ECCurve.Fp(q, a, b).configure().setPreCompCache(cache).create();
+        ECCurve curve2 = new ECCurve.Fp(q, a.add(BigInteger.ONE).mod(q), b.subtract(x).mod(q))
+            .configure().setPreCompCache(cache).create();
+
+        byte[] encoding = g.getEncoded(false);
+        BigInteger k = new BigInteger(x9.getN().bitLength(), RANDOM);
+
+        curve1.decodePoint(encoding).multiply(k);
+        assertEquals(1, cache.size());
+
+        ECPoint p2 = curve2.decodePoint(encoding);
+        assertNull(curve2.getPreCompInfo(p2, "bc_wnaf"));
+        assertEquals(ECAlgorithms.referenceMultiply(p2, k), p2.multiply(k));
+        assertEquals(2, cache.size());
+
+        // an equivalent curve created separately still shares the entries
+        ECCurve curve3 = new ECCurve.Fp(q, a, b).configure().setPreCompCache(cache).create();
+        assertNotNull(curve3.getPreCompInfo(curve3.decodePoint(encoding), "bc_wnaf"));
+        assertEquals(2, cache.size());
+    }
+
+    public void testConcurrentMultiply()
+        throws Exception
+    {
+        final ECCurve curve = x9.getCurve().configure().setPreCompCache(new PreCompCache(4, 1 << 20)).create();
+        final byte[] encoding = x9.getG().multiply(new BigInteger(128, RANDOM)).getEncoded(false);
+        final BigInteger k = new BigInteger(x9.getN().bitLength(), RANDOM);
+        final ECPoint expected = ECAlgorithms.referenceMultiply(curve.decodePoint(encoding), k).normalize();
+        final boolean[] failed = new boolean[1];
+
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; ++i)
+        {
+            threads[i] = new Thread()
+            {
+                public void run()
+                {
+                    for (int j = 0; j < 20; ++j)
+                    {
+                        if (!expected.equals(curve.decodePoint(encoding).multiply(k)))
+                        {
+                            failed[0] = true;
+                        }
+                    }
+                }
+            };
+            threads[i].start();
+        }
+        for (int i = 0; i < threads.length; ++i)
+        {
+            threads[i].join();
+        }
+
+        assertFalse(failed[0]);
+    }
+}
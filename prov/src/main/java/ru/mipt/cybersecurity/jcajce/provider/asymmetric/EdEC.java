@@ -0,0 +1,44 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric;
+
+import ru.mipt.cybersecurity.asn1.edec.EdECObjectIdentifiers;
+import ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec.KeyFactorySpi;
+import ru.mipt.cybersecurity.jcajce.provider.config.ConfigurableProvider;
+import ru.mipt.cybersecurity.jcajce.provider.util.AsymmetricAlgorithmProvider;
+
+public class EdEC
+{
+    private static final String PREFIX = "ru.mipt.cybersecurity.jcajce.provider.asymmetric" + ".edec.";
+
+    public static class Mappings
+        extends AsymmetricAlgorithmProvider
+    {
+        public Mappings()
+        {
+        }
+
+        public void configure(ConfigurableProvider provider)
+        {
+            provider.addAlgorithm("KeyFactory.XDH", PREFIX + "KeyFactorySpi$XDH");
+            provider.addAlgorithm("Alg.Alias.KeyFactory.X25519", "XDH");
+            provider.addAlgorithm("KeyFactory.EdDSA", PREFIX + "KeyFactorySpi$EdDSA");
+            provider.addAlgorithm("Alg.Alias.KeyFactory.Ed25519", "EdDSA");
+
+            provider.addAlgorithm("KeyPairGenerator.XDH", PREFIX + "KeyPairGeneratorSpi$XDH");
+            provider.addAlgorithm("Alg.Alias.KeyPairGenerator.X25519", "XDH");
+            provider.addAlgorithm("KeyPairGenerator.EdDSA", PREFIX + "KeyPairGeneratorSpi$EdDSA");
+            provider.addAlgorithm("Alg.Alias.KeyPairGenerator.Ed25519", "EdDSA");
+
+            provider.addAlgorithm("KeyAgreement.XDH", PREFIX + "KeyAgreementSpi$XDH");
+            provider.addAlgorithm("Alg.Alias.KeyAgreement.X25519", "XDH");
+            provider.addAlgorithm("Alg.Alias.KeyAgreement." + EdECObjectIdentifiers.id_X25519, "XDH");
+
+            provider.addAlgorithm("Signature.EdDSA", PREFIX + "SignatureSpi$EdDSA");
+            provider.addAlgorithm("Alg.Alias.Signature.Ed25519", "EdDSA");
+            provider.addAlgorithm("Alg.Alias.Signature." + EdECObjectIdentifiers.id_Ed25519, "EdDSA");
+            provider.addAlgorithm("Alg.Alias.Signature.OID." + EdECObjectIdentifiers.id_Ed25519, "EdDSA");
+
+            registerOid(provider, EdECObjectIdentifiers.id_X25519, "XDH", new KeyFactorySpi.XDH());
+            registerOid(provider, EdECObjectIdentifiers.id_Ed25519, "EdDSA", new KeyFactorySpi.EdDSA());
+        }
+    }
+}
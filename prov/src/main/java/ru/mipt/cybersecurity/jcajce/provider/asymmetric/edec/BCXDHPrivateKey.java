@@ -0,0 +1,107 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.PrivateKey;
+
+import ru.mipt.cybersecurity.asn1.ASN1OctetString;
+import ru.mipt.cybersecurity.asn1.DEROctetString;
+import ru.mipt.cybersecurity.asn1.edec.EdECObjectIdentifiers;
+import ru.mipt.cybersecurity.asn1.pkcs.PrivateKeyInfo;
+import ru.mipt.cybersecurity.asn1.x509.AlgorithmIdentifier;
+import ru.mipt.cybersecurity.crypto.params.AsymmetricKeyParameter;
+import ru.mipt.cybersecurity.crypto.params.X25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.jcajce.provider.asymmetric.util.KeyUtil;
+import ru.mipt.cybersecurity.util.Arrays;
+
+public class BCXDHPrivateKey
+    implements PrivateKey
+{
+    static final long serialVersionUID = 1L;
+
+    private transient X25519PrivateKeyParameters key;
+
+    BCXDHPrivateKey(X25519PrivateKeyParameters key)
+    {
+        this.key = key;
+    }
+
+    BCXDHPrivateKey(PrivateKeyInfo keyInfo)
+        throws IOException
+    {
+        populateFromKeyInfo(keyInfo);
+    }
+
+    private void populateFromKeyInfo(PrivateKeyInfo keyInfo)
+        throws IOException
+    {
+        byte[] data = ASN1OctetString.getInstance(keyInfo.parsePrivateKey()).getOctets();
+        if (data.length != X25519PrivateKeyParameters.KEY_SIZE)
+        {
+            throw new IOException("invalid X25519 key length: " + data.length);
+        }
+
+        this.key = new X25519PrivateKeyParameters(data, 0);
+    }
+
+    public String getAlgorithm()
+    {
+        return "X25519";
+    }
+
+    public String getFormat()
+    {
+        return "PKCS#8";
+    }
+
+    public byte[] getEncoded()
+    {
+        return KeyUtil.getEncodedPrivateKeyInfo(new AlgorithmIdentifier(EdECObjectIdentifiers.id_X25519), new DEROctetString(key.getEncoded()));
+    }
+
+    AsymmetricKeyParameter engineGetKeyParameters()
+    {
+        return key;
+    }
+
+    public boolean equals(Object o)
+    {
+        if (o == this)
+        {
+            return true;
+        }
+
+        if (!(o instanceof BCXDHPrivateKey))
+        {
+            return false;
+        }
+
+        return Arrays.areEqual(key.getEncoded(), ((BCXDHPrivateKey)o).key.getEncoded());
+    }
+
+    public int hashCode()
+    {
+        return Arrays.hashCode(key.getEncoded());
+    }
+
+    private void readObject(
+        ObjectInputStream in)
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+
+        byte[] enc = (byte[])in.readObject();
+
+        populateFromKeyInfo(PrivateKeyInfo.getInstance(enc));
+    }
+
+    private void writeObject(
+        ObjectOutputStream out)
+        throws IOException
+    {
+        out.defaultWriteObject();
+
+        out.writeObject(this.getEncoded());
+    }
+}
@@ -0,0 +1,105 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.security.PublicKey;
+
+import ru.mipt.cybersecurity.asn1.edec.EdECObjectIdentifiers;
+import ru.mipt.cybersecurity.asn1.x509.AlgorithmIdentifier;
+import ru.mipt.cybersecurity.asn1.x509.SubjectPublicKeyInfo;
+import ru.mipt.cybersecurity.crypto.params.AsymmetricKeyParameter;
+import ru.mipt.cybersecurity.crypto.params.X25519PublicKeyParameters;
+import ru.mipt.cybersecurity.jcajce.provider.asymmetric.util.KeyUtil;
+import ru.mipt.cybersecurity.util.Arrays;
+
+public class BCXDHPublicKey
+    implements PublicKey
+{
+    static final long serialVersionUID = 1L;
+
+    private transient X25519PublicKeyParameters key;
+
+    BCXDHPublicKey(X25519PublicKeyParameters key)
+    {
+        this.key = key;
+    }
+
+    BCXDHPublicKey(SubjectPublicKeyInfo keyInfo)
+        throws IOException
+    {
+        populateFromKeyInfo(keyInfo);
+    }
+
+    private void populateFromKeyInfo(SubjectPublicKeyInfo keyInfo)
+        throws IOException
+    {
+        byte[] data = keyInfo.getPublicKeyData().getOctets();
+        if (data.length != X25519PublicKeyParameters.KEY_SIZE)
+        {
+            throw new IOException("invalid X25519 key length: " + data.length);
+        }
+
+        this.key = new X25519PublicKeyParameters(data, 0);
+    }
+
+    public String getAlgorithm()
+    {
+        return "X25519";
+    }
+
+    public String getFormat()
+    {
+        return "X.509";
+    }
+
+    public byte[] getEncoded()
+    {
+        return KeyUtil.getEncodedSubjectPublicKeyInfo(new AlgorithmIdentifier(EdECObjectIdentifiers.id_X25519), key.getEncoded());
+    }
+
+    AsymmetricKeyParameter engineGetKeyParameters()
+    {
+        return key;
+    }
+
+    public boolean equals(Object o)
+    {
+        if (o == this)
+        {
+            return true;
+        }
+
+        if (!(o instanceof BCXDHPublicKey))
+        {
+            return false;
+        }
+
+        return Arrays.areEqual(key.getEncoded(), ((BCXDHPublicKey)o).key.getEncoded());
+    }
+
+    public int hashCode()
+    {
+        return Arrays.hashCode(key.getEncoded());
+    }
+
+    private void readObject(
+        ObjectInputStream in)
+        throws IOException, ClassNotFoundException
+    {
+        in.defaultReadObject();
+
+        byte[] enc = (byte[])in.readObject();
+
+        populateFromKeyInfo(SubjectPublicKeyInfo.getInstance(enc));
+    }
+
+    private void writeObject(
+        ObjectOutputStream out)
+        throws IOException
+    {
+        out.defaultWriteObject();
+
+        out.writeObject(this.getEncoded());
+    }
+}
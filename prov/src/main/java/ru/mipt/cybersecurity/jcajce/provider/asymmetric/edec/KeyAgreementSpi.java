@@ -0,0 +1,110 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+
+import ru.mipt.cybersecurity.crypto.agreement.X25519Agreement;
+import ru.mipt.cybersecurity.jcajce.provider.asymmetric.util.BaseAgreementSpi;
+
+/**
+ * X25519 key agreement (RFC 7748), the raw shared secret is returned.
+ */
+public class KeyAgreementSpi
+    extends BaseAgreementSpi
+{
+    private X25519Agreement agreement;
+    private byte[] result;
+
+    KeyAgreementSpi(String kaAlgorithm)
+    {
+        super(kaAlgorithm, null);
+    }
+
+    protected void engineInit(
+        Key key,
+        SecureRandom random)
+        throws InvalidKeyException
+    {
+        if (!(key instanceof BCXDHPrivateKey))
+        {
+            throw new InvalidKeyException("XDH key agreement requires an X25519 private key for initialisation");
+        }
+
+        agreement = new X25519Agreement();
+        agreement.init(((BCXDHPrivateKey)key).engineGetKeyParameters());
+        result = null;
+    }
+
+    protected void engineInit(
+        Key key,
+        AlgorithmParameterSpec params,
+        SecureRandom random)
+        throws InvalidKeyException, InvalidAlgorithmParameterException
+    {
+        if (params != null)
+        {
+            throw new InvalidAlgorithmParameterException("No algorithm parameters supported");
+        }
+
+        engineInit(key, random);
+    }
+
+    protected Key engineDoPhase(
+        Key key,
+        boolean lastPhase)
+        throws InvalidKeyException, IllegalStateException
+    {
+        if (agreement == null)
+        {
+            throw new IllegalStateException("XDH not initialised.");
+        }
+
+        if (!lastPhase)
+        {
+            throw new IllegalStateException("XDH can only be between two parties.");
+        }
+
+        if (!(key instanceof BCXDHPublicKey))
+        {
+            throw new InvalidKeyException("XDH key agreement requires an X25519 public key for doPhase");
+        }
+
+        byte[] secret = new byte[agreement.getAgreementSize()];
+        try
+        {
+            agreement.calculateAgreement(((BCXDHPublicKey)key).engineGetKeyParameters(), secret, 0);
+        }
+        catch (IllegalStateException e)
+        {
+            throw new InvalidKeyException("calculation failed: " + e.getMessage());
+        }
+
+        result = secret;
+
+        return null;
+    }
+
+    protected byte[] calcSecret()
+    {
+        if (result == null)
+        {
+            throw new IllegalStateException("XDH agreement not completed.");
+        }
+
+        byte[] secret = result;
+        result = null;
+        return secret;
+    }
+
+    public static class XDH
+        extends KeyAgreementSpi
+    {
+        public XDH()
+        {
+            super("XDH");
+        }
+    }
+}
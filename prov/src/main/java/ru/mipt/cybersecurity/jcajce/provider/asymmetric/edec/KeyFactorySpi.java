@@ -0,0 +1,100 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.io.IOException;
+import java.security.InvalidKeyException;
+import java.security.Key;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+import ru.mipt.cybersecurity.asn1.ASN1ObjectIdentifier;
+import ru.mipt.cybersecurity.asn1.edec.EdECObjectIdentifiers;
+import ru.mipt.cybersecurity.asn1.pkcs.PrivateKeyInfo;
+import ru.mipt.cybersecurity.asn1.x509.SubjectPublicKeyInfo;
+import ru.mipt.cybersecurity.jcajce.provider.asymmetric.util.BaseKeyFactorySpi;
+
+public class KeyFactorySpi
+    extends BaseKeyFactorySpi
+{
+    private final ASN1ObjectIdentifier algorithm;
+
+    KeyFactorySpi(ASN1ObjectIdentifier algorithm)
+    {
+        this.algorithm = algorithm;
+    }
+
+    protected Key engineTranslateKey(
+        Key key)
+        throws InvalidKeyException
+    {
+        if (key instanceof BCXDHPublicKey || key instanceof BCXDHPrivateKey)
+        {
+            if (algorithm.equals(EdECObjectIdentifiers.id_X25519))
+            {
+                return key;
+            }
+        }
+        else if (key instanceof BCEdDSAPublicKey || key instanceof BCEdDSAPrivateKey)
+        {
+            if (algorithm.equals(EdECObjectIdentifiers.id_Ed25519))
+            {
+                return key;
+            }
+        }
+
+        throw new InvalidKeyException("key type unknown");
+    }
+
+    public PrivateKey generatePrivate(PrivateKeyInfo keyInfo)
+        throws IOException
+    {
+        ASN1ObjectIdentifier oid = keyInfo.getPrivateKeyAlgorithm().getAlgorithm();
+
+        if (!algorithm.equals(oid))
+        {
+            throw new IOException("algorithm identifier " + oid + " in key not recognised");
+        }
+
+        if (oid.equals(EdECObjectIdentifiers.id_X25519))
+        {
+            return new BCXDHPrivateKey(keyInfo);
+        }
+
+        return new BCEdDSAPrivateKey(keyInfo);
+    }
+
+    public PublicKey generatePublic(SubjectPublicKeyInfo keyInfo)
+        throws IOException
+    {
+        ASN1ObjectIdentifier oid = keyInfo.getAlgorithm().getAlgorithm();
+
+        if (!algorithm.equals(oid))
+        {
+            throw new IOException("algorithm identifier " + oid + " in key not recognised");
+        }
+
+        if (oid.equals(EdECObjectIdentifiers.id_X25519))
+        {
+            return new BCXDHPublicKey(keyInfo);
+        }
+
+        return new BCEdDSAPublicKey(keyInfo);
+    }
+
+    public static class XDH
+        extends KeyFactorySpi
+    {
+        public XDH()
+        {
+            super(EdECObjectIdentifiers.id_X25519);
+        }
+    }
+
+    public static class EdDSA
+        extends KeyFactorySpi
+    {
+        public EdDSA()
+        {
+            super(EdECObjectIdentifiers.id_Ed25519);
+        }
+    }
+}
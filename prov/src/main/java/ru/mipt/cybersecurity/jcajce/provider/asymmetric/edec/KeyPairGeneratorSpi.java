@@ -0,0 +1,101 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.security.InvalidParameterException;
+import java.security.KeyPair;
+import java.security.SecureRandom;
+import java.security.spec.AlgorithmParameterSpec;
+import java.security.spec.ECGenParameterSpec;
+
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPair;
+import ru.mipt.cybersecurity.crypto.AsymmetricCipherKeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.KeyGenerationParameters;
+import ru.mipt.cybersecurity.crypto.generators.Ed25519KeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.generators.X25519KeyPairGenerator;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.Ed25519PublicKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.X25519PrivateKeyParameters;
+import ru.mipt.cybersecurity.crypto.params.X25519PublicKeyParameters;
+
+public class KeyPairGeneratorSpi
+    extends java.security.KeyPairGenerator
+{
+    private final boolean isXdh;
+
+    private AsymmetricCipherKeyPairGenerator engine;
+    private SecureRandom random;
+
+    KeyPairGeneratorSpi(String algorithmName, boolean isXdh)
+    {
+        super(algorithmName);
+
+        this.isXdh = isXdh;
+    }
+
+    public void initialize(
+        int strength,
+        SecureRandom random)
+    {
+        if (strength != 255 && strength != 256)
+        {
+            throw new InvalidParameterException("unknown key size: " + strength);
+        }
+
+        this.random = random;
+        this.engine = null;
+    }
+
+    public void initialize(
+        AlgorithmParameterSpec params,
+        SecureRandom random)
+        throws InvalidAlgorithmParameterException
+    {
+        String curveName = isXdh ? "X25519" : "Ed25519";
+
+        if (!(params instanceof ECGenParameterSpec) || !curveName.equalsIgnoreCase(((ECGenParameterSpec)params).getName()))
+        {
+            throw new InvalidAlgorithmParameterException("parameter object not an ECGenParameterSpec for " + curveName);
+        }
+
+        this.random = random;
+        this.engine = null;
+    }
+
+    public KeyPair generateKeyPair()
+    {
+        if (engine == null)
+        {
+            engine = isXdh ? (AsymmetricCipherKeyPairGenerator)new X25519KeyPairGenerator() : new Ed25519KeyPairGenerator();
+            engine.init(new KeyGenerationParameters(random != null ? random : new SecureRandom(), 256));
+        }
+
+        AsymmetricCipherKeyPair pair = engine.generateKeyPair();
+
+        if (isXdh)
+        {
+            return new KeyPair(new BCXDHPublicKey((X25519PublicKeyParameters)pair.getPublic()),
+                new BCXDHPrivateKey((X25519PrivateKeyParameters)pair.getPrivate()));
+        }
+
+        return new KeyPair(new BCEdDSAPublicKey((Ed25519PublicKeyParameters)pair.getPublic()),
+            new BCEdDSAPrivateKey((Ed25519PrivateKeyParameters)pair.getPrivate()));
+    }
+
+    public static class XDH
+        extends KeyPairGeneratorSpi
+    {
+        public XDH()
+        {
+            super("XDH", true);
+        }
+    }
+
+    public static class EdDSA
+        extends KeyPairGeneratorSpi
+    {
+        public EdDSA()
+        {
+            super("EdDSA", false);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package ru.mipt.cybersecurity.jcajce.provider.asymmetric.edec;
+
+import java.security.InvalidKeyException;
+import java.security.InvalidParameterException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SignatureException;
+
+import ru.mipt.cybersecurity.crypto.signers.Ed25519Signer;
+
+public class SignatureSpi
+    extends java.security.SignatureSpi
+{
+    private final Ed25519Signer signer = new Ed25519Signer();
+
+    SignatureSpi()
+    {
+    }
+
+    protected void engineInitVerify(
+        PublicKey publicKey)
+        throws InvalidKeyException
+    {
+        if (!(publicKey instanceof BCEdDSAPublicKey))
+        {
+            throw new InvalidKeyException("cannot identify EdDSA public key: " + publicKey.getClass().getName());
+        }
+
+        signer.init(false, ((BCEdDSAPublicKey)publicKey).engineGetKeyParameters());
+    }
+
+    protected void engineInitSign(
+        PrivateKey privateKey)
+        throws InvalidKeyException
+    {
+        if (!(privateKey instanceof BCEdDSAPrivateKey))
+        {
+            throw new InvalidKeyException("cannot identify EdDSA private key: " + privateKey.getClass().getName());
+        }
+
+        signer.init(true, ((BCEdDSAPrivateKey)privateKey).engineGetKeyParameters());
+    }
+
+    protected void engineUpdate(
+        byte b)
+        throws SignatureException
+    {
+        signer.update(b);
+    }
+
+    protected void engineUpdate(
+        byte[] b,
+        int off,
+        int len)
+        throws SignatureException
+    {
+        signer.update(b, off, len);
+    }
+
+    protected byte[] engineSign()
+        throws SignatureException
+    {
+        return signer.generateSignature();
+    }
+
+    protected boolean engineVerify(
+        byte[] sigBytes)
+        throws SignatureException
+    {
+        return signer.verifySignature(sigBytes);
+    }
+
+    /**
+     * @deprecated replaced with #engineSetParameter(java.security.spec.AlgorithmParameterSpec)
+     */
+    protected void engineSetParameter(
+        String param,
+        Object value)
+    {
+        throw new InvalidParameterException("engineSetParameter unsupported");
+    }
+
+    /**
+     * @deprecated
+     */
+    protected Object engineGetParameter(
+        String param)
+    {
+        throw new UnsupportedOperationException("engineGetParameter unsupported");
+    }
+
+    public static class EdDSA
+        extends SignatureSpi
+    {
+        public EdDSA()
+        {
+            super();
+        }
+    }
+}
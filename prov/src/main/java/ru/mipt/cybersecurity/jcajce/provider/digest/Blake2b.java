@@ -2,7 +2,9 @@ package ru.mipt.cybersecurity.jcajce.provider.digest;
 
 import ru.mipt.cybersecurity.asn1.misc.MiscObjectIdentifiers;
 import ru.mipt.cybersecurity.crypto.digests.Blake2bDigest;
+import ru.mipt.cybersecurity.crypto.digests.Blake2bpDigest;
 import ru.mipt.cybersecurity.jcajce.provider.config.ConfigurableProvider;
+import ru.mipt.cybersecurity.jcajce.provider.util.ParallelExecutor;
 
 public class Blake2b
 {
@@ -87,6 +89,25 @@ public class Blake2b
         }
     }
 
+    static public class Blake2bp512
+        extends BCMessageDigest
+        implements Cloneable
+    {
+        public Blake2bp512()
+        {
+            super(new Blake2bpDigest(null, ParallelExecutor.getInstance()));
+        }
+
+        public Object clone()
+            throws CloneNotSupportedException
+        {
+            Blake2bp512 d = (Blake2bp512)super.clone();
+            d.digest = new Blake2bpDigest((Blake2bpDigest)digest);
+
+            return d;
+        }
+    }
+
     public static class Mappings
         extends DigestAlgorithmProvider
     {
@@ -109,6 +130,8 @@ public class Blake2b
 
             provider.addAlgorithm("MessageDigest.BLAKE2B-160", PREFIX + "$Blake2b160");
             provider.addAlgorithm("Alg.Alias.MessageDigest." + MiscObjectIdentifiers.id_blake2b160, "BLAKE2B-160");
+
+            provider.addAlgorithm("MessageDigest.BLAKE2BP-512", PREFIX + "$Blake2bp512");
         }
     }
 }
@@ -1,12 +1,19 @@
 package ru.mipt.cybersecurity.jcajce.provider.digest;
 
+import java.io.ByteArrayOutputStream;
+
 import ru.mipt.cybersecurity.asn1.nist.NISTObjectIdentifiers;
 import ru.mipt.cybersecurity.crypto.CipherKeyGenerator;
+import ru.mipt.cybersecurity.crypto.Digest;
+import ru.mipt.cybersecurity.crypto.digests.ParallelHash;
 import ru.mipt.cybersecurity.crypto.digests.SHA3Digest;
+import ru.mipt.cybersecurity.crypto.digests.TupleHash;
 import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.macs.KMAC;
 import ru.mipt.cybersecurity.jcajce.provider.config.ConfigurableProvider;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseKeyGenerator;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseMac;
+import ru.mipt.cybersecurity.jcajce.provider.util.ParallelExecutor;
 
 public class SHA3
 {
@@ -34,6 +41,124 @@ public class SHA3
         }
     }
 
+    /**
+     * TupleHash with no customization string - a MessageDigest sees a single string, so everything
+     * passed to update() is collected and hashed as a one element tuple.
+     * <p>
+     * The encoding of a tuple element starts with its length, so the input cannot be passed on to
+     * TupleHash until digest() is called. It is held in memory until then, which limits a message
+     * to what fits in a byte array (just under 2 GiB); use the lightweight TupleHash directly for
+     * longer input, or for input made up of more than one string.
+     * </p>
+     */
+    static public class DigestTupleHash
+        extends BCMessageDigest
+        implements Cloneable
+    {
+        public DigestTupleHash(int bitLength)
+        {
+            super(new SingleTupleDigest(new TupleHash(bitLength, null)));
+        }
+
+        public Object clone()
+            throws CloneNotSupportedException
+        {
+            BCMessageDigest d = (BCMessageDigest)super.clone();
+            d.digest = new SingleTupleDigest((SingleTupleDigest)digest);
+
+            return d;
+        }
+    }
+
+    /**
+     * Hashes all the data given to it as one TupleHash string, buffering it until doFinal() as
+     * the string's length has to be encoded ahead of it.
+     */
+    private static class SingleTupleDigest
+        implements Digest
+    {
+        private final TupleHash tupleHash;
+        private final ByteArrayOutputStream bOut;
+
+        SingleTupleDigest(TupleHash tupleHash)
+        {
+            this.tupleHash = tupleHash;
+            this.bOut = new ByteArrayOutputStream();
+        }
+
+        SingleTupleDigest(SingleTupleDigest source)
+        {
+            this.tupleHash = new TupleHash(source.tupleHash);
+            this.bOut = new ByteArrayOutputStream();
+
+            byte[] data = source.bOut.toByteArray();
+            bOut.write(data, 0, data.length);
+        }
+
+        public String getAlgorithmName()
+        {
+            return tupleHash.getAlgorithmName();
+        }
+
+        public int getDigestSize()
+        {
+            return tupleHash.getDigestSize();
+        }
+
+        public void update(byte in)
+        {
+            bOut.write(in);
+        }
+
+        public void update(byte[] in, int inOff, int len)
+        {
+            bOut.write(in, inOff, len);
+        }
+
+        public int doFinal(byte[] out, int outOff)
+        {
+            byte[] data = bOut.toByteArray();
+
+            tupleHash.update(data, 0, data.length);
+
+            int len = tupleHash.doFinal(out, outOff);
+
+            reset();
+
+            return len;
+        }
+
+        public void reset()
+        {
+            tupleHash.reset();
+            bOut.reset();
+        }
+    }
+
+    /**
+     * ParallelHash with 8 KiB blocks, long inputs being hashed on the shared tree digest pool.
+     */
+    static public class DigestParallelHash
+        extends BCMessageDigest
+        implements Cloneable
+    {
+        private static final int BLOCK_SIZE = 8192;
+
+        public DigestParallelHash(int bitLength)
+        {
+            super(new ParallelHash(bitLength, null, BLOCK_SIZE, bitLength * 2, ParallelExecutor.getInstance()));
+        }
+
+        public Object clone()
+            throws CloneNotSupportedException
+        {
+            BCMessageDigest d = (BCMessageDigest)super.clone();
+            d.digest = new ParallelHash((ParallelHash)digest);
+
+            return d;
+        }
+    }
+
     public static class HashMacSHA3
         extends BaseMac
     {
@@ -52,6 +177,24 @@ public class SHA3
         }
     }
 
+    public static class KMacSHA3
+        extends BaseMac
+    {
+        public KMacSHA3(int bitLength)
+        {
+            super(new KMAC(bitLength, null));
+        }
+    }
+
+    public static class KeyGeneratorKMAC
+        extends BaseKeyGenerator
+    {
+        public KeyGeneratorKMAC(int bitLength)
+        {
+            super("KMAC" + bitLength, bitLength, new CipherKeyGenerator());
+        }
+    }
+
     static public class Digest224
         extends DigestSHA3
     {
@@ -160,6 +303,78 @@ public class SHA3
         }
     }
 
+    static public class TupleHash128
+        extends DigestTupleHash
+    {
+        public TupleHash128()
+        {
+            super(128);
+        }
+    }
+
+    static public class TupleHash256
+        extends DigestTupleHash
+    {
+        public TupleHash256()
+        {
+            super(256);
+        }
+    }
+
+    static public class ParallelHash128
+        extends DigestParallelHash
+    {
+        public ParallelHash128()
+        {
+            super(128);
+        }
+    }
+
+    static public class ParallelHash256
+        extends DigestParallelHash
+    {
+        public ParallelHash256()
+        {
+            super(256);
+        }
+    }
+
+    static public class KMac128
+        extends KMacSHA3
+    {
+        public KMac128()
+        {
+            super(128);
+        }
+    }
+
+    static public class KMac256
+        extends KMacSHA3
+    {
+        public KMac256()
+        {
+            super(256);
+        }
+    }
+
+    static public class KeyGeneratorKMAC128
+        extends KeyGeneratorKMAC
+    {
+        public KeyGeneratorKMAC128()
+        {
+            super(128);
+        }
+    }
+
+    static public class KeyGeneratorKMAC256
+        extends KeyGeneratorKMAC
+    {
+        public KeyGeneratorKMAC256()
+        {
+            super(256);
+        }
+    }
+
     public static class Mappings
         extends DigestAlgorithmProvider
     {
@@ -191,6 +406,16 @@ public class SHA3
 
             addHMACAlgorithm(provider, "SHA3-512", PREFIX + "$HashMac512",  PREFIX + "$KeyGenerator512");
             addHMACAlias(provider, "SHA3-512", NISTObjectIdentifiers.id_hmacWithSHA3_512);
+
+            provider.addAlgorithm("MessageDigest.TUPLEHASH128-256", PREFIX + "$TupleHash128");
+            provider.addAlgorithm("MessageDigest.TUPLEHASH256-512", PREFIX + "$TupleHash256");
+            provider.addAlgorithm("MessageDigest.PARALLELHASH128-256", PREFIX + "$ParallelHash128");
+            provider.addAlgorithm("MessageDigest.PARALLELHASH256-512", PREFIX + "$ParallelHash256");
+
+            provider.addAlgorithm("Mac.KMAC128", PREFIX + "$KMac128");
+            provider.addAlgorithm("KeyGenerator.KMAC128", PREFIX + "$KeyGeneratorKMAC128");
+            provider.addAlgorithm("Mac.KMAC256", PREFIX + "$KMac256");
+            provider.addAlgorithm("KeyGenerator.KMAC256", PREFIX + "$KeyGeneratorKMAC256");
         }
     }
 }
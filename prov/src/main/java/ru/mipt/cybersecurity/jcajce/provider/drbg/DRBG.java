@@ -1,5 +1,6 @@
 package ru.mipt.cybersecurity.jcajce.provider.drbg;
 
+import java.io.File;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
 import java.security.Provider;
@@ -11,6 +12,7 @@ import java.util.concurrent.atomic.AtomicReference;
 
 import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
 import ru.mipt.cybersecurity.crypto.macs.HMac;
+import ru.mipt.cybersecurity.crypto.prng.DeviceEntropySourceProvider;
 import ru.mipt.cybersecurity.crypto.prng.EntropySource;
 import ru.mipt.cybersecurity.crypto.prng.EntropySourceProvider;
 import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandom;
@@ -40,6 +42,9 @@ public class DRBG
 
     private static final Object[] initialEntropySourceAndSpi = findSource();
 
+    // the shared DEFAULT and NONCEANDIV instances spread their callers over this many DRBGs
+    private static final int POOL_SIZE = Math.min(16, Runtime.getRuntime().availableProcessors());
+
     // Cascade through providers looking for match.
     private final static Object[] findSource()
     {
@@ -134,6 +139,17 @@ public class DRBG
         {
             public EntropySourceProvider run()
             {
+                if (sourceClass == null)
+                {
+                    // the non-blocking kernel device, where there is one, avoids waiting on the JVM's seed generator
+                    if (new File(DeviceEntropySourceProvider.DEFAULT_DEVICE).canRead())
+                    {
+                        return new DeviceEntropySourceProvider();
+                    }
+
+                    return null;
+                }
+
                 try
                 {
                     Class clazz = ClassUtil.loadClass(DRBG.class, sourceClass);
@@ -150,10 +166,10 @@ public class DRBG
 
     private static SecureRandom createBaseRandom(boolean isPredictionResistant)
     {
-        if (System.getProperty("ru.mipt.cybersecurity.drbg.entropysource") != null)
-        {
-            EntropySourceProvider entropyProvider = createEntropySource();
+        EntropySourceProvider entropyProvider = createEntropySource();
 
+        if (entropyProvider != null)
+        {
             EntropySource initSource = entropyProvider.get(16 * 8);
 
             byte[] personalisationString = isPredictionResistant ? generateDefaultPersonalizationString(initSource.getEntropy())
@@ -161,6 +177,7 @@ public class DRBG
 
             return new SP800SecureRandomBuilder(entropyProvider)
                                 .setPersonalizationString(personalisationString)
+                                .setPoolSize(POOL_SIZE)
                                 .buildHash(new SHA512Digest(), Arrays.concatenate(initSource.getEntropy(), initSource.getEntropy()), isPredictionResistant);
         }
         else
@@ -172,6 +189,7 @@ public class DRBG
 
             return new SP800SecureRandomBuilder(randomSource, true)
                 .setPersonalizationString(personalisationString)
+                .setPoolSize(POOL_SIZE)
                 .buildHash(new SHA512Digest(), randomSource.generateSeed(32), isPredictionResistant);
         }
     }
@@ -817,7 +817,7 @@ class BcFKSKeyStoreSpi
                 "no support for protection parameter of type " + protParam.getClass().getName());
         }
 
-        if (bcParam.getStorePBKDFConfig().getAlgorithm().equals(MiscObjectIdentifiers.id_scrypt))
+        if (MiscObjectIdentifiers.id_scrypt.equals(bcParam.getStorePBKDFConfig().getAlgorithm()))
         {
             hmacPkbdAlgorithm = generatePkbdAlgorithmIdentifier(bcParam.getStorePBKDFConfig(), 512 / 8);
         }
@@ -1042,7 +1042,7 @@ class BcFKSKeyStoreSpi
 
             return new KeyDerivationFunc(MiscObjectIdentifiers.id_scrypt, params);
         }
-        else
+        else if (pbkdfConfig instanceof PBKDF2Config)
         {
             PBKDF2Config pbkdf2Config = (PBKDF2Config)pbkdfConfig;
 
@@ -1051,6 +1051,10 @@ class BcFKSKeyStoreSpi
 
             return new KeyDerivationFunc(PKCSObjectIdentifiers.id_PBKDF2, new PBKDF2Params(pbkdSalt, pbkdf2Config.getIterationCount(), keySizeInBytes, pbkdf2Config.getPRF()));
         }
+        else
+        {
+            throw new IllegalArgumentException("PBKDF config " + pbkdfConfig.getClass().getName() + " cannot be used with a BCFKS key store");
+        }
     }
 
     private KeyDerivationFunc generatePkbdAlgorithmIdentifier(KeyDerivationFunc baseAlg, int keySizeInBytes)
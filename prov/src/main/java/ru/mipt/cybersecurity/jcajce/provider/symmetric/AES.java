@@ -22,6 +22,7 @@ import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
 import ru.mipt.cybersecurity.crypto.Mac;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
 import ru.mipt.cybersecurity.crypto.engines.AESEngine;
 import ru.mipt.cybersecurity.crypto.engines.AESWrapEngine;
 import ru.mipt.cybersecurity.crypto.engines.AESWrapPadEngine;
@@ -47,6 +48,7 @@ import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BlockCipherProvider;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.IvAlgorithmParameters;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.PBESecretKeyFactory;
 import ru.mipt.cybersecurity.jcajce.spec.AEADParameterSpec;
+import ru.mipt.cybersecurity.util.Properties;
 
 public final class AES
 {
@@ -61,6 +63,27 @@ public final class AES
     private AES()
     {
     }
+
+    /**
+     * Return the AES engine used by the provider, the bitsliced constant time engine if the
+     * "ru.mipt.cybersecurity.aes.constant_time" property is set, otherwise the table based one.
+     * <p>
+     * The property only replaces the AES block function, for every AES cipher, MAC and wrapper in
+     * the provider alike. It is an explicit opt in, the bitsliced engine runs at roughly half the
+     * speed of the table based one, so no mode switches to it by itself. GCM and GMAC follow the
+     * engine and use the constant time GHASH multiplier; other constructions built on top of AES
+     * are only as constant time as their own code.
+     * </p>
+     */
+    private static BlockCipher createEngine()
+    {
+        if (Properties.isOverrideSet("ru.mipt.cybersecurity.aes.constant_time"))
+        {
+            return new AESBitslicedEngine();
+        }
+
+        return new AESEngine();
+    }
     
     public static class ECB
         extends BaseBlockCipher
@@ -71,7 +94,7 @@ public final class AES
             {
                 public BlockCipher get()
                 {
-                    return new AESEngine();
+                    return createEngine();
                 }
             });
         }
@@ -82,7 +105,7 @@ public final class AES
     {
         public CBC()
         {
-            super(new CBCBlockCipher(new AESEngine()), 128);
+            super(new CBCBlockCipher(createEngine()), 128);
         }
     }
 
@@ -91,7 +114,7 @@ public final class AES
     {
         public CFB()
         {
-            super(new BufferedBlockCipher(new CFBBlockCipher(new AESEngine(), 128)), 128);
+            super(new BufferedBlockCipher(new CFBBlockCipher(createEngine(), 128)), 128);
         }
     }
 
@@ -100,7 +123,7 @@ public final class AES
     {
         public OFB()
         {
-            super(new BufferedBlockCipher(new OFBBlockCipher(new AESEngine(), 128)), 128);
+            super(new BufferedBlockCipher(new OFBBlockCipher(createEngine(), 128)), 128);
         }
     }
 
@@ -109,7 +132,7 @@ public final class AES
     {
         public GCM()
         {
-            super(new GCMBlockCipher(new AESEngine()));
+            super(createGCM(createEngine()));
         }
     }
 
@@ -118,7 +141,7 @@ public final class AES
     {
         public CCM()
         {
-            super(new CCMBlockCipher(new AESEngine()), false, 16);
+            super(new CCMBlockCipher(createEngine()), false, 16);
         }
     }
 
@@ -127,7 +150,7 @@ public final class AES
     {
         public AESCMAC()
         {
-            super(new CMac(new AESEngine()));
+            super(new CMac(createEngine()));
         }
     }
 
@@ -136,7 +159,7 @@ public final class AES
     {
         public AESGMAC()
         {
-            super(new GMac(new GCMBlockCipher(new AESEngine())));
+            super(new GMac(new GCMBlockCipher(createEngine())));
         }
     }
 
@@ -151,7 +174,7 @@ public final class AES
         private static class CCMMac
             implements Mac
         {
-            private final CCMBlockCipher ccm = new CCMBlockCipher(new AESEngine());
+            private final CCMBlockCipher ccm = new CCMBlockCipher(createEngine());
 
             private int macLength = 8;
 
@@ -219,7 +242,7 @@ public final class AES
     {
         public Poly1305()
         {
-            super(new ru.mipt.cybersecurity.crypto.macs.Poly1305(new AESEngine()));
+            super(new ru.mipt.cybersecurity.crypto.macs.Poly1305(createEngine()));
         }
     }
 
@@ -255,7 +278,7 @@ public final class AES
     {
         public RFC3211Wrap()
         {
-            super(new RFC3211WrapEngine(new AESEngine()), 16);
+            super(new RFC3211WrapEngine(createEngine()), 16);
         }
     }
 
@@ -264,7 +287,7 @@ public final class AES
     {
         public RFC5649Wrap()
         {
-            super(new RFC5649WrapEngine(new AESEngine()));
+            super(new RFC5649WrapEngine(createEngine()));
         }
     }
 
@@ -276,7 +299,7 @@ public final class AES
     {
         public PBEWithAESCBC()
         {
-            super(new CBCBlockCipher(new AESEngine()));
+            super(new CBCBlockCipher(createEngine()));
         }
     }
 
@@ -288,7 +311,7 @@ public final class AES
     {
         public PBEWithSHA1AESCBC128()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA1, 128, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA1, 128, 16);
         }
     }
 
@@ -297,7 +320,7 @@ public final class AES
     {
         public PBEWithSHA1AESCBC192()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA1, 192, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA1, 192, 16);
         }
     }
 
@@ -306,7 +329,7 @@ public final class AES
     {
         public PBEWithSHA1AESCBC256()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA1, 256, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA1, 256, 16);
         }
     }
 
@@ -318,7 +341,7 @@ public final class AES
     {
         public PBEWithSHA256AESCBC128()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA256, 128, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA256, 128, 16);
         }
     }
 
@@ -327,7 +350,7 @@ public final class AES
     {
         public PBEWithSHA256AESCBC192()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA256, 192, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA256, 192, 16);
         }
     }
 
@@ -336,7 +359,7 @@ public final class AES
     {
         public PBEWithSHA256AESCBC256()
         {
-            super(new CBCBlockCipher(new AESEngine()), PKCS12, SHA256, 256, 16);
+            super(new CBCBlockCipher(createEngine()), PKCS12, SHA256, 256, 16);
         }
     }
 
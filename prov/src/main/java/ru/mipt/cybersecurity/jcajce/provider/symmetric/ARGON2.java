@@ -0,0 +1,131 @@
+package ru.mipt.cybersecurity.jcajce.provider.symmetric;
+
+import java.security.spec.InvalidKeySpecException;
+import java.security.spec.KeySpec;
+
+import javax.crypto.SecretKey;
+
+import ru.mipt.cybersecurity.crypto.CipherParameters;
+import ru.mipt.cybersecurity.crypto.generators.Argon2BytesGenerator;
+import ru.mipt.cybersecurity.crypto.params.Argon2Parameters;
+import ru.mipt.cybersecurity.crypto.params.KeyParameter;
+import ru.mipt.cybersecurity.jcajce.provider.config.ConfigurableProvider;
+import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BCPBEKey;
+import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseSecretKeyFactory;
+import ru.mipt.cybersecurity.jcajce.provider.util.AlgorithmProvider;
+import ru.mipt.cybersecurity.jcajce.provider.util.ParallelExecutor;
+import ru.mipt.cybersecurity.jcajce.spec.Argon2KeySpec;
+
+public class ARGON2
+{
+    private ARGON2()
+    {
+
+    }
+
+    public static class BaseArgon2
+        extends BaseSecretKeyFactory
+    {
+        private int type;
+
+        public BaseArgon2(String name, int type)
+        {
+            super(name, null);
+
+            this.type = type;
+        }
+
+        protected SecretKey engineGenerateSecret(
+            KeySpec keySpec)
+            throws InvalidKeySpecException
+        {
+            if (keySpec instanceof Argon2KeySpec)
+            {
+                Argon2KeySpec argonSpec = (Argon2KeySpec)keySpec;
+
+                if (argonSpec.getSalt() == null)
+                {
+                    throw new IllegalArgumentException("Salt S must be provided.");
+                }
+
+                if (argonSpec.getKeyLength() < 32 || argonSpec.getKeyLength() % 8 != 0)
+                {
+                    throw new InvalidKeySpecException("key length must be a multiple of 8 and at least 32: "
+                        + argonSpec.getKeyLength());
+                }
+
+                if (argonSpec.getPassword().length == 0)
+                {
+                    throw new IllegalArgumentException("password empty");
+                }
+
+                Argon2Parameters parameters = new Argon2Parameters.Builder(type)
+                    .withSalt(argonSpec.getSalt())
+                    .withIterations(argonSpec.getIterations())
+                    .withMemoryAsKB(argonSpec.getMemory())
+                    .withParallelism(argonSpec.getParallelism())
+                    .build();
+
+                // only worth handing the lanes to other threads if there is more than one of them
+                Argon2BytesGenerator generator = (parameters.getLanes() > 1)
+                    ? new Argon2BytesGenerator(ParallelExecutor.getInstance()) : new Argon2BytesGenerator();
+
+                generator.init(parameters);
+
+                byte[] key = new byte[argonSpec.getKeyLength() / 8];
+
+                generator.generateBytes(argonSpec.getPassword(), key);
+
+                CipherParameters param = new KeyParameter(key);
+
+                return new BCPBEKey(this.algName, argonSpec, param);
+            }
+
+            throw new InvalidKeySpecException("Invalid KeySpec");
+        }
+    }
+
+    public static class Argon2d
+        extends BaseArgon2
+    {
+        public Argon2d()
+        {
+            super("ARGON2D", Argon2Parameters.ARGON2_d);
+        }
+    }
+
+    public static class Argon2i
+        extends BaseArgon2
+    {
+        public Argon2i()
+        {
+            super("ARGON2I", Argon2Parameters.ARGON2_i);
+        }
+    }
+
+    public static class Argon2id
+        extends BaseArgon2
+    {
+        public Argon2id()
+        {
+            super("ARGON2ID", Argon2Parameters.ARGON2_id);
+        }
+    }
+
+    public static class Mappings
+        extends AlgorithmProvider
+    {
+        private static final String PREFIX = ARGON2.class.getName();
+
+        public Mappings()
+        {
+        }
+
+        public void configure(ConfigurableProvider provider)
+        {
+            provider.addAlgorithm("SecretKeyFactory.ARGON2D", PREFIX + "$Argon2d");
+            provider.addAlgorithm("SecretKeyFactory.ARGON2I", PREFIX + "$Argon2i");
+            provider.addAlgorithm("SecretKeyFactory.ARGON2ID", PREFIX + "$Argon2id");
+        }
+    }
+}
@@ -3,9 +3,12 @@ package ru.mipt.cybersecurity.jcajce.provider.symmetric;
 import ru.mipt.cybersecurity.crypto.CipherKeyGenerator;
 import ru.mipt.cybersecurity.crypto.engines.ChaCha7539Engine;
 import ru.mipt.cybersecurity.crypto.engines.ChaChaEngine;
+import ru.mipt.cybersecurity.crypto.modes.ChaCha20Poly1305;
 import ru.mipt.cybersecurity.jcajce.provider.config.ConfigurableProvider;
+import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseBlockCipher;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseKeyGenerator;
 import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.BaseStreamCipher;
+import ru.mipt.cybersecurity.jcajce.provider.symmetric.util.IvAlgorithmParameters;
 import ru.mipt.cybersecurity.jcajce.provider.util.AlgorithmProvider;
 
 public final class ChaCha
@@ -50,6 +53,24 @@ public final class ChaCha
         }
     }
 
+    public static class Base20Poly1305
+        extends BaseBlockCipher
+    {
+        public Base20Poly1305()
+        {
+            super(new ChaCha20Poly1305(), true, 12);
+        }
+    }
+
+    public static class AlgParams20Poly1305
+        extends IvAlgorithmParameters
+    {
+        protected String engineToString()
+        {
+            return "ChaCha20-Poly1305 IV";
+        }
+    }
+
     public static class Mappings
         extends AlgorithmProvider
     {
@@ -67,6 +88,11 @@ public final class ChaCha
 
             provider.addAlgorithm("Cipher.CHACHA7539", PREFIX + "$Base7539");
             provider.addAlgorithm("KeyGenerator.CHACHA7539", PREFIX + "$KeyGen7539");
+
+            provider.addAlgorithm("Cipher.CHACHA20-POLY1305", PREFIX + "$Base20Poly1305");
+            provider.addAlgorithm("AlgorithmParameters.CHACHA20POLY1305", PREFIX + "$AlgParams20Poly1305");
+            provider.addAlgorithm("Alg.Alias.AlgorithmParameters.CHACHA20-POLY1305", "CHACHA20POLY1305");
+            provider.addAlgorithm("Alg.Alias.KeyGenerator.CHACHA20-POLY1305", "CHACHA7539");
         }
     }
 }
@@ -31,8 +31,10 @@ import ru.mipt.cybersecurity.crypto.CipherParameters;
 import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.InvalidCipherTextException;
 import ru.mipt.cybersecurity.crypto.OutputLengthException;
+import ru.mipt.cybersecurity.crypto.engines.AESBitslicedEngine;
 import ru.mipt.cybersecurity.crypto.engines.DSTU7624Engine;
 import ru.mipt.cybersecurity.crypto.modes.AEADBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.AEADCipher;
 import ru.mipt.cybersecurity.crypto.modes.CBCBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.CCMBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.CFBBlockCipher;
@@ -49,6 +51,8 @@ import ru.mipt.cybersecurity.crypto.modes.OFBBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.OpenPGPCFBBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.PGPCFBBlockCipher;
 import ru.mipt.cybersecurity.crypto.modes.SICBlockCipher;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMPrecomputationCache;
+import ru.mipt.cybersecurity.crypto.modes.gcm.Tables64kGCMMultiplier;
 import ru.mipt.cybersecurity.crypto.paddings.BlockCipherPadding;
 import ru.mipt.cybersecurity.crypto.paddings.ISO10126d2Padding;
 import ru.mipt.cybersecurity.crypto.paddings.ISO7816d4Padding;
@@ -63,6 +67,7 @@ import ru.mipt.cybersecurity.crypto.params.ParametersWithRandom;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithSBox;
 import ru.mipt.cybersecurity.crypto.params.RC2Parameters;
 import ru.mipt.cybersecurity.crypto.params.RC5Parameters;
+import ru.mipt.cybersecurity.crypto.util.ByteBuffers;
 import ru.mipt.cybersecurity.jcajce.PBKDF1Key;
 import ru.mipt.cybersecurity.jcajce.PBKDF1KeyWithParameters;
 import ru.mipt.cybersecurity.jcajce.PKCS12Key;
@@ -110,6 +115,24 @@ public class BaseBlockCipher
 
     private String                  modeName = null;
 
+    /**
+     * Create the GCM cipher used by the provider. GHASH uses 64k tables shared through the default
+     * {@link GCMPrecomputationCache}, so Cipher objects initialised with the same key build their
+     * tables only once. The constant time AES keeps its constant time multiplier.
+     *
+     * @param engine the underlying block cipher.
+     * @return a GCM cipher over engine.
+     */
+    protected static GCMBlockCipher createGCM(BlockCipher engine)
+    {
+        if (engine instanceof AESBitslicedEngine)
+        {
+            return new GCMBlockCipher(engine);
+        }
+
+        return new GCMBlockCipher(engine, new Tables64kGCMMultiplier(GCMPrecomputationCache.getDefault()));
+    }
+
     protected BaseBlockCipher(
         BlockCipher engine)
     {
@@ -163,6 +186,21 @@ public class BaseBlockCipher
         this.cipher = new AEADGenericBlockCipher(engine);
     }
 
+    /**
+     * Constructor for an AEAD cipher which is not built on a block cipher, such as ChaCha20-Poly1305.
+     * Only a mode of NONE and NoPadding are accepted.
+     */
+    protected BaseBlockCipher(
+        AEADCipher engine,
+        boolean fixedIv,
+        int ivLength)
+    {
+        this.baseEngine = null;
+        this.fixedIv = fixedIv;
+        this.ivLength = ivLength;
+        this.cipher = new AEADGenericBlockCipher(engine);
+    }
+
     protected BaseBlockCipher(
         ru.mipt.cybersecurity.crypto.BlockCipher engine,
         int ivLength)
@@ -185,6 +223,10 @@ public class BaseBlockCipher
 
     protected int engineGetBlockSize()
     {
+        if (baseEngine == null)
+        {
+            return 0;
+        }
         return baseEngine.getBlockSize();
     }
 
@@ -230,8 +272,16 @@ public class BaseBlockCipher
             {
                 try
                 {
-                    engineParams = createParametersInstance("GCM");
-                    engineParams.init(new GCMParameters(aeadParams.getNonce(), aeadParams.getMacSize() / 8).getEncoded());
+                    if (baseEngine == null)
+                    {
+                        engineParams = createParametersInstance(cipher.getAlgorithmName());
+                        engineParams.init(new IvParameterSpec(aeadParams.getNonce()));
+                    }
+                    else
+                    {
+                        engineParams = createParametersInstance("GCM");
+                        engineParams.init(new GCMParameters(aeadParams.getNonce(), aeadParams.getMacSize() / 8).getEncoded());
+                    }
                 }
                 catch (Exception e)
                 {
@@ -268,7 +318,14 @@ public class BaseBlockCipher
     {
         modeName = Strings.toUpperCase(mode);
 
-        if (modeName.equals("ECB"))
+        if (baseEngine == null)
+        {
+            if (!modeName.equals("NONE"))
+            {
+                throw new NoSuchAlgorithmException("can't support mode " + mode);
+            }
+        }
+        else if (modeName.equals("ECB"))
         {
             ivLength = 0;
             cipher = new BufferedGenericBlockCipher(baseEngine);
@@ -409,7 +466,7 @@ public class BaseBlockCipher
             }
             else
             {
-                cipher = new AEADGenericBlockCipher(new GCMBlockCipher(baseEngine));
+                cipher = new AEADGenericBlockCipher(createGCM(baseEngine));
             }
         }
         else
@@ -439,7 +496,7 @@ public class BaseBlockCipher
         {
             padded = true;
 
-            if (isAEADModeName(modeName))
+            if (baseEngine == null || isAEADModeName(modeName))
             {
                 throw new NoSuchPaddingException("Only NoPadding can be used with AEAD modes.");
             }
@@ -499,7 +556,7 @@ public class BaseBlockCipher
         //
         // for RC5-64 we must have some default parameters
         //
-        if (params == null && baseEngine.getAlgorithmName().startsWith("RC5-64"))
+        if (params == null && baseEngine != null && baseEngine.getAlgorithmName().startsWith("RC5-64"))
         {
             throw new InvalidAlgorithmParameterException("RC5 requires an RC5ParametersSpec to be passed in.");
         }
@@ -822,7 +879,7 @@ public class BaseBlockCipher
                 param = new ParametersWithIV(param, iv);
                 ivParam = (ParametersWithIV)param;
             }
-            else if (cipher.getUnderlyingCipher().getAlgorithmName().indexOf("PGPCFB") < 0)
+            else if (baseEngine == null || cipher.getUnderlyingCipher().getAlgorithmName().indexOf("PGPCFB") < 0)
             {
                 throw new InvalidAlgorithmParameterException("no IV set when one expected");
             }
@@ -853,7 +910,7 @@ public class BaseBlockCipher
 
             if (cipher instanceof AEADGenericBlockCipher && aeadParams == null)
             {
-                AEADBlockCipher aeadCipher = ((AEADGenericBlockCipher)cipher).cipher;
+                AEADCipher aeadCipher = ((AEADGenericBlockCipher)cipher).cipher;
 
                 aeadParams = new AEADParameters((KeyParameter)ivParam.getParameters(), aeadCipher.getMac().length * 8, ivParam.getIV());
             }
@@ -980,9 +1037,7 @@ public class BaseBlockCipher
 
     protected void engineUpdateAAD(ByteBuffer bytebuffer)
     {
-        int offset = bytebuffer.arrayOffset() + bytebuffer.position();
-        int length = bytebuffer.limit() - bytebuffer.position();
-        engineUpdateAAD(bytebuffer.array(), offset, length);
+        cipher.updateAAD(bytebuffer);
     }
 
     protected byte[] engineUpdate(
@@ -1112,6 +1167,58 @@ public class BaseBlockCipher
         }
     }
 
+    protected int engineUpdate(
+        ByteBuffer  input,
+        ByteBuffer  output)
+        throws ShortBufferException
+    {
+        if (cipher.getUpdateOutputSize(input.remaining()) > output.remaining())
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        try
+        {
+            return cipher.processBytes(input, output);
+        }
+        catch (DataLengthException e)
+        {
+            // should never occur
+            throw new IllegalStateException(e.toString());
+        }
+    }
+
+    protected int engineDoFinal(
+        ByteBuffer  input,
+        ByteBuffer  output)
+        throws IllegalBlockSizeException, BadPaddingException, ShortBufferException
+    {
+        if (engineGetOutputSize(input.remaining()) > output.remaining())
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        try
+        {
+            int len = 0;
+
+            if (input.hasRemaining())
+            {
+                len = cipher.processBytes(input, output);
+            }
+
+            return len + cipher.doFinal(output);
+        }
+        catch (OutputLengthException e)
+        {
+            throw new IllegalBlockSizeException(e.getMessage());
+        }
+        catch (DataLengthException e)
+        {
+            throw new IllegalBlockSizeException(e.getMessage());
+        }
+    }
+
     private boolean isAEADModeName(
         String modeName)
     {
@@ -1139,15 +1246,24 @@ public class BaseBlockCipher
 
         public void updateAAD(byte[] input, int offset, int length);
 
+        public void updateAAD(ByteBuffer input);
+
         public int processByte(byte in, byte[] out, int outOff)
             throws DataLengthException;
 
         public int processBytes(byte[] in, int inOff, int len, byte[] out, int outOff)
             throws DataLengthException;
 
+        public int processBytes(ByteBuffer in, ByteBuffer out)
+            throws DataLengthException;
+
         public int doFinal(byte[] out, int outOff)
             throws IllegalStateException,
             BadPaddingException;
+
+        public int doFinal(ByteBuffer out)
+            throws IllegalStateException,
+            BadPaddingException;
     }
 
     private static class BufferedGenericBlockCipher
@@ -1206,6 +1322,11 @@ public class BaseBlockCipher
             throw new UnsupportedOperationException("AAD is not supported in the current mode.");
         }
 
+        public void updateAAD(ByteBuffer input)
+        {
+            throw new UnsupportedOperationException("AAD is not supported in the current mode.");
+        }
+
         public int processByte(byte in, byte[] out, int outOff) throws DataLengthException
         {
             return cipher.processByte(in, out, outOff);
@@ -1216,6 +1337,11 @@ public class BaseBlockCipher
             return cipher.processBytes(in, inOff, len, out, outOff);
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out) throws DataLengthException
+        {
+            return cipher.processBytes(in, out);
+        }
+
         public int doFinal(byte[] out, int outOff) throws IllegalStateException, BadPaddingException
         {
             try
@@ -1227,6 +1353,18 @@ public class BaseBlockCipher
                 throw new BadPaddingException(e.getMessage());
             }
         }
+
+        public int doFinal(ByteBuffer out) throws IllegalStateException, BadPaddingException
+        {
+            try
+            {
+                return cipher.doFinal(out);
+            }
+            catch (InvalidCipherTextException e)
+            {
+                throw new BadPaddingException(e.getMessage());
+            }
+        }
     }
 
     private static class AEADGenericBlockCipher
@@ -1258,9 +1396,9 @@ public class BaseBlockCipher
             }
         }
 
-        private AEADBlockCipher cipher;
+        private AEADCipher cipher;
 
-        AEADGenericBlockCipher(AEADBlockCipher cipher)
+        AEADGenericBlockCipher(AEADCipher cipher)
         {
             this.cipher = cipher;
         }
@@ -1273,7 +1411,12 @@ public class BaseBlockCipher
 
         public String getAlgorithmName()
         {
-            return cipher.getUnderlyingCipher().getAlgorithmName();
+            if (cipher instanceof AEADBlockCipher)
+            {
+                return ((AEADBlockCipher)cipher).getUnderlyingCipher().getAlgorithmName();
+            }
+
+            return cipher.getAlgorithmName();
         }
 
         public boolean wrapOnNoPadding()
@@ -1283,7 +1426,12 @@ public class BaseBlockCipher
 
         public ru.mipt.cybersecurity.crypto.BlockCipher getUnderlyingCipher()
         {
-            return cipher.getUnderlyingCipher();
+            if (cipher instanceof AEADBlockCipher)
+            {
+                return ((AEADBlockCipher)cipher).getUnderlyingCipher();
+            }
+
+            return null;
         }
 
         public int getOutputSize(int len)
@@ -1301,6 +1449,11 @@ public class BaseBlockCipher
             cipher.processAADBytes(input, offset, length);
         }
 
+        public void updateAAD(ByteBuffer input)
+        {
+            ByteBuffers.processAADBytes(cipher, input);
+        }
+
         public int processByte(byte in, byte[] out, int outOff) throws DataLengthException
         {
             return cipher.processByte(in, out, outOff);
@@ -1311,6 +1464,11 @@ public class BaseBlockCipher
             return cipher.processBytes(in, inOff, len, out, outOff);
         }
 
+        public int processBytes(ByteBuffer in, ByteBuffer out) throws DataLengthException
+        {
+            return ByteBuffers.processBytes(cipher, in, out);
+        }
+
         public int doFinal(byte[] out, int outOff) throws IllegalStateException, BadPaddingException
         {
             try
@@ -1319,25 +1477,42 @@ public class BaseBlockCipher
             }
             catch (InvalidCipherTextException e)
             {
-                if (aeadBadTagConstructor != null)
+                throw createBadTagException(e);
+            }
+        }
+
+        public int doFinal(ByteBuffer out) throws IllegalStateException, BadPaddingException
+        {
+            try
+            {
+                return ByteBuffers.doFinal(cipher, out);
+            }
+            catch (InvalidCipherTextException e)
+            {
+                throw createBadTagException(e);
+            }
+        }
+
+        private static BadPaddingException createBadTagException(InvalidCipherTextException e)
+        {
+            if (aeadBadTagConstructor != null)
+            {
+                BadPaddingException aeadBadTag = null;
+                try
                 {
-                    BadPaddingException aeadBadTag = null;
-                    try
-                    {
-                        aeadBadTag = (BadPaddingException)aeadBadTagConstructor
-                                .newInstance(new Object[]{e.getMessage()});
-                    }
-                    catch (Exception i)
-                    {
-                        // Shouldn't happen, but fall through to BadPaddingException
-                    }
-                    if (aeadBadTag != null)
-                    {
-                        throw aeadBadTag;
-                    }
+                    aeadBadTag = (BadPaddingException)aeadBadTagConstructor
+                            .newInstance(new Object[]{e.getMessage()});
+                }
+                catch (Exception i)
+                {
+                    // Shouldn't happen, but fall through to BadPaddingException
+                }
+                if (aeadBadTag != null)
+                {
+                    return aeadBadTag;
                 }
-                throw new BadPaddingException(e.getMessage());
             }
+            return new BadPaddingException(e.getMessage());
         }
     }
 
@@ -1,5 +1,6 @@
 package ru.mipt.cybersecurity.jcajce.provider.symmetric.util;
 
+import java.nio.ByteBuffer;
 import java.security.AlgorithmParameters;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
@@ -23,6 +24,7 @@ import ru.mipt.cybersecurity.crypto.DataLengthException;
 import ru.mipt.cybersecurity.crypto.StreamCipher;
 import ru.mipt.cybersecurity.crypto.params.KeyParameter;
 import ru.mipt.cybersecurity.crypto.params.ParametersWithIV;
+import ru.mipt.cybersecurity.crypto.util.ByteBuffers;
 import ru.mipt.cybersecurity.jcajce.PKCS12Key;
 import ru.mipt.cybersecurity.jcajce.PKCS12KeyWithParameters;
 
@@ -358,6 +360,27 @@ public class BaseStreamCipher
         }
     }
 
+    protected int engineUpdate(
+        ByteBuffer  input,
+        ByteBuffer  output)
+        throws ShortBufferException
+    {
+        if (input.remaining() > output.remaining())
+        {
+            throw new ShortBufferException("output buffer too short for input.");
+        }
+
+        try
+        {
+            return ByteBuffers.processBytes(cipher, input, output);
+        }
+        catch (DataLengthException e)
+        {
+            // should never happen
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
     protected byte[] engineDoFinal(
         byte[]  input,
         int     inputOffset,
@@ -399,4 +422,16 @@ public class BaseStreamCipher
         
         return inputLen;
     }
+
+    protected int engineDoFinal(
+        ByteBuffer  input,
+        ByteBuffer  output)
+        throws ShortBufferException
+    {
+        int len = engineUpdate(input, output);
+
+        cipher.reset();
+
+        return len;
+    }
 }
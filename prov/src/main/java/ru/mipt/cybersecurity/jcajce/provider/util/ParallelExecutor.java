@@ -0,0 +1,41 @@
+package ru.mipt.cybersecurity.jcajce.provider.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holder for the one pool the provider hands work to when an algorithm can split it up, such as
+ * the parallel tree digests and multi-lane Argon2. The pool is only created when first asked for,
+ * and its threads are daemons, so an idle pool never holds up JVM exit.
+ */
+public class ParallelExecutor
+{
+    private static final int MAX_THREADS = 8;
+
+    private static final ExecutorService INSTANCE = Executors.newFixedThreadPool(
+        Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors()), new ThreadFactory()
+        {
+            private final AtomicInteger count = new AtomicInteger();
+
+            public Thread newThread(Runnable runnable)
+            {
+                Thread thread = new Thread(runnable, "BC parallel worker " + count.incrementAndGet());
+
+                thread.setDaemon(true);
+
+                return thread;
+            }
+        });
+
+    private ParallelExecutor()
+    {
+
+    }
+
+    public static ExecutorService getInstance()
+    {
+        return INSTANCE;
+    }
+}
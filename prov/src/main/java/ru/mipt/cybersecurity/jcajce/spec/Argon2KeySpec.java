@@ -0,0 +1,79 @@
+package ru.mipt.cybersecurity.jcajce.spec;
+
+import java.security.spec.KeySpec;
+
+import ru.mipt.cybersecurity.util.Arrays;
+
+/**
+ * Key spec for use with the Argon2 SecretKeyFactory - the Argon2 type is given by the factory's algorithm.
+ */
+public class Argon2KeySpec
+    implements KeySpec
+{
+    private final char[] password;
+    private final byte[] salt;
+    private final int iterations;
+    private final int memory;
+    private final int parallelism;
+    private final int keySize;
+
+    /**
+     * Base constructor.
+     *
+     * @param password the password.
+     * @param salt the salt.
+     * @param iterations the number of passes over the memory.
+     * @param memory the memory size in kibibytes.
+     * @param parallelism the number of lanes.
+     * @param keySize the length of the key to generate in bits.
+     */
+    public Argon2KeySpec(char[] password, byte[] salt, int iterations, int memory, int parallelism, int keySize)
+    {
+        this.password = password;
+        this.salt = Arrays.clone(salt);
+        this.iterations = iterations;
+        this.memory = memory;
+        this.parallelism = parallelism;
+        this.keySize = keySize;
+    }
+
+    public char[] getPassword()
+    {
+        return password;
+    }
+
+    public byte[] getSalt()
+    {
+        return Arrays.clone(salt);
+    }
+
+    public int getIterations()
+    {
+        return iterations;
+    }
+
+    /**
+     * Memory size (in kibibytes).
+     *
+     * @return the memory size in kibibytes.
+     */
+    public int getMemory()
+    {
+        return memory;
+    }
+
+    public int getParallelism()
+    {
+        return parallelism;
+    }
+
+    /**
+     * Key length (in bits).
+     *
+     * @return length of the key to generate in bits.
+     */
+    public int getKeyLength()
+    {
+        return keySize;
+    }
+}
@@ -0,0 +1,74 @@
+package ru.mipt.cybersecurity.jcajce.provider.test;
+
+import java.security.SecureRandom;
+
+import ru.mipt.cybersecurity.crypto.digests.SHA512Digest;
+import ru.mipt.cybersecurity.crypto.prng.DeviceEntropySourceProvider;
+import ru.mipt.cybersecurity.crypto.prng.SP800SecureRandomBuilder;
+import ru.mipt.cybersecurity.jce.provider.BouncyCastleProvider;
+
+/**
+ * Microbenchmark of the DEFAULT SecureRandom under contention, against a single prediction resistant
+ * DRBG built the same way. Every request reseeds, so this mostly measures how well entropy gathering
+ * for the pooled DRBGs runs side by side.
+ */
+public class DefaultRandomThroughputTest
+{
+    private static final int REQUEST_SIZE = 32;
+    private static final long RUN_MILLIS = 2000;
+
+    public static void main(String[] args)
+        throws Exception
+    {
+        int cpus = Runtime.getRuntime().availableProcessors();
+
+        SecureRandom pooled = SecureRandom.getInstance("DEFAULT", new BouncyCastleProvider());
+        SecureRandom single = new SP800SecureRandomBuilder(new DeviceEntropySourceProvider())
+            .buildHash(new SHA512Digest(), null, true);
+
+        for (int threads = 1; threads <= cpus; threads *= 2)
+        {
+            System.out.println(threads + " thread(s): DEFAULT " + run(pooled, threads)
+                + " requests/s, single DRBG " + run(single, threads) + " requests/s");
+        }
+    }
+
+    private static long run(final SecureRandom random, int threadCount)
+        throws InterruptedException
+    {
+        final long end = System.currentTimeMillis() + RUN_MILLIS;
+        final long[] counts = new long[threadCount];
+        Thread[] threads = new Thread[threadCount];
+
+        for (int t = 0; t != threadCount; t++)
+        {
+            final int index = t;
+            threads[t] = new Thread()
+            {
+                public void run()
+                {
+                    byte[] bytes = new byte[REQUEST_SIZE];
+                    long count = 0;
+
+                    while (System.currentTimeMillis() < end)
+                    {
+                        random.nextBytes(bytes);
+                        count++;
+                    }
+
+                    counts[index] = count;
+                }
+            };
+            threads[t].start();
+        }
+
+        long total = 0;
+        for (int t = 0; t != threadCount; t++)
+        {
+            threads[t].join();
+            total += counts[t];
+        }
+
+        return total * 1000 / RUN_MILLIS;
+    }
+}
@@ -20,6 +20,7 @@ import javax.crypto.spec.SecretKeySpec;
 
 import junit.framework.TestCase;
 import ru.mipt.cybersecurity.asn1.cms.GCMParameters;
+import ru.mipt.cybersecurity.crypto.modes.gcm.GCMPrecomputationCache;
 import ru.mipt.cybersecurity.jcajce.spec.AEADParameterSpec;
 import ru.mipt.cybersecurity.jcajce.spec.RepeatedSecretKeySpec;
 import ru.mipt.cybersecurity.jce.provider.BouncyCastleProvider;
@@ -68,6 +69,7 @@ public class AEADTest extends SimpleTest
             testGCMGeneric(KGCM, NGCM, new byte[0], new byte[0], CGCM);
             testGCMParameterSpecWithMultipleUpdates(K2, N2, A2, P2, C2);
             testRepeatedGCMWithSpec(KGCM, NGCM, A2, P2, Hex.decode("f4732d84342623f65b7d63c3c335dd44b87d"));
+            testGCMSharedTables(KGCM, NGCM, A2, P2);
         }
         else
         {
@@ -358,6 +360,37 @@ public class AEADTest extends SimpleTest
         }
     }
 
+    private void testGCMSharedTables(byte[] K,
+                                     byte[] N,
+                                     byte[] A,
+                                     byte[] P)
+        throws Exception
+    {
+        GCMPrecomputationCache cache = GCMPrecomputationCache.getDefault();
+        SecretKeySpec key = new SecretKeySpec(K, "AES");
+        GCMParameterSpec spec = new GCMParameterSpec(128, N);
+
+        cache.clear();
+
+        Cipher c1 = Cipher.getInstance("AES/GCM/NoPadding", "BC");
+        Cipher c2 = Cipher.getInstance("GCM", "BC");
+        c1.init(Cipher.ENCRYPT_MODE, key, spec);
+        c2.init(Cipher.DECRYPT_MODE, key, spec);
+
+        if (cache.size() != 1)
+        {
+            fail("GCM tables not shared between ciphers with the same key");
+        }
+
+        c1.updateAAD(A);
+        c2.updateAAD(A);
+
+        if (!areEqual(P, c2.doFinal(c1.doFinal(P))))
+        {
+            fail("GCM with shared tables failed");
+        }
+    }
+
     private void testGCMGeneric(byte[] K,
                                       byte[] N,
                                       byte[] A,
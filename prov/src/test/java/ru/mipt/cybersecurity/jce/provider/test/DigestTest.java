@@ -52,6 +52,20 @@ public class DigestTest
         { MiscObjectIdentifiers.id_blake2b256.getId(), "bddd813c634239723171ef3fee98579b94964e3bb1cb3e427262c8c068d52319" },
         { MiscObjectIdentifiers.id_blake2b384.getId(), "6f56a82c8e7ef526dfe182eb5212f7db9df1317e57815dbda46083fc30f54ee6c66ba83be64b302d7cba6ce15bb556f4" },
         { MiscObjectIdentifiers.id_blake2b512.getId(), "ba80a53f981c4d0d6a2797b69f12f6e94c212f14685ac4b74b12bb6fdbffa2d17d87c5392aab792dc252d5de4533cc9518d38aa8dbf1925ab92386edd4009923" },
+        { "BLAKE2BP-512", "b91a6b66ae87526c400b0a8b53774dc65284ad8f6575f8148ff93dff943a6ecd8362130f22d6dae633aa0f91df4ac89aaff31d0f1b923c898e82025dedbdad6e" },
+        { "BLAKE2S-128", "aa4938119b1dc7b87cbad0ffd200d0ae" },
+        { "BLAKE2S-160", "5ae3b99be29b01834c3b508521ede60438f8de17" },
+        { "BLAKE2S-224", "0b033fc226df7abde29f67a05d3dc62cf271ef3dfea4d387407fbd55" },
+        { "BLAKE2S-256", "508c5e8c327c14e2e1a72ba34eeb452f37458b209ed63a294d999b4c86675982" },
+        { MiscObjectIdentifiers.id_blake2s128.getId(), "aa4938119b1dc7b87cbad0ffd200d0ae" },
+        { MiscObjectIdentifiers.id_blake2s160.getId(), "5ae3b99be29b01834c3b508521ede60438f8de17" },
+        { MiscObjectIdentifiers.id_blake2s224.getId(), "0b033fc226df7abde29f67a05d3dc62cf271ef3dfea4d387407fbd55" },
+        { MiscObjectIdentifiers.id_blake2s256.getId(), "508c5e8c327c14e2e1a72ba34eeb452f37458b209ed63a294d999b4c86675982" },
+        { "BLAKE2SP-256", "70f75b58f1fecab821db43c88ad84edde5a52600616cd22517b7bb14d440a7d5" },
+        { "TUPLEHASH128-256", "873195cadfea6bc6a71cdd903da87afb49fd232d71db817c3abcad48ad8a7898" },
+        { "TUPLEHASH256-512", "ca7a87aba99f45aecff1ec6fe534e9d691ae31cb8a7aa5d48b26c563aae2099ef7265381acd2da55b679ab903b0c45e933a92d2a8fc65898f2d95ed7a415b650" },
+        { "PARALLELHASH128-256", "f07b9b1d0da389544bce61cfead55b2d599ecbb6aedc21e2850513900290fd0b" },
+        { "PARALLELHASH256-512", "820040c1e9577df899a483b67d235c8cc25b61a99ad604d2f64c2b998f21b43e1f4952584fcad517c5993ea0c013ee6f3f9622343084894fdeef516ab0df3353" },
         { "GOST3411-2012-256", "4e2919cf137ed41ec4fb6270c61826cc4fffb660341e0af3688cd0626d23b481" },
         { RosstandartObjectIdentifiers.id_tc26_gost_3411_12_256.getId(), "4e2919cf137ed41ec4fb6270c61826cc4fffb660341e0af3688cd0626d23b481" },
         { "GOST3411-2012-512", "28156e28317da7c98f4fe2bed6b542d0dab85bb224445fcedaf75d46e26d7eb8d5997f3e0915dd6b7f0aab08d9c8beb0d8c64bae2ab8b3c8c6bc53b3bf0db728" },
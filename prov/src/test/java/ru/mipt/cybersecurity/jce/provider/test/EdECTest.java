@@ -0,0 +1,139 @@
+package ru.mipt.cybersecurity.jce.provider.test;
+
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.Security;
+import java.security.Signature;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+
+import javax.crypto.KeyAgreement;
+
+import ru.mipt.cybersecurity.jce.provider.BouncyCastleProvider;
+import ru.mipt.cybersecurity.util.Arrays;
+import ru.mipt.cybersecurity.util.Strings;
+import ru.mipt.cybersecurity.util.encoders.Base64;
+import ru.mipt.cybersecurity.util.test.SimpleTest;
+
+public class EdECTest
+    extends SimpleTest
+{
+    // RFC 8410 section 10.3
+    private static final byte[] pubEnc = Base64.decode(
+        "MCowBQYDK2VwAyEAGb9ECWmEzf6FQbrBZ9w7lshQhqowtrbLDFw4rXAxZuE=");
+
+    private static final byte[] privEnc = Base64.decode(
+        "MC4CAQAwBQYDK2VwBCIEINTuctv5E1hK1bbY8fdp+K06/nwoy/HU++CXqI9EdVhC");
+
+    public String getName()
+    {
+        return "EdEC";
+    }
+
+    public void performTest()
+        throws Exception
+    {
+        KeyFactory kFact = KeyFactory.getInstance("EdDSA", "BC");
+
+        PublicKey pub = kFact.generatePublic(new X509EncodedKeySpec(pubEnc));
+
+        isTrue("pub key alg", "Ed25519".equals(pub.getAlgorithm()));
+        isTrue("pub key encoding", Arrays.areEqual(pubEnc, pub.getEncoded()));
+
+        PrivateKey priv = kFact.generatePrivate(new PKCS8EncodedKeySpec(privEnc));
+
+        isTrue("priv key encoding", Arrays.areEqual(privEnc, priv.getEncoded()));
+
+        signatureTest(new KeyPair(pub, priv));
+
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance("Ed25519", "BC");
+
+        kpGen.initialize(new ECGenParameterSpec("Ed25519"), new SecureRandom());
+
+        signatureTest(kpGen.generateKeyPair());
+
+        agreementTest("XDH");
+        agreementTest("X25519");
+
+        encodingTest("XDH");
+        encodingTest("EdDSA");
+    }
+
+    private void signatureTest(KeyPair kp)
+        throws Exception
+    {
+        Signature sig = Signature.getInstance("EdDSA", "BC");
+        byte[] msg = Strings.toByteArray("Hello, world!");
+
+        sig.initSign(kp.getPrivate());
+        sig.update(msg);
+
+        byte[] s = sig.sign();
+
+        isTrue("signature length", s.length == 64);
+
+        sig.initVerify(kp.getPublic());
+        sig.update(msg);
+
+        isTrue("signature failed", sig.verify(s));
+
+        sig.initVerify(kp.getPublic());
+        sig.update(msg, 1, msg.length - 1);
+
+        isTrue("bad message verified", !sig.verify(s));
+    }
+
+    private void agreementTest(String algorithm)
+        throws Exception
+    {
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance(algorithm, "BC");
+
+        kpGen.initialize(255, new SecureRandom());
+
+        KeyPair kp1 = kpGen.generateKeyPair();
+        KeyPair kp2 = kpGen.generateKeyPair();
+
+        KeyAgreement ka = KeyAgreement.getInstance(algorithm, "BC");
+
+        ka.init(kp1.getPrivate());
+        ka.doPhase(kp2.getPublic(), true);
+
+        byte[] sec1 = ka.generateSecret();
+
+        ka.init(kp2.getPrivate());
+        ka.doPhase(kp1.getPublic(), true);
+
+        byte[] sec2 = ka.generateSecret();
+
+        isTrue(algorithm + " agreement failed", sec1.length == 32 && Arrays.areEqual(sec1, sec2));
+    }
+
+    private void encodingTest(String algorithm)
+        throws Exception
+    {
+        KeyPairGenerator kpGen = KeyPairGenerator.getInstance(algorithm, "BC");
+        KeyFactory kFact = KeyFactory.getInstance(algorithm, "BC");
+
+        KeyPair kp = kpGen.generateKeyPair();
+
+        PublicKey pub = kFact.generatePublic(new X509EncodedKeySpec(kp.getPublic().getEncoded()));
+        PrivateKey priv = kFact.generatePrivate(new PKCS8EncodedKeySpec(kp.getPrivate().getEncoded()));
+
+        isTrue(algorithm + " public key round trip", pub.equals(kp.getPublic()));
+        isTrue(algorithm + " private key round trip", priv.equals(kp.getPrivate()));
+        isTrue(algorithm + " hashCode", pub.hashCode() == kp.getPublic().hashCode());
+    }
+
+    public static void main(
+        String[] args)
+    {
+        Security.addProvider(new BouncyCastleProvider());
+
+        runTest(new EdECTest());
+    }
+}